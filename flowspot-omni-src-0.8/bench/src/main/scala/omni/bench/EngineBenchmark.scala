@@ -0,0 +1,118 @@
+package omni.bench
+
+import flatgraph.DiffGraphApplier
+import io.joern.dataflowengineoss.language.Path
+import io.joern.dataflowengineoss.queryengine.{EngineConfig, EngineContext}
+import io.shiftleft.codepropertygraph.generated.{Cpg, DiffGraphBuilder}
+import io.shiftleft.codepropertygraph.generated.nodes.CfgNode
+import io.shiftleft.semanticcpg.language.*
+import omni.filter.DuplicateFlow
+import omni.flowspot.core.FlowSpotBugInstance
+import omni.scan.*
+import omni.scan.generate.SinkQueryGenerator
+import omni.scan.generate.sources.SpringMappingTagger
+import omni.scan.newpass.OptimizedScanPass
+import omni.util.ProgressCallbackFactory
+import org.openjdk.jmh.annotations.*
+import org.openjdk.jmh.infra.Blackhole
+
+import java.nio.file.Files
+import java.util.ArrayList
+import java.util.concurrent.TimeUnit
+
+/**
+ * 引擎热点路径的 JMH 基准测试
+ * 在合成 CPG（N 个 Controller、每个 M 个 sink、调用深度 D）上分别测量：
+ * sink 规则打标、批量可达性分析、子路径去重、sink 位置去重和结果转换
+ *
+ * 运行：sbt "bench/Jmh/run -rf json -rff bench/baselines/<date>.json"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Array(Mode.AverageTime))
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+class EngineBenchmark {
+
+  @Param(Array("10", "50"))
+  var controllers: Int = 0
+
+  @Param(Array("4"))
+  var sinksPerController: Int = 0
+
+  @Param(Array("3"))
+  var depth: Int = 0
+
+  private var workDir: java.nio.file.Path = null
+  private var cpg: Cpg = null
+  private var sinkQueries: List[Query] = Nil
+  private var pass: OptimizedScanPass = null
+  private var sources: List[CfgNode] = Nil
+  private var sinks: List[CfgNode] = Nil
+  private var paths: List[Path] = Nil
+  private var pathIds: Set[String] = Set.empty
+
+  @Setup(Level.Trial)
+  def setup(): Unit = {
+    workDir = Files.createTempDirectory("flowspot_bench_")
+    val project = SyntheticProject(controllers, sinksPerController, depth)
+    project.writeSources(workDir)
+    val sinksJson = project.writeSinksJson(workDir)
+    cpg = project.buildCpg(workDir)
+
+    sinkQueries = SinkQueryGenerator.generateSinkQueries(sinksJson.toString)
+    val sourceQueries = List(SpringMappingTagger.springMapping())
+
+    // 预先打标一次，供可达性、去重与转换基准使用
+    implicit val builder: DiffGraphBuilder = Cpg.newDiffGraphBuilder
+    sourceQueries.foreach(q => q.traversal(cpg).tagAsSource(q.name))
+    sinkQueries.foreach(q => q.traversal(cpg).tagAsSink(q.name))
+    DiffGraphApplier.applyDiff(cpg.graph, builder)
+
+    implicit val engineContext: EngineContext = EngineContext(config = EngineConfig(maxCallDepth = 4))
+    pass = new OptimizedScanPass(
+      cpg,
+      sourceQueries ++ sinkQueries,
+      maxCallDepth = 4,
+      callback = ProgressCallbackFactory.createSilentCallback()
+    )
+    sources = cpg.sources.l
+    sinks = cpg.sinks.l
+    paths = pass.batchProcessFlows(sources, sinks)
+    pathIds = paths.map(p => p.elements.map(_.id()).mkString("-")).toSet
+  }
+
+  @TearDown(Level.Trial)
+  def tearDown(): Unit = {
+    if (cpg != null) cpg.close()
+    if (workDir != null) better.files.File(workDir).delete(swallowIOExceptions = true)
+  }
+
+  @Benchmark
+  def sinkQueryTagging(bh: Blackhole): Unit = {
+    // 只构建 diff，不写回 CPG，保证每次迭代输入一致
+    implicit val builder: DiffGraphBuilder = Cpg.newDiffGraphBuilder
+    sinkQueries.foreach(q => q.traversal(cpg).tagAsSink(q.name))
+    bh.consume(builder)
+  }
+
+  @Benchmark
+  def batchProcessFlows(): List[Path] =
+    pass.batchProcessFlows(sources, sinks)
+
+  @Benchmark
+  def pathIdsPerSourceIdAfterDedup(): Set[String] =
+    DuplicateFlow.pathIdsPerSourceIdAfterDedup(pathIds)
+
+  @Benchmark
+  def deduplicateBySinkLocation(): List[Path] =
+    pass.deduplicateBySinkLocation(paths)
+
+  @Benchmark
+  def processBugPath(): ArrayList[FlowSpotBugInstance] = {
+    val bugInstances = new ArrayList[FlowSpotBugInstance]()
+    paths.foreach(path => FlowSpot.processBugPath(path, "bench", "BENCH_COMMAND_INJECTION", 9, "", bugInstances))
+    bugInstances
+  }
+}
@@ -0,0 +1,104 @@
+package omni.bench
+
+import java.nio.charset.StandardCharsets
+import java.nio.file.{Files, Path}
+
+/**
+ * 端到端基准使用的固定样例应用
+ * 每个样例按框架生成 copies 份入口类，入口参数分别命中 Spring/Struts2/Dubbo/Netty 的 source 规则，
+ * 最终流向命令执行 sink；源码完全由代码生成，保证离线可复现
+ */
+case class SampleApp(name: String, copies: Int, generate: (Path, Int) => Unit) {
+  def writeTo(root: Path): Unit = generate(root, copies)
+}
+
+object SampleApps {
+
+  val all: List[SampleApp] = List(
+    SampleApp("spring-mvc", 40, (root, copies) => SyntheticProject(copies, 2, 3).writeSources(root)),
+    SampleApp("struts2", 40, writeStruts2),
+    SampleApp("dubbo", 40, writeDubbo),
+    SampleApp("netty", 40, writeNetty)
+  )
+
+  def byName(name: String): Option[SampleApp] = all.find(_.name == name)
+
+  private def writeStruts2(root: Path, copies: Int): Unit = {
+    val dir = packageDir(root, "struts")
+    (0 until copies).foreach { i =>
+      write(dir.resolve(s"Command${i}Action.java"),
+        s"""package bench.struts;
+           |
+           |import com.opensymphony.xwork2.ActionSupport;
+           |
+           |public class Command${i}Action extends ActionSupport {
+           |
+           |    public String run(String command) throws Exception {
+           |        Runtime.getRuntime().exec(normalize(command));
+           |        return SUCCESS;
+           |    }
+           |
+           |    private String normalize(String value) {
+           |        return value.trim();
+           |    }
+           |}
+           |""".stripMargin)
+    }
+  }
+
+  private def writeDubbo(root: Path, copies: Int): Unit = {
+    val dir = packageDir(root, "dubbo")
+    (0 until copies).foreach { i =>
+      write(dir.resolve(s"TaskService$i.java"),
+        s"""package bench.dubbo;
+           |
+           |public interface TaskService$i {
+           |    void submit(String task) throws Exception;
+           |}
+           |""".stripMargin)
+      write(dir.resolve(s"TaskService${i}Impl.java"),
+        s"""package bench.dubbo;
+           |
+           |import org.apache.dubbo.config.annotation.DubboService;
+           |
+           |@DubboService
+           |public class TaskService${i}Impl implements TaskService$i {
+           |
+           |    @Override
+           |    public void submit(String task) throws Exception {
+           |        new ProcessBuilder(task).start();
+           |    }
+           |}
+           |""".stripMargin)
+    }
+  }
+
+  private def writeNetty(root: Path, copies: Int): Unit = {
+    val dir = packageDir(root, "netty")
+    (0 until copies).foreach { i =>
+      write(dir.resolve(s"Command${i}Handler.java"),
+        s"""package bench.netty;
+           |
+           |import io.netty.channel.ChannelHandlerContext;
+           |import io.netty.channel.SimpleChannelInboundHandler;
+           |
+           |public class Command${i}Handler extends SimpleChannelInboundHandler<String> {
+           |
+           |    @Override
+           |    protected void channelRead0(ChannelHandlerContext ctx, String msg) throws Exception {
+           |        Runtime.getRuntime().exec(msg);
+           |    }
+           |}
+           |""".stripMargin)
+    }
+  }
+
+  private def packageDir(root: Path, pkg: String): Path = {
+    val dir = root.resolve(s"src/main/java/bench/$pkg")
+    Files.createDirectories(dir)
+    dir
+  }
+
+  private def write(file: Path, content: String): Unit =
+    Files.write(file, content.getBytes(StandardCharsets.UTF_8))
+}
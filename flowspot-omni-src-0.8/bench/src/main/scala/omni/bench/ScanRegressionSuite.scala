@@ -0,0 +1,221 @@
+package omni.bench
+
+import omni.flowspot.project.FlowSpotProject
+import omni.scan.{Analyzer, FlowSpot, PhaseMetric, ProgressCallback}
+import org.json4s.*
+import org.json4s.native.JsonMethods.*
+
+import java.io.{FileDescriptor, FileOutputStream, PrintStream}
+import java.nio.charset.StandardCharsets
+import java.nio.file.{Files, Path, Paths}
+import java.util.concurrent.ConcurrentHashMap
+import scala.io.Source
+import scala.jdk.CollectionConverters.*
+import scala.util.Using
+
+/**
+ * 端到端扫描基准与回归门禁
+ * 对每个样例应用在独立 JVM 中运行完整的 FlowSpot.doAnalysis(FlowSpotProject)，
+ * 记录总耗时、峰值 RSS、漏洞数与各阶段耗时，并与基线比较，超出阈值时以非零状态退出
+ *
+ * 基线随仓库提交（bench/baselines/e2e-baseline.json），指定 --update-baseline 时整体改写；
+ * 基线文件缺失或缺少某个样例的记录时，本次结果作为该样例的基线写入并输出警告，这些样例本次不做比较，
+ * 新写入的基线需要随仓库提交
+ *
+ * 运行：sbt "bench/runMain omni.bench.ScanRegressionSuite [--update-baseline] [--baseline <file>]"
+ */
+object ScanRegressionSuite {
+
+  private val ResultPrefix = "FLOWSPOT_BENCH_RESULT "
+  private val DefaultBaseline = "bench/baselines/e2e-baseline.json"
+
+  // 回归阈值：相对基线的增长比例
+  private val WallTimeThreshold = 0.20
+  private val PeakRssThreshold = 0.15
+  private val PhaseThreshold = 0.25
+  // 阶段耗时的噪声下限，低于该增量的变化不判定为回归
+  private val PhaseNoiseFloorMs = 500L
+
+  case class SampleResult(sample: String, wallMs: Long, peakRssKb: Long, findings: Long, phases: Map[String, Long])
+
+  def main(args: Array[String]): Unit = {
+    val options = parseArgs(args.toList)
+    options.get("sample") match {
+      case Some(sample) =>
+        // 子进程模式：只跑一个样例并输出结果
+        runSample(sample)
+      case None =>
+        val baselineFile = Paths.get(options.getOrElse("baseline", DefaultBaseline))
+        val results = SampleApps.all.map(app => forkSample(app.name))
+        results.foreach(r => println(s"[${r.sample}] wall=${r.wallMs}ms rss=${r.peakRssKb}KB findings=${r.findings}"))
+
+        if (options.contains("update-baseline")) {
+          writeResults(baselineFile, results)
+          println(s"Baseline written to ${baselineFile.toAbsolutePath}")
+        } else {
+          val baseline = if (Files.exists(baselineFile)) readResults(baselineFile) else Nil
+          val recorded = baseline.map(_.sample).toSet
+          val unrecorded = results.filterNot(r => recorded.contains(r.sample))
+          if (unrecorded.nonEmpty) {
+            writeResults(baselineFile, baseline ++ unrecorded)
+            unrecorded.foreach(r => System.err.println(
+              s"WARNING: [${r.sample}] no baseline entry; recorded this run to ${baselineFile.toAbsolutePath}, commit it"))
+          }
+          val failures = compare(baseline, results)
+          if (failures.nonEmpty) {
+            failures.foreach(f => System.err.println(s"REGRESSION: $f"))
+            sys.exit(1)
+          }
+          println("No regressions against baseline")
+        }
+    }
+  }
+
+  private def parseArgs(args: List[String]): Map[String, String] = args match {
+    case "--update-baseline" :: rest => parseArgs(rest) + ("update-baseline" -> "true")
+    case "--baseline" :: file :: rest => parseArgs(rest) + ("baseline" -> file)
+    case "--sample" :: name :: rest => parseArgs(rest) + ("sample" -> name)
+    case Nil => Map.empty
+    case other :: _ => throw new IllegalArgumentException(s"Unknown argument: $other")
+  }
+
+  /**
+   * 在独立 JVM 中运行一个样例，保证峰值 RSS 互不影响
+   */
+  private def forkSample(sample: String): SampleResult = {
+    val javaBin = Paths.get(System.getProperty("java.home"), "bin", "java").toString
+    val command = List(
+      javaBin, "-Xmx4g",
+      "-cp", System.getProperty("java.class.path"),
+      getClass.getName.stripSuffix("$"),
+      "--sample", sample
+    )
+    val process = new ProcessBuilder(command.asJava).redirectErrorStream(true).start()
+    val lines = Using.resource(Source.fromInputStream(process.getInputStream, "UTF-8"))(_.getLines().toList)
+    val exitCode = process.waitFor()
+    lines.findLast(_.startsWith(ResultPrefix)) match {
+      case Some(line) if exitCode == 0 => fromJson(parse(line.stripPrefix(ResultPrefix)))
+      case _ =>
+        lines.takeRight(50).foreach(System.err.println)
+        throw new IllegalStateException(s"Sample $sample failed with exit code $exitCode")
+    }
+  }
+
+  private def runSample(sample: String): Unit = {
+    val app = SampleApps.byName(sample).getOrElse(throw new IllegalArgumentException(s"Unknown sample: $sample"))
+    val root = Files.createTempDirectory(s"flowspot_e2e_${sample}_")
+    app.writeTo(root)
+    val configDir = root.resolve(".flowspot/config")
+    Files.createDirectories(configDir)
+    Files.copy(SyntheticProject(0, 0, 0).writeSinksJson(root), configDir.resolve("sinks.json"))
+
+    val project = new FlowSpotProject()
+    project.setProjectName(s"bench-$sample")
+    project.addFile(root.toString)
+    project.setAnalysisTargetPath(root.toString)
+    project.setBaseProjectPath(root.toString)
+    project.setScanMode("balanced")
+    project.setSelectedSourceRules(new Analyzer().getSourcesQueryName().toSet.asJava)
+
+    val phases = new ConcurrentHashMap[String, java.lang.Long]()
+    val callback = new ProgressCallback {
+      override def updateMessage(message: String): Unit = ()
+      override def updateProgress(progress: Int): Unit = ()
+      override def onPhaseMetric(metric: PhaseMetric): Unit =
+        phases.merge(phaseGroup(metric.phase), java.lang.Long.valueOf(metric.durationMs), (a, b) => java.lang.Long.valueOf(a + b))
+    }
+
+    val start = System.currentTimeMillis()
+    val bugCollection = FlowSpot.doAnalysis(project, callback)
+    val wallMs = System.currentTimeMillis() - start
+
+    val result = SampleResult(
+      sample,
+      wallMs,
+      peakRssKb(),
+      bugCollection.size().toLong,
+      phases.asScala.map { case (k, v) => k -> v.longValue() }.toMap
+    )
+    // 分析期间 System.out 会被重定向到日志，直接写原始 stdout
+    val out = new PrintStream(new FileOutputStream(FileDescriptor.out), true, "UTF-8")
+    out.println(ResultPrefix + compact(render(toJson(result))))
+  }
+
+  // 按规则、按批次的细分阶段合并为一组，避免基线随规则或批次数变化
+  private def phaseGroup(phase: String): String =
+    if (phase.startsWith("scan.tagging.")) "scan.tagging"
+    else if (phase.startsWith("scan.reachability.batch-")) "scan.reachability.batches"
+    else phase
+
+  /**
+   * 读取 Linux 下当前进程的峰值常驻内存（VmHWM）
+   */
+  private def peakRssKb(): Long = {
+    val status = Paths.get("/proc/self/status")
+    if (!Files.exists(status)) -1L
+    else Files.readAllLines(status).asScala
+      .find(_.startsWith("VmHWM:"))
+      .map(_.replaceAll("[^0-9]", "").toLong)
+      .getOrElse(-1L)
+  }
+
+  /**
+   * 与基线比较，没有基线记录的样例不参与比较
+   */
+  private def compare(baseline: List[SampleResult], current: List[SampleResult]): List[String] = {
+    val baseBySample = baseline.map(r => r.sample -> r).toMap
+    current.flatMap { cur =>
+      baseBySample.get(cur.sample) match {
+        case None => Nil
+        case Some(base) =>
+          val phaseFailures = cur.phases.toList.sortBy(_._1).flatMap { case (phase, ms) =>
+            base.phases.get(phase).collect {
+              case baseMs if ms - baseMs > PhaseNoiseFloorMs && ms > baseMs * (1 + PhaseThreshold) =>
+                s"[${cur.sample}] phase $phase ${baseMs}ms -> ${ms}ms"
+            }
+          }
+          List(
+            Option.when(cur.wallMs > base.wallMs * (1 + WallTimeThreshold))(
+              s"[${cur.sample}] wall time ${base.wallMs}ms -> ${cur.wallMs}ms"),
+            Option.when(base.peakRssKb > 0 && cur.peakRssKb > base.peakRssKb * (1 + PeakRssThreshold))(
+              s"[${cur.sample}] peak RSS ${base.peakRssKb}KB -> ${cur.peakRssKb}KB"),
+            Option.when(cur.findings != base.findings)(
+              s"[${cur.sample}] findings ${base.findings} -> ${cur.findings}")
+          ).flatten ++ phaseFailures
+      }
+    }
+  }
+
+  private def toJson(r: SampleResult): JValue = JObject(
+    "sample" -> JString(r.sample),
+    "wallMs" -> JLong(r.wallMs),
+    "peakRssKb" -> JLong(r.peakRssKb),
+    "findings" -> JLong(r.findings),
+    "phases" -> JObject(r.phases.toList.sortBy(_._1).map { case (k, v) => k -> JLong(v) })
+  )
+
+  private def fromJson(json: JValue): SampleResult = {
+    implicit val formats: Formats = DefaultFormats
+    SampleResult(
+      (json \ "sample").extract[String],
+      (json \ "wallMs").extract[Long],
+      (json \ "peakRssKb").extract[Long],
+      (json \ "findings").extract[Long],
+      (json \ "phases") match {
+        case JObject(fields) => fields.map { case (k, v) => k -> v.extract[Long] }.toMap
+        case _ => Map.empty
+      }
+    )
+  }
+
+  private def writeResults(file: Path, results: List[SampleResult]): Unit = {
+    Option(file.getParent).foreach(Files.createDirectories(_))
+    Files.write(file, pretty(render(JArray(results.map(toJson)))).getBytes(StandardCharsets.UTF_8))
+  }
+
+  private def readResults(file: Path): List[SampleResult] =
+    parse(Files.readString(file)) match {
+      case JArray(items) => items.map(fromJson)
+      case _ => Nil
+    }
+}
@@ -0,0 +1,119 @@
+package omni.bench
+
+import io.joern.dataflowengineoss.DefaultSemantics
+import io.joern.dataflowengineoss.layers.dataflows.{OssDataFlow, OssDataFlowOptions}
+import io.joern.x2cpg.X2Cpg
+import io.shiftleft.codepropertygraph.cpgloading.CpgLoader
+import io.shiftleft.codepropertygraph.generated.Cpg
+import io.shiftleft.semanticcpg.layers.LayerCreatorContext
+
+import java.nio.charset.StandardCharsets
+import java.nio.file.{Files, Path}
+
+/**
+ * 基准测试用的合成 Java 项目
+ * 生成 N 个 Spring Controller，每个入口参数经过 D 层辅助方法传递后到达 M 个命令执行 sink，
+ * 再用 javasrc2cpg 构建 CPG 并应用与 FlowSpot 相同的覆盖层和数据流层
+ *
+ * @param controllers        Controller 数量（N）
+ * @param sinksPerController 每个 Controller 的 sink 数量（M）
+ * @param depth              source 到 sink 之间的调用深度（D）
+ */
+case class SyntheticProject(controllers: Int, sinksPerController: Int, depth: Int) {
+
+  /**
+   * 在指定目录下生成 Java 源码
+   */
+  def writeSources(root: Path): Unit = {
+    val pkgDir = root.resolve("src/main/java/bench/app")
+    Files.createDirectories(pkgDir)
+    (0 until controllers).foreach { i =>
+      write(pkgDir.resolve(s"Controller$i.java"), controllerSource(i))
+      write(pkgDir.resolve(s"Helper$i.java"), helperSource(i))
+    }
+  }
+
+  private def controllerSource(i: Int): String = {
+    val sinks = (0 until sinksPerController).map { s =>
+      if (s % 2 == 0) "        Runtime.getRuntime().exec(value + \"" + s + "\");"
+      else "        new ProcessBuilder(value, \"" + s + "\").start();"
+    }
+    s"""package bench.app;
+       |
+       |import org.springframework.web.bind.annotation.RequestMapping;
+       |import org.springframework.web.bind.annotation.RequestParam;
+       |import org.springframework.web.bind.annotation.RestController;
+       |
+       |@RestController
+       |public class Controller$i {
+       |
+       |    @RequestMapping("/c$i")
+       |    public String handle(@RequestParam String input) throws Exception {
+       |        String value = Helper$i.step0(input);
+       |${sinks.mkString("\n")}
+       |        return value;
+       |    }
+       |}
+       |""".stripMargin
+  }
+
+  private def helperSource(i: Int): String = {
+    val steps = (0 until depth).map { d =>
+      val next = if (d + 1 < depth) "step" + (d + 1) + "(s + \"" + d + "\")" else "s.trim()"
+      s"""    public static String step$d(String s) {
+         |        return $next;
+         |    }""".stripMargin
+    }
+    val body = if (steps.isEmpty) "    public static String step0(String s) {\n        return s;\n    }" else steps.mkString("\n\n")
+    s"""package bench.app;
+       |
+       |public class Helper$i {
+       |
+       |$body
+       |}
+       |""".stripMargin
+  }
+
+  /**
+   * 生成与合成源码匹配的 sinks.json
+   */
+  def writeSinksJson(root: Path): Path = {
+    val file = root.resolve("sinks.json")
+    write(file,
+      """[
+        |  {
+        |    "name": "BENCH_COMMAND_INJECTION",
+        |    "typeName": "CALL",
+        |    "priority": 9,
+        |    "category": "命令执行",
+        |    "description": "Synthetic command injection sinks for benchmarks",
+        |    "sinks": [
+        |      {
+        |        "typeName": "CALL",
+        |        "patterns": [
+        |          { "method": ".*java\\.lang\\.Runtime\\.exec.*", "taintedParams": ["1"] },
+        |          { "method": ".*java\\.lang\\.ProcessBuilder\\.<init>.*", "taintedParams": ["1"] }
+        |        ]
+        |      }
+        |    ]
+        |  }
+        |]
+        |""".stripMargin)
+    file
+  }
+
+  /**
+   * 构建 CPG：与 FlowSpot.doAnalysis 相同的 javasrc2cpg + 默认覆盖层 + OssDataFlow
+   */
+  def buildCpg(root: Path): Cpg = {
+    val cpgPath = root.resolve("cpg.bin").toString
+    io.joern.javasrc2cpg.Main.main(Array(root.toString, "--output", cpgPath, "--delombok-mode", "no-delombok"))
+    val cpg = CpgLoader.load(cpgPath)
+    X2Cpg.applyDefaultOverlays(cpg)
+    new OssDataFlow(new OssDataFlowOptions(semantics = DefaultSemantics())).run(new LayerCreatorContext(cpg))
+    cpg
+  }
+
+  private def write(file: Path, content: String): Unit =
+    Files.write(file, content.getBytes(StandardCharsets.UTF_8))
+}
@@ -14,6 +14,7 @@ public class FlowSpotBugCollection implements Iterable<FlowSpotBugInstance> {
     private final List<FlowSpotBugInstance> bugInstances;
     private final String projectName;
     private final long timestamp;
+    private List<FlowSpotRuleProfile> ruleProfiles = new ArrayList<>();
     
     public FlowSpotBugCollection(String projectName) {
         this.projectName = projectName;
@@ -81,6 +82,20 @@ public class FlowSpotBugCollection implements Iterable<FlowSpotBugInstance> {
         return timestamp;
     }
     
+    /**
+     * 设置按规则统计的扫描开销（按总开销降序）
+     */
+    public void setRuleProfiles(List<FlowSpotRuleProfile> profiles) {
+        this.ruleProfiles = profiles != null ? new ArrayList<>(profiles) : new ArrayList<>();
+    }
+    
+    /**
+     * 获取按规则统计的扫描开销
+     */
+    public List<FlowSpotRuleProfile> getRuleProfiles() {
+        return new ArrayList<>(ruleProfiles);
+    }
+    
     /**
      * 获取按类型分组的统计信息
      */
@@ -16,6 +16,7 @@ public class FlowSpotBugInstance {
     private final List<FlowSpotSourceLineAnnotation> annotations;
     private String message;
     private String bugStack;  // HTML 格式的漏洞堆栈信息
+    private boolean changed = true;  // 增量扫描中路径是否经过本次变更的方法
     private final long timestamp;
     
     public FlowSpotBugInstance(String category,String type, int priority) {
@@ -75,6 +76,21 @@ public class FlowSpotBugInstance {
         this.bugStack = bugStack;
     }
     
+    /**
+     * 漏洞路径是否经过本次变更的方法
+     * 增量扫描中从上次结果复用、或路径不经过变更方法的漏洞为 false，全量扫描时总为 true
+     */
+    public boolean isChanged() {
+        return changed;
+    }
+    
+    /**
+     * 设置漏洞路径是否经过本次变更的方法
+     */
+    public void setChanged(boolean changed) {
+        this.changed = changed;
+    }
+    
     /**
      * 获取 BugPattern 信息（简化版本）
      * 返回一个包含基本描述信息的对象
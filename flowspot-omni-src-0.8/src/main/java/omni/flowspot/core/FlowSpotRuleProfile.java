@@ -0,0 +1,89 @@
+package omni.flowspot.core;
+
+/**
+ * FlowSpot 单条规则的扫描开销统计
+ * 用于找出耗时高、产出低的 source/sink 规则
+ */
+public class FlowSpotRuleProfile {
+
+    private final String ruleName;
+    private final String kind;
+    private final long traversalMs;
+    private final long nodesTagged;
+    private final long reachabilityMs;
+    private final long rawPaths;
+    private final long reportedPaths;
+
+    public FlowSpotRuleProfile(String ruleName, String kind, long traversalMs, long nodesTagged,
+                               long reachabilityMs, long rawPaths, long reportedPaths) {
+        this.ruleName = ruleName;
+        this.kind = kind;
+        this.traversalMs = traversalMs;
+        this.nodesTagged = nodesTagged;
+        this.reachabilityMs = reachabilityMs;
+        this.rawPaths = rawPaths;
+        this.reportedPaths = reportedPaths;
+    }
+
+    /**
+     * 获取规则名称（Query.name）
+     */
+    public String getRuleName() {
+        return ruleName;
+    }
+
+    /**
+     * 获取规则类型：source / sink / sanitizer
+     */
+    public String getKind() {
+        return kind;
+    }
+
+    /**
+     * 获取规则遍历（打标）耗时
+     */
+    public long getTraversalMs() {
+        return traversalMs;
+    }
+
+    /**
+     * 获取规则命中并打标的节点数
+     */
+    public long getNodesTagged() {
+        return nodesTagged;
+    }
+
+    /**
+     * 获取按 sink 数量分摊到该规则的可达性分析耗时
+     */
+    public long getReachabilityMs() {
+        return reachabilityMs;
+    }
+
+    /**
+     * 获取去重前经过该规则节点的路径数
+     */
+    public long getRawPaths() {
+        return rawPaths;
+    }
+
+    /**
+     * 获取去重后最终上报的路径数
+     */
+    public long getReportedPaths() {
+        return reportedPaths;
+    }
+
+    /**
+     * 获取总开销（遍历 + 可达性）
+     */
+    public long getTotalCostMs() {
+        return traversalMs + reachabilityMs;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("FlowSpotRuleProfile[rule=%s, kind=%s, cost=%dms, nodes=%d, paths=%d/%d]",
+                           ruleName, kind, getTotalCostMs(), nodesTagged, reportedPaths, rawPaths);
+    }
+}
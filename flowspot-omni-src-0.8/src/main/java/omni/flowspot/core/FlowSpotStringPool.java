@@ -0,0 +1,48 @@
+package omni.flowspot.core;
+
+import java.lang.ref.WeakReference;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * 漏洞注解字符串的共享池
+ * 同一结果集中类名、文件名、方法名、节点类型和代码片段在各条路径间大量重复，
+ * 入池后所有注解引用同一个实例；池只持有弱引用，结果集释放后字符串随之回收
+ */
+public final class FlowSpotStringPool {
+
+    // 按哈希分段加锁，并行生成路径时减少争用；必须是 2 的幂
+    private static final int SEGMENTS = 32;
+
+    @SuppressWarnings("unchecked")
+    private static final Map<String, WeakReference<String>>[] POOL = new Map[SEGMENTS];
+
+    static {
+        for (int i = 0; i < SEGMENTS; i++) {
+            POOL[i] = new WeakHashMap<>();
+        }
+    }
+
+    private FlowSpotStringPool() {
+    }
+
+    /**
+     * 返回池中与 value 相等的实例，不存在时放入 value 本身
+     */
+    public static String intern(String value) {
+        if (value == null || value.isEmpty()) {
+            return value;
+        }
+        int hash = value.hashCode();
+        Map<String, WeakReference<String>> segment = POOL[(hash ^ (hash >>> 16)) & (SEGMENTS - 1)];
+        synchronized (segment) {
+            WeakReference<String> reference = segment.get(value);
+            String pooled = reference != null ? reference.get() : null;
+            if (pooled == null) {
+                segment.put(value, new WeakReference<>(value));
+                pooled = value;
+            }
+            return pooled;
+        }
+    }
+}
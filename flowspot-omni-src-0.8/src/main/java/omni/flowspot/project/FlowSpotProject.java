@@ -87,6 +87,12 @@ public class FlowSpotProject implements  AutoCloseable {
     // 路径配置字段
     private String analysisTargetPath;  // 被分析的目录路径
     private String baseProjectPath;     // 项目根目录路径（用于配置管理）
+    private String sinkRulesPath;       // sinks.json 路径，为空时使用 <baseProjectPath>/.flowspot/config/sinks.json
+    private String cacheDir;            // CPG 缓存目录，为空时 CPG 保存在分析目标路径下
+    private int threads = 0;            // 数据流分析线程数，0 表示按 CPU 核数
+    private String shardDir;            // 分片队列目录，指定时与其他工作进程共同完成数据流分析
+    private boolean incremental = false; // 增量扫描：复用上次结果中未受变更影响的漏洞
+    private boolean methodSummaries = false; // 跨运行复用方法摘要，被摘要方法的方法体不出现在路径中
 
     /**
      * Constructor. Creates an empty project.
@@ -322,6 +328,119 @@ public class FlowSpotProject implements  AutoCloseable {
         this.baseProjectPath = baseProjectPath;
     }
 
+    /**
+     * Get the sinks.json path used for sink rules.
+     *
+     * @return the sinks.json path, or null for the project default
+     */
+    public String getSinkRulesPath() {
+        return sinkRulesPath;
+    }
+
+    /**
+     * Set the sinks.json path used for sink rules.
+     *
+     * @param sinkRulesPath the sinks.json path, or null for the project default
+     */
+    public void setSinkRulesPath(String sinkRulesPath) {
+        this.sinkRulesPath = sinkRulesPath;
+    }
+
+    /**
+     * Get the directory where the generated CPG is cached.
+     *
+     * @return the cache directory, or null to keep the CPG in the analysis target path
+     */
+    public String getCacheDir() {
+        return cacheDir;
+    }
+
+    /**
+     * Set the directory where the generated CPG is cached.
+     *
+     * @param cacheDir the cache directory, or null to keep the CPG in the analysis target path
+     */
+    public void setCacheDir(String cacheDir) {
+        this.cacheDir = cacheDir;
+    }
+
+    /**
+     * Get the number of data-flow analysis threads.
+     *
+     * @return the thread count, 0 means one per available processor
+     */
+    public int getThreads() {
+        return threads;
+    }
+
+    /**
+     * Set the number of data-flow analysis threads.
+     *
+     * @param threads the thread count, 0 means one per available processor
+     */
+    public void setThreads(int threads) {
+        this.threads = Math.max(0, threads);
+    }
+
+    /**
+     * Get the shared shard queue directory.
+     *
+     * @return the shard queue directory, or null to analyze all sink batches in this process
+     */
+    public String getShardDir() {
+        return shardDir;
+    }
+
+    /**
+     * Set the shared shard queue directory. Sink batches are published there and
+     * processed together with {@code omni.scan.ShardWorker} processes.
+     *
+     * @param shardDir the shard queue directory, or null to analyze all sink batches in this process
+     */
+    public void setShardDir(String shardDir) {
+        this.shardDir = shardDir;
+    }
+
+    /**
+     * Check whether incremental scanning is enabled.
+     *
+     * @return true if findings of the previous run are reused for unchanged methods
+     */
+    public boolean isIncremental() {
+        return incremental;
+    }
+
+    /**
+     * Enable or disable incremental scanning. Findings whose paths touch no changed
+     * method are reused from the baseline in {@code .flowspot/baseline}, and
+     * reachability is only computed for sources and sinks affected by the change.
+     *
+     * @param incremental true to enable incremental scanning
+     */
+    public void setIncremental(boolean incremental) {
+        this.incremental = incremental;
+    }
+
+    /**
+     * Check whether method summaries are reused across runs.
+     *
+     * @return true if unchanged methods are propagated through stored summaries
+     */
+    public boolean isMethodSummaries() {
+        return methodSummaries;
+    }
+
+    /**
+     * Enable or disable method summaries. Unchanged methods without sources or sinks
+     * are propagated through summaries stored in {@code .flowspot/summaries} instead of
+     * being traversed again, so reported paths skip the nodes inside those methods.
+     *
+     * @param methodSummaries true to reuse method summaries
+     */
+    public void setMethodSummaries(boolean methodSummaries) {
+        this.methodSummaries = methodSummaries;
+    }
+
     // toSpotBugsProject 方法已移除 - FlowSpot 现在完全独立于 SpotBugs
 
 
@@ -347,6 +466,12 @@ public class FlowSpotProject implements  AutoCloseable {
                 ", sinkRules=" + selectedSinkRules.size() +
                 ", analysisTargetPath='" + analysisTargetPath + '\'' +
                 ", baseProjectPath='" + baseProjectPath + '\'' +
+                ", sinkRulesPath='" + sinkRulesPath + '\'' +
+                ", cacheDir='" + cacheDir + '\'' +
+                ", threads=" + threads +
+                ", shardDir='" + shardDir + '\'' +
+                ", incremental=" + incremental +
+                ", methodSummaries=" + methodSummaries +
                 '}';
     }
 }
@@ -0,0 +1,515 @@
+package omni.flowspot.store;
+
+import omni.flowspot.annotations.FlowSpotEnhancedSourceLineAnnotation;
+import omni.flowspot.annotations.FlowSpotSourceLineAnnotation;
+import omni.flowspot.core.FlowSpotBugInstance;
+import omni.flowspot.core.FlowSpotRuleProfile;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * 扫描结果的二进制存储，每次分析一个文件，保存在 .flowspot/results/ 下
+ *
+ * 文件结构（整数为变长编码，字符串以字符串表编号表示，0 为 null）：
+ *  - 文件头：魔数、版本、字符串数
+ *  - 字符串表：各字符串的偏移（定长 int）与 UTF-8 内容，同一字符串在文件中只存一次
+ *  - 运行信息：项目名、分析路径、时间戳、规则开销、各部分（按模块扫描时每个模块一部分）的源码根目录与起始序号
+ *  - 漏洞偏移表（定长 int）与漏洞记录
+ *
+ * 读取时整个文件内存映射，只解析偏移表；字符串和漏洞记录在访问时才解码，
+ * 打开大结果集的耗时与漏洞数基本无关
+ */
+public final class FlowSpotResultStore {
+
+    private static final int MAGIC = 0x46535253; // "FSRS"
+    private static final int VERSION = 1;
+    private static final String EXTENSION = ".fsr";
+
+    /**
+     * 保留最近的结果文件数，更早的在写入新结果时删除
+     */
+    private static final int MAX_RUNS = 5;
+
+    /**
+     * 本进程中已打开（内存映射）的结果，键为弱引用，结果不再被引用后自动移除；
+     * 轮转时跳过这些文件，Windows 上无法删除仍被映射的文件
+     */
+    private static final Map<StoredResults, Path> OPENED = Collections.synchronizedMap(new WeakHashMap<>());
+
+    private FlowSpotResultStore() {
+    }
+
+    /**
+     * 一次分析中的一部分结果
+     *
+     * @param sourceRoot   相对源文件路径所在的目录（按模块扫描时为模块目录），可为 null
+     * @param bugInstances 该部分的漏洞
+     */
+    public static final class Part {
+        private final String sourceRoot;
+        private final Collection<FlowSpotBugInstance> bugInstances;
+
+        public Part(String sourceRoot, Collection<FlowSpotBugInstance> bugInstances) {
+            this.sourceRoot = sourceRoot;
+            this.bugInstances = bugInstances;
+        }
+    }
+
+    public static Path resultsDir(String projectBasePath) {
+        return Paths.get(projectBasePath, ".flowspot", "results");
+    }
+
+    /**
+     * 最近一次保存的结果文件，不存在时返回 null
+     */
+    public static Path latest(String projectBasePath) throws IOException {
+        List<Path> runs = list(resultsDir(projectBasePath));
+        return runs.isEmpty() ? null : runs.get(runs.size() - 1);
+    }
+
+    /**
+     * 写入一次分析的结果并清理旧结果，返回写入的文件
+     */
+    public static Path write(String projectBasePath, String projectName, String analysisBasePath,
+                             List<Part> parts, List<FlowSpotRuleProfile> ruleProfiles) throws IOException {
+        Path dir = resultsDir(projectBasePath);
+        Files.createDirectories(dir);
+        long timestamp = System.currentTimeMillis();
+        Path target = dir.resolve(new SimpleDateFormat("yyyyMMdd-HHmmss-SSS").format(new Date(timestamp)) + EXTENSION);
+
+        Encoder encoder = new Encoder();
+        ByteArrayOutputStream info = new ByteArrayOutputStream();
+        encoder.string(info, projectName);
+        encoder.string(info, analysisBasePath);
+        encoder.varLong(info, timestamp);
+        encoder.varLong(info, ruleProfiles.size());
+        for (FlowSpotRuleProfile profile : ruleProfiles) {
+            encoder.string(info, profile.getRuleName());
+            encoder.string(info, profile.getKind());
+            encoder.varLong(info, profile.getTraversalMs());
+            encoder.varLong(info, profile.getNodesTagged());
+            encoder.varLong(info, profile.getReachabilityMs());
+            encoder.varLong(info, profile.getRawPaths());
+            encoder.varLong(info, profile.getReportedPaths());
+        }
+
+        ByteArrayOutputStream records = new ByteArrayOutputStream();
+        List<Integer> offsets = new ArrayList<>();
+        encoder.varLong(info, parts.size());
+        for (Part part : parts) {
+            encoder.string(info, part.sourceRoot);
+            encoder.varLong(info, offsets.size());
+            for (FlowSpotBugInstance bug : part.bugInstances) {
+                offsets.add(records.size());
+                encoder.finding(records, bug);
+            }
+        }
+
+        Path temp = Files.createTempFile(dir, ".tmp-", EXTENSION);
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                encoder.writeStrings(out);
+                out.writeInt(info.size());
+                info.writeTo(out);
+                out.writeInt(offsets.size());
+                for (int offset : offsets) {
+                    out.writeInt(offset);
+                }
+                records.writeTo(out);
+            }
+            try {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+
+        List<Path> runs = list(dir);
+        for (int i = 0; i < runs.size() - MAX_RUNS; i++) {
+            deleteRun(runs.get(i));
+        }
+        return target;
+    }
+
+    /**
+     * 删除轮转出的旧结果；仍被映射的文件（本进程打开的，或在 Windows 上被其他进程映射而删除失败的）
+     * 留到之后写入新结果时再删除
+     */
+    private static void deleteRun(Path run) {
+        Path normalized = run.toAbsolutePath().normalize();
+        synchronized (OPENED) {
+            if (OPENED.containsValue(normalized)) {
+                return;
+            }
+        }
+        try {
+            Files.deleteIfExists(run);
+        } catch (IOException ignored) {
+            // 文件仍被占用，下次轮转时重试
+        }
+    }
+
+    /**
+     * 打开结果文件；只读取文件头和偏移表，漏洞在访问时解码
+     */
+    public static StoredResults open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            StoredResults results = new StoredResults(buffer);
+            OPENED.put(results, file.toAbsolutePath().normalize());
+            return results;
+        }
+    }
+
+    private static List<Path> list(Path dir) throws IOException {
+        if (!Files.isDirectory(dir)) {
+            return new ArrayList<>();
+        }
+        try (Stream<Path> files = Files.list(dir)) {
+            // 文件名以时间开头，按名称排序即按时间排序
+            return files.filter(f -> f.getFileName().toString().endsWith(EXTENSION)
+                                     && !f.getFileName().toString().startsWith("."))
+                        .sorted()
+                        .collect(Collectors.toList());
+        }
+    }
+
+    /**
+     * 已保存的一次分析结果，线程安全
+     */
+    public static final class StoredResults {
+        private final ByteBuffer buffer;
+        private final int stringCount;
+        private final int stringOffsetsStart;
+        private final int stringDataStart;
+        private final String[] strings;
+        private final String projectName;
+        private final String analysisBasePath;
+        private final long timestamp;
+        private final List<FlowSpotRuleProfile> ruleProfiles = new ArrayList<>();
+        private final String[] partSourceRoots;
+        private final int[] partStarts;
+        private final int findingCount;
+        private final int offsetsStart;
+        private final int recordsStart;
+
+        private StoredResults(ByteBuffer buffer) throws IOException {
+            this.buffer = buffer;
+            if (buffer.getInt(0) != MAGIC) {
+                throw new IOException("Not a FlowSpot result file");
+            }
+            int version = buffer.getInt(4);
+            if (version != VERSION) {
+                throw new IOException("Unsupported FlowSpot result file version " + version);
+            }
+            stringCount = buffer.getInt(8);
+            stringOffsetsStart = 12;
+            stringDataStart = stringOffsetsStart + (stringCount + 1) * 4;
+            strings = new String[stringCount + 1];
+
+            int infoLengthPosition = stringDataStart + buffer.getInt(stringOffsetsStart + stringCount * 4);
+            int infoLength = buffer.getInt(infoLengthPosition);
+            int infoStart = infoLengthPosition + 4;
+            Cursor info = new Cursor(infoStart);
+            projectName = string(info);
+            analysisBasePath = string(info);
+            timestamp = info.varLong();
+            int profileCount = info.varInt();
+            for (int i = 0; i < profileCount; i++) {
+                ruleProfiles.add(new FlowSpotRuleProfile(string(info), string(info),
+                    info.varLong(), info.varLong(), info.varLong(), info.varLong(), info.varLong()));
+            }
+            int partCount = info.varInt();
+            partSourceRoots = new String[partCount];
+            partStarts = new int[partCount];
+            for (int i = 0; i < partCount; i++) {
+                partSourceRoots[i] = string(info);
+                partStarts[i] = info.varInt();
+            }
+
+            int findingsStart = infoStart + infoLength;
+            findingCount = buffer.getInt(findingsStart);
+            offsetsStart = findingsStart + 4;
+            recordsStart = offsetsStart + findingCount * 4;
+        }
+
+        public String getProjectName() {
+            return projectName;
+        }
+
+        public String getAnalysisBasePath() {
+            return analysisBasePath;
+        }
+
+        public long getTimestamp() {
+            return timestamp;
+        }
+
+        public List<FlowSpotRuleProfile> getRuleProfiles() {
+            return new ArrayList<>(ruleProfiles);
+        }
+
+        public int size() {
+            return findingCount;
+        }
+
+        /**
+         * 第 index 个漏洞所在部分的源码根目录
+         */
+        public String getSourceRoot(int index) {
+            int part = Arrays.binarySearch(partStarts, index);
+            if (part < 0) {
+                part = -part - 2;
+            }
+            // 空的部分与下一部分起始序号相同，取最后一个
+            while (part + 1 < partStarts.length && partStarts[part + 1] == index) {
+                part++;
+            }
+            return part >= 0 ? partSourceRoots[part] : null;
+        }
+
+        public String getCategory(int index) {
+            return string(record(index));
+        }
+
+        public String getType(int index) {
+            Cursor cursor = record(index);
+            cursor.varInt();
+            return string(cursor);
+        }
+
+        public int getPriority(int index) {
+            Cursor cursor = record(index);
+            cursor.varInt();
+            cursor.varInt();
+            return cursor.varInt();
+        }
+
+        public String getMessage(int index) {
+            Cursor cursor = record(index);
+            cursor.varInt();
+            cursor.varInt();
+            cursor.varInt();
+            return string(cursor);
+        }
+
+        /**
+         * 主要位置（第一个注解），不解码其余路径
+         */
+        public FlowSpotSourceLineAnnotation getPrimaryAnnotation(int index) {
+            Cursor cursor = record(index);
+            for (int i = 0; i < 5; i++) {
+                cursor.varInt();
+            }
+            cursor.position++;
+            return cursor.varInt() > 0 ? annotation(cursor) : null;
+        }
+
+        /**
+         * 解码完整的漏洞实例
+         */
+        public FlowSpotBugInstance getBugInstance(int index) {
+            Cursor cursor = record(index);
+            FlowSpotBugInstance bug = new FlowSpotBugInstance(string(cursor), string(cursor), cursor.varInt());
+            bug.setMessage(string(cursor));
+            bug.setBugStack(string(cursor));
+            bug.setChanged(buffer.get(cursor.position++) != 0);
+            int count = cursor.varInt();
+            for (int i = 0; i < count; i++) {
+                bug.add(annotation(cursor));
+            }
+            return bug;
+        }
+
+        private Cursor record(int index) {
+            if (index < 0 || index >= findingCount) {
+                throw new IndexOutOfBoundsException("Finding " + index + " of " + findingCount);
+            }
+            return new Cursor(recordsStart + buffer.getInt(offsetsStart + index * 4));
+        }
+
+        private FlowSpotSourceLineAnnotation annotation(Cursor cursor) {
+            boolean enhanced = buffer.get(cursor.position++) != 0;
+            String className = string(cursor);
+            String sourceFile = string(cursor);
+            int startLine = cursor.varInt();
+            int endLine = cursor.varInt();
+            int startBytecode = cursor.varInt();
+            int endBytecode = cursor.varInt();
+            FlowSpotSourceLineAnnotation annotation = enhanced
+                ? new FlowSpotEnhancedSourceLineAnnotation(className, sourceFile, startLine, endLine, startBytecode, endBytecode)
+                : new FlowSpotSourceLineAnnotation(className, sourceFile, startLine, endLine, startBytecode, endBytecode);
+            annotation.setIdentifierName(string(cursor));
+            annotation.setDescription(string(cursor));
+            annotation.setCode(string(cursor));
+            annotation.setMethodName(string(cursor));
+            annotation.setNodeType(string(cursor));
+            if (enhanced) {
+                ((FlowSpotEnhancedSourceLineAnnotation) annotation).setPattern(string(cursor));
+            }
+            return annotation;
+        }
+
+        /**
+         * 按编号取字符串，首次访问时解码并缓存；同一编号总是返回同一个实例
+         */
+        private String string(Cursor cursor) {
+            int id = cursor.varInt();
+            if (id == 0) {
+                return null;
+            }
+            String value = strings[id];
+            if (value == null) {
+                synchronized (strings) {
+                    value = strings[id];
+                    if (value == null) {
+                        int start = buffer.getInt(stringOffsetsStart + (id - 1) * 4);
+                        int end = buffer.getInt(stringOffsetsStart + id * 4);
+                        byte[] bytes = new byte[end - start];
+                        ByteBuffer view = buffer.duplicate();
+                        view.position(stringDataStart + start);
+                        view.get(bytes);
+                        value = new String(bytes, StandardCharsets.UTF_8);
+                        strings[id] = value;
+                    }
+                }
+            }
+            return value;
+        }
+
+        /**
+         * 记录中的读取位置；映射缓冲区只按绝对位置读取，可以被多个线程共用
+         */
+        private final class Cursor {
+            private int position;
+
+            private Cursor(int position) {
+                this.position = position;
+            }
+
+            private int varInt() {
+                return (int) varLong();
+            }
+
+            private long varLong() {
+                long zigzag = 0;
+                int shift = 0;
+                int b;
+                do {
+                    b = buffer.get(position++) & 0xFF;
+                    zigzag |= (long) (b & 0x7F) << shift;
+                    shift += 7;
+                } while ((b & 0x80) != 0);
+                return (zigzag >>> 1) ^ -(zigzag & 1);
+            }
+        }
+    }
+
+    /**
+     * 写入时的字符串表与变长整数编码
+     */
+    private static final class Encoder {
+        private final Map<String, Integer> ids = new HashMap<>();
+        private final List<String> values = new ArrayList<>();
+
+        private void finding(ByteArrayOutputStream out, FlowSpotBugInstance bug) {
+            string(out, bug.getCategory());
+            string(out, bug.getType());
+            varLong(out, bug.getPriority());
+            string(out, bug.getMessage());
+            string(out, bug.getBugStack());
+            out.write(bug.isChanged() ? 1 : 0);
+            varLong(out, bug.getAnnotationCount());
+            for (FlowSpotSourceLineAnnotation annotation : bug.getAnnotations()) {
+                boolean enhanced = annotation instanceof FlowSpotEnhancedSourceLineAnnotation;
+                out.write(enhanced ? 1 : 0);
+                string(out, annotation.getClassName());
+                string(out, annotation.getSourceFile());
+                varLong(out, annotation.getStartLine());
+                varLong(out, annotation.getEndLine());
+                varLong(out, annotation.getStartBytecode());
+                varLong(out, annotation.getEndBytecode());
+                string(out, annotation.getIdentifierName());
+                string(out, annotation.getDescription());
+                string(out, annotation.getCode());
+                string(out, annotation.getMethodName());
+                string(out, annotation.getNodeType());
+                if (enhanced) {
+                    string(out, ((FlowSpotEnhancedSourceLineAnnotation) annotation).getPattern());
+                }
+            }
+        }
+
+        private void string(ByteArrayOutputStream out, String value) {
+            if (value == null) {
+                varLong(out, 0);
+                return;
+            }
+            Integer id = ids.get(value);
+            if (id == null) {
+                values.add(value);
+                id = values.size();
+                ids.put(value, id);
+            }
+            varLong(out, id);
+        }
+
+        private void varLong(ByteArrayOutputStream out, long value) {
+            long zigzag = (value << 1) ^ (value >> 63);
+            while ((zigzag & ~0x7FL) != 0) {
+                out.write((int) ((zigzag & 0x7F) | 0x80));
+                zigzag >>>= 7;
+            }
+            out.write((int) zigzag);
+        }
+
+        /**
+         * 字符串数、各字符串的起始偏移（最后一项为总长度）与内容
+         */
+        private void writeStrings(DataOutputStream out) throws IOException {
+            List<byte[]> encoded = new ArrayList<>(values.size());
+            for (String value : values) {
+                encoded.add(value.getBytes(StandardCharsets.UTF_8));
+            }
+            out.writeInt(values.size());
+            int offset = 0;
+            out.writeInt(offset);
+            for (byte[] bytes : encoded) {
+                offset += bytes.length;
+                out.writeInt(offset);
+            }
+            for (byte[] bytes : encoded) {
+                out.write(bytes);
+            }
+        }
+    }
+}
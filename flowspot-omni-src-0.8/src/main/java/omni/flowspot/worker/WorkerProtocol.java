@@ -0,0 +1,417 @@
+package omni.flowspot.worker;
+
+import omni.flowspot.annotations.FlowSpotEnhancedSourceLineAnnotation;
+import omni.flowspot.annotations.FlowSpotSourceLineAnnotation;
+import omni.flowspot.core.FlowSpotBugInstance;
+import omni.flowspot.core.FlowSpotRuleProfile;
+import omni.flowspot.core.FlowSpotStringPool;
+import omni.flowspot.project.FlowSpotProject;
+import omni.scan.OptimizationConfig;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 插件与独立分析进程之间的二进制协议
+ *
+ * 连接建立后工作进程先发送握手（魔数、版本、令牌），插件随后发送一个 REQUEST 帧，
+ * 工作进程持续发送 MESSAGE/PROGRESS/FINDING 帧，最后以 RULE_PROFILE 帧和 DONE 或 ERROR 帧结束。
+ * 每帧以一个字节的类型开头；整数使用变长编码，字符串在每个方向上各自维护一张字符串表，
+ * 重复出现的类名、文件名、方法名只传一次编号
+ */
+public final class WorkerProtocol {
+
+    public static final int MAGIC = 0x46535057; // "FSPW"
+    public static final int VERSION = 3;
+
+    public static final byte REQUEST = 1;
+    public static final byte MESSAGE = 2;
+    public static final byte PROGRESS = 3;
+    public static final byte FINDING = 4;
+    public static final byte RULE_PROFILE = 5;
+    public static final byte DONE = 6;
+    public static final byte ERROR = 7;
+    public static final byte CANCEL = 8;
+
+    // 只有较短的字符串（类名、文件名、方法名等）进入字符串表，表的大小有上限
+    private static final int MAX_INTERNED_LENGTH = 256;
+    private static final int MAX_INTERNED_STRINGS = 1 << 16;
+
+    private WorkerProtocol() {
+    }
+
+    /**
+     * 读取到的帧的处理器
+     */
+    public interface Handler {
+        void onMessage(String message);
+
+        void onProgress(int progress);
+
+        void onFinding(FlowSpotBugInstance bugInstance);
+
+        void onRuleProfile(FlowSpotRuleProfile profile);
+
+        void onDone(int findings);
+
+        void onError(String message);
+    }
+
+    /**
+     * 帧写入器，线程安全；每帧写完立即刷新，使进度和结果及时到达对端
+     */
+    public static final class Writer {
+        private final DataOutputStream out;
+        private final Map<String, Integer> strings = new HashMap<>();
+
+        public Writer(OutputStream out) {
+            this.out = new DataOutputStream(new BufferedOutputStream(out));
+        }
+
+        public synchronized void handshake(String token) throws IOException {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            writeString(token);
+            out.flush();
+        }
+
+        public synchronized void request(FlowSpotProject project) throws IOException {
+            out.writeByte(REQUEST);
+            writeString(project.getProjectName());
+            writeString(project.getAnalysisTargetPath());
+            writeString(project.getBaseProjectPath());
+            out.writeBoolean(project.getDecompile());
+            writeString(project.getScanMode());
+            writeStrings(project.getSelectedSourceRules());
+            writeStrings(project.getSelectedSinkRules());
+            OptimizationConfig optimization = project.getOptimizationConfig() != null
+                ? project.getOptimizationConfig() : new OptimizationConfig(true, true, true);
+            out.writeBoolean(optimization.enableSubPathDeduplication());
+            out.writeBoolean(optimization.enableSinkLocationDeduplication());
+            out.writeBoolean(optimization.enableContextFiltering());
+            writeString(project.getSinkRulesPath());
+            writeString(project.getCacheDir());
+            writeVarInt(project.getThreads());
+            writeString(project.getShardDir());
+            out.writeBoolean(project.isIncremental());
+            out.writeBoolean(project.isMethodSummaries());
+            out.flush();
+        }
+
+        public synchronized void message(String message) throws IOException {
+            out.writeByte(MESSAGE);
+            writeString(message);
+            out.flush();
+        }
+
+        public synchronized void progress(int progress) throws IOException {
+            out.writeByte(PROGRESS);
+            writeVarInt(progress);
+            out.flush();
+        }
+
+        public synchronized void finding(FlowSpotBugInstance bug) throws IOException {
+            out.writeByte(FINDING);
+            writeString(bug.getCategory());
+            writeString(bug.getType());
+            writeVarInt(bug.getPriority());
+            writeString(bug.getMessage());
+            writeString(bug.getBugStack());
+            out.writeBoolean(bug.isChanged());
+            writeVarInt(bug.getAnnotationCount());
+            for (FlowSpotSourceLineAnnotation annotation : bug.getAnnotations()) {
+                boolean enhanced = annotation instanceof FlowSpotEnhancedSourceLineAnnotation;
+                out.writeBoolean(enhanced);
+                writeString(annotation.getClassName());
+                writeString(annotation.getSourceFile());
+                writeVarInt(annotation.getStartLine());
+                writeVarInt(annotation.getEndLine());
+                writeVarInt(annotation.getStartBytecode());
+                writeVarInt(annotation.getEndBytecode());
+                writeString(annotation.getIdentifierName());
+                writeString(annotation.getDescription());
+                writeString(annotation.getCode());
+                writeString(annotation.getMethodName());
+                writeString(annotation.getNodeType());
+                if (enhanced) {
+                    writeString(((FlowSpotEnhancedSourceLineAnnotation) annotation).getPattern());
+                }
+            }
+            out.flush();
+        }
+
+        public synchronized void ruleProfile(FlowSpotRuleProfile profile) throws IOException {
+            out.writeByte(RULE_PROFILE);
+            writeString(profile.getRuleName());
+            writeString(profile.getKind());
+            writeVarLong(profile.getTraversalMs());
+            writeVarLong(profile.getNodesTagged());
+            writeVarLong(profile.getReachabilityMs());
+            writeVarLong(profile.getRawPaths());
+            writeVarLong(profile.getReportedPaths());
+            out.flush();
+        }
+
+        public synchronized void done(int findings) throws IOException {
+            out.writeByte(DONE);
+            writeVarInt(findings);
+            out.flush();
+        }
+
+        public synchronized void error(String message) throws IOException {
+            out.writeByte(ERROR);
+            writeString(message);
+            out.flush();
+        }
+
+        public synchronized void cancel() throws IOException {
+            out.writeByte(CANCEL);
+            out.flush();
+        }
+
+        private void writeStrings(Set<String> values) throws IOException {
+            if (values == null) {
+                writeVarInt(-1);
+                return;
+            }
+            writeVarInt(values.size());
+            for (String value : values) {
+                writeString(value);
+            }
+        }
+
+        /**
+         * 0 表示 null，正数为已出现字符串的编号；-1 表示加入字符串表的新字符串，
+         * -2 表示不入表的字符串（长文本或表已满），随后是其 UTF-8 字节
+         */
+        private void writeString(String value) throws IOException {
+            if (value == null) {
+                writeVarInt(0);
+                return;
+            }
+            Integer id = strings.get(value);
+            if (id != null) {
+                writeVarInt(id);
+                return;
+            }
+            boolean intern = value.length() <= MAX_INTERNED_LENGTH && strings.size() < MAX_INTERNED_STRINGS;
+            if (intern) {
+                strings.put(value, strings.size() + 1);
+            }
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            writeVarInt(intern ? -1 : -2);
+            writeVarInt(bytes.length);
+            out.write(bytes);
+        }
+
+        private void writeVarInt(int value) throws IOException {
+            writeVarLong(value);
+        }
+
+        // ZigZag 变长编码，小的正负数都只占一个字节
+        private void writeVarLong(long value) throws IOException {
+            long zigzag = (value << 1) ^ (value >> 63);
+            while ((zigzag & ~0x7FL) != 0) {
+                out.writeByte((int) ((zigzag & 0x7F) | 0x80));
+                zigzag >>>= 7;
+            }
+            out.writeByte((int) zigzag);
+        }
+    }
+
+    /**
+     * 帧读取器，只能在一个线程中使用
+     */
+    public static final class Reader {
+        private final DataInputStream in;
+        private final List<String> strings = new ArrayList<>();
+
+        public Reader(InputStream in) {
+            this.in = new DataInputStream(new BufferedInputStream(in));
+        }
+
+        /**
+         * 读取握手并返回令牌，魔数或版本不匹配时抛出 IOException
+         */
+        public String handshake() throws IOException {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Not a FlowSpot worker connection");
+            }
+            int version = in.readInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported worker protocol version " + version);
+            }
+            return readString();
+        }
+
+        /**
+         * 读取分析请求；对端取消或断开时返回 null
+         */
+        public FlowSpotProject request() throws IOException {
+            byte type = in.readByte();
+            if (type == CANCEL) {
+                return null;
+            }
+            expect(type, REQUEST);
+            FlowSpotProject project = new FlowSpotProject();
+            project.setProjectName(readString());
+            project.setAnalysisTargetPath(readString());
+            project.setBaseProjectPath(readString());
+            project.setDecompile(in.readBoolean());
+            project.setScanMode(readString());
+            project.setSelectedSourceRules(readStrings());
+            project.setSelectedSinkRules(readStrings());
+            project.setOptimizationConfig(new OptimizationConfig(in.readBoolean(), in.readBoolean(), in.readBoolean()));
+            project.setSinkRulesPath(readString());
+            project.setCacheDir(readString());
+            project.setThreads(readVarInt());
+            project.setShardDir(readString());
+            project.setIncremental(in.readBoolean());
+            project.setMethodSummaries(in.readBoolean());
+            return project;
+        }
+
+        /**
+         * 读取下一帧并交给处理器
+         *
+         * @return 是否还有后续帧（DONE、ERROR、CANCEL 之后为 false）
+         */
+        public boolean next(Handler handler) throws IOException {
+            byte type = in.readByte();
+            switch (type) {
+                case MESSAGE:
+                    handler.onMessage(readString());
+                    return true;
+                case PROGRESS:
+                    handler.onProgress(readVarInt());
+                    return true;
+                case FINDING:
+                    handler.onFinding(readFinding());
+                    return true;
+                case RULE_PROFILE:
+                    handler.onRuleProfile(new FlowSpotRuleProfile(readString(), readString(),
+                        readVarLong(), readVarLong(), readVarLong(), readVarLong(), readVarLong()));
+                    return true;
+                case DONE:
+                    handler.onDone(readVarInt());
+                    return false;
+                case ERROR:
+                    handler.onError(readString());
+                    return false;
+                case CANCEL:
+                    return false;
+                default:
+                    throw new IOException("Unknown worker frame type " + type);
+            }
+        }
+
+        /**
+         * 等待对端的取消帧或断开，用于工作进程监视插件端
+         */
+        public void awaitCancel() throws IOException {
+            try {
+                while (in.readByte() != CANCEL) {
+                    // 请求之后插件只会发送取消帧
+                }
+            } catch (EOFException e) {
+                // 插件端断开等同于取消
+            }
+        }
+
+        private FlowSpotBugInstance readFinding() throws IOException {
+            FlowSpotBugInstance bug = new FlowSpotBugInstance(readString(), readString(), readVarInt());
+            bug.setMessage(readString());
+            bug.setBugStack(readString());
+            bug.setChanged(in.readBoolean());
+            int count = readVarInt();
+            for (int i = 0; i < count; i++) {
+                boolean enhanced = in.readBoolean();
+                String className = readString();
+                String sourceFile = readString();
+                int startLine = readVarInt();
+                int endLine = readVarInt();
+                int startBytecode = readVarInt();
+                int endBytecode = readVarInt();
+                FlowSpotSourceLineAnnotation annotation = enhanced
+                    ? new FlowSpotEnhancedSourceLineAnnotation(className, sourceFile, startLine, endLine, startBytecode, endBytecode)
+                    : new FlowSpotSourceLineAnnotation(className, sourceFile, startLine, endLine, startBytecode, endBytecode);
+                annotation.setIdentifierName(readString());
+                annotation.setDescription(readString());
+                annotation.setCode(readString());
+                annotation.setMethodName(readString());
+                annotation.setNodeType(readString());
+                if (enhanced) {
+                    ((FlowSpotEnhancedSourceLineAnnotation) annotation).setPattern(readString());
+                }
+                bug.add(annotation);
+            }
+            return bug;
+        }
+
+        private Set<String> readStrings() throws IOException {
+            int count = readVarInt();
+            if (count < 0) {
+                return null;
+            }
+            Set<String> values = new LinkedHashSet<>();
+            for (int i = 0; i < count; i++) {
+                values.add(readString());
+            }
+            return values;
+        }
+
+        private String readString() throws IOException {
+            int id = readVarInt();
+            if (id == 0) {
+                return null;
+            }
+            if (id > 0) {
+                return strings.get(id - 1);
+            }
+            byte[] bytes = new byte[readVarInt()];
+            in.readFully(bytes);
+            String value = new String(bytes, StandardCharsets.UTF_8);
+            if (id == -1) {
+                // 各工作进程的字符串表互相独立，入池后合并结果时共用实例
+                value = FlowSpotStringPool.intern(value);
+                strings.add(value);
+            }
+            return value;
+        }
+
+        private int readVarInt() throws IOException {
+            return (int) readVarLong();
+        }
+
+        private long readVarLong() throws IOException {
+            long zigzag = 0;
+            int shift = 0;
+            int b;
+            do {
+                b = in.readUnsignedByte();
+                zigzag |= (long) (b & 0x7F) << shift;
+                shift += 7;
+            } while ((b & 0x80) != 0);
+            return (zigzag >>> 1) ^ -(zigzag & 1);
+        }
+
+        private static void expect(byte actual, byte expected) throws IOException {
+            if (actual != expected) {
+                throw new IOException("Unexpected worker frame type " + actual + ", expected " + expected);
+            }
+        }
+    }
+}
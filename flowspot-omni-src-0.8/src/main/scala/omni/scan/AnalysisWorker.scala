@@ -0,0 +1,86 @@
+package omni.scan
+
+import omni.flowspot.core.FlowSpotBugInstance
+import omni.flowspot.worker.WorkerProtocol
+import omni.util.FlowSpotLogger
+
+import java.io.IOException
+import java.net.{InetAddress, Socket}
+import scala.jdk.CollectionConverters.*
+
+/**
+ * 独立分析进程的入口，由插件的 FlowSpotWorkerLauncher 启动
+ *
+ * 参数：--port <插件监听的本地端口> --token <一次性令牌>
+ *
+ * 进程连接插件、完成握手后读取一个分析请求，分析过程中的进度与漏洞通过 WorkerProtocol 实时回传；
+ * 插件发送取消帧或断开连接时进程立即退出，CPG 与数据流分析占用的内存随进程一起释放
+ */
+object AnalysisWorker {
+
+  private val ExitOk = 0
+  private val ExitFailed = 1
+  private val ExitCancelled = 2
+
+  def main(args: Array[String]): Unit = {
+    val options = args.sliding(2, 2).collect { case Array(key, value) => key -> value }.toMap
+    val port = options.get("--port").flatMap(_.toIntOption)
+    val token = options.get("--token")
+    if (port.isEmpty || token.isEmpty) {
+      System.err.println("Usage: AnalysisWorker --port <port> --token <token>")
+      System.exit(ExitFailed)
+    }
+    System.exit(run(port.get, token.get))
+  }
+
+  private def run(port: Int, token: String): Int = {
+    val socket = new Socket(InetAddress.getLoopbackAddress, port)
+    socket.setTcpNoDelay(true)
+    val writer = new WorkerProtocol.Writer(socket.getOutputStream)
+    val reader = new WorkerProtocol.Reader(socket.getInputStream)
+    writer.handshake(token)
+
+    val project = reader.request()
+    if (project == null) {
+      socket.close()
+      return ExitCancelled
+    }
+
+    // 请求之后插件只会发送取消帧；收到取消或连接断开时直接结束进程，不等待分析线程响应
+    val watcher = new Thread(() => {
+      try reader.awaitCancel()
+      catch {
+        case _: IOException =>
+      }
+      Runtime.getRuntime.halt(ExitCancelled)
+    }, "flowspot-worker-cancel")
+    watcher.setDaemon(true)
+    watcher.start()
+
+    val callback = new ProgressCallback {
+      override def updateMessage(message: String): Unit = writer.message(message)
+      override def updateProgress(progress: Int): Unit = writer.progress(progress)
+      override def onFinding(bugInstance: FlowSpotBugInstance): Unit = writer.finding(bugInstance)
+    }
+
+    try {
+      val bugCollection = FlowSpot.doAnalysis(new FlowSpotProjectConfig(project), callback)
+      Option(bugCollection.getRuleProfiles).foreach(_.asScala.foreach(writer.ruleProfile))
+      writer.done(bugCollection.size())
+      ExitOk
+    } catch {
+      case e: Throwable =>
+        FlowSpotLogger.error(s"Worker analysis failed: ${e.getMessage}", Some("AnalysisWorker"), Some(e))
+        try writer.error(Option(e.getMessage).getOrElse(e.getClass.getName))
+        catch {
+          case _: IOException =>
+        }
+        ExitFailed
+    } finally {
+      try socket.close()
+      catch {
+        case _: IOException =>
+      }
+    }
+  }
+}
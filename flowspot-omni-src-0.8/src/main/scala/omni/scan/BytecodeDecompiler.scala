@@ -0,0 +1,326 @@
+package omni.scan
+
+import omni.util.FlowSpotLogger
+import org.jd.core.v1.ClassFileToJavaSourceDecompiler
+import org.jd.core.v1.api.loader.Loader
+import org.jd.core.v1.api.printer.Printer
+import org.json4s.*
+import org.json4s.native.JsonMethods.*
+
+import java.io.{ByteArrayInputStream, DataInputStream, InputStream}
+import java.nio.charset.StandardCharsets
+import java.nio.file.{Files, Path, Paths, StandardCopyOption}
+import java.security.MessageDigest
+import java.util.concurrent.{ConcurrentHashMap, ForkJoinPool}
+import java.util.concurrent.atomic.AtomicInteger
+import java.util.zip.ZipInputStream
+import scala.collection.mutable
+import scala.collection.parallel.CollectionConverters.*
+import scala.collection.parallel.ForkJoinTaskSupport
+import scala.jdk.CollectionConverters.*
+import scala.util.{Try, Using}
+
+/**
+ * 反编译结果
+ *
+ * @param sourceRoot 反编译得到的源码目录，作为 CPG 生成的输入
+ * @param classes    参与分析的顶层类数
+ * @param decompiled 本次实际反编译的类数
+ * @param failed     反编译失败的类数
+ * @param changed    源码目录相对上次是否有变化，没有变化时可以复用上次的 CPG
+ */
+case class DecompileResult(sourceRoot: Path, classes: Int, decompiled: Int, failed: Int, changed: Boolean)
+
+/**
+ * 字节码/JAR 分析模式的反编译器，输出保存在 <projectBase>/.flowspot/decompiled
+ *
+ * 分析目标下的 .class、.jar、.war、.ear（含嵌套 jar）逐个读取，每个输入内的顶层类在有界线程池中并行反编译，
+ * 单个 WAR 或 fat jar 也能用满所有线程；每个顶层类（连同其内部类）按字节码哈希缓存反编译结果，
+ * 反编译失败的类同样记录在缓存中，重新扫描时只反编译变化的类；
+ * 源码目录只改写内容变化的文件，所有类都未变化时沿用上次的 CPG
+ */
+class BytecodeDecompiler(projectBasePath: String) {
+
+  private val root = Paths.get(projectBasePath, ".flowspot", "decompiled")
+  private val sourceRoot = root.resolve("src")
+  private val cacheDir = root.resolve("classes")
+  private val manifestFile = root.resolve("manifest.json")
+
+  // ClassFileToJavaSourceDecompiler 的 decompile 方法是同步的，每个线程使用独立实例
+  private val decompilers = ThreadLocal.withInitial(() => new ClassFileToJavaSourceDecompiler())
+
+  def cpgPath: Path = root.resolve("cpg.bin")
+
+  def run(analysisTargetPath: String): DecompileResult = {
+    Files.createDirectories(sourceRoot)
+    Files.createDirectories(cacheDir)
+
+    val inputs = BytecodeDecompiler.findInputs(Paths.get(analysisTargetPath), root)
+    val decompiled = new AtomicInteger()
+    val failed = new AtomicInteger()
+
+    // 输入逐个读取，同一时刻只持有一个输入的字节码；输入内按顶层类并行反编译
+    val pool = new ForkJoinPool(BytecodeDecompiler.Parallelism)
+    val failedHashes = ConcurrentHashMap.newKeySet[String]()
+    val units = try {
+      inputs.zipWithIndex.flatMap { case (input, order) =>
+        val classes = Try(BytecodeDecompiler.readClasses(input)).getOrElse {
+          FlowSpotLogger.warn(s"Skipping unreadable input $input", Some("BytecodeDecompiler"))
+          Map.empty[String, Array[Byte]]
+        }
+        val work = BytecodeDecompiler.topLevelUnits(classes).par
+        work.tasksupport = new ForkJoinTaskSupport(pool)
+        work.flatMap { case (internalName, members) =>
+          val hash = BytecodeDecompiler.unitHash(members.map(classes))
+          val cached = cacheDir.resolve(s"$hash.java")
+          val failedMarker = cacheDir.resolve(s"$hash.failed")
+          if (Files.exists(failedMarker)) {
+            // 同样的字节码上次已经反编译失败，不再重试
+            failed.incrementAndGet()
+            failedHashes.add(hash)
+          } else if (!Files.exists(cached)) {
+            decompile(internalName, classes) match {
+              case Some(source) =>
+                writeAtomically(cached, source)
+                decompiled.incrementAndGet()
+              case None =>
+                writeAtomically(failedMarker, "")
+                failed.incrementAndGet()
+                failedHashes.add(hash)
+            }
+          }
+          if (Files.exists(cached)) Some((internalName + ".java", hash, order)) else None
+        }.seq
+      }
+    } finally {
+      pool.shutdown()
+    }
+
+    // 同名类出现在多个归档中时取排在前面的归档
+    val selected = units.groupBy(_._1).map { case (file, candidates) => file -> candidates.minBy(_._3)._2 }
+    val changed = syncSources(selected)
+
+    // 只保留当前仍被引用的缓存条目（包括失败记录）
+    val referenced = selected.values.map(_ + ".java").toSet ++ failedHashes.asScala.map(_ + ".failed")
+    Using(Files.list(cacheDir))(_.iterator().asScala.toList).getOrElse(Nil)
+      .filterNot(p => referenced.contains(p.getFileName.toString))
+      .foreach(p => Files.deleteIfExists(p))
+
+    FlowSpotLogger.info(
+      s"Decompiled ${decompiled.get()} of ${selected.size} classes from ${inputs.size} inputs " +
+        s"(${failed.get()} failed, sources ${if (changed) "changed" else "unchanged"})",
+      Some("BytecodeDecompiler"))
+    DecompileResult(sourceRoot, selected.size, decompiled.get(), failed.get(), changed)
+  }
+
+  /**
+   * 按清单同步源码目录：只写入哈希变化的文件，删除不再存在的类
+   *
+   * @return 源码目录是否有变化
+   */
+  private def syncSources(selected: Map[String, String]): Boolean = {
+    val previous = loadManifest()
+    var changed = false
+
+    selected.foreach { case (file, hash) =>
+      val target = sourceRoot.resolve(file)
+      if (!previous.get(file).contains(hash) || !Files.exists(target)) {
+        Files.createDirectories(target.getParent)
+        Files.copy(cacheDir.resolve(s"$hash.java"), target, StandardCopyOption.REPLACE_EXISTING)
+        changed = true
+      }
+    }
+    previous.keySet.diff(selected.keySet).foreach { file =>
+      Files.deleteIfExists(sourceRoot.resolve(file))
+      changed = true
+    }
+
+    if (changed || !Files.exists(manifestFile)) saveManifest(selected)
+    changed
+  }
+
+  private def decompile(internalName: String, classes: Map[String, Array[Byte]]): Option[String] = {
+    val loader = new Loader {
+      override def canLoad(name: String): Boolean = classes.contains(name)
+      override def load(name: String): Array[Byte] = classes.getOrElse(name, null)
+    }
+    val printer = new BytecodeDecompiler.SourcePrinter
+    try {
+      decompilers.get().decompile(loader, printer, internalName)
+      Some(printer.toString)
+    } catch {
+      // 深层嵌套的方法体可能使反编译器栈溢出，只影响当前类
+      case e: (Exception | StackOverflowError) =>
+        FlowSpotLogger.debug(s"Failed to decompile $internalName: ${e.getMessage}", Some("BytecodeDecompiler"))
+        None
+    }
+  }
+
+  private def loadManifest(): Map[String, String] =
+    if (!Files.exists(manifestFile)) Map.empty
+    else Try {
+      implicit val formats: Formats = DefaultFormats
+      val json = parse(Files.readString(manifestFile))
+      if ((json \ "version").extractOpt[Int].contains(BytecodeDecompiler.Version))
+        (json \ "files").extract[Map[String, String]]
+      else Map.empty[String, String]
+    }.getOrElse(Map.empty)
+
+  private def saveManifest(selected: Map[String, String]): Unit = {
+    val json = JObject(
+      "version" -> JInt(BytecodeDecompiler.Version),
+      "files" -> JObject(selected.toList.sortBy(_._1).map { case (file, hash) => JField(file, JString(hash)) })
+    )
+    writeAtomically(manifestFile, compact(render(json)))
+  }
+
+  // 先写临时文件再替换，避免中断时留下不完整的文件
+  private def writeAtomically(path: Path, content: String): Unit = {
+    val temp = Files.createTempFile(path.getParent, path.getFileName.toString, ".tmp")
+    try {
+      Files.write(temp, content.getBytes(StandardCharsets.UTF_8))
+      Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE)
+    } finally {
+      Files.deleteIfExists(temp)
+    }
+  }
+}
+
+object BytecodeDecompiler {
+
+  // 输出格式或反编译器版本变化时递增，使旧清单整体失效
+  private val Version = 1
+
+  // 反编译线程数上限：反编译以 CPU 为主，同时受单个输入内类数的限制
+  private val Parallelism = math.max(1, math.min(Runtime.getRuntime.availableProcessors(), 8))
+
+  private val ArchiveSuffixes = Set(".jar", ".war", ".ear")
+
+  /**
+   * 分析目标下的输入：每个归档一项，散落的 .class 文件合并为一项
+   */
+  private sealed trait Input
+  private case class ArchiveInput(path: Path) extends Input {
+    override def toString: String = path.toString
+  }
+  private case class ClassFilesInput(files: List[Path]) extends Input {
+    override def toString: String = s"${files.size} class files"
+  }
+
+  private def findInputs(target: Path, outputRoot: Path): List[Input] = {
+    val files = Using(Files.walk(target))(_.iterator().asScala
+      .filter(p => Files.isRegularFile(p) && !p.startsWith(outputRoot))
+      .toList).get
+    val archives = files.filter(p => ArchiveSuffixes.exists(p.getFileName.toString.toLowerCase.endsWith)).sorted
+    val classFiles = files.filter(_.getFileName.toString.endsWith(".class")).sorted
+    (if (classFiles.nonEmpty) List(ClassFilesInput(classFiles)) else Nil) ++ archives.map(ArchiveInput(_))
+  }
+
+  /**
+   * 读取输入中的所有类，键为从字节码中读出的内部类名
+   */
+  private def readClasses(input: Input): Map[String, Array[Byte]] = {
+    val classes = mutable.HashMap[String, Array[Byte]]()
+    def add(bytes: Array[Byte]): Unit = internalName(bytes).foreach(name => classes.getOrElseUpdate(name, bytes))
+
+    input match {
+      case ClassFilesInput(files) => files.foreach(f => add(Files.readAllBytes(f)))
+      case ArchiveInput(path) => Using(Files.newInputStream(path))(in => readZip(in, add)).get
+    }
+    classes.toMap
+  }
+
+  // 嵌套的 jar（如 WEB-INF/lib、BOOT-INF/lib）在内存中递归读取
+  private def readZip(in: InputStream, add: Array[Byte] => Unit): Unit = {
+    val zip = new ZipInputStream(in)
+    var entry = zip.getNextEntry
+    while (entry != null) {
+      val name = entry.getName.toLowerCase
+      if (name.endsWith(".class") && !name.endsWith("module-info.class")) {
+        add(zip.readAllBytes())
+      } else if (name.endsWith(".jar")) {
+        readZip(new ByteArrayInputStream(zip.readAllBytes()), add)
+      }
+      entry = zip.getNextEntry
+    }
+  }
+
+  /**
+   * 顶层类及其成员（自身与所有内部类），内部类与外部类一起反编译
+   */
+  private def topLevelUnits(classes: Map[String, Array[Byte]]): List[(String, List[String])] =
+    classes.keys.toList.groupBy(name => outermost(name, classes)).toList.map { case (outer, members) =>
+      outer -> members.sorted
+    }.filterNot(_._1.endsWith("package-info"))
+
+  private def outermost(name: String, classes: Map[String, Array[Byte]]): String = {
+    var index = name.indexOf('$')
+    while (index > 0) {
+      val prefix = name.substring(0, index)
+      if (classes.contains(prefix)) return prefix
+      index = name.indexOf('$', index + 1)
+    }
+    name
+  }
+
+  private def unitHash(members: List[Array[Byte]]): String = {
+    val digest = MessageDigest.getInstance("SHA-1")
+    members.foreach(digest.update)
+    digest.digest().map("%02x".format(_)).mkString
+  }
+
+  /**
+   * 从 class 文件常量池中读取 this_class 的内部类名
+   */
+  private def internalName(bytes: Array[Byte]): Option[String] = Try {
+    val in = new DataInputStream(new ByteArrayInputStream(bytes))
+    require(in.readInt() == 0xCAFEBABE)
+    in.skipBytes(4)
+    val count = in.readUnsignedShort()
+    val utf8 = new Array[String](count)
+    val classNameIndex = new Array[Int](count)
+    var i = 1
+    while (i < count) {
+      in.readUnsignedByte() match {
+        case 1 => utf8(i) = in.readUTF()
+        case 7 => classNameIndex(i) = in.readUnsignedShort()
+        case 8 | 16 | 19 | 20 => in.skipBytes(2)
+        case 15 => in.skipBytes(3)
+        case 3 | 4 | 9 | 10 | 11 | 12 | 17 | 18 => in.skipBytes(4)
+        case 5 | 6 => in.skipBytes(8); i += 1
+        case tag => throw new IllegalArgumentException(s"Unknown constant pool tag $tag")
+      }
+      i += 1
+    }
+    in.skipBytes(2)
+    utf8(classNameIndex(in.readUnsignedShort()))
+  }.toOption.filter(_ != null)
+
+  /**
+   * 将 jd-core 的输出拼接为源码文本
+   */
+  private class SourcePrinter extends Printer {
+    private val builder = new java.lang.StringBuilder()
+    private var indentation = 0
+
+    override def start(maxLineNumber: Int, majorVersion: Int, minorVersion: Int): Unit = {}
+    override def end(): Unit = {}
+    override def printText(text: String): Unit = builder.append(text)
+    override def printNumericConstant(constant: String): Unit = builder.append(constant)
+    override def printStringConstant(constant: String, ownerInternalName: String): Unit = builder.append(constant)
+    override def printKeyword(keyword: String): Unit = builder.append(keyword)
+    override def printDeclaration(`type`: Int, internalTypeName: String, name: String, descriptor: String): Unit =
+      builder.append(name)
+    override def printReference(`type`: Int, internalTypeName: String, name: String, descriptor: String, ownerInternalName: String): Unit =
+      builder.append(name)
+    override def indent(): Unit = indentation += 1
+    override def unindent(): Unit = indentation -= 1
+    override def startLine(lineNumber: Int): Unit = builder.append("    " * indentation)
+    override def endLine(): Unit = builder.append('\n')
+    override def extraLine(count: Int): Unit = builder.append("\n" * count)
+    override def startMarker(`type`: Int): Unit = {}
+    override def endMarker(`type`: Int): Unit = {}
+
+    override def toString: String = builder.toString
+  }
+}
@@ -0,0 +1,70 @@
+package omni.scan
+
+import omni.util.FlowSpotLogger
+
+import java.nio.charset.StandardCharsets
+import java.nio.file.{Files, Path, Paths, StandardCopyOption}
+import java.security.MessageDigest
+import scala.collection.parallel.CollectionConverters.*
+import scala.jdk.CollectionConverters.*
+import scala.util.Using
+
+/**
+ * CPG 对应的源码指纹，保存在 cpg.bin 旁的 cpg.bin.sources
+ *
+ * 指纹取所有 .java 文件的相对路径与内容哈希，源码变化（包括切换分支、更新检出）后指纹不同，
+ * 已有的 CPG 不再复用；没有指纹文件的旧 CPG 视为过期
+ */
+object CpgSourceStamp {
+
+  // 指纹计算方式变化时递增，使旧指纹整体失效
+  private val Version = 1
+
+  def path(cpgPath: String): Path = Paths.get(cpgPath + ".sources")
+
+  /**
+   * 计算源码目录（或单个源文件）的指纹
+   */
+  def of(sourcePath: String): String = {
+    val root = Paths.get(sourcePath).toAbsolutePath.normalize()
+    val files =
+      if (Files.isRegularFile(root)) List(root)
+      else if (!Files.isDirectory(root)) Nil
+      else Using.resource(Files.walk(root)) { stream =>
+        stream.iterator().asScala
+          .filter(file => Files.isRegularFile(file) && file.getFileName.toString.endsWith(".java"))
+          // 反编译输出等 FlowSpot 自身的文件不属于源码
+          .filterNot(file => root.relativize(file).iterator().asScala.exists(_.toString == ".flowspot"))
+          .toList
+      }
+    val entries = files.par.map { file =>
+      root.relativize(file).toString.replace('\\', '/') + ":" + sha1(Files.readAllBytes(file))
+    }.seq.toList.sorted
+    sha1((s"v$Version" :: entries).mkString("\n").getBytes(StandardCharsets.UTF_8))
+  }
+
+  /**
+   * 已有的 CPG 是否由指纹相同的源码生成
+   */
+  def matches(cpgPath: String, stamp: String): Boolean = {
+    val file = path(cpgPath)
+    Files.exists(file) && Files.readString(file).trim == stamp
+  }
+
+  def write(cpgPath: String, stamp: String): Unit = {
+    val file = path(cpgPath)
+    val temp = Files.createTempFile(file.getParent, file.getFileName.toString, ".tmp")
+    try {
+      Files.writeString(temp, stamp)
+      Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE)
+    } catch {
+      case e: Exception =>
+        FlowSpotLogger.warn(s"Failed to record CPG source stamp: ${e.getMessage}", Some("CpgSourceStamp"))
+    } finally {
+      Files.deleteIfExists(temp)
+    }
+  }
+
+  private def sha1(bytes: Array[Byte]): String =
+    MessageDigest.getInstance("SHA-1").digest(bytes).map("%02x".format(_)).mkString
+}
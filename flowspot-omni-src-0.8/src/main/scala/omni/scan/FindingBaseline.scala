@@ -0,0 +1,279 @@
+package omni.scan
+
+import io.shiftleft.codepropertygraph.generated.Cpg
+import io.shiftleft.semanticcpg.language.*
+import omni.flowspot.annotations.{FlowSpotEnhancedSourceLineAnnotation, FlowSpotSourceLineAnnotation}
+import omni.flowspot.core.{FlowSpotBugInstance, FlowSpotStringPool}
+import omni.util.FlowSpotLogger
+import org.json4s.*
+import org.json4s.native.JsonMethods.*
+
+import java.nio.charset.StandardCharsets
+import java.nio.file.{Files, Path, Paths, StandardCopyOption}
+import java.security.MessageDigest
+import scala.collection.mutable
+import scala.collection.parallel.CollectionConverters.*
+import scala.jdk.CollectionConverters.*
+
+/**
+ * 方法在某次扫描时的状态
+ *
+ * @param hash 方法体哈希（不含行号）
+ * @param line 方法起始行，复用漏洞时按方法的位移修正行号
+ */
+case class MethodState(hash: String, line: Int)
+
+/**
+ * 上次扫描的一个漏洞
+ *
+ * @param methods 每个路径节点所在的方法全名，与漏洞的注解一一对应，最后一个为 sink 所在方法
+ */
+case class BaselineFinding(methods: List[String], bugInstance: FlowSpotBugInstance) {
+  def sinkMethod: Option[String] = methods.lastOption
+}
+
+/**
+ * 增量扫描的范围
+ *
+ * @param changed  新增或方法体变化的方法
+ * @param affected 需要重新计算的 sink 所在方法：与变更方法在调用图上距离不超过半径的方法，
+ *                 以及所有不能复用的基线漏洞的 sink 方法；只有其中的 sink 重新计算可达路径
+ * @param reused   从上次结果复用的漏洞，行号已按方法位移修正
+ */
+case class IncrementalScope(changed: Set[String], affected: Set[String], reused: List[BaselineFinding])
+
+/**
+ * 上次扫描的基线：规则指纹、各方法的哈希与全部漏洞，保存在分析目标状态目录下的 baseline/findings.json
+ *
+ * 增量扫描时，sink 位于受影响方法之外、且路径上的方法都未变化的漏洞直接复用，
+ * 其余 sink 重新计算；规则或扫描选项变化时指纹不同，基线整体失效
+ */
+case class FindingBaseline(methods: Map[String, MethodState], findings: List[BaselineFinding]) {
+
+  /**
+   * 按当前 CPG 的方法状态划分增量范围
+   *
+   * @param radius 受影响范围在调用图上的半径（不区分调用方向）
+   */
+  def scope(cpg: Cpg, current: Map[String, MethodState], radius: Int): IncrementalScope =
+    scope(current, radius, FindingBaseline.callNeighbours(cpg))
+
+  /**
+   * @param neighbours 方法在调用图上的相邻方法（调用与被调用两个方向）
+   */
+  private[scan] def scope(current: Map[String, MethodState], radius: Int, neighbours: String => Iterable[String]): IncrementalScope = {
+    val changed = current.collect { case (name, state) if !methods.get(name).exists(_.hash == state.hash) => name }.toSet
+    val nearby = FindingBaseline.neighbourhood(changed, radius, neighbours)
+    val (kept, invalidated) = findings.partition { finding =>
+      finding.sinkMethod.exists(sink => !nearby.contains(sink)) &&
+        finding.methods.forall(m => current.get(m).exists(state => methods.get(m).exists(_.hash == state.hash)))
+    }
+    // 路径经过变更方法、但 sink 在半径之外的漏洞不能复用，其 sink 也要重新计算，否则漏洞会直接丢失
+    val affected = nearby ++ invalidated.flatMap(_.sinkMethod)
+    val reused = kept.map { finding =>
+      val shifts = finding.methods.map(m => current(m).line - methods(m).line)
+      BaselineFinding(finding.methods, FindingBaseline.shifted(finding.bugInstance, shifts))
+    }
+    IncrementalScope(changed, affected, reused)
+  }
+}
+
+object FindingBaseline {
+
+  // 基线格式变化时递增，使旧基线整体失效
+  private val Version = 1
+
+  private implicit val callResolver: ICallResolver = NoResolve
+
+  /**
+   * @param stateDir 分析目标的状态目录，见 FlowSpotProjectConfig.getStateDir
+   */
+  def path(stateDir: String): Path = Paths.get(stateDir, "baseline", "findings.json")
+
+  /**
+   * 规则与扫描选项的指纹，任一部分变化时上次的漏洞不能复用
+   */
+  def fingerprint(parts: Seq[String]): String =
+    MessageDigest.getInstance("SHA-1").digest(parts.mkString("\n").getBytes(StandardCharsets.UTF_8)).map("%02x".format(_)).mkString
+
+  /**
+   * 项目内所有方法的当前状态
+   */
+  def methodStates(cpg: Cpg): Map[String, MethodState] =
+    cpg.method.isExternal(false).l.par.map { method =>
+      method.fullName -> MethodState(MethodSummaryStore.bodyHash(method), method.lineNumber.getOrElse(-1))
+    }.seq.toMap
+
+  /**
+   * 读取基线，不存在、版本或指纹不一致、无法解析时返回 None
+   */
+  def load(stateDir: String, fingerprint: String): Option[FindingBaseline] = {
+    val file = path(stateDir)
+    if (!Files.exists(file)) None
+    else try {
+      implicit val formats: Formats = DefaultFormats
+      val json = parse(Files.readString(file))
+      if (!(json \ "version").extractOpt[Int].contains(Version) || !(json \ "fingerprint").extractOpt[String].contains(fingerprint)) {
+        FlowSpotLogger.info(s"Baseline $file was produced with different rules or options, ignoring it", Some("FindingBaseline"))
+        None
+      } else {
+        val methods = (json \ "methods").children.map { entry =>
+          (entry \ "name").extract[String] -> MethodState((entry \ "hash").extract[String], (entry \ "line").extract[Int])
+        }.toMap
+        val findings = (json \ "findings").children.map(readFinding)
+        FlowSpotLogger.info(s"Loaded baseline with ${findings.size} findings and ${methods.size} methods from $file", Some("FindingBaseline"))
+        Some(FindingBaseline(methods, findings))
+      }
+    } catch {
+      case e: Exception =>
+        FlowSpotLogger.warn(s"Ignoring unreadable baseline $file: ${e.getMessage}", Some("FindingBaseline"))
+        None
+    }
+  }
+
+  def save(stateDir: String, fingerprint: String, methods: Map[String, MethodState], findings: List[BaselineFinding]): Unit = {
+    val file = path(stateDir)
+    try {
+      Files.createDirectories(file.getParent)
+      val json = JObject(
+        "version" -> JInt(Version),
+        "fingerprint" -> JString(fingerprint),
+        "methods" -> JArray(methods.toList.sortBy(_._1).map { case (name, state) =>
+          JObject("name" -> JString(name), "hash" -> JString(state.hash), "line" -> JInt(state.line))
+        }),
+        "findings" -> JArray(findings.map(writeFinding))
+      )
+      // 先写唯一的临时文件再替换，避免中断时留下损坏的基线
+      val temp = Files.createTempFile(file.getParent, file.getFileName.toString, ".tmp")
+      try {
+        Files.write(temp, compact(render(json)).getBytes(StandardCharsets.UTF_8))
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE)
+      } finally {
+        Files.deleteIfExists(temp)
+      }
+      FlowSpotLogger.info(s"Saved baseline with ${findings.size} findings to $file", Some("FindingBaseline"))
+    } catch {
+      case e: Exception =>
+        FlowSpotLogger.error(s"Failed to save baseline: ${e.getMessage}", Some("FindingBaseline"), Some(e))
+    }
+  }
+
+  /**
+   * 与给定方法在调用图上距离不超过 radius 的方法，含这些方法本身
+   */
+  private[scan] def neighbourhood(roots: Set[String], radius: Int, neighbours: String => Iterable[String]): Set[String] = {
+    val visited = mutable.HashSet.from(roots)
+    var frontier = roots.toList
+    var depth = 0
+    while (frontier.nonEmpty && depth < radius) {
+      frontier = frontier.flatMap(neighbours).filter(visited.add)
+      depth += 1
+    }
+    visited.toSet
+  }
+
+  /**
+   * 项目内方法在调用图上的相邻方法
+   * 数据流可以经参数进入被调用方法，也可以经返回值回到调用方，因此调用与被调用两个方向都要计入
+   */
+  private def callNeighbours(cpg: Cpg): String => Iterable[String] = {
+    val byName = cpg.method.isExternal(false).l.map(m => m.fullName -> m).toMap
+    name => byName.get(name).toList.flatMap { method =>
+      (method.call.callee.isExternal(false).l ++ method.callIn.method.l).map(_.fullName)
+    }
+  }
+
+  /**
+   * 复制漏洞并按各节点所在方法的位移修正行号，复用的漏洞标记为未变化
+   */
+  private def shifted(original: FlowSpotBugInstance, shifts: List[Int]): FlowSpotBugInstance = {
+    val bugInstance = new FlowSpotBugInstance(original.getCategory, original.getType, original.getPriority)
+    bugInstance.setMessage(original.getMessage)
+    bugInstance.setBugStack(original.getBugStack)
+    bugInstance.setChanged(false)
+    original.getAnnotations.asScala.toList.zip(shifts).foreach { case (annotation, shift) =>
+      bugInstance.add(copy(annotation, shift))
+    }
+    bugInstance
+  }
+
+  private def copy(annotation: FlowSpotSourceLineAnnotation, shift: Int): FlowSpotSourceLineAnnotation = {
+    def line(value: Int) = if (value > 0) value + shift else value
+    val result = annotation match {
+      case enhanced: FlowSpotEnhancedSourceLineAnnotation =>
+        val copied = new FlowSpotEnhancedSourceLineAnnotation(annotation.getClassName, annotation.getSourceFile,
+          line(annotation.getStartLine), line(annotation.getEndLine), annotation.getStartBytecode, annotation.getEndBytecode)
+        copied.setPattern(enhanced.getPattern)
+        copied
+      case _ =>
+        new FlowSpotSourceLineAnnotation(annotation.getClassName, annotation.getSourceFile,
+          line(annotation.getStartLine), line(annotation.getEndLine), annotation.getStartBytecode, annotation.getEndBytecode)
+    }
+    result.setIdentifierName(annotation.getIdentifierName)
+    result.setDescription(annotation.getDescription)
+    result.setCode(annotation.getCode)
+    result.setMethodName(annotation.getMethodName)
+    result.setNodeType(annotation.getNodeType)
+    result
+  }
+
+  private def string(value: String): JValue = Option(value).map(JString(_)).getOrElse(JNull)
+
+  private def writeFinding(finding: BaselineFinding): JObject = {
+    val bug = finding.bugInstance
+    JObject(
+      "category" -> JString(bug.getCategory),
+      "type" -> JString(bug.getType),
+      "priority" -> JInt(bug.getPriority),
+      "message" -> string(bug.getMessage),
+      "bugStack" -> string(bug.getBugStack),
+      "steps" -> JArray(bug.getAnnotations.asScala.toList.zip(finding.methods).map { case (annotation, method) =>
+        JObject(List(
+          "method" -> JString(method),
+          "className" -> string(annotation.getClassName),
+          "sourceFile" -> string(annotation.getSourceFile),
+          "startLine" -> JInt(annotation.getStartLine),
+          "endLine" -> JInt(annotation.getEndLine),
+          "startBytecode" -> JInt(annotation.getStartBytecode),
+          "endBytecode" -> JInt(annotation.getEndBytecode),
+          "identifierName" -> string(annotation.getIdentifierName),
+          "description" -> string(annotation.getDescription),
+          "code" -> string(annotation.getCode),
+          "methodName" -> string(annotation.getMethodName),
+          "nodeType" -> string(annotation.getNodeType)
+        ) ++ (annotation match {
+          case enhanced: FlowSpotEnhancedSourceLineAnnotation => List("pattern" -> string(enhanced.getPattern))
+          case _ => Nil
+        }))
+      })
+    )
+  }
+
+  private def readFinding(json: JValue)(implicit formats: Formats): BaselineFinding = {
+    val bug = new FlowSpotBugInstance((json \ "category").extract[String], (json \ "type").extract[String], (json \ "priority").extract[Int])
+    bug.setMessage((json \ "message").extractOpt[String].orNull)
+    bug.setBugStack((json \ "bugStack").extractOpt[String].orNull)
+    val methods = (json \ "steps").children.map { step =>
+      def text(key: String) = FlowSpotStringPool.intern((step \ key).extractOpt[String].orNull)
+      def number(key: String) = (step \ key).extract[Int]
+      val annotation = step \ "pattern" match {
+        case JNothing =>
+          new FlowSpotSourceLineAnnotation(text("className"), text("sourceFile"),
+            number("startLine"), number("endLine"), number("startBytecode"), number("endBytecode"))
+        case _ =>
+          val enhanced = new FlowSpotEnhancedSourceLineAnnotation(text("className"), text("sourceFile"),
+            number("startLine"), number("endLine"), number("startBytecode"), number("endBytecode"))
+          enhanced.setPattern(text("pattern"))
+          enhanced
+      }
+      annotation.setIdentifierName(text("identifierName"))
+      annotation.setDescription(text("description"))
+      annotation.setCode(text("code"))
+      annotation.setMethodName(text("methodName"))
+      annotation.setNodeType(text("nodeType"))
+      bug.add(annotation)
+      (step \ "method").extract[String]
+    }
+    BaselineFinding(methods, bug)
+  }
+}
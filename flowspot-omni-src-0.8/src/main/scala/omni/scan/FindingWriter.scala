@@ -0,0 +1,156 @@
+package omni.scan
+
+import omni.flowspot.annotations.{FlowSpotEnhancedSourceLineAnnotation, FlowSpotSourceLineAnnotation}
+import omni.flowspot.core.FlowSpotBugInstance
+import org.json4s.*
+import org.json4s.native.JsonMethods.*
+
+import java.io.{BufferedWriter, Writer}
+import java.nio.charset.StandardCharsets
+import java.nio.file.{Files, Path}
+import scala.collection.mutable
+import scala.jdk.CollectionConverters.*
+
+/**
+ * 逐个输出漏洞的结果文件，每个漏洞写入后立即刷新，写出器本身不在内存中累积（漏洞在扫描结束后的转换阶段才产生）
+ */
+trait FindingWriter extends AutoCloseable {
+
+  def write(bugInstance: FlowSpotBugInstance): Unit
+
+  def count: Int
+}
+
+object FindingWriter {
+
+  /**
+   * 按格式名创建结果文件：json（每行一个漏洞）或 sarif（SARIF 2.1.0）
+   */
+  def create(format: String, output: Path, basePath: Path): FindingWriter = format.toLowerCase match {
+    case "json" => new JsonLinesFindingWriter(output, basePath)
+    case "sarif" => new SarifFindingWriter(output, basePath)
+    case other => throw new IllegalArgumentException(s"Unsupported output format: $other")
+  }
+
+  private[scan] def open(output: Path): BufferedWriter = {
+    Option(output.toAbsolutePath.getParent).foreach(Files.createDirectories(_))
+    Files.newBufferedWriter(output, StandardCharsets.UTF_8)
+  }
+
+  /**
+   * 源文件路径：位于项目根目录下时取相对路径，便于 CI 按仓库路径定位
+   */
+  private[scan] def relativeUri(sourceFile: String, basePath: Path): String = {
+    val file = java.nio.file.Paths.get(Option(sourceFile).getOrElse("N/A"))
+    val relative = if (file.isAbsolute && file.startsWith(basePath)) basePath.relativize(file) else file
+    relative.toString.replace('\\', '/')
+  }
+
+  private[scan] def stepJson(annotation: FlowSpotSourceLineAnnotation, basePath: Path): JObject = {
+    val pattern = annotation match {
+      case enhanced: FlowSpotEnhancedSourceLineAnnotation => Option(enhanced.getPattern)
+      case _ => None
+    }
+    JObject(List(
+      "file" -> JString(relativeUri(annotation.getSourceFile, basePath)),
+      "line" -> JInt(annotation.getStartLine),
+      "className" -> Option(annotation.getClassName).map(JString(_)).getOrElse(JNull),
+      "methodName" -> Option(annotation.getMethodName).map(JString(_)).getOrElse(JNull),
+      "code" -> Option(annotation.getCode).map(JString(_)).getOrElse(JNull)
+    ) ++ pattern.map(p => "pattern" -> JString(p)))
+  }
+}
+
+/**
+ * JSON Lines 输出：每行一个完整的漏洞对象，写出过程中也可以逐行读取
+ */
+class JsonLinesFindingWriter(output: Path, basePath: Path) extends FindingWriter {
+
+  private val writer: Writer = FindingWriter.open(output)
+  private var written = 0
+
+  override def write(bugInstance: FlowSpotBugInstance): Unit = synchronized {
+    val json = JObject(
+      "category" -> JString(bugInstance.getCategory),
+      "type" -> JString(bugInstance.getType),
+      "priority" -> JInt(bugInstance.getPriority),
+      "path" -> JArray(bugInstance.getAnnotations.asScala.toList.map(FindingWriter.stepJson(_, basePath)))
+    )
+    writer.write(compact(render(json)))
+    writer.write('\n')
+    writer.flush()
+    written += 1
+  }
+
+  override def count: Int = synchronized(written)
+
+  override def close(): Unit = synchronized(writer.close())
+}
+
+/**
+ * SARIF 2.1.0 输出：results 数组逐条写入，工具与规则信息在关闭时写在 results 之后，
+ * 因此不需要预先知道会命中哪些规则
+ */
+class SarifFindingWriter(output: Path, basePath: Path) extends FindingWriter {
+
+  private val writer: Writer = FindingWriter.open(output)
+  private val rules = mutable.LinkedHashMap[String, String]()
+  private var written = 0
+
+  writer.write("""{"$schema":"https://json.schemastore.org/sarif-2.1.0.json","version":"2.1.0","runs":[{"results":[""")
+  writer.write('\n')
+  writer.flush()
+
+  override def write(bugInstance: FlowSpotBugInstance): Unit = synchronized {
+    val steps = bugInstance.getAnnotations.asScala.toList
+    rules.getOrElseUpdate(bugInstance.getType, bugInstance.getCategory)
+
+    val result = JObject(List(
+      "ruleId" -> JString(bugInstance.getType),
+      "level" -> JString("warning"),
+      "message" -> JString(message(bugInstance, steps)),
+      "properties" -> JObject("category" -> JString(bugInstance.getCategory), "priority" -> JInt(bugInstance.getPriority))
+    ) ++ steps.lastOption.map(sink => "locations" -> JArray(List(location(sink)))) ++
+      Option.when(steps.size > 1)("codeFlows" -> JArray(List(JObject("threadFlows" -> JArray(List(
+        JObject("locations" -> JArray(steps.map(step => JObject("location" -> location(step)))))
+      )))))))
+
+    if (written > 0) writer.write(",\n")
+    writer.write(compact(render(result)))
+    writer.flush()
+    written += 1
+  }
+
+  override def count: Int = synchronized(written)
+
+  override def close(): Unit = synchronized {
+    val driver = JObject(
+      "name" -> JString("FlowSpot"),
+      "rules" -> JArray(rules.toList.map { case (id, category) =>
+        JObject("id" -> JString(id), "properties" -> JObject("category" -> JString(category)))
+      })
+    )
+    writer.write("\n],")
+    writer.write(compact(render(JObject("tool" -> JObject("driver" -> driver)))).stripPrefix("{"))
+    writer.write("]}\n")
+    writer.close()
+  }
+
+  private def message(bugInstance: FlowSpotBugInstance, steps: List[FlowSpotSourceLineAnnotation]): String =
+    Option(bugInstance.getMessage).filter(_.nonEmpty).getOrElse {
+      val source = steps.headOption.map(s => s"${s.getSourceFile}:${s.getStartLine}").getOrElse("?")
+      s"${bugInstance.getType}: data flows from $source to this sink"
+    }
+
+  private def location(annotation: FlowSpotSourceLineAnnotation): JObject = {
+    // 引擎把节点的源码列号（columnNumber）写在 startBytecode 中，列号未知时为 -1，此时只输出行号
+    val region = JObject(List("startLine" -> JInt(math.max(1, annotation.getStartLine))) ++
+      Option.when(annotation.getStartBytecode > 0)("startColumn" -> JInt(annotation.getStartBytecode)))
+    JObject(List(
+      "physicalLocation" -> JObject(
+        "artifactLocation" -> JObject("uri" -> JString(FindingWriter.relativeUri(annotation.getSourceFile, basePath))),
+        "region" -> region
+      )
+    ) ++ Option(annotation.getCode).map(code => "message" -> JObject("text" -> JString(code))))
+  }
+}
@@ -19,13 +19,14 @@ import omni.scan.generate.sources.{HttpRequestTagger, NettyHandlerTagger, Rabbit
 import better.files.File
 
 import java.util.ArrayList
+import java.util.concurrent.CancellationException
 import java.nio.file.{Files, Paths, StandardCopyOption}
 import omni.flowspot.project.FlowSpotProjectStats
 import omni.flowspot.core.FlowSpotBugCollection
+import omni.flowspot.core.FlowSpotStringPool.intern
 import omni.flowspot.project.FlowSpotProject
 import omni.flowspot.annotations.{FlowSpotEnhancedSourceLineAnnotation, FlowSpotSourceLineAnnotation}
 import omni.flowspot.core.FlowSpotBugInstance
-import omni.filter.DuplicateFlow
 import omni.scan.ScannerFindingExtension
 import omni.test.SpringApiFilter
 import omni.scan.newpass.{BeanValidationDataFlowPass, OptimizedScanPass}
@@ -40,48 +41,19 @@ import scala.jdk.CollectionConverters.*
 trait ProgressCallback {
   def updateMessage(message: String): Unit
   def updateProgress(progress: Int): Unit
+  // 阶段度量回调，默认忽略
+  def onPhaseMetric(metric: PhaseMetric): Unit = {}
+  // 每个漏洞转换完成时回调，默认忽略；所有扫描阶段与跨批次去重结束后才开始转换，
+  // 因此回调只能让调用方边转换边输出，不能在扫描中途拿到结果
+  def onFinding(bugInstance: FlowSpotBugInstance): Unit = {}
 }
 
 object FlowSpot {
 
   /**
-   * 获取rt.jar资源文件路径，提取到临时文件
+   * 获取rt.jar资源文件路径，同一版本只提取一次到 ~/.flowspot/jdk 并在所有扫描间共用
    */
-  private def getRtJarPath: Option[String] = {
-    try {
-      val inputStream = getClass.getResourceAsStream("/rt.jar")
-      if (inputStream != null) {
-        // 创建临时文件
-        val tempFile = java.io.File.createTempFile("flowspot-rt", ".jar")
-        tempFile.deleteOnExit()
-        
-        // 复制资源到临时文件
-        val outputStream = new java.io.FileOutputStream(tempFile)
-        try {
-          val buffer = new Array[Byte](8192)
-          var bytesRead = inputStream.read(buffer)
-          while (bytesRead != -1) {
-            outputStream.write(buffer, 0, bytesRead)
-            bytesRead = inputStream.read(buffer)
-          }
-          
-          val tempPath = tempFile.getAbsolutePath
-          FlowSpotLogger.info(s"Extracted rt.jar to temporary file: $tempPath", Some("FlowSpot"))
-          Some(tempPath)
-        } finally {
-          inputStream.close()
-          outputStream.close()
-        }
-      } else {
-        FlowSpotLogger.warn("rt.jar resource not found in classpath", Some("FlowSpot"))
-        None
-      }
-    } catch {
-      case e: Exception =>
-        FlowSpotLogger.error(s"Failed to extract rt.jar: ${e.getMessage}", Some("FlowSpot"), Some(e))
-        None
-    }
-  }
+  private def getRtJarPath: Option[String] = JdkStubCache.rtJarPath()
 
   private def getSelectedSinkRulesFromProject(config: FlowSpotProjectConfig,callback: ProgressCallback): Set[String] = {
     try {
@@ -131,15 +103,12 @@ object FlowSpot {
 
   /**
    * 辅助方法，用于运行CPG pass
+   * 不再强制GC：引擎与IDE同进程，Full GC会同时卡住IDE，内存压力由 MemoryGovernor 调节
    */
   protected def runPass(pass: CpgPassBase, context: LayerCreatorContext, index: Int = 0): Unit = {
     FlowSpotLog.info(s"Running pass: ${pass.getClass.getName}")
     pass.createAndApply()
     FlowSpotLog.info(s"Pass completed: ${pass.getClass.getName}")
-    if (index % 10 == 0) {
-      FlowSpotLog.debug("Collecting garbage...")
-      System.gc()
-    }
   }
 
   protected def initSerializedCpg(outputDir: Option[String], passName: String, index: Int = 0): SerializedCpg = {
@@ -160,10 +129,11 @@ object FlowSpot {
    */
   def processBugPath(path: Path,category:String, bugType: String, priority: Int, pattern: String, bugInstances: ArrayList[FlowSpotBugInstance]): Unit = {
     val bugInstance = new FlowSpotBugInstance(category, bugType, priority)
+    // 同一结果集中的类名、文件名、方法名和代码在各条路径间大量重复，入池后共用一个实例
     path.elements.foreach { astNode =>
-      val nodeType = astNode.getClass.getSimpleName
+      val nodeType = intern(astNode.getClass.getSimpleName)
       val lineNumber = astNode.lineNumber.getOrElse("N/A").toString
-      val fileName = astNode.file.name.headOption.getOrElse("N/A")
+      val fileName = intern(astNode.file.name.headOption.getOrElse("N/A"))
       val columnNumberStart = astNode.columnNumber.getOrElse(-1)
       val columnNumberEnd = columnNumberStart + astNode.code.length - 1
       astNode match {
@@ -173,8 +143,8 @@ object FlowSpot {
           Seq(nodeType, tracked, lineNumber, methodName, fileName)
         case cfgNode: CfgNode =>
           val method = cfgNode.method
-          val className = method.typeDecl.fullName.headOption.getOrElse("Unknown")
-          val methodName = method.name
+          val className = intern(method.typeDecl.fullName.headOption.getOrElse("Unknown"))
+          val methodName = intern(method.name)
           val statement = cfgNode match {
             case _: MethodParameterIn =>
               val paramsPretty = method.parameter.toList.sortBy(_.index).map(_.code).mkString(", ")
@@ -182,11 +152,11 @@ object FlowSpot {
             case _ => cfgNode.statement.repr
           }
           val flowSpotSourceLineAnnotation = new FlowSpotEnhancedSourceLineAnnotation(className,fileName,lineNumber.toInt,lineNumber.toInt,columnNumberStart,columnNumberEnd);
-          flowSpotSourceLineAnnotation.setCode(statement);
-          flowSpotSourceLineAnnotation.setIdentifierName(cfgNode match {
+          flowSpotSourceLineAnnotation.setCode(intern(statement));
+          flowSpotSourceLineAnnotation.setIdentifierName(intern(cfgNode match {
             case _: Identifier => cfgNode.asInstanceOf[Identifier].name
             case _ => cfgNode.statement.repr
-          })
+          }))
           flowSpotSourceLineAnnotation.setNodeType(nodeType);
           flowSpotSourceLineAnnotation.setMethodName(methodName);
           bugInstance.add(flowSpotSourceLineAnnotation)
@@ -230,34 +200,67 @@ object FlowSpot {
     doAnalysisWithConfig(project, new FlowSpotProjectConfig(project), defaultCallback)
   }
 
-  def main(args: Array[String]): Unit = {
-    val analysisTargetPath = "xxx"
-    val cpgPath = s"$analysisTargetPath/cpg.bin"
-    val baseArgs = Array(analysisTargetPath, "--output", cpgPath, "--delombok-mode", "no-delombok")
-    io.joern.javasrc2cpg.Main.main(baseArgs)
-    val tempDir = Files.createTempDirectory("flowspot_cpg_")
-    val tempCpgPath = tempDir.resolve("cpg.bin")
-    Files.copy(Paths.get(cpgPath), tempCpgPath, StandardCopyOption.REPLACE_EXISTING)
-    val cpg = CpgLoader.load(tempCpgPath.toString)
-    val context = new LayerCreatorContext(cpg)
-    X2Cpg.applyDefaultOverlays(cpg)
-    new OssDataFlow(new OssDataFlowOptions(semantics = DefaultSemantics())).run(context)
-    implicit val engineContext: EngineContext = EngineContext(config = EngineConfig(maxCallDepth = 4))
-    println(cpg.call.methodFullName(".*java\\.lang\\.ProcessBuilder\\.start.*").argument.reachableByFlows(cpg.method.where(_.annotation.name(".*Mapping")).parameter)(engineContext).filter(DuplicateFlow.filterFlowsByContext).filter(DuplicateFlow.flowNotTaintedByThis).p)
+  /**
+   * 命令行入口，参数说明见 FlowSpotCli
+   */
+  def main(args: Array[String]): Unit = FlowSpotCli.main(args)
+
+  // 同一 JVM 中同时进行的分析数（如按模块并行扫描），最后结束的分析负责停止重定向并关闭日志
+  private var activeAnalyses = 0
+  private val lifecycleLock = new Object
 
-  }
   // 内部实现方法 - 重构为使用 FlowSpotBugCollection
   private def doAnalysisWithConfig(flowSpotProject: FlowSpotProject, config: FlowSpotProjectConfig, callback: ProgressCallback): FlowSpotBugCollection = {
-    // 初始化日志系统
-    val actualProjectBasePath = config.getBaseProjectPath
-    FlowSpotLogger.initialize(actualProjectBasePath)
-    
-    // 启动输出重定向（拦截println输出）
-    OutputRedirector.startRedirection()
-    
+    lifecycleLock.synchronized {
+      // 初始化日志系统
+      FlowSpotLogger.initialize(config.getBaseProjectPath)
+      
+      // 启动输出重定向（拦截println输出）
+      OutputRedirector.startRedirection()
+      activeAnalyses += 1
+    }
+    try {
+      runAnalysis(flowSpotProject, config, callback)
+    } finally {
+      lifecycleLock.synchronized {
+        activeAnalyses -= 1
+        if (activeAnalyses == 0) {
+          // 停止输出重定向
+          OutputRedirector.stopRedirection()
+          
+          // 关闭日志系统
+          FlowSpotLogger.shutdown()
+        }
+      }
+    }
+  }
+
+  private def runAnalysis(flowSpotProject: FlowSpotProject, config: FlowSpotProjectConfig, callback: ProgressCallback): FlowSpotBugCollection = {
     // 创建带日志记录的进度回调
     val loggingCallback = ProgressCallbackFactory.createLoggingCallback(callback)
     
+    // 分阶段度量，同时通过回调实时通知；失败或取消的运行同样写入度量，并记录结束状态
+    val metrics = new ScanMetrics(ScanMetrics.newRunId(), loggingCallback.onPhaseMetric)
+    var status = ScanMetrics.StatusFailed
+    try {
+      val bugCollection = analyze(flowSpotProject, config, callback, loggingCallback, metrics)
+      status = ScanMetrics.StatusSuccess
+      bugCollection
+    } catch {
+      case e: CancellationException =>
+        status = ScanMetrics.StatusCancelled
+        throw e
+    } finally {
+      metrics.writeTo(config.getBaseProjectPath, status)
+    }
+  }
+
+  private def analyze(flowSpotProject: FlowSpotProject, config: FlowSpotProjectConfig, callback: ProgressCallback,
+                      loggingCallback: ProgressCallback, metrics: ScanMetrics): FlowSpotBugCollection = {
+    val actualProjectBasePath = config.getBaseProjectPath
+    // 摘要、基线等跨运行状态按分析目标分开保存，按模块并行扫描时互不覆盖
+    val stateDir = config.getStateDir
+    
     val bugCollection = new FlowSpotBugCollection(flowSpotProject.getProjectName)
     val projectStats = new FlowSpotProjectStats(flowSpotProject.getProjectName)
 
@@ -290,23 +293,37 @@ object FlowSpot {
     FlowSpotLogger.info(s"项目根目录路径: $actualProjectBasePath", Some("FlowSpot"))
     updateProgress(5) // 初始化完成 5%
 
-    // 如果需要反编译，这里可以添加反编译代码，类似于Omni.doAnalysis
+    // 反编译模式：分析目标中的 class/jar/war 反编译到 .flowspot/decompiled/src，以此作为 CPG 生成的输入
     val enableDecompile = config.isDecompileEnabled
-    if (enableDecompile) {
+    val (cpgSourcePath, cpgPath) = if (enableDecompile) {
       updateStatus("启用反编译模式")
-      // 反编译逻辑
+      val decompiler = new BytecodeDecompiler(actualProjectBasePath)
+      val result = metrics.timeWith("decompile")(decompiler.run(analysisTargetPath)) { r =>
+        Map("classes" -> r.classes.toLong, "decompiled" -> r.decompiled.toLong, "failed" -> r.failed.toLong)
+      }
+      // 反编译结果有变化时重新生成CPG，否则沿用上次的CPG
+      if (result.changed) Files.deleteIfExists(decompiler.cpgPath)
+      (result.sourceRoot.toString, decompiler.cpgPath.toString)
+    } else {
+      // 生成CPG（在分析目标路径或指定的缓存目录下）
+      (analysisTargetPath, config.getCpgPath)
     }
-
-    // 生成CPG（在分析目标路径下）
-    val cpgPath = s"$analysisTargetPath/cpg.bin"
     println(s"生成CPG: $cpgPath")
     updateProgress(10) // CPG初始化 10%
 
     val cpgFile = File(cpgPath)
+    cpgFile.parent.createDirectoryIfNotExists(createParents = true)
+
+    // 只复用由相同源码生成的CPG，源码变化后重新生成，否则会分析过期的代码（增量扫描也看不到任何变更）
+    val sourceStamp = metrics.time("cpg.stamp")(CpgSourceStamp.of(cpgSourcePath))
+    if (cpgFile.exists && !CpgSourceStamp.matches(cpgPath, sourceStamp)) {
+      FlowSpotLogger.info("源码与已有CPG不一致，重新生成CPG", Some("FlowSpot"))
+      Files.delete(Paths.get(cpgPath))
+    }
 
     if (!cpgFile.exists) {
       // 构建参数数组，包含rt.jar路径（如果可用）
-      val baseArgs = Array(analysisTargetPath, "--output", cpgPath, "--delombok-mode", "no-delombok")
+      val baseArgs = Array(cpgSourcePath, "--output", cpgPath, "--delombok-mode", "no-delombok")
       val args = getRtJarPath match {
         case Some(rtJarPath) =>
           FlowSpotLogger.info(s"Using rt.jar from: $rtJarPath", Some("FlowSpot"))
@@ -318,7 +335,8 @@ object FlowSpot {
 
         try {
           FlowSpotLogger.info("开始生成CPG......")
-          io.joern.javasrc2cpg.Main.main(args)
+          metrics.timeWith("cpg.generate")(io.joern.javasrc2cpg.Main.main(args))(_ => Map("cpgBytes" -> Files.size(Paths.get(cpgPath))))
+          CpgSourceStamp.write(cpgPath, sourceStamp)
           FlowSpotLogger.info("CPG生成完成")
           updateProgress(30) // CPG生成完成 30%
         } catch {
@@ -341,21 +359,25 @@ object FlowSpot {
     val tempCpgPath = tempDir.resolve("cpg.bin")
 
     // 复制CPG文件到临时目录
-    Files.copy(Paths.get(cpgPath), tempCpgPath, StandardCopyOption.REPLACE_EXISTING)
+    metrics.timeWith("cpg.copy") {
+      Files.copy(Paths.get(cpgPath), tempCpgPath, StandardCopyOption.REPLACE_EXISTING)
+    }(copied => Map("bytes" -> Files.size(copied)))
     FlowSpotLogger.info(s"CPG文件已复制到临时目录: ${tempCpgPath}")
 
     FlowSpotLogger.info("加载CPG文件...")
     updateProgress(40) // 开始加载CPG 40%
 
 
-    val cpg = CpgLoader.load(tempCpgPath.toString)
+    val cpg = metrics.timeWith("cpg.load")(CpgLoader.load(tempCpgPath.toString))(loaded => Map("nodes" -> loaded.graph.nodeCount().toLong))
     updateProgress(50) // CPG加载完成 50%
     val context = new LayerCreatorContext(cpg)
     FlowSpotLogger.info("应用默认覆盖层...")
-    X2Cpg.applyDefaultOverlays(cpg)
+    metrics.time("cpg.overlays")(X2Cpg.applyDefaultOverlays(cpg))
     updateProgress(55) // 覆盖层应用完成 55%
     FlowSpotLogger.info("运行数据流分析...")
-    new OssDataFlow(new OssDataFlowOptions(semantics = DefaultSemantics())).run(context)
+    metrics.timeWith("cpg.ossDataFlow") {
+      new OssDataFlow(new OssDataFlowOptions(semantics = DefaultSemantics())).run(context)
+    }(_ => Map("nodes" -> cpg.graph.nodeCount().toLong))
     implicit val engineContext: EngineContext = EngineContext(config = EngineConfig(maxCallDepth = 4))
 //    val flowSemantics = JavaSemanticGenerator.getSemantics(cpg, exportRuntimeSemantics = true)
 //    new OssDataFlow(new OssDataFlowOptions(semantics = DefaultSemantics().plus(Some(flowSemantics).getOrElse(List())))).create(context)
@@ -363,21 +385,18 @@ object FlowSpot {
 
     FlowSpotLogger.info("执行漏洞扫描...")
 
-    // 初始化漏洞分析器
-    val analyzer = new Analyzer()
-
-    // 构建项目根目录的sinks.json路径（统一配置管理）
-    val projectSinksJsonPath = s"$actualProjectBasePath/.flowspot/config/sinks.json"
+    // sinks.json路径：默认为项目根目录下的统一配置，也可以由调用方指定
+    val projectSinksJsonPath = config.getSinkRulesPath
     val sinksJsonFile = new java.io.File(projectSinksJsonPath)
 
     FlowSpotLogger.info(s"使用配置文件: $projectSinksJsonPath")
     
-    // 获取所有sink规则（使用项目根目录的sinks.json）
-    val sinkQueries = analyzer.getSinksQuery(projectSinksJsonPath)
+    // 获取所有sink规则（使用项目根目录的sinks.json），内容未变化时复用已解析的规则
+    val sinkQueries = metrics.timeWith("rules.sinks")(RuleCatalog.sinkQueries(projectSinksJsonPath))(qs => Map("queries" -> qs.size.toLong))
     updateProgress(65) // 规则加载完成 65%
     
     // 获取所有source规则
-    val sourceQueries = analyzer.getSourcesQuery()
+    val sourceQueries = metrics.timeWith("rules.sources")(RuleCatalog.sourceQueries())(qs => Map("queries" -> qs.size.toLong))
     updateProgress(70) // 所有规则加载完成 70%
 
     // 从 FlowSpotProjectConfig 对象中获取用户选择的规则
@@ -444,12 +463,40 @@ object FlowSpot {
     val optimizationConfig = Option(config.getOptimizationConfig).getOrElse(OptimizationConfig.default)
     updateStatus(s"优化配置: ${optimizationConfig.getDescription}")
     
-    new OptimizedScanPass(cpg, queriesAfterFilter, 4, 100, 300, scanMode, optimizationConfig, callback)(engineContext).run(Cpg.newDiffGraphBuilder)
+    // 增量扫描基线：规则或扫描选项变化时指纹不同，上次的漏洞不能复用
+    val baselineFingerprint = FindingBaseline.fingerprint(Seq(
+      analysisTargetPath, RuleCatalog.fingerprint(projectSinksJsonPath), scanMode, optimizationConfig.getDescription,
+      engineContext.config.maxCallDepth.toString, selectedSourceRules.toList.sorted.mkString(","), selectedSinkRules.toList.sorted.mkString(",")
+    ))
+    val methodStates = metrics.timeWith("baseline.hash")(FindingBaseline.methodStates(cpg))(states => Map("methods" -> states.size.toLong))
+    val incrementalScope = if (config.isIncremental) {
+      FindingBaseline.load(stateDir, baselineFingerprint) match {
+        case Some(baseline) =>
+          // 数据流可能经过多层调用与返回才到达 sink，受影响半径取最大调用深度的两倍
+          Some(metrics.timeWith("baseline.scope")(baseline.scope(cpg, methodStates, 2 * engineContext.config.maxCallDepth)) { scope =>
+            Map("changed" -> scope.changed.size.toLong, "affected" -> scope.affected.size.toLong, "reused" -> scope.reused.size.toLong)
+          })
+        case None =>
+          updateStatus("没有可用的增量基线，执行全量扫描")
+          None
+      }
+    } else None
+
+    val ruleProfiler = new RuleCostProfiler()
+    val summaryStore = if (config.isMethodSummaries) MethodSummaryStore.load(stateDir) else MethodSummaryStore.disabled
+    metrics.time("scan.total") {
+      new OptimizedScanPass(cpg, queriesAfterFilter, 4, 100, 300, scanMode, optimizationConfig, callback, metrics, ruleProfiler, summaryStore,
+        threadPoolSize = config.getThreads, shardQueue = config.getShardDir.map(dir => new ShardQueue(Paths.get(dir))),
+        incrementalScope = incrementalScope)(engineContext).run(Cpg.newDiffGraphBuilder)
+    }
+    summaryStore.save()
+    bugCollection.setRuleProfiles(ruleProfiler.getProfiles)
+    metrics.attach("rules", ruleProfiler.toJson)
     updateProgress(90) // 漏洞扫描完成 90%
 
 
     updateStatus("运行Bean验证数据流分析...")
-    new BeanValidationDataFlowPass(cpg).run(Cpg.newDiffGraphBuilder)
+    metrics.time("scan.beanValidation")(new BeanValidationDataFlowPass(cpg).run(Cpg.newDiffGraphBuilder))
     updateProgress(92) // Bean验证分析完成 92%
 
     updateStatus("运行跨线程分析...")
@@ -466,18 +513,34 @@ object FlowSpot {
     // 处理漏洞结果并转换为FlowSpotBugInstance
     updateStatus("开始处理漏洞结果...")
     val bugInstances = new ArrayList[FlowSpotBugInstance]()
-    cpg.finding.foreach { finding =>
-      // 安全地获取evidence并转换为List
-      val evidence = finding.evidence.toList.asInstanceOf[List[io.shiftleft.codepropertygraph.generated.nodes.AstNode]]
-      processBugPath(
-        path = Path(evidence),
-        category = finding.category,
-        bugType = finding.name,
-        priority = finding.score.toInt,
-        pattern = finding.sinkPattern,
-        bugInstances = bugInstances
-      )
-    }
+    val baselineFindings = List.newBuilder[BaselineFinding]
+    metrics.timeWith("findings.convert") {
+      cpg.finding.foreach { finding =>
+        // 安全地获取evidence并转换为List
+        val evidence = finding.evidence.toList.asInstanceOf[List[io.shiftleft.codepropertygraph.generated.nodes.AstNode]]
+        processBugPath(
+          path = Path(evidence),
+          category = finding.category,
+          bugType = finding.name,
+          priority = finding.score.toInt,
+          pattern = finding.sinkPattern,
+          bugInstances = bugInstances
+        )
+        val bugInstance = bugInstances.get(bugInstances.size() - 1)
+        // 每个注解对应一个 CfgNode，记录其所在方法供下次增量扫描判断是否变化
+        val methods = evidence.collect { case node: CfgNode => node.method.fullName }
+        incrementalScope.foreach(scope => bugInstance.setChanged(methods.exists(scope.changed.contains)))
+        baselineFindings += BaselineFinding(methods, bugInstance)
+        loggingCallback.onFinding(bugInstance)
+      }
+      // 未受变更影响的漏洞直接取自基线
+      incrementalScope.foreach(_.reused.foreach { reused =>
+        bugInstances.add(reused.bugInstance)
+        baselineFindings += reused
+        loggingCallback.onFinding(reused.bugInstance)
+      })
+    }(_ => Map("findings" -> bugInstances.size.toLong))
+    FindingBaseline.save(stateDir, baselineFingerprint, methodStates, baselineFindings.result())
     updateProgress(98) // 漏洞结果处理完成 98%
 
     // 直接添加 FlowSpotBugInstance 到 FlowSpotBugCollection
@@ -492,7 +555,9 @@ object FlowSpot {
 
     // 提取Spring API映射（如果适用，保存到项目根目录）
     updateStatus("提取Spring API映射...")
-    SpringApiFilter.extractAndCheckMappingsSave(cpg, actualProjectBasePath + "/.flowspot/" + "spring_url_mapping.txt")
+    metrics.time("spring.extract") {
+      SpringApiFilter.extractAndCheckMappingsSave(cpg, stateDir + "/spring_url_mapping.txt")
+    }
 
     updateStatus("漏洞分析完成")
     updateProgress(100) // 分析完全完成 100%
@@ -507,12 +572,6 @@ object FlowSpot {
     // 清理旧日志文件（保留最近7天）
     FlowSpotLogger.cleanupOldLogs(7)
     
-    // 停止输出重定向
-    OutputRedirector.stopRedirection()
-    
-    // 关闭日志系统
-    FlowSpotLogger.shutdown()
-    
     cpg.close()
 
     bugCollection
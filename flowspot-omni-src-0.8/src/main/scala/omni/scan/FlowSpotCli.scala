@@ -0,0 +1,158 @@
+package omni.scan
+
+import omni.flowspot.core.FlowSpotBugInstance
+import omni.flowspot.project.FlowSpotProject
+
+import java.nio.file.{Files, Path, Paths}
+import scala.jdk.CollectionConverters.*
+import scala.util.Try
+
+/**
+ * 无界面的命令行扫描入口，供 CI 使用
+ *
+ * 用法：java -cp <engine jars> omni.scan.FlowSpotCli --target <dir> [选项]
+ *
+ * 漏洞逐个写入结果文件（JSON Lines 或 SARIF），写出器不缓存漏洞；去重要跨所有 sink 批次进行，
+ * 因此第一个漏洞要在全部扫描阶段结束、进入结果转换后才会写出，引擎本身仍保留完整结果集（返回值与增量基线）。
+ * 退出码：0 正常完成，1 参数错误或分析失败，3 指定了 --fail-on-findings 且发现漏洞
+ */
+object FlowSpotCli {
+
+  private val ExitOk = 0
+  private val ExitFailed = 1
+  private val ExitFindings = 3
+
+  private val Usage =
+    """Usage: FlowSpotCli --target <dir> [options]
+      |  --target <dir>          directory (or class/jar directory with --decompile) to analyze
+      |  --base <dir>            project root holding .flowspot/ (default: target)
+      |  --sinks <file>          sinks.json to use (default: <base>/.flowspot/config/sinks.json)
+      |  --source-rules <a,b>    source rules to enable (default: all)
+      |  --sink-rules <a,b>      sink rules to enable (default: all)
+      |  --scan-mode <mode>      fast | balanced | thorough (default: balanced)
+      |  --threads <n>           data-flow analysis threads (default: available processors, max 20)
+      |  --cache-dir <dir>       directory for the generated CPG (default: target); the CPG is reused only
+      |                          while the .java sources it was built from are unchanged, otherwise regenerated
+      |  --shard-dir <dir>       coordinate a sharded scan through this shared directory;
+      |                          start workers with: omni.scan.ShardWorker --queue <dir>
+      |  --decompile             decompile class/jar/war files before analysis
+      |  --incremental           reuse findings from <base>/.flowspot/baseline that no changed method affects
+      |  --changed-only          report only findings whose path touches a changed method (with --incremental)
+      |  --method-summaries      reuse stored summaries of unchanged methods; reported paths skip the
+      |                          nodes inside summarized methods
+      |  --format <json|sarif>   output format (default: by output extension, else json)
+      |  --output <file>         result file (default: flowspot-results.json or .sarif)
+      |  --fail-on-findings      exit with code 3 when any finding is reported
+      |  --quiet                 do not print progress to stderr""".stripMargin
+
+  private val Flags = Set("--decompile", "--incremental", "--changed-only", "--method-summaries", "--fail-on-findings", "--quiet", "--help")
+
+  def main(args: Array[String]): Unit = {
+    val options = try parseArgs(args.toList) catch {
+      case e: IllegalArgumentException =>
+        System.err.println(e.getMessage)
+        System.err.println(Usage)
+        sys.exit(ExitFailed)
+    }
+    if (options.contains("--help")) {
+      println(Usage)
+      sys.exit(ExitOk)
+    }
+    sys.exit(run(options))
+  }
+
+  private def parseArgs(args: List[String]): Map[String, String] = args match {
+    case Nil => Map.empty
+    case flag :: rest if Flags.contains(flag) => parseArgs(rest) + (flag -> "true")
+    case key :: value :: rest if key.startsWith("--") && !value.startsWith("--") => parseArgs(rest) + (key -> value)
+    case other :: _ => throw new IllegalArgumentException(s"Unknown or incomplete argument: $other")
+  }
+
+  private def run(options: Map[String, String]): Int = {
+    val project = try toProject(options) catch {
+      case e: IllegalArgumentException =>
+        System.err.println(e.getMessage)
+        System.err.println(Usage)
+        return ExitFailed
+    }
+
+    val format = options.get("--format").map(_.toLowerCase).getOrElse {
+      if (options.get("--output").exists(_.toLowerCase.endsWith(".sarif"))) "sarif" else "json"
+    }
+    val output = Paths.get(options.getOrElse("--output", if (format == "sarif") "flowspot-results.sarif" else "flowspot-results.json"))
+    val basePath = Paths.get(project.getBaseProjectPath).toAbsolutePath.normalize()
+    val quiet = options.contains("--quiet")
+    val changedOnly = options.contains("--changed-only")
+
+    val writer = try FindingWriter.create(format, output, basePath) catch {
+      case e: IllegalArgumentException =>
+        System.err.println(e.getMessage)
+        return ExitFailed
+    }
+
+    val callback = new ProgressCallback {
+      override def updateMessage(message: String): Unit = if (!quiet) System.err.println(s"[flowspot] $message")
+      override def updateProgress(progress: Int): Unit = ()
+      override def onFinding(bugInstance: FlowSpotBugInstance): Unit =
+        if (!changedOnly || bugInstance.isChanged) writer.write(bugInstance)
+    }
+
+    try {
+      FlowSpot.doAnalysis(project, callback)
+      writer.close()
+      System.err.println(s"[flowspot] ${writer.count} finding(s) written to ${output.toAbsolutePath}")
+      if (options.contains("--fail-on-findings") && writer.count > 0) ExitFindings else ExitOk
+    } catch {
+      case e: Exception =>
+        Try(writer.close())
+        System.err.println(s"[flowspot] Analysis failed: ${e.getMessage}")
+        e.printStackTrace()
+        ExitFailed
+    }
+  }
+
+  private def toProject(options: Map[String, String]): FlowSpotProject = {
+    val target = options.get("--target").map(existingDir(_, "--target"))
+      .getOrElse(throw new IllegalArgumentException("Missing --target"))
+    val base = options.get("--base").map(existingDir(_, "--base")).getOrElse(target)
+
+    val project = new FlowSpotProject()
+    project.setProjectName(base.getFileName.toString)
+    project.addFile(target.toString)
+    project.setAnalysisTargetPath(target.toString)
+    project.setBaseProjectPath(base.toString)
+    project.setDecompile(options.contains("--decompile"))
+    project.setIncremental(options.contains("--incremental"))
+    project.setMethodSummaries(options.contains("--method-summaries"))
+
+    val scanMode = options.getOrElse("--scan-mode", ScanModeInfo.BALANCED.name)
+    ScanModeInfo.getByName(scanMode).getOrElse(throw new IllegalArgumentException(s"Unknown scan mode: $scanMode"))
+    project.setScanMode(scanMode.toLowerCase)
+
+    options.get("--sinks").foreach { sinks =>
+      val path = Paths.get(sinks).toAbsolutePath.normalize()
+      if (!Files.isRegularFile(path)) throw new IllegalArgumentException(s"Sinks file not found: $sinks")
+      project.setSinkRulesPath(path.toString)
+    }
+    options.get("--shard-dir").foreach(dir => project.setShardDir(Paths.get(dir).toAbsolutePath.normalize().toString))
+    options.get("--cache-dir").foreach(dir => project.setCacheDir(Paths.get(dir).toAbsolutePath.normalize().toString))
+    options.get("--threads").foreach { threads =>
+      project.setThreads(threads.toIntOption.filter(_ > 0)
+        .getOrElse(throw new IllegalArgumentException(s"Invalid --threads: $threads")))
+    }
+
+    // 引擎只启用选中的 source 规则，命令行默认启用全部；sink 规则为空时引擎使用全部
+    val sourceRules = options.get("--source-rules").map(ruleList).getOrElse(new Analyzer().getSourcesQueryName().toSet)
+    project.setSelectedSourceRules(sourceRules.asJava)
+    project.setSelectedSinkRules(options.get("--sink-rules").map(ruleList).getOrElse(Set.empty[String]).asJava)
+    project
+  }
+
+  private def ruleList(value: String): Set[String] = value.split(',').map(_.trim).filter(_.nonEmpty).toSet
+
+  private def existingDir(value: String, flag: String): Path = {
+    val path = Paths.get(value).toAbsolutePath.normalize()
+    if (!Files.isDirectory(path)) throw new IllegalArgumentException(s"$flag is not a directory: $value")
+    path
+  }
+}
@@ -2,6 +2,10 @@ package omni.scan
 
 import omni.flowspot.project.FlowSpotProject
 
+import java.nio.charset.StandardCharsets
+import java.nio.file.Paths
+import java.security.MessageDigest
+
 /**
  * FlowSpot 项目配置类
  * 包装 FlowSpotProject 并提供便捷的访问方法
@@ -91,6 +95,56 @@ class FlowSpotProjectConfig(
    * 获取底层的 SpotBugs Project 对象
    */
   
+  /**
+   * 获取跨运行状态（方法摘要、增量基线、Spring 映射）的目录
+   * 分析目标就是项目根目录时为 <projectBase>/.flowspot，否则按分析目标分目录，
+   * 按模块并行扫描时各模块的状态互不覆盖
+   */
+  def getStateDir: String = {
+    val base = Paths.get(getBaseProjectPath).toAbsolutePath.normalize()
+    val target = Paths.get(getAnalysisTargetPath).toAbsolutePath.normalize()
+    val root = base.resolve(".flowspot")
+    if (target == base) root.toString
+    else root.resolve("targets").resolve(FlowSpotProjectConfig.targetKey(target)).toString
+  }
+
+  /**
+   * 获取 sinks.json 路径，未指定时使用项目根目录下的 .flowspot/config/sinks.json
+   */
+  def getSinkRulesPath: String =
+    Option(flowSpotProject.getSinkRulesPath).filter(_.nonEmpty)
+      .getOrElse(s"$getBaseProjectPath/.flowspot/config/sinks.json")
+
+  /**
+   * 获取 CPG 文件路径：指定了缓存目录时保存在缓存目录中，否则保存在分析目标路径下
+   */
+  def getCpgPath: String =
+    Option(flowSpotProject.getCacheDir).filter(_.nonEmpty)
+      .map(dir => s"$dir/cpg.bin")
+      .getOrElse(s"$getAnalysisTargetPath/cpg.bin")
+
+  /**
+   * 获取数据流分析线程数，未指定时按 CPU 核数（最多 20）
+   */
+  def getThreads: Int =
+    if (flowSpotProject.getThreads > 0) flowSpotProject.getThreads
+    else math.min(Runtime.getRuntime.availableProcessors(), 20)
+
+  /**
+   * 获取分片队列目录，未指定时在本进程内完成全部数据流分析
+   */
+  def getShardDir: Option[String] = Option(flowSpotProject.getShardDir).filter(_.nonEmpty)
+
+  /**
+   * 是否增量扫描：复用上次结果中未受变更影响的漏洞
+   */
+  def isIncremental: Boolean = flowSpotProject.isIncremental
+
+  /**
+   * 是否跨运行复用方法摘要，启用后被摘要方法内部的节点不出现在报告的路径中
+   */
+  def isMethodSummaries: Boolean = flowSpotProject.isMethodSummaries
+
   /**
    * 获取 FlowSpotProject 对象
    */
@@ -107,6 +161,15 @@ class FlowSpotProjectConfig(
  * FlowSpotProjectConfig 伴生对象
  */
 object FlowSpotProjectConfig {
+
+  /**
+   * 分析目标的状态目录名：目录名加路径哈希，同名模块不会冲突
+   */
+  private def targetKey(target: java.nio.file.Path): String = {
+    val name = Option(target.getFileName).map(_.toString.replaceAll("[^A-Za-z0-9._-]", "_")).getOrElse("root")
+    val hash = MessageDigest.getInstance("SHA-1").digest(target.toString.getBytes(StandardCharsets.UTF_8))
+    name + "-" + hash.take(4).map("%02x".format(_)).mkString
+  }
   
   /**
    * 创建 FlowSpot 项目配置
@@ -0,0 +1,115 @@
+package omni.scan
+
+import omni.util.FlowSpotLogger
+
+import java.io.InputStream
+import java.net.{JarURLConnection, URL}
+import java.nio.charset.StandardCharsets
+import java.nio.file.{Files, Path, Paths, StandardCopyOption}
+import java.security.{DigestInputStream, MessageDigest}
+import scala.util.Try
+
+/**
+ * 内置 rt.jar 的提取缓存，保存在 ~/.flowspot/jdk/<版本>/rt.jar
+ *
+ * 版本由资源在插件包中的 CRC 与大小决定，同一版本只提取一次，所有项目和扫描共用；
+ * 提取时先写临时文件再原子重命名，旁边的 rt.jar.sha256 记录内容哈希，
+ * 每个进程首次使用时校验一次，校验失败则重新提取
+ */
+object JdkStubCache {
+
+  private val ResourceName = "/rt.jar"
+
+  @volatile private var verified: Option[String] = None
+
+  /**
+   * 获取可用的 rt.jar 路径，资源不存在或提取失败时返回 None
+   */
+  def rtJarPath(): Option[String] = present(verified).orElse(synchronized {
+    if (present(verified).isEmpty) verified = locate()
+    verified
+  })
+
+  // 进程运行期间缓存目录可能被清理，已校验的路径不存在时重新定位
+  private def present(path: Option[String]): Option[String] = path.filter(p => Files.isRegularFile(Paths.get(p)))
+
+  private def locate(): Option[String] = {
+    val resource = getClass.getResource(ResourceName)
+    if (resource == null) {
+      FlowSpotLogger.warn("rt.jar resource not found in classpath", Some("JdkStubCache"))
+      return None
+    }
+    try {
+      val dir = cacheRoot().resolve(versionOf(resource))
+      val jar = dir.resolve("rt.jar")
+      if (isIntact(jar)) {
+        FlowSpotLogger.info(s"Using cached rt.jar: $jar", Some("JdkStubCache"))
+      } else {
+        extract(resource, dir, jar)
+      }
+      Some(jar.toAbsolutePath.toString)
+    } catch {
+      case e: Exception =>
+        FlowSpotLogger.error(s"Failed to extract rt.jar: ${e.getMessage}", Some("JdkStubCache"), Some(e))
+        None
+    }
+  }
+
+  private def cacheRoot(): Path = {
+    val home = Paths.get(System.getProperty("user.home"), ".flowspot", "jdk")
+    if (Try(Files.createDirectories(home)).isSuccess && Files.isWritable(home)) home
+    else Files.createDirectories(Paths.get(System.getProperty("java.io.tmpdir"), "flowspot", "jdk"))
+  }
+
+  /**
+   * 资源版本：打包在 jar 中时取条目的 CRC 与大小，否则取文件大小与修改时间，不需要读取内容
+   */
+  private def versionOf(resource: URL): String = {
+    val stamp = resource.openConnection() match {
+      case jar: JarURLConnection =>
+        val entry = jar.getJarEntry
+        s"${entry.getCrc}:${entry.getSize}"
+      case other =>
+        s"${other.getContentLengthLong}:${other.getLastModified}"
+    }
+    hex(MessageDigest.getInstance("SHA-256").digest(stamp.getBytes(StandardCharsets.UTF_8))).take(16)
+  }
+
+  private def isIntact(jar: Path): Boolean = {
+    val checksum = checksumFile(jar)
+    Files.isRegularFile(jar) && Files.isRegularFile(checksum) &&
+      Try(Files.readString(checksum).trim == sha256(jar)).getOrElse(false)
+  }
+
+  private def extract(resource: URL, dir: Path, jar: Path): Unit = {
+    Files.createDirectories(dir)
+    val temp = Files.createTempFile(dir, "rt", ".jar.tmp")
+    try {
+      val digest = MessageDigest.getInstance("SHA-256")
+      val in = new DigestInputStream(resource.openStream(), digest)
+      try Files.copy(in, temp, StandardCopyOption.REPLACE_EXISTING)
+      finally in.close()
+
+      // 先写校验和再放置 jar，其他进程看到 rt.jar 时校验和已经就绪
+      val checksumTemp = Files.createTempFile(dir, "rt", ".sha256.tmp")
+      Files.writeString(checksumTemp, hex(digest.digest()))
+      Files.move(checksumTemp, checksumFile(jar), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE)
+      Files.move(temp, jar, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE)
+      FlowSpotLogger.info(s"Extracted rt.jar to $jar", Some("JdkStubCache"))
+    } finally {
+      Files.deleteIfExists(temp)
+    }
+  }
+
+  private def checksumFile(jar: Path): Path = jar.resolveSibling(jar.getFileName.toString + ".sha256")
+
+  private def sha256(file: Path): String = {
+    val digest = MessageDigest.getInstance("SHA-256")
+    val in: InputStream = new DigestInputStream(Files.newInputStream(file), digest)
+    try in.transferTo(java.io.OutputStream.nullOutputStream())
+    finally in.close()
+    hex(digest.digest())
+  }
+
+  private def hex(bytes: Array[Byte]): String = bytes.map("%02x".format(_)).mkString
+}
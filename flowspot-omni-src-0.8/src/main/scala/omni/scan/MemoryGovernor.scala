@@ -0,0 +1,120 @@
+package omni.scan
+
+import omni.util.FlowSpotLogger
+
+import java.lang.management.{ManagementFactory, MemoryPoolMXBean, MemoryType}
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicInteger
+import java.util.concurrent.locks.ReentrantLock
+import scala.jdk.CollectionConverters.*
+
+/**
+ * 堆内存压力等级
+ */
+enum MemoryPressure {
+  case Normal, High, Critical
+}
+
+/**
+ * 扫描期间的内存调节器：每次分配许可时读取老年代在最近一次 GC 之后的占用，
+ * 压力升高时降低可同时执行的 sink 批次数，从不主动触发 GC
+ *
+ * 引擎与 IDE 运行在同一进程中，内存接近上限时宁可放慢扫描，也不能让 IDE 内存溢出。
+ * 只读取内存池的状态，不修改 JVM 全局的使用阈值（IDE 的低内存监听依赖这些阈值），
+ * 因此多个扫描可以各自持有调节器而互不影响
+ *
+ * @param maxParallelism 正常情况下允许同时执行的批次数
+ * @param highRatio      GC 后占用超过该比例时进入 High，并发减半
+ * @param criticalRatio  GC 后占用超过该比例时进入 Critical，只允许一个批次
+ */
+class MemoryGovernor(maxParallelism: Int, highRatio: Double = 0.70, criticalRatio: Double = 0.85) {
+
+  private val lock = new ReentrantLock()
+  private val released = lock.newCondition()
+  private var running = 0
+
+  @volatile private var pressure: MemoryPressure = MemoryPressure.Normal
+  private val throttled = new AtomicInteger()
+
+  // 支持 GC 后占用统计的堆内存池（老年代）
+  private val pools: List[MemoryPoolMXBean] = ManagementFactory.getMemoryPoolMXBeans.asScala.toList
+    .filter(p => p.getType == MemoryType.HEAP && p.isCollectionUsageThresholdSupported && p.getUsage.getMax > 0)
+
+  def currentPressure: MemoryPressure = pressure
+
+  /**
+   * 因内存压力而等待过的批次数
+   */
+  def throttledCount: Int = throttled.get()
+
+  /**
+   * 在并发许可内执行任务：压力越高允许同时执行的任务越少，没有许可时等待其他任务完成
+   */
+  def withPermit[T](block: => T): T = {
+    acquire()
+    try block
+    finally release()
+  }
+
+  private def allowed: Int = pressure match {
+    case MemoryPressure.Normal => maxParallelism
+    case MemoryPressure.High => math.max(1, maxParallelism / 2)
+    case MemoryPressure.Critical => 1
+  }
+
+  private def acquire(): Unit = {
+    lock.lock()
+    try {
+      // 等待的任务在其他任务结束或定期醒来时重新评估压力，内存回落后逐步恢复并发
+      reassess()
+      var waited = false
+      while (running >= allowed) {
+        if (!waited) {
+          throttled.incrementAndGet()
+          waited = true
+        }
+        released.await(MemoryGovernor.PollMs, TimeUnit.MILLISECONDS)
+        reassess()
+      }
+      running += 1
+    } finally {
+      lock.unlock()
+    }
+  }
+
+  private def release(): Unit = {
+    lock.lock()
+    try {
+      running -= 1
+      released.signalAll()
+    } finally {
+      lock.unlock()
+    }
+  }
+
+  /**
+   * 按最近一次 GC 之后的占用重新计算压力等级
+   */
+  private def reassess(): Unit = {
+    val ratio = pools.map { pool =>
+      val usage = pool.getCollectionUsage
+      if (usage == null || usage.getMax <= 0) 0.0 else usage.getUsed.toDouble / usage.getMax
+    }.maxOption.getOrElse(0.0)
+
+    val next =
+      if (ratio >= criticalRatio) MemoryPressure.Critical
+      else if (ratio >= highRatio) MemoryPressure.High
+      else MemoryPressure.Normal
+
+    if (next != pressure) {
+      FlowSpotLogger.info(f"Memory pressure $pressure -> $next (${ratio * 100}%.0f%% of old generation after GC)", Some("MemoryGovernor"))
+      pressure = next
+    }
+  }
+}
+
+object MemoryGovernor {
+
+  // 等待许可时重新读取内存占用的间隔
+  private val PollMs = 500L
+}
@@ -0,0 +1,295 @@
+package omni.scan
+
+import io.joern.dataflowengineoss.DefaultSemantics
+import io.joern.dataflowengineoss.language.*
+import io.joern.dataflowengineoss.queryengine.EngineContext
+import io.joern.dataflowengineoss.semanticsloader.FullNameSemanticsParser
+import io.shiftleft.codepropertygraph.generated.Cpg
+import io.shiftleft.codepropertygraph.generated.nodes.{Method, MethodParameterIn}
+import io.shiftleft.semanticcpg.language.*
+import omni.util.FlowSpotLogger
+import org.json4s.*
+import org.json4s.native.JsonMethods.*
+
+import java.nio.charset.StandardCharsets
+import java.nio.file.{Files, Path, Paths, StandardCopyOption}
+import java.security.MessageDigest
+import java.util.concurrent.ConcurrentHashMap
+import scala.collection.mutable
+import scala.collection.parallel.CollectionConverters.*
+import scala.jdk.CollectionConverters.*
+import scala.util.Try
+
+/**
+ * 方法级污点摘要：参数（0 为 this）流向返回值（-1）或其他参数的映射
+ *
+ * @param fullName 方法全名
+ * @param hash     方法体及其所有被调用方法体的哈希，任一方法变化都会使摘要失效
+ * @param flows    (源参数下标, 目标下标) 列表
+ */
+case class MethodSummary(fullName: String, hash: String, flows: List[(Int, Int)]) {
+
+  /**
+   * 转换为数据流引擎的语义描述，如 "a.B.c:int(int)" 0->0 1->1 1->-1
+   */
+  def toSemantic: String =
+    "\"" + fullName + "\" " + flows.map { case (src, dst) => s"$src->$dst" }.mkString(" ")
+}
+
+/**
+ * 本次扫描可复用与需要重新计算的摘要
+ *
+ * @param reused    哈希未变化、可直接作为语义使用的摘要
+ * @param toCompute 可摘要但缺少有效摘要的方法及其当前哈希
+ * @param eligible  可摘要的方法数
+ */
+case class SummaryPlan(reused: List[MethodSummary], toCompute: List[(Method, String)], eligible: Int) {
+
+  /**
+   * 在原有引擎上下文上叠加复用的摘要：引擎遇到这些方法的调用时按摘要传播，不再进入方法体
+   */
+  def engineContext(base: EngineContext): EngineContext =
+    if (reused.isEmpty) base
+    else {
+      val flows = new FullNameSemanticsParser().parse(reused.map(_.toSemantic).mkString("\n"))
+      EngineContext(DefaultSemantics().plus(flows), base.config)
+    }
+}
+
+/**
+ * 跨运行持久化的方法摘要，保存在分析目标状态目录下的 summaries/method-summaries.json
+ *
+ * 只有不包含 source/sink、不会（间接）调用包含 source/sink 的方法、且没有同名同签名的其他实现
+ * （调用点可能动态分派到别的方法体）的方法才会被摘要，这样用摘要代替方法体不会漏掉路径上的 source 或 sink
+ *
+ * 引擎按摘要传播时不进入方法体，报告的路径中不包含被摘要方法内部的节点，与不使用摘要的扫描相比路径更短，
+ * 因此摘要默认关闭，需要通过 FlowSpotProject.setMethodSummaries 显式启用
+ */
+class MethodSummaryStore(file: Option[Path]) {
+
+  private implicit val callResolver: ICallResolver = NoResolve
+  private val summaries = new ConcurrentHashMap[String, MethodSummary]()
+
+  def size: Int = summaries.size()
+
+  /**
+   * 计算当前 CPG 中各方法的哈希，划分可复用与需要重新计算的摘要
+   * 需要在 source/sink 打标之后调用
+   */
+  def plan(cpg: Cpg): SummaryPlan = {
+    if (file.isEmpty) return SummaryPlan(Nil, Nil, 0)
+
+    val methods = cpg.method.isExternal(false).filterNot(_.isStub).l
+    val hashes = MethodSummaryStore.closureHashes(methods)
+    val eligible = MethodSummaryStore.eligibleMethods(cpg, methods)
+
+    val (reused, toCompute) = eligible.partitionMap { method =>
+      val hash = hashes(method.fullName)
+      Option(summaries.get(method.fullName)).filter(_.hash == hash) match {
+        case Some(summary) => Left(summary)
+        case None => Right(method -> hash)
+      }
+    }
+
+    // 不再存在的方法不再保留摘要
+    val present = hashes.keySet
+    summaries.keySet().removeIf(name => !present.contains(name))
+
+    SummaryPlan(reused, toCompute, eligible.size)
+  }
+
+  /**
+   * 为缺少摘要的方法计算摘要，优先计算出现在本次路径上的方法，最多 limit 个
+   *
+   * @return 新计算的摘要数
+   */
+  def computeSummaries(plan: SummaryPlan, pathMethods: Set[String], limit: Int)(implicit context: EngineContext): Int = {
+    val selected = plan.toCompute
+      .sortBy { case (method, _) => (!pathMethods.contains(method.fullName), -method.callIn.size) }
+      .take(limit)
+
+    selected.par.foreach { case (method, hash) =>
+      Try(MethodSummaryStore.summarize(method)).toOption.foreach { flows =>
+        summaries.put(method.fullName, MethodSummary(method.fullName, hash, flows))
+      }
+    }
+    selected.size
+  }
+
+  def load(): Unit = file.filter(Files.exists(_)).foreach { path =>
+    try {
+      implicit val formats: Formats = DefaultFormats
+      val json = parse(Files.readString(path))
+      if ((json \ "version").extractOpt[Int].contains(MethodSummaryStore.Version)) {
+        (json \ "summaries").children.foreach { entry =>
+          val summary = MethodSummary(
+            (entry \ "method").extract[String],
+            (entry \ "hash").extract[String],
+            (entry \ "flows").children.map(flow => (flow(0).extract[Int], flow(1).extract[Int]))
+          )
+          summaries.put(summary.fullName, summary)
+        }
+      }
+      FlowSpotLogger.info(s"Loaded ${summaries.size()} method summaries from $path", Some("MethodSummaryStore"))
+    } catch {
+      case e: Exception =>
+        FlowSpotLogger.warn(s"Ignoring unreadable method summaries $path: ${e.getMessage}", Some("MethodSummaryStore"))
+        summaries.clear()
+    }
+  }
+
+  def save(): Unit = file.foreach { path =>
+    try {
+      Files.createDirectories(path.getParent)
+      val json = JObject(
+        "version" -> JInt(MethodSummaryStore.Version),
+        "summaries" -> JArray(summaries.values().asScala.toList.sortBy(_.fullName).map { s =>
+          JObject(
+            "method" -> JString(s.fullName),
+            "hash" -> JString(s.hash),
+            "flows" -> JArray(s.flows.map { case (src, dst) => JArray(List(JInt(src), JInt(dst))) })
+          )
+        })
+      )
+      // 先写唯一的临时文件再替换，避免中断时留下损坏的摘要文件
+      val temp = Files.createTempFile(path.getParent, path.getFileName.toString, ".tmp")
+      try {
+        Files.write(temp, compact(render(json)).getBytes(StandardCharsets.UTF_8))
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE)
+      } finally {
+        Files.deleteIfExists(temp)
+      }
+      FlowSpotLogger.info(s"Saved ${summaries.size()} method summaries to $path", Some("MethodSummaryStore"))
+    } catch {
+      case e: Exception =>
+        FlowSpotLogger.error(s"Failed to save method summaries: ${e.getMessage}", Some("MethodSummaryStore"), Some(e))
+    }
+  }
+}
+
+object MethodSummaryStore {
+
+  // 摘要格式或计算方式变化时递增，使旧摘要整体失效
+  private val Version = 1
+
+  private implicit val callResolver: ICallResolver = NoResolve
+
+  /**
+   * 不读写文件的实例，用于未启用摘要的调用方
+   */
+  def disabled: MethodSummaryStore = new MethodSummaryStore(None)
+
+  /**
+   * @param stateDir 分析目标的状态目录，见 FlowSpotProjectConfig.getStateDir
+   */
+  def load(stateDir: String): MethodSummaryStore = {
+    val store = new MethodSummaryStore(Some(Paths.get(stateDir, "summaries", "method-summaries.json")))
+    store.load()
+    store
+  }
+
+  /**
+   * 计算方法摘要：各参数是否流向返回值或其他参数；每个参数总是保持自身污点
+   */
+  private[scan] def summarize(method: Method)(implicit context: EngineContext): List[(Int, Int)] = {
+    val params = method.parameter.l
+    val identity = params.map(p => p.index -> p.index)
+
+    def sourceIndexes(paths: List[io.joern.dataflowengineoss.language.Path]): List[Int] =
+      paths.flatMap(_.elements.headOption).collect { case p: MethodParameterIn => p.index }.distinct
+
+    val toReturn = sourceIndexes(method.methodReturn.reachableByFlows(params).l).map(_ -> -1)
+    val toParams = method.parameter.asOutput.l.flatMap { out =>
+      val others = params.filterNot(_.index == out.index)
+      if (others.isEmpty) Nil else sourceIndexes(out.reachableByFlows(others).l).map(_ -> out.index)
+    }
+    (identity ++ toReturn ++ toParams).distinct.sorted
+  }
+
+  /**
+   * 可以用摘要代替方法体的方法，见 eligibleNames
+   */
+  private def eligibleMethods(cpg: Cpg, methods: List[Method]): List[Method] = {
+    val tainted = (cpg.sources.l ++ cpg.sinks.l).map(_.method.fullName).distinct
+    val callers = methods.map(m => m.fullName -> m.callIn.method.fullName.l).toMap
+    // 同名同签名的方法互为分派候选：调用点静态解析到其中一个，运行时可能进入另一个
+    val bySignature = cpg.method.isExternal(false).filterNot(_.name.startsWith("<")).l
+      .groupBy(m => m.name + ":" + m.signature).values.map(_.map(_.fullName)).toList
+    val alternatives = bySignature.filter(_.size > 1)
+      .flatMap(group => group.map(name => name -> group.filterNot(_ == name))).toMap
+
+    val eligible = eligibleNames(methods.map(_.fullName), tainted,
+      name => callers.getOrElse(name, Nil), name => alternatives.getOrElse(name, Nil))
+    methods.filter(m => eligible.contains(m.fullName))
+  }
+
+  /**
+   * 可摘要的方法名：有调用点、没有分派候选，且自身及其（间接）被调用方法中没有 source/sink
+   *
+   * @param tainted      包含 source/sink 的方法
+   * @param callers      方法的调用者
+   * @param alternatives 方法的分派候选（同名同签名的其他方法），候选能到达 source/sink 时调用该方法同样可能到达
+   */
+  private[scan] def eligibleNames(methods: Seq[String],
+                                  tainted: Iterable[String],
+                                  callers: String => Iterable[String],
+                                  alternatives: String => Iterable[String]): Set[String] = {
+    // 沿调用关系和分派候选向上标记所有能到达 source/sink 的方法
+    val reachesTaint = mutable.HashSet.from(tainted)
+    val queue = mutable.Queue.from(reachesTaint)
+    while (queue.nonEmpty) {
+      val name = queue.dequeue()
+      (callers(name) ++ alternatives(name)).foreach { next =>
+        if (reachesTaint.add(next)) queue.enqueue(next)
+      }
+    }
+
+    methods.filter { name =>
+      !reachesTaint.contains(name) && callers(name).nonEmpty && alternatives(name).isEmpty
+    }.toSet
+  }
+
+  /**
+   * 方法闭包哈希：方法体哈希与所有被调用方法的闭包哈希组合，按方法名顺序做非递归的后序遍历
+   * 递归调用环中回边只计入方法体哈希
+   */
+  private def closureHashes(methods: List[Method]): Map[String, String] = {
+    val byName = methods.map(m => m.fullName -> m).toMap
+    val bodyHashes = methods.map(m => m.fullName -> bodyHash(m)).toMap
+    val callees = methods.map { m =>
+      m.fullName -> m.call.callee.isExternal(false).fullName.filter(byName.contains).distinct.sorted.l
+    }.toMap
+
+    val result = mutable.HashMap[String, String]()
+    val visiting = mutable.HashSet[String]()
+    methods.map(_.fullName).sorted.foreach { root =>
+      val stack = mutable.Stack[(String, Boolean)](root -> false)
+      while (stack.nonEmpty) {
+        val (name, expanded) = stack.pop()
+        if (!result.contains(name)) {
+          if (expanded) {
+            visiting.remove(name)
+            val parts = bodyHashes(name) :: callees(name).map(c => result.getOrElse(c, bodyHashes(c)))
+            result(name) = sha1(parts.mkString("|"))
+          } else if (visiting.add(name)) {
+            stack.push(name -> true)
+            callees(name).filterNot(c => result.contains(c) || visiting.contains(c)).foreach(c => stack.push(c -> false))
+          }
+        }
+      }
+    }
+    result.toMap
+  }
+
+  // 方法体哈希只取 AST 结构与代码，不含行号，移动代码位置不会使摘要失效
+  private[scan] def bodyHash(method: Method): String = {
+    val digest = MessageDigest.getInstance("SHA-1")
+    method.ast.foreach { node =>
+      digest.update(s"${node.label}:${node.order}:${node.code}\n".getBytes(StandardCharsets.UTF_8))
+    }
+    digest.digest().map("%02x".format(_)).mkString
+  }
+
+  private def sha1(text: String): String =
+    MessageDigest.getInstance("SHA-1").digest(text.getBytes(StandardCharsets.UTF_8)).map("%02x".format(_)).mkString
+}
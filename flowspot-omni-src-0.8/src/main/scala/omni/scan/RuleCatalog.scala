@@ -0,0 +1,67 @@
+package omni.scan
+
+import omni.util.FlowSpotLogger
+
+import java.nio.file.{Files, Paths}
+import java.security.MessageDigest
+import java.util.concurrent.ConcurrentHashMap
+import scala.util.Try
+
+/**
+ * 进程内共享的规则目录：source 规则只构建一次，sink 规则按 sinks.json 内容哈希缓存
+ *
+ * 插件的规则选择对话框与扫描引擎运行在同一 JVM 中，二者通过这里复用同一份解析结果；
+ * 文件内容不变时（即使路径不同，如每次合并生成的临时文件）不会重复解析
+ */
+object RuleCatalog {
+
+  // 默认规则文件，与 SinkQueryGenerator 的回退路径一致
+  private val DefaultSinkJsonPath = "config/sinks.json"
+
+  // 同时保留的 sink 目录数，超过时整体清空
+  private val MaxSinkCatalogs = 4
+
+  private val sinkCatalogs = new ConcurrentHashMap[String, List[Query]]()
+
+  private lazy val sources: List[Query] = new Analyzer().getSourcesQuery()
+
+  def sourceQueries(): List[Query] = sources
+
+  /**
+   * 默认 sinks.json 对应的 sink 规则（JSON 规则与内置规则）
+   */
+  def sinkQueries(): List[Query] =
+    cached(defaultFingerprint())(new Analyzer().getSinksQuery())
+
+  /**
+   * 指定 sinks.json 对应的 sink 规则（JSON 规则与内置规则）
+   */
+  def sinkQueries(sinkJsonPath: String): List[Query] =
+    cached(fingerprint(sinkJsonPath))(new Analyzer().getSinksQuery(sinkJsonPath))
+
+  /**
+   * sinks.json 的内容指纹；文件不可读时解析会回退到默认规则，指纹也随之取默认文件
+   */
+  def fingerprint(sinkJsonPath: String): String =
+    Try(Files.readAllBytes(Paths.get(sinkJsonPath))).toOption match {
+      case Some(bytes) =>
+        MessageDigest.getInstance("SHA-256").digest(bytes).map("%02x".format(_)).mkString
+      case None if sinkJsonPath != DefaultSinkJsonPath =>
+        "fallback:" + fingerprint(DefaultSinkJsonPath)
+      case None =>
+        "missing"
+    }
+
+  def defaultFingerprint(): String = fingerprint(DefaultSinkJsonPath)
+
+  def clear(): Unit = sinkCatalogs.clear()
+
+  private def cached(key: String)(load: => List[Query]): List[Query] =
+    Option(sinkCatalogs.get(key)).getOrElse {
+      val queries = load
+      if (sinkCatalogs.size() >= MaxSinkCatalogs) sinkCatalogs.clear()
+      val previous = sinkCatalogs.putIfAbsent(key, queries)
+      FlowSpotLogger.debug(s"Parsed ${queries.size} sink queries for $key", Some("RuleCatalog"))
+      if (previous != null) previous else queries
+    }
+}
@@ -0,0 +1,106 @@
+package omni.scan
+
+import io.joern.dataflowengineoss.language.Path
+import io.shiftleft.codepropertygraph.generated.nodes.StoredNode
+import omni.flowspot.core.FlowSpotRuleProfile
+import org.json4s.*
+
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.atomic.{AtomicLong, DoubleAdder}
+import scala.jdk.CollectionConverters.*
+
+/**
+ * 按规则（Query.name）统计扫描开销：
+ * 遍历耗时、命中节点数、分摊到其 sink 的可达性耗时，以及产生的路径数
+ */
+class RuleCostProfiler {
+
+  private class Entry(val kind: String) {
+    val traversalMs = new AtomicLong(0)
+    val nodesTagged = new AtomicLong(0)
+    val reachabilityMs = new DoubleAdder()
+    val rawPaths = new AtomicLong(0)
+    val reportedPaths = new AtomicLong(0)
+  }
+
+  private val entries = new ConcurrentHashMap[String, Entry]()
+  // 节点ID -> 命中该节点的规则名，用于把批次耗时和路径归属到规则
+  private val rulesByNode = new ConcurrentHashMap[Long, List[String]]()
+
+  private def entry(name: String, kind: String): Entry =
+    entries.computeIfAbsent(name, _ => new Entry(kind))
+
+  /**
+   * 记录规则的遍历结果
+   */
+  def recordTagging(name: String, kind: String, durationMs: Long, nodes: Seq[StoredNode]): Unit = {
+    val e = entry(name, kind)
+    e.traversalMs.addAndGet(durationMs)
+    e.nodesTagged.addAndGet(nodes.size)
+    nodes.foreach { node =>
+      rulesByNode.merge(node.id(), List(name), (existing, added) => (existing ++ added).distinct)
+    }
+  }
+
+  /**
+   * 把一个 sink 批次的可达性耗时按 sink 平均分摊到对应规则，并统计原始路径
+   */
+  def recordReachabilityBatch(sinks: Seq[StoredNode], durationMs: Long, paths: Seq[Path]): Unit = {
+    if (sinks.nonEmpty) {
+      val perSink = durationMs.toDouble / sinks.size
+      sinks.foreach { sink =>
+        val rules = rulesFor(sink.id())
+        rules.foreach(rule => entries.get(rule).reachabilityMs.add(perSink / rules.size))
+      }
+    }
+    paths.foreach { path =>
+      pathRules(path).foreach(rule => entries.get(rule).rawPaths.incrementAndGet())
+    }
+  }
+
+  /**
+   * 记录最终上报的路径
+   */
+  def recordReportedPath(path: Path): Unit =
+    pathRules(path).foreach(rule => entries.get(rule).reportedPaths.incrementAndGet())
+
+  private def rulesFor(nodeId: Long): List[String] =
+    Option(rulesByNode.get(nodeId)).getOrElse(Nil)
+
+  // 路径的起点归属 source 规则，终点归属 sink 规则
+  private def pathRules(path: Path): List[String] = path.elements match {
+    case Nil => Nil
+    case elements => (rulesFor(elements.head.id()) ++ rulesFor(elements.last.id())).distinct
+  }
+
+  /**
+   * 按总开销降序返回各规则统计
+   */
+  def getProfiles: java.util.List[FlowSpotRuleProfile] =
+    entries.asScala.toList
+      .map { case (name, e) =>
+        new FlowSpotRuleProfile(
+          name,
+          e.kind,
+          e.traversalMs.get(),
+          e.nodesTagged.get(),
+          math.round(e.reachabilityMs.sum()),
+          e.rawPaths.get(),
+          e.reportedPaths.get()
+        )
+      }
+      .sortBy(p => (-p.getTotalCostMs, p.getRuleName))
+      .asJava
+
+  def toJson: JValue = JArray(getProfiles.asScala.toList.map { p =>
+    JObject(
+      "rule" -> JString(p.getRuleName),
+      "kind" -> JString(p.getKind),
+      "traversalMs" -> JLong(p.getTraversalMs),
+      "nodesTagged" -> JLong(p.getNodesTagged),
+      "reachabilityMs" -> JLong(p.getReachabilityMs),
+      "rawPaths" -> JLong(p.getRawPaths),
+      "reportedPaths" -> JLong(p.getReportedPaths)
+    )
+  })
+}
@@ -0,0 +1,156 @@
+package omni.scan
+
+import omni.util.FlowSpotLogger
+import org.json4s.*
+import org.json4s.native.JsonMethods.*
+
+import java.lang.management.ManagementFactory
+import java.nio.charset.StandardCharsets
+import java.nio.file.{Files, Path, Paths}
+import java.time.LocalDateTime
+import java.time.format.DateTimeFormatter
+import java.util.concurrent.{ConcurrentHashMap, ConcurrentLinkedQueue}
+import scala.jdk.CollectionConverters.*
+
+/**
+ * 单个分析阶段的度量数据
+ *
+ * @param phase          阶段名称，如 cpg.load、scan.reachability.batch-3
+ * @param startedAt      阶段开始时间（相对本次运行开始的毫秒数）
+ * @param durationMs     耗时（毫秒）
+ * @param allocatedBytes 执行线程在该阶段内分配的堆内存估算值，-1 表示 JVM 不支持
+ * @param counters       节点数、路径数等计数
+ */
+case class PhaseMetric(
+  phase: String,
+  startedAt: Long,
+  durationMs: Long,
+  allocatedBytes: Long,
+  counters: Map[String, Long]
+)
+
+/**
+ * 一次分析运行的分阶段计时与计数
+ * 各阶段可在不同线程中记录（如并行的可达性批次），分配量按执行线程统计
+ */
+class ScanMetrics(val runId: String, listener: PhaseMetric => Unit = _ => ()) {
+
+  private val runStart = System.currentTimeMillis()
+  private val phases = new ConcurrentLinkedQueue[PhaseMetric]()
+  // 附加到度量文件的其他统计（如规则开销）
+  private val sections = new ConcurrentHashMap[String, JValue]()
+
+  /**
+   * 计时执行一个阶段，不带计数
+   */
+  def time[T](phase: String)(block: => T): T =
+    timeWith(phase)(block)(_ => Map.empty)
+
+  /**
+   * 计时执行一个阶段，并根据阶段结果计算计数
+   */
+  def timeWith[T](phase: String)(block: => T)(counters: T => Map[String, Long]): T = {
+    val start = System.currentTimeMillis()
+    val allocStart = ScanMetrics.currentThreadAllocatedBytes
+    val result = block
+    val allocated = if (allocStart < 0) -1L else ScanMetrics.currentThreadAllocatedBytes - allocStart
+    record(phase, start, System.currentTimeMillis() - start, allocated, counters(result))
+    result
+  }
+
+  /**
+   * 直接记录一个已完成的阶段
+   */
+  def record(phase: String, start: Long, durationMs: Long, allocatedBytes: Long, counters: Map[String, Long]): Unit = {
+    val metric = PhaseMetric(phase, start - runStart, durationMs, allocatedBytes, counters)
+    phases.add(metric)
+    FlowSpotLogger.debug(
+      s"[METRIC] $phase ${durationMs}ms" + counters.map { case (k, v) => s" $k=$v" }.mkString,
+      Some("ScanMetrics")
+    )
+    try {
+      listener(metric)
+    } catch {
+      case e: Exception =>
+        FlowSpotLogger.warn(s"Metrics listener failed for phase $phase: ${e.getMessage}", Some("ScanMetrics"))
+    }
+  }
+
+  /**
+   * 已记录的阶段，按开始时间排序
+   */
+  def getPhases: List[PhaseMetric] = phases.asScala.toList.sortBy(_.startedAt)
+
+  /**
+   * 附加一段统计数据，随度量一起写入 JSON
+   */
+  def attach(section: String, value: JValue): Unit = sections.put(section, value)
+
+  /**
+   * @param status 运行结束状态：success、failed 或 cancelled
+   */
+  def toJson(status: String): JValue = JObject(List[JField](
+    "runId" -> JString(runId),
+    "status" -> JString(status),
+    "totalMs" -> JLong(System.currentTimeMillis() - runStart),
+    "phases" -> JArray(getPhases.map { m =>
+      JObject(
+        "phase" -> JString(m.phase),
+        "startedAt" -> JLong(m.startedAt),
+        "durationMs" -> JLong(m.durationMs),
+        "allocatedBytes" -> JLong(m.allocatedBytes),
+        "counters" -> JObject(m.counters.toList.sortBy(_._1).map { case (k, v) => k -> JLong(v) })
+      )
+    })
+  ) ++ sections.asScala.toList.sortBy(_._1))
+
+  /**
+   * 将度量写入 <projectBase>/.flowspot/metrics/<runId>.json
+   *
+   * @param status 运行结束状态，见 [[ScanMetrics.StatusSuccess]] 等
+   */
+  def writeTo(projectBasePath: String, status: String): Option[Path] = {
+    try {
+      val dir = Paths.get(projectBasePath, ".flowspot", "metrics")
+      Files.createDirectories(dir)
+      val file = dir.resolve(s"$runId.json")
+      Files.write(file, pretty(render(toJson(status))).getBytes(StandardCharsets.UTF_8))
+      FlowSpotLogger.info(s"Scan metrics saved to: ${file.toAbsolutePath}", Some("ScanMetrics"))
+      Some(file)
+    } catch {
+      case e: Exception =>
+        FlowSpotLogger.error(s"Failed to write scan metrics: ${e.getMessage}", Some("ScanMetrics"), Some(e))
+        None
+    }
+  }
+}
+
+object ScanMetrics {
+
+  private val runIdFormatter = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss-SSS")
+
+  // 度量文件中的运行结束状态
+  val StatusSuccess = "success"
+  val StatusFailed = "failed"
+  val StatusCancelled = "cancelled"
+
+  /**
+   * 不对外通知的度量实例，用于未接入度量的调用方
+   */
+  def disabled: ScanMetrics = new ScanMetrics("disabled")
+
+  def newRunId(): String = LocalDateTime.now().format(runIdFormatter)
+
+  private val threadMXBean = ManagementFactory.getThreadMXBean match {
+    case bean: com.sun.management.ThreadMXBean if bean.isThreadAllocatedMemorySupported =>
+      if (!bean.isThreadAllocatedMemoryEnabled) bean.setThreadAllocatedMemoryEnabled(true)
+      Some(bean)
+    case _ => None
+  }
+
+  /**
+   * 当前线程累计分配的字节数，不支持时返回 -1
+   */
+  def currentThreadAllocatedBytes: Long =
+    threadMXBean.map(_.getThreadAllocatedBytes(Thread.currentThread().getId)).getOrElse(-1L)
+}
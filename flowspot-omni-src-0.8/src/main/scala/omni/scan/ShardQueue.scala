@@ -0,0 +1,211 @@
+package omni.scan
+
+import omni.util.FlowSpotLogger
+
+import java.io.{BufferedInputStream, BufferedOutputStream, DataInputStream, DataOutputStream}
+import java.nio.file.{AtomicMoveNotSupportedException, Files, Path, StandardCopyOption}
+import java.nio.file.attribute.FileTime
+import java.util.Properties
+import scala.jdk.CollectionConverters.*
+import scala.util.{Try, Using}
+
+/**
+ * 分片任务描述
+ *
+ * @param id           任务 ID，结果文件带有该 ID，旧任务的残留结果不会被合并
+ * @param shards       sink 分片数
+ * @param maxCallDepth 数据流分析的最大调用深度
+ */
+case class ShardJob(id: String, shards: Int, maxCallDepth: Int)
+
+/**
+ * 一个分片的结果：路径以节点 ID 序列表示，协调者和工作进程加载的是同一个 CPG 快照，节点 ID 一致
+ */
+case class ShardResult(jobId: String, shard: Int, worker: String, durationMs: Long, paths: List[Array[Long]])
+
+/**
+ * 基于共享目录的 sink 分片队列，可以放在本机或多台 CI 机器共同挂载的目录上
+ *
+ * 目录结构：
+ *  - job.properties            任务描述，最后写入，出现即表示任务已就绪
+ *  - cpg.bin                   已打标签的 CPG 快照
+ *  - sources.bin               source 节点 ID
+ *  - queue/<n>.shard           待处理分片（sink 节点 ID）
+ *  - claimed/<n>.shard@<worker> 已领取的分片，领取者定期更新修改时间作为心跳
+ *  - results/<n>.paths         分片结果
+ *  - failed/<n>.failed@<worker> 分片处理失败的记录，出现后协调者和所有工作进程都停止处理该任务
+ *
+ * 领取通过原子重命名完成，同一分片只会被一个进程拿到；心跳超时的分片由协调者放回队列
+ */
+class ShardQueue(val dir: Path) {
+
+  private val JobFile = dir.resolve("job.properties")
+  private val queueDir = dir.resolve("queue")
+  private val claimedDir = dir.resolve("claimed")
+  private val resultsDir = dir.resolve("results")
+  private val failedDir = dir.resolve("failed")
+
+  val snapshotPath: Path = dir.resolve("cpg.bin")
+  private val sourcesPath = dir.resolve("sources.bin")
+
+  /**
+   * 发布新任务：清理上一次任务的文件，写入 source 与全部分片后再写任务描述
+   * CPG 快照由调用方在发布前写入 snapshotPath
+   */
+  def publish(job: ShardJob, sources: Seq[Long], shards: Seq[Seq[Long]]): Unit = {
+    Files.deleteIfExists(JobFile)
+    List(queueDir, claimedDir, resultsDir, failedDir).foreach { d =>
+      if (Files.isDirectory(d)) Using(Files.list(d))(_.iterator().asScala.toList).getOrElse(Nil).foreach(Files.deleteIfExists)
+      Files.createDirectories(d)
+    }
+    writeAtomically(sourcesPath)(out => writeIds(out, sources))
+    shards.zipWithIndex.foreach { case (sinks, n) =>
+      writeAtomically(queueDir.resolve(s"$n.shard"))(out => writeIds(out, sinks))
+    }
+    val props = new Properties()
+    props.setProperty("id", job.id)
+    props.setProperty("shards", job.shards.toString)
+    props.setProperty("maxCallDepth", job.maxCallDepth.toString)
+    writeAtomically(JobFile)(out => props.store(out, "FlowSpot shard job"))
+    FlowSpotLogger.info(s"Published shard job ${job.id}: ${shards.size} shards in $dir", Some("ShardQueue"))
+  }
+
+  /**
+   * 当前任务，尚未发布时为 None
+   */
+  def job: Option[ShardJob] = Try {
+    val props = new Properties()
+    Using.resource(Files.newInputStream(JobFile))(in => props.load(in))
+    ShardJob(props.getProperty("id"), props.getProperty("shards").toInt, props.getProperty("maxCallDepth").toInt)
+  }.toOption
+
+  def sources(): List[Long] = readIds(sourcesPath)
+
+  /**
+   * 已领取分片中的 sink 节点 ID
+   */
+  def sinks(shard: Int, worker: String): List[Long] = readIds(claimedDir.resolve(s"$shard.shard@$worker"))
+
+  /**
+   * 领取一个待处理分片，队列为空时返回 None
+   */
+  def claim(worker: String): Option[Int] = {
+    val queued = Using(Files.list(queueDir))(_.iterator().asScala.filter(_.toString.endsWith(".shard")).toList.sortBy(shardNumber))
+      .getOrElse(Nil)
+    queued.iterator.flatMap { file =>
+      val n = shardNumber(file)
+      Try(Files.move(file, claimedDir.resolve(s"$n.shard@$worker"), StandardCopyOption.ATOMIC_MOVE)).toOption.map(_ => n)
+    }.nextOption()
+  }
+
+  /**
+   * 心跳：更新已领取分片的修改时间
+   */
+  def heartbeat(shard: Int, worker: String): Unit =
+    Try(Files.setLastModifiedTime(claimedDir.resolve(s"$shard.shard@$worker"), FileTime.fromMillis(System.currentTimeMillis())))
+
+  def complete(result: ShardResult): Unit = {
+    writeAtomically(resultsDir.resolve(s"${result.shard}.paths")) { out =>
+      out.writeUTF(result.jobId)
+      out.writeInt(result.shard)
+      out.writeUTF(result.worker)
+      out.writeLong(result.durationMs)
+      out.writeInt(result.paths.size)
+      result.paths.foreach { path =>
+        out.writeInt(path.length)
+        path.foreach(out.writeLong)
+      }
+    }
+    Files.deleteIfExists(claimedDir.resolve(s"${result.shard}.shard@${result.worker}"))
+  }
+
+  def result(shard: Int): Option[ShardResult] = {
+    val file = resultsDir.resolve(s"$shard.paths")
+    if (!Files.isRegularFile(file)) None
+    else Some(Using.resource(new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) { in =>
+      val jobId = in.readUTF()
+      val n = in.readInt()
+      val worker = in.readUTF()
+      val durationMs = in.readLong()
+      val paths = List.fill(in.readInt())(Array.fill(in.readInt())(in.readLong()))
+      ShardResult(jobId, n, worker, durationMs, paths)
+    })
+  }
+
+  /**
+   * 已完成的分片数，只统计属于 jobId 的结果，上一次任务残留的结果文件不计入
+   */
+  def completedCount(jobId: String): Int =
+    Using(Files.list(resultsDir))(_.iterator().asScala.filter(_.toString.endsWith(".paths")).toList).getOrElse(Nil)
+      .count(file => Try(readJobId(file)).toOption.contains(jobId))
+
+  /**
+   * 记录分片处理失败，其他进程通过 failure 得知后停止等待
+   */
+  def fail(jobId: String, shard: Int, worker: String, message: String): Unit =
+    writeAtomically(failedDir.resolve(s"$shard.failed@$worker")) { out =>
+      out.writeUTF(jobId)
+      out.writeInt(shard)
+      out.writeUTF(worker)
+      out.writeUTF(Option(message).getOrElse("").take(4096))
+    }
+
+  /**
+   * jobId 的第一条失败记录，没有失败时为 None
+   */
+  def failure(jobId: String): Option[String] =
+    Using(Files.list(failedDir))(_.iterator().asScala.toList.sortBy(shardNumber)).getOrElse(Nil).iterator.flatMap { file =>
+      Try(Using.resource(new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) { in =>
+        val id = in.readUTF()
+        val shard = in.readInt()
+        val worker = in.readUTF()
+        val message = in.readUTF()
+        Option.when(id == jobId)(s"Shard $shard failed on $worker: $message")
+      }).toOption.flatten
+    }.nextOption()
+
+  /**
+   * 把心跳超时的分片放回队列，返回放回的数量
+   */
+  def requeueStale(leaseMs: Long): Int = {
+    val now = System.currentTimeMillis()
+    Using(Files.list(claimedDir))(_.iterator().asScala.toList).getOrElse(Nil).count { file =>
+      val stale = Try(now - Files.getLastModifiedTime(file).toMillis > leaseMs).getOrElse(false)
+      val n = shardNumber(file)
+      stale && !Files.exists(resultsDir.resolve(s"$n.paths")) &&
+        Try(Files.move(file, queueDir.resolve(s"$n.shard"), StandardCopyOption.ATOMIC_MOVE)).isSuccess
+    }
+  }
+
+  private def readJobId(file: Path): String =
+    Using.resource(new DataInputStream(new BufferedInputStream(Files.newInputStream(file))))(_.readUTF())
+
+  private def shardNumber(file: Path): Int = file.getFileName.toString.takeWhile(_.isDigit).toIntOption.getOrElse(-1)
+
+  private def writeIds(out: DataOutputStream, ids: Seq[Long]): Unit = {
+    out.writeInt(ids.size)
+    ids.foreach(out.writeLong)
+  }
+
+  private def readIds(file: Path): List[Long] =
+    Using.resource(new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) { in =>
+      List.fill(in.readInt())(in.readLong())
+    }
+
+  /**
+   * 先写临时文件再原子重命名，其他进程不会读到写了一半的文件
+   */
+  private def writeAtomically(target: Path)(write: DataOutputStream => Unit): Unit = {
+    Files.createDirectories(target.getParent)
+    val temp = Files.createTempFile(target.getParent, ".tmp-", "")
+    try {
+      Using.resource(new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp))))(write)
+      try Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE)
+      catch {
+        case _: AtomicMoveNotSupportedException => Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING)
+      }
+    } finally {
+      Files.deleteIfExists(temp)
+    }
+  }
+}
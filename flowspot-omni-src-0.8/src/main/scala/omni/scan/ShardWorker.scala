@@ -0,0 +1,147 @@
+package omni.scan
+
+import io.joern.dataflowengineoss.language.*
+import io.joern.dataflowengineoss.queryengine.{EngineConfig, EngineContext}
+import io.shiftleft.codepropertygraph.cpgloading.CpgLoader
+import io.shiftleft.codepropertygraph.generated.Cpg
+import io.shiftleft.codepropertygraph.generated.nodes.CfgNode
+import io.shiftleft.semanticcpg.language.*
+import omni.scan.newpass.OptimizedScanPass
+import omni.util.FlowSpotLogger
+
+import java.net.InetAddress
+import java.nio.file.{Files, Paths, StandardCopyOption}
+import java.util.concurrent.{Executors, ScheduledExecutorService, TimeUnit}
+import scala.concurrent.duration.Duration
+import scala.concurrent.{Await, ExecutionContext, Future}
+import scala.util.{Failure, Success, Try}
+
+/**
+ * 分片扫描的工作进程
+ *
+ * 用法：java -cp <engine jars> omni.scan.ShardWorker --queue <dir> [--threads <n>] [--wait-seconds <s>]
+ *
+ * 等待协调者在共享目录中发布任务，把 CPG 快照复制到本地后加载，反复领取 sink 分片计算可达路径，
+ * 每个分片只保留每对 (source 方法, sink 方法) 的最长路径后写回；队列为空时退出
+ */
+object ShardWorker {
+
+  /**
+   * 分片心跳间隔与租约，超过租约没有心跳的分片会被协调者放回队列
+   */
+  private val HeartbeatMs = 15_000L
+  val LeaseMs: Long = 120_000L
+
+  /**
+   * 整个分片任务的等待上限，防止失败记录未能写入等意外情况下协调者无限等待
+   */
+  val JobTimeoutMs: Long = 6 * 60 * 60 * 1000L
+
+  private lazy val heartbeats: ScheduledExecutorService = Executors.newSingleThreadScheduledExecutor { runnable =>
+    val thread = new Thread(runnable, "flowspot-shard-heartbeat")
+    thread.setDaemon(true)
+    thread
+  }
+
+  /**
+   * 处理一个已领取的分片并写回结果，协调者本地处理分片时也使用这个方法
+   * 处理失败时先在队列中写入失败记录再抛出，其他进程据此停止等待该任务
+   *
+   * @param resolve 由节点 ID 取回本进程 CPG 中的节点
+   */
+  def process(queue: ShardQueue, job: ShardJob, shard: Int, worker: String, sources: List[CfgNode], resolve: Long => CfgNode)
+             (implicit context: EngineContext): ShardResult = {
+    val beat = heartbeats.scheduleAtFixedRate(() => queue.heartbeat(shard, worker), HeartbeatMs, HeartbeatMs, TimeUnit.MILLISECONDS)
+    try {
+      val sinks = queue.sinks(shard, worker).map(resolve)
+      val start = System.currentTimeMillis()
+      val found = Try(sinks.reachableByFlows(sources)(context).l) match {
+        case Success(paths) => paths
+        case Failure(e) =>
+          FlowSpotLogger.warn(s"Shard $shard failed: ${e.getMessage}", Some("ShardWorker"))
+          List.empty[Path]
+      }
+      val paths = OptimizedScanPass.longestPerMethodPair(found)
+      val result = ShardResult(job.id, shard, worker, System.currentTimeMillis() - start, paths.map(_.elements.map(_.id()).toArray))
+      queue.complete(result)
+      result
+    } catch {
+      case e: Throwable =>
+        Try(queue.fail(job.id, shard, worker, e.toString))
+        throw e
+    } finally {
+      beat.cancel(false)
+    }
+  }
+
+  /**
+   * 按节点 ID 取回节点；快照与任务不一致时直接失败，避免合并出错误的路径
+   */
+  def resolver(cpg: Cpg): Long => CfgNode = id =>
+    Option(cpg.graph.node(id)) match {
+      case Some(node: CfgNode) => node
+      case other => throw new IllegalStateException(s"CPG snapshot does not match shard job: node $id is ${other.getOrElse("missing")}")
+    }
+
+  def main(args: Array[String]): Unit = {
+    val options = args.sliding(2, 2).collect { case Array(key, value) => key -> value }.toMap
+    val queueDir = options.getOrElse("--queue", {
+      System.err.println("Usage: ShardWorker --queue <dir> [--threads <n>] [--wait-seconds <s>]")
+      sys.exit(1)
+    })
+    val threads = options.get("--threads").flatMap(_.toIntOption).filter(_ > 0)
+      .getOrElse(math.min(Runtime.getRuntime.availableProcessors(), 20))
+    val waitMs = options.get("--wait-seconds").flatMap(_.toLongOption).getOrElse(600L) * 1000
+    sys.exit(run(new ShardQueue(Paths.get(queueDir).toAbsolutePath), threads, waitMs))
+  }
+
+  private def run(queue: ShardQueue, threads: Int, waitMs: Long): Int = {
+    val deadline = System.currentTimeMillis() + waitMs
+    var job = queue.job
+    while (job.isEmpty && System.currentTimeMillis() < deadline) {
+      Thread.sleep(2000)
+      job = queue.job
+    }
+    if (job.isEmpty) {
+      System.err.println(s"No shard job published in ${queue.dir}")
+      return 1
+    }
+    val current = job.get
+    val worker = s"${Try(InetAddress.getLocalHost.getHostName).getOrElse("worker")}-${ProcessHandle.current().pid()}"
+    System.err.println(s"[$worker] Joining shard job ${current.id} (${current.shards} shards, $threads threads)")
+
+    // 快照可能位于网络共享目录，复制到本地后加载；加载的 CPG 关闭时会写回存储文件，不能直接加载共享快照
+    val localDir = Files.createTempDirectory("flowspot_shard_")
+    val localCpg = localDir.resolve("cpg.bin")
+    Files.copy(queue.snapshotPath, localCpg, StandardCopyOption.REPLACE_EXISTING)
+    val cpg = CpgLoader.load(localCpg.toString)
+    val resolve = resolver(cpg)
+    val sources = queue.sources().map(resolve)
+    implicit val context: EngineContext = EngineContext(config = EngineConfig(maxCallDepth = current.maxCallDepth))
+
+    val executor = Executors.newFixedThreadPool(threads)
+    implicit val ec: ExecutionContext = ExecutionContext.fromExecutor(executor)
+    try {
+      val loops = (1 to threads).map { i =>
+        Future {
+          var processed = 0
+          var shard = queue.claim(s"$worker-$i")
+          while (shard.isDefined && queue.job.exists(_.id == current.id) && queue.failure(current.id).isEmpty) {
+            val result = process(queue, current, shard.get, s"$worker-$i", sources, resolve)
+            System.err.println(s"[$worker-$i] Shard ${result.shard}: ${result.paths.size} paths in ${result.durationMs} ms")
+            processed += 1
+            shard = queue.claim(s"$worker-$i")
+          }
+          processed
+        }
+      }
+      val processed = Await.result(Future.sequence(loops), Duration.Inf).sum
+      System.err.println(s"[$worker] Processed $processed shards")
+      0
+    } finally {
+      executor.shutdown()
+      Try(Files.deleteIfExists(localCpg))
+      Try(Files.deleteIfExists(localDir))
+    }
+  }
+}
@@ -21,7 +21,9 @@ import scala.collection.parallel.CollectionConverters.*
 import scala.concurrent.{Await, ExecutionContext, Future}
 import scala.concurrent.duration.*
 import scala.util.{Failure, Success, Try}
+import java.nio.file.Files
 import java.util.concurrent.{ConcurrentHashMap, Executors}
+import java.util.concurrent.atomic.AtomicBoolean
 import scala.concurrent.ExecutionContext.Implicits.global
 
 /**
@@ -31,6 +33,13 @@ import scala.concurrent.ExecutionContext.Implicits.global
  * @param maxCallDepth 最大调用深度
  * @param batchSize 批处理大小，默认为100
  * @param timeoutSeconds 每个批次的超时时间（秒），默认为300秒
+ * @param metrics 分阶段度量，记录打标、可达性批次与去重各阶段的耗时和数量
+ * @param ruleProfiler 按规则统计遍历、可达性耗时与路径产出
+ * @param summaryStore 跨运行的方法摘要，未变化的方法按摘要传播而不重新遍历方法体
+ * @param maxNewSummaries 每次扫描最多新计算的方法摘要数
+ * @param threadPoolSize 同时执行数据流分析的线程数
+ * @param shardQueue 分片队列，指定时 sink 批次发布到队列，由本进程和其他工作进程共同处理
+ * @param incrementalScope 增量扫描范围，指定时只计算受变更影响方法中的 sink，其余漏洞由调用方从基线复用
  */
 class OptimizedScanPass(
                          cpg: Cpg,
@@ -40,7 +49,14 @@ class OptimizedScanPass(
                          timeoutSeconds: Int = 300,
                          scanMode: String = "full",
                          optimizationConfig: OptimizationConfig = OptimizationConfig.default,
-                         callback: ProgressCallback
+                         callback: ProgressCallback,
+                         metrics: ScanMetrics = ScanMetrics.disabled,
+                         ruleProfiler: RuleCostProfiler = new RuleCostProfiler(),
+                         summaryStore: MethodSummaryStore = MethodSummaryStore.disabled,
+                         maxNewSummaries: Int = 500,
+                         threadPoolSize: Int = Math.min(Runtime.getRuntime.availableProcessors(), 20),
+                         shardQueue: Option[ShardQueue] = None,
+                         incrementalScope: Option[IncrementalScope] = None
                        )(implicit engineContext: EngineContext) extends CpgPass(cpg) {
   private val QueryTagTaint = "taint"
   private val pathCache = new ConcurrentHashMap[(Long, Long), List[Path]]()
@@ -50,12 +66,17 @@ class OptimizedScanPass(
    *
    * @param sources 源点列表
    * @param sinks   汇点列表
+   * @param context 数据流引擎上下文（可能叠加了方法摘要语义）
    * @return 所有路径的列表
    */
-  private def batchProcessFlows(sources: List[CfgNode], sinks: List[CfgNode]): List[Path] = {
+  private[omni] def batchProcessFlows(sources: List[CfgNode], sinks: List[CfgNode], context: EngineContext = engineContext): List[Path] = {
     if (sources.isEmpty || sinks.isEmpty) {
       return List.empty[Path]
     }
+    shardQueue match {
+      case Some(queue) => return shardedProcessFlows(queue, sources, sinks)
+      case None =>
+    }
 
     //    println(s"Processing ${sources.size} sources and ${sinks.size} sinks in batches of $batchSize")
 
@@ -66,42 +87,59 @@ class OptimizedScanPass(
     //    println(s"Processing with ${sources.size} sources and ${sinkBatches.size} sink batches")
 
     // 创建一个自定义的ExecutionContext，限制线程数量以避免资源耗尽
-    val threadPoolSize = Math.min(Runtime.getRuntime.availableProcessors(), 20)
     val executorService = Executors.newFixedThreadPool(threadPoolSize)
     val executionContext = ExecutionContext.fromExecutor(executorService)
+    // 内存压力升高时减少同时执行的批次，而不是强制GC
+    val governor = new MemoryGovernor(threadPoolSize)
 
     try {
       // 为每个sink批次创建Future，sources不分批
       val futures = for {
         (sinkBatch, sinkIdx) <- sinkBatches.zipWithIndex
       } yield {
-        Future {
+        Future(governor.withPermit {
           callback.updateMessage(s"Processing batch: all sources, sink $sinkIdx")
           val startTime = System.currentTimeMillis()
+          val allocStart = ScanMetrics.currentThreadAllocatedBytes
 
           // 执行数据流分析
-          val paths = Try {
-            sinkBatch.reachableByFlows(sources)(engineContext).l
+          val found = Try {
+            sinkBatch.reachableByFlows(sources)(context).l
           } match {
             case Success(result) => result
             case Failure(e) =>
               callback.updateMessage(s"Error in batch sink $sinkIdx: ${e.getMessage}")
               List.empty[Path]
           }
-
-          val duration = (System.currentTimeMillis() - startTime) / 1000
+          // 内存紧张时立即按最终的基本去重规则压缩本批次的路径，不再保留所有中间路径
+          val paths = if (governor.currentPressure == MemoryPressure.Normal) found else longestPerMethodPair(found)
+
+          val durationMs = System.currentTimeMillis() - startTime
+          metrics.record(
+            s"scan.reachability.batch-$sinkIdx",
+            startTime,
+            durationMs,
+            if (allocStart < 0) -1L else ScanMetrics.currentThreadAllocatedBytes - allocStart,
+            Map("sources" -> sources.size.toLong, "sinks" -> sinkBatch.size.toLong, "paths" -> paths.size.toLong)
+          )
+          ruleProfiler.recordReachabilityBatch(sinkBatch, durationMs, paths)
+          val duration = durationMs / 1000
           callback.updateMessage(s"Batch sink $sinkIdx completed in ${duration}s, found ${paths.size} paths")
 
           // 调用回调函数更新批次进度
 
           paths
-        }(executionContext)
+        })(executionContext)
       }
 
       // 等待所有Future完成，不设置超时时间
       val allFutures = Future.sequence(futures)
       val result = Await.result(allFutures, Duration.Inf)
 
+      if (governor.throttledCount > 0) {
+        callback.updateMessage(s"Memory pressure throttled ${governor.throttledCount} sink batches")
+      }
+
       // 合并所有批次的结果
       val allPaths = result.flatten
 
@@ -112,6 +150,92 @@ class OptimizedScanPass(
     }
   }
 
+  /**
+   * 分片模式：保存打过标签的 CPG 快照并把 sink 批次发布到共享队列，本进程与其他工作进程一起领取分片，
+   * 全部分片完成后按节点 ID 还原路径，后续去重与单机模式相同
+   *
+   * 所有分片使用同一个引擎上下文，不叠加本机的方法摘要语义，保证无论分片由哪个进程处理结果都一致
+   */
+  private def shardedProcessFlows(queue: ShardQueue, sources: List[CfgNode], sinks: List[CfgNode]): List[Path] = {
+    val sinkBatches = sinks.grouped(batchSize).toVector
+    val job = ShardJob(ScanMetrics.newRunId(), sinkBatches.size, engineContext.config.maxCallDepth)
+
+    metrics.time("scan.shards.publish") {
+      Files.createDirectories(queue.dir)
+      flatgraph.storage.Serialization.writeGraph(cpg.graph, queue.snapshotPath)
+      queue.publish(job, sources.map(_.id()), sinkBatches.map(_.map(_.id())))
+    }
+    callback.updateMessage(s"Published ${sinkBatches.size} sink shards to ${queue.dir}")
+
+    val nodesById = (sources ++ sinks).map(node => node.id() -> node).toMap
+    val worker = s"coordinator-${ProcessHandle.current().pid()}"
+    val executorService = Executors.newFixedThreadPool(threadPoolSize)
+    val executionContext = ExecutionContext.fromExecutor(executorService)
+    val governor = new MemoryGovernor(threadPoolSize)
+
+    // 任一分片失败（本地线程抛出或其他进程写入失败记录）后所有等待循环退出；超时作为最后的兜底
+    val aborted = new AtomicBoolean(false)
+    val deadline = System.currentTimeMillis() + ShardWorker.JobTimeoutMs
+
+    def checkJob(): Unit = {
+      queue.failure(job.id).foreach { message =>
+        aborted.set(true)
+        throw new IllegalStateException(s"Shard job ${job.id} aborted: $message")
+      }
+      if (aborted.get()) throw new IllegalStateException(s"Shard job ${job.id} aborted")
+      if (System.currentTimeMillis() > deadline) {
+        aborted.set(true)
+        throw new IllegalStateException(s"Shard job ${job.id} timed out after ${ShardWorker.JobTimeoutMs / 60000} minutes")
+      }
+    }
+
+    try {
+      // 本地线程与外部工作进程竞争领取分片；队列为空后继续等待其他进程的结果，并回收心跳超时的分片
+      val loops = (1 to threadPoolSize).map { i =>
+        Future {
+          try {
+            while (queue.completedCount(job.id) < job.shards) {
+              checkJob()
+              queue.claim(s"$worker-$i") match {
+                case Some(shard) =>
+                  governor.withPermit(ShardWorker.process(queue, job, shard, s"$worker-$i", sources, nodesById)(engineContext))
+                case None =>
+                  val requeued = queue.requeueStale(ShardWorker.LeaseMs)
+                  if (requeued > 0) callback.updateMessage(s"Requeued $requeued stale shards")
+                  else Thread.sleep(1000)
+              }
+            }
+          } catch {
+            case e: Throwable =>
+              aborted.set(true)
+              throw e
+          }
+        }(executionContext)
+      }
+      Await.result(Future.sequence(loops), (ShardWorker.JobTimeoutMs + 60_000L).millis)
+
+      sinkBatches.indices.toList.flatMap { shard =>
+        val result = queue.result(shard).filter(_.jobId == job.id)
+          .getOrElse(throw new IllegalStateException(s"Missing result for shard $shard of job ${job.id}"))
+        val paths = result.paths.map(ids => Path(ids.toList.map(id => cpg.graph.node(id).asInstanceOf[AstNode])))
+        metrics.record(
+          s"scan.reachability.shard-$shard",
+          System.currentTimeMillis() - result.durationMs,
+          result.durationMs,
+          -1L,
+          Map("sources" -> sources.size.toLong, "sinks" -> sinkBatches(shard).size.toLong, "paths" -> paths.size.toLong)
+        )
+        ruleProfiler.recordReachabilityBatch(sinkBatches(shard), result.durationMs, paths)
+        callback.updateMessage(s"Shard $shard completed by ${result.worker} in ${result.durationMs / 1000}s, found ${paths.size} paths")
+        paths
+      }
+    } finally {
+      executorService.shutdown()
+    }
+  }
+
+  private def longestPerMethodPair(paths: List[Path]): List[Path] = OptimizedScanPass.longestPerMethodPair(paths)
+
   /**
    * 计算路径ID
    *
@@ -142,7 +266,7 @@ class OptimizedScanPass(
    * @param paths 路径列表
    * @return 去重后的路径列表
    */
-  private def deduplicateBySinkLocation(paths: List[Path]): List[Path] = {
+  private[omni] def deduplicateBySinkLocation(paths: List[Path]): List[Path] = {
     if (paths.isEmpty) return paths
     
     val locationMap = scala.collection.mutable.HashMap[String, Path]()
@@ -174,6 +298,9 @@ class OptimizedScanPass(
     sinkNode.tag.nameExact(SINK).value.headOption.getOrElse("unknown")
   }
 
+  private def dedupCounters(in: List[Path], out: List[Path]): Map[String, Long] =
+    Map("pathsIn" -> in.size.toLong, "pathsOut" -> out.size.toLong)
+
   override def run(builder: DiffGraphBuilder): Unit = {
     val (taintQueries, otherQueries) = queries.partition(_.tags.contains(QueryTagTaint))
     implicit val taggingDiffGraph: DiffGraphBuilder = builder
@@ -182,8 +309,16 @@ class OptimizedScanPass(
 
     taintQueries.foreach { q =>
       val queryTags = q.tags.toSet
+      val kind =
+        if (queryTags.contains(TaintAnalysisKeys.SOURCE)) "source"
+        else if (queryTags.contains(TaintAnalysisKeys.SINK)) "sink"
+        else "sanitizer"
+      // 先物化匹配节点，便于记录每条规则命中的节点数
+      val tagStart = System.currentTimeMillis()
+      val matched = metrics.timeWith(s"scan.tagging.${q.name}")(q.traversal(cpg).l)(nodes => Map("nodes" -> nodes.size.toLong))
+      ruleProfiler.recordTagging(q.name, kind, System.currentTimeMillis() - tagStart, matched)
       if (queryTags.contains(TaintAnalysisKeys.SOURCE)) {
-        q.traversal(cpg).tagAsSource(q.name)
+        matched.iterator.tagAsSource(q.name)
 
       } else if (queryTags.contains(TaintAnalysisKeys.SINK)) {
         // 调试信息：显示Sink查询的详细信息
@@ -207,9 +342,9 @@ class OptimizedScanPass(
 //          println(s"[COMMAND_INJECTION] tagValue: $tagValue")
 //        }
         
-        q.traversal(cpg).tagAsSink(tagValue)
+        matched.iterator.tagAsSink(tagValue)
       } else if (queryTags.contains(TaintAnalysisKeys.SANITIZER)) {
-        q.traversal(cpg).tagAsSanitizer(q.name)
+        matched.iterator.tagAsSanitizer(q.name)
       }
     }
     DiffGraphApplier.applyDiff(cpg.graph, builder)
@@ -226,7 +361,21 @@ class OptimizedScanPass(
 
     // 获取所有sources和sinks
     val sources = cpg.sources.l
-    val sinks = cpg.sinks.l
+    val sinks = incrementalScope match {
+      case Some(scope) =>
+        val all = cpg.sinks.l
+        val affected = all.filter(sink => scope.affected.contains(sink.method.fullName))
+        callback.updateMessage(s"Incremental scan: ${scope.changed.size} changed methods, " +
+          s"${affected.size} of ${all.size} sinks affected, ${scope.reused.size} findings reused")
+        affected
+      case None => cpg.sinks.l
+    }
+
+    // 复用未变化方法的摘要，引擎遇到这些方法的调用时不再进入方法体
+    val summaryPlan = metrics.timeWith("scan.summaries.plan")(summaryStore.plan(cpg)) { plan =>
+      Map("eligible" -> plan.eligible.toLong, "reused" -> plan.reused.size.toLong, "missing" -> plan.toCompute.size.toLong)
+    }
+    val flowContext = summaryPlan.engineContext(engineContext)
 
 //    println(s"Found ${sources.size} sources and ${sinks.size} sinks")
 //    println(s"Scan mode: $scanMode")
@@ -237,7 +386,7 @@ class OptimizedScanPass(
     val findingGraph = Cpg.newDiffGraphBuilder
 
     // 根据扫描模式决定是否执行数据流分析
-    val paths = {
+    val paths = metrics.timeWith("scan.reachability") {
       // 完整模式：执行正常的数据流分析
       val filteredPairs = {
         // 如果数量不多，则不进行过滤
@@ -254,23 +403,19 @@ class OptimizedScanPass(
         // 重新分离sources和sinks，去重
         val filteredSources = filteredPairs.map(_._1).distinct
         val filteredSinks = filteredPairs.map(_._2).distinct
-        batchProcessFlows(filteredSources, filteredSinks)
+        batchProcessFlows(filteredSources, filteredSinks, flowContext)
       }
       result
-    }
+    }(ps => Map("sources" -> sources.size.toLong, "sinks" -> sinks.size.toLong, "paths" -> ps.size.toLong))
 //    val paths = sinks.reachableByFlows(sources)(engineContext).l
     // 去重并排序
     val uniquePaths = {
       // 第一步：基本去重（保留现有逻辑）
-      val basicDedup = paths.sortBy(p => -p.elements.size)
-        .distinctBy(p => (
-          p.elements.head.asInstanceOf[CfgNode].method.fullName,
-          p.elements.last.asInstanceOf[CfgNode].method.fullName
-        ))
+      val basicDedup = metrics.timeWith("scan.dedup.basic")(longestPerMethodPair(paths))(out => dedupCounters(paths, out))
       
       // 第二步：子路径去重（可配置）
       val subPathDedup = if (optimizationConfig.enableSubPathDeduplication) {
-        removeSubPaths(basicDedup)
+        metrics.timeWith("scan.dedup.subPath")(removeSubPaths(basicDedup))(out => dedupCounters(basicDedup, out))
       } else {
         println("跳过子路径去重优化")
         basicDedup
@@ -278,16 +423,18 @@ class OptimizedScanPass(
       
       // 第三步：基于sink位置的精确去重（可配置）
       val locationDedup = if (optimizationConfig.enableSinkLocationDeduplication) {
-        deduplicateBySinkLocation(subPathDedup)
+        metrics.timeWith("scan.dedup.sinkLocation")(deduplicateBySinkLocation(subPathDedup))(out => dedupCounters(subPathDedup, out))
       } else {
         subPathDedup
       }
       
       // 第四步：应用现有过滤器（可配置）
       if (optimizationConfig.enableContextFiltering) {
-        locationDedup
-          .filter(DuplicateFlow.filterFlowsByContext)
-          .filter(DuplicateFlow.flowNotTaintedByThis)
+        metrics.timeWith("scan.dedup.context") {
+          locationDedup
+            .filter(DuplicateFlow.filterFlowsByContext)
+            .filter(DuplicateFlow.flowNotTaintedByThis)
+        }(out => dedupCounters(locationDedup, out))
       } else {
         locationDedup
       }
@@ -368,6 +515,7 @@ class OptimizedScanPass(
             }
           }.getOrElse(Map.empty[String, String])
 
+          ruleProfiler.recordReportedPath(path)
           val evidence = elements.last
           QueryWrapper.finding(elements, sinkInfo.getOrElse("name", ""), "osword", sinkInfo.getOrElse("name", ""), sinkInfo.getOrElse("pattern", ""), sinkInfo.get("score").flatMap(s => scala.util.Try(s.toDouble).toOption).getOrElse(5.0), sinkInfo.getOrElse("pattern", ""),category = sinkInfo.getOrElse("category","Unknown_category"))
         }
@@ -376,6 +524,14 @@ class OptimizedScanPass(
 
       DiffGraphApplier.applyDiff(cpg.graph, findingGraph)
     println(s"OptimizedScanPass completed: ${uniquePaths.size} findings added")
+
+    // 为缺少摘要的方法计算摘要供下次扫描复用，优先本次路径经过的方法
+    if (summaryPlan.toCompute.nonEmpty) {
+      val pathMethods = paths.flatMap(_.elements.collect { case n: CfgNode => n.method.fullName }).toSet
+      metrics.timeWith("scan.summaries.compute") {
+        summaryStore.computeSummaries(summaryPlan, pathMethods, maxNewSummaries)(flowContext)
+      }(computed => Map("computed" -> computed.toLong, "stored" -> summaryStore.size.toLong))
+    }
     }
 
     //  private def buildResult(sourceQ: Option[Query], sinkQ: Option[Query]): (String, String) = {
@@ -409,6 +565,17 @@ private def getSinkLocation(node: AstNode): (String, String, Int) = {
  * OptimizedScanPass的伴生对象，提供工厂方法
  */
 object OptimizedScanPass {
+
+  /**
+   * 每个 (source 方法, sink 方法) 只保留最长的路径
+   */
+  private[omni] def longestPerMethodPair(paths: List[Path]): List[Path] =
+    paths.sortBy(p => -p.elements.size)
+      .distinctBy(p => (
+        p.elements.head.asInstanceOf[CfgNode].method.fullName,
+        p.elements.last.asInstanceOf[CfgNode].method.fullName
+      ))
+
   /**
    * 创建OptimizedScanPass实例
    *
@@ -4,7 +4,8 @@ import java.io._
 import java.nio.file.{Files, Path, Paths, StandardOpenOption}
 import java.time.LocalDateTime
 import java.time.format.DateTimeFormatter
-import java.util.concurrent.{BlockingQueue, LinkedBlockingQueue}
+import java.util.concurrent.{ArrayBlockingQueue, BlockingQueue, TimeUnit}
+import java.util.concurrent.atomic.{AtomicLong, AtomicReference}
 import scala.concurrent.{ExecutionContext, Future}
 import scala.util.{Failure, Success, Try}
 
@@ -17,8 +18,25 @@ object FlowSpotLogger {
   private val dateFormatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss.SSS")
   private val fileNameFormatter = DateTimeFormatter.ofPattern("yyyy-MM-dd")
   
-  // 异步日志队列
-  private val logQueue: BlockingQueue[LogEntry] = new LinkedBlockingQueue[LogEntry]()
+  // 队列容量与低优先级日志的水位线，超过水位线后 DEBUG 和 println 输出丢弃、PROGRESS 合并
+  private val QueueCapacity = 8192
+  private val LowPriorityHighWater = QueueCapacity * 3 / 4
+  // 写入线程单批最多处理的条目数，每批只 flush 一次
+  private val MaxBatchSize = 512
+  // 高优先级日志在队列满时的最长等待时间（毫秒）
+  private val EnqueueTimeoutMs = 50L
+  
+  // 异步日志队列（有界环形缓冲，防止日志洪峰撑爆堆内存）
+  private val logQueue: BlockingQueue[LogEntry] = new ArrayBlockingQueue[LogEntry](QueueCapacity)
+  
+  // 队列繁忙时只保留最新的一条进度日志
+  private val pendingProgress = new AtomicReference[LogEntry](null)
+  
+  // 丢弃/合并计数，由写入线程汇总输出
+  private val droppedDebug = new AtomicLong(0)
+  private val droppedPrintln = new AtomicLong(0)
+  private val coalescedProgress = new AtomicLong(0)
+  private val droppedOther = new AtomicLong(0)
   
   // 日志基础路径
   @volatile private var basePath: Option[Path] = None
@@ -49,6 +67,8 @@ object FlowSpotLogger {
     case object WARN extends LogLevel { val name = "WARN" }
     case object ERROR extends LogLevel { val name = "ERROR" }
     case object PROGRESS extends LogLevel { val name = "PROGRESS" }
+    // 重定向的标准输出，输出格式与 INFO 相同，但与 DEBUG 一样在队列繁忙时丢弃
+    case object PRINTLN extends LogLevel { val name = "INFO" }
   }
   
   /**
@@ -111,34 +131,57 @@ object FlowSpotLogger {
       override def run(): Unit = {
         var currentWriter: Option[BufferedWriter] = None
         var currentDate: String = ""
+        val batch = new java.util.ArrayList[LogEntry](MaxBatchSize)
         
         try {
-          while (!isShutdown || !logQueue.isEmpty) {
+          while (!isShutdown || !logQueue.isEmpty || pendingProgress.get() != null) {
             try {
-              val entry = logQueue.take()
+              // 阻塞等待第一条，再批量取出剩余条目
+              val first = logQueue.poll(200, TimeUnit.MILLISECONDS)
+              if (first != null) {
+                batch.add(first)
+                logQueue.drainTo(batch, MaxBatchSize - 1)
+              }
               
-              // 检查是否需要切换日志文件（按日期）
-              val entryDate = entry.timestamp.format(fileNameFormatter)
-              if (entryDate != currentDate) {
-                // 关闭旧的writer
-                currentWriter.foreach(_.close())
-                
-                // 创建新的writer
-                currentDate = entryDate
-                val logFile = basePath.get.resolve(s"flowspot-$entryDate.log")
-                currentWriter = Some(Files.newBufferedWriter(
-                  logFile, 
-                  StandardOpenOption.CREATE, 
-                  StandardOpenOption.APPEND
-                ))
+              // 合并后的最新进度放在批次末尾
+              val progressEntry = pendingProgress.getAndSet(null)
+              if (progressEntry != null) {
+                batch.add(progressEntry)
               }
               
-              // 写入日志
-              currentWriter.foreach { writer =>
-                val logLine = formatLogEntry(entry)
-                writer.write(logLine)
-                writer.newLine()
-                writer.flush() // 确保及时写入
+              droppedSummary().foreach(batch.add)
+              
+              if (!batch.isEmpty) {
+                val it = batch.iterator()
+                while (it.hasNext) {
+                  val entry = it.next()
+                  
+                  // 检查是否需要切换日志文件（按日期）
+                  val entryDate = entry.timestamp.format(fileNameFormatter)
+                  if (entryDate != currentDate) {
+                    // 关闭旧的writer
+                    currentWriter.foreach(_.close())
+                    
+                    // 创建新的writer
+                    currentDate = entryDate
+                    val logFile = basePath.get.resolve(s"flowspot-$entryDate.log")
+                    currentWriter = Some(Files.newBufferedWriter(
+                      logFile, 
+                      StandardOpenOption.CREATE, 
+                      StandardOpenOption.APPEND
+                    ))
+                  }
+                  
+                  // 写入日志
+                  currentWriter.foreach { writer =>
+                    writer.write(formatLogEntry(entry))
+                    writer.newLine()
+                  }
+                }
+                
+                // 每批只刷新一次
+                currentWriter.foreach(_.flush())
+                batch.clear()
               }
               
             } catch {
@@ -147,8 +190,9 @@ object FlowSpotLogger {
                 Thread.currentThread().interrupt()
                 return
               case e: Exception =>
-                // 日志写入失败，输出到控制台
-                System.err.println(s"Failed to write log: ${e.getMessage}")
+                batch.clear()
+                // 日志写入失败，输出到原始控制台（避免经重定向流回到日志队列）
+                OutputRedirector.originalErrStream.println(s"Failed to write log: ${e.getMessage}")
             }
           }
         } finally {
@@ -198,11 +242,66 @@ object FlowSpotLogger {
         exception = exception
       )
       
-      // 非阻塞方式添加到队列
-      if (!logQueue.offer(entry)) {
-        // 队列满了，输出警告到控制台
-        System.err.println(s"Log queue is full, dropping log message: $message")
-      }
+      enqueue(entry)
+    }
+  }
+  
+  /**
+   * 按优先级入队：
+   * DEBUG 和重定向的 println 输出在队列超过水位线时直接丢弃，PROGRESS 合并为最新一条，
+   * INFO/WARN/ERROR 队列满时短暂等待写入线程腾出空间，超时才丢弃。
+   * 丢弃只计数，不能打印到 System.err，否则会经重定向流再次进入队列。
+   */
+  private def enqueue(entry: LogEntry): Unit = {
+    entry.level match {
+      case LogLevel.DEBUG =>
+        if (logQueue.size() >= LowPriorityHighWater || !logQueue.offer(entry)) {
+          droppedDebug.incrementAndGet()
+        }
+      case LogLevel.PRINTLN =>
+        if (logQueue.size() >= LowPriorityHighWater || !logQueue.offer(entry)) {
+          droppedPrintln.incrementAndGet()
+        }
+      case LogLevel.PROGRESS =>
+        if (logQueue.size() >= LowPriorityHighWater || !logQueue.offer(entry)) {
+          if (pendingProgress.getAndSet(entry) != null) {
+            coalescedProgress.incrementAndGet()
+          }
+        }
+      case _ =>
+        val accepted = logQueue.offer(entry) || {
+          try {
+            logQueue.offer(entry, EnqueueTimeoutMs, TimeUnit.MILLISECONDS)
+          } catch {
+            case _: InterruptedException =>
+              Thread.currentThread().interrupt()
+              false
+          }
+        }
+        if (!accepted) {
+          droppedOther.incrementAndGet()
+        }
+    }
+  }
+  
+  /**
+   * 汇总上一批次以来被丢弃/合并的日志数量
+   */
+  private def droppedSummary(): Option[LogEntry] = {
+    val debug = droppedDebug.getAndSet(0)
+    val printed = droppedPrintln.getAndSet(0)
+    val progress = coalescedProgress.getAndSet(0)
+    val other = droppedOther.getAndSet(0)
+    if (debug + printed + progress + other == 0) {
+      None
+    } else {
+      Some(LogEntry(
+        level = LogLevel.WARN,
+        message = s"Log queue saturated: dropped $debug DEBUG, dropped $printed PRINTLN, coalesced $progress PROGRESS, dropped $other other entries",
+        timestamp = LocalDateTime.now(),
+        threadName = Thread.currentThread().getName,
+        className = Some("FlowSpotLogger")
+      ))
     }
   }
   
@@ -248,10 +347,10 @@ object FlowSpotLogger {
   }
   
   /**
-   * 记录println输出
+   * 记录println输出，走低优先级路径，不会因队列已满阻塞打印的线程
    */
   def logPrintln(message: String, className: Option[String] = None): Unit = {
-    info(s"[PRINTLN] $message", className)
+    log(LogLevel.PRINTLN, s"[PRINTLN] $message", className)
   }
   
   /**
@@ -261,13 +360,13 @@ object FlowSpotLogger {
     synchronized {
       isShutdown = true
       
-      // 中断写入线程
-      writerThread.foreach(_.interrupt())
-      
-      // 等待线程结束（最多等待5秒）
+      // 等待写入线程排空队列后结束（最多等待5秒），超时再中断
       writerThread.foreach { thread =>
         try {
           thread.join(5000)
+          if (thread.isAlive) {
+            thread.interrupt()
+          }
         } catch {
           case _: InterruptedException =>
             Thread.currentThread().interrupt()
@@ -50,8 +50,8 @@ class LoggingPrintStream(originalStream: PrintStream, loggerName: String) extend
 object OutputRedirector {
   
   private var originalOut: PrintStream = _
-  private var originalErr: PrintStream = _
-  private var isRedirected = false
+  @volatile private var originalErr: PrintStream = _
+  @volatile private var isRedirected = false
   
   /**
    * 开始重定向System.out和System.err到日志
@@ -93,6 +93,14 @@ object OutputRedirector {
     }
   }
   
+  /**
+   * 获取未被重定向的错误输出流，供日志系统自身报错使用
+   */
+  def originalErrStream: PrintStream = {
+    val err = originalErr
+    if (isRedirected && err != null) err else System.err
+  }
+  
   /**
    * 检查是否正在重定向
    */
@@ -1,6 +1,7 @@
 package omni.util
 
-import omni.scan.ProgressCallback
+import omni.flowspot.core.FlowSpotBugInstance
+import omni.scan.{PhaseMetric, ProgressCallback}
 
 /**
  * 日志记录的进度回调包装器
@@ -22,6 +23,14 @@ class LoggingProgressCallback(originalCallback: ProgressCallback) extends Progre
     // 调用原始回调
     originalCallback.updateProgress(progress)
   }
+  
+  override def onPhaseMetric(metric: PhaseMetric): Unit = {
+    originalCallback.onPhaseMetric(metric)
+  }
+
+  override def onFinding(bugInstance: FlowSpotBugInstance): Unit = {
+    originalCallback.onFinding(bugInstance)
+  }
 }
 
 /**
@@ -0,0 +1,93 @@
+package omni.flowspot.store
+
+import omni.flowspot.annotations.{FlowSpotEnhancedSourceLineAnnotation, FlowSpotSourceLineAnnotation}
+import omni.flowspot.core.{FlowSpotBugInstance, FlowSpotRuleProfile}
+import org.scalatest.BeforeAndAfterEach
+import org.scalatest.matchers.should.Matchers
+import org.scalatest.wordspec.AnyWordSpec
+
+import java.nio.file.{Files, Path}
+import java.util.Comparator
+import scala.jdk.CollectionConverters.*
+
+class FlowSpotResultStoreTest extends AnyWordSpec with Matchers with BeforeAndAfterEach {
+
+  private var base: Path = _
+
+  override def beforeEach(): Unit = base = Files.createTempDirectory("flowspot-result-store")
+
+  override def afterEach(): Unit =
+    Files.walk(base).sorted(Comparator.reverseOrder()).iterator().asScala.foreach(Files.deleteIfExists)
+
+  private def finding(kind: String, line: Int): FlowSpotBugInstance = {
+    val bug = new FlowSpotBugInstance("SECURITY", kind, 1)
+    bug.setMessage(s"$kind at $line")
+    bug.setChanged(line % 2 == 0)
+    val source = new FlowSpotEnhancedSourceLineAnnotation("demo.Web", "demo/Web.java", line, line, 5, 20)
+    source.setMethodName("handle")
+    source.setCode("request.getParameter(\"id\")")
+    source.setPattern("getParameter")
+    bug.add(source)
+    val sink = new FlowSpotSourceLineAnnotation("demo.Dao", "demo/Dao.java", line + 10, line + 10, 1, 30)
+    sink.setNodeType("CALL")
+    bug.add(sink)
+    bug
+  }
+
+  private def write(parts: FlowSpotResultStore.Part*): Path =
+    FlowSpotResultStore.write(base.toString, "demo", "/src/demo", parts.asJava,
+      List(new FlowSpotRuleProfile("sqli", "sink", 1, 2, 3, 4, 5)).asJava)
+
+  "FlowSpotResultStore" should {
+    "read back what it wrote" in {
+      val file = write(
+        new FlowSpotResultStore.Part("module-a", List(finding("SQL_INJECTION", 10), finding("XSS", 11)).asJava),
+        new FlowSpotResultStore.Part(null, List.empty[FlowSpotBugInstance].asJava),
+        new FlowSpotResultStore.Part("module-b", List(finding("SSRF", 12)).asJava)
+      )
+
+      val results = FlowSpotResultStore.open(file)
+      results.getProjectName shouldBe "demo"
+      results.getAnalysisBasePath shouldBe "/src/demo"
+      results.getRuleProfiles.asScala.map(_.getReachabilityMs) shouldBe List(3L)
+      results.size shouldBe 3
+      (0 until 3).map(results.getSourceRoot) shouldBe List("module-a", "module-a", "module-b")
+      (0 until 3).map(results.getType) shouldBe List("SQL_INJECTION", "XSS", "SSRF")
+      results.getPrimaryAnnotation(1).getStartLine shouldBe 11
+
+      val bug = results.getBugInstance(2)
+      bug.getMessage shouldBe "SSRF at 12"
+      bug.isChanged shouldBe true
+      val annotations = bug.getAnnotations.asScala.toList
+      annotations.map(_.getStartLine) shouldBe List(12, 22)
+      annotations.head shouldBe a[FlowSpotEnhancedSourceLineAnnotation]
+      annotations.head.asInstanceOf[FlowSpotEnhancedSourceLineAnnotation].getPattern shouldBe "getParameter"
+      annotations.head.getCode shouldBe "request.getParameter(\"id\")"
+      annotations(1).getNodeType shouldBe "CALL"
+      FlowSpotResultStore.latest(base.toString) shouldBe file
+    }
+
+    "keep rotated runs that are still open" in {
+      val first = write(new FlowSpotResultStore.Part(null, List(finding("XSS", 1)).asJava))
+      val opened = FlowSpotResultStore.open(first)
+      (1 to 6).foreach { i =>
+        Thread.sleep(2)
+        write(new FlowSpotResultStore.Part(null, List(finding("XSS", i)).asJava))
+      }
+
+      Files.exists(first) shouldBe true
+      opened.getBugInstance(0).getMessage shouldBe "XSS at 1"
+    }
+
+    "delete rotated runs that are not open" in {
+      val first = write(new FlowSpotResultStore.Part(null, List(finding("XSS", 1)).asJava))
+      (1 to 6).foreach { i =>
+        Thread.sleep(2)
+        write(new FlowSpotResultStore.Part(null, List(finding("XSS", i)).asJava))
+      }
+
+      Files.exists(first) shouldBe false
+      Files.list(FlowSpotResultStore.resultsDir(base.toString)).count() shouldBe 5L
+    }
+  }
+}
@@ -0,0 +1,131 @@
+package omni.flowspot.worker
+
+import omni.flowspot.annotations.{FlowSpotEnhancedSourceLineAnnotation, FlowSpotSourceLineAnnotation}
+import omni.flowspot.core.{FlowSpotBugInstance, FlowSpotRuleProfile}
+import omni.flowspot.project.FlowSpotProject
+import omni.scan.OptimizationConfig
+import org.scalatest.matchers.should.Matchers
+import org.scalatest.wordspec.AnyWordSpec
+
+import java.io.{ByteArrayInputStream, ByteArrayOutputStream, IOException}
+import scala.collection.mutable
+import scala.jdk.CollectionConverters.*
+
+class WorkerProtocolTest extends AnyWordSpec with Matchers {
+
+  private class Recorder extends WorkerProtocol.Handler {
+    val events = mutable.ListBuffer[Any]()
+    override def onMessage(message: String): Unit = events += s"message:$message"
+    override def onProgress(progress: Int): Unit = events += s"progress:$progress"
+    override def onFinding(bugInstance: FlowSpotBugInstance): Unit = events += bugInstance
+    override def onRuleProfile(profile: FlowSpotRuleProfile): Unit = events += profile
+    override def onDone(findings: Int): Unit = events += s"done:$findings"
+    override def onError(message: String): Unit = events += s"error:$message"
+  }
+
+  private def roundTrip(write: WorkerProtocol.Writer => Unit): WorkerProtocol.Reader = {
+    val bytes = new ByteArrayOutputStream()
+    write(new WorkerProtocol.Writer(bytes))
+    new WorkerProtocol.Reader(new ByteArrayInputStream(bytes.toByteArray))
+  }
+
+  private def readAll(reader: WorkerProtocol.Reader): List[Any] = {
+    val recorder = new Recorder
+    while (reader.next(recorder)) {}
+    recorder.events.toList
+  }
+
+  "WorkerProtocol" should {
+    "carry the handshake token and the analysis request" in {
+      val project = new FlowSpotProject()
+      project.setProjectName("demo")
+      project.setAnalysisTargetPath("/src/demo/module")
+      project.setBaseProjectPath("/src/demo")
+      project.setDecompile(true)
+      project.setScanMode("thorough")
+      project.setSelectedSourceRules(Set("http", "file").asJava)
+      project.setSelectedSinkRules(Set("sqli").asJava)
+      project.setOptimizationConfig(new OptimizationConfig(false, true, false))
+      project.setCacheDir("/tmp/cache")
+      project.setThreads(6)
+      project.setIncremental(true)
+      project.setMethodSummaries(true)
+
+      val reader = roundTrip { writer =>
+        writer.handshake("secret")
+        writer.request(project)
+      }
+
+      reader.handshake() shouldBe "secret"
+      val received = reader.request()
+      received.getProjectName shouldBe "demo"
+      received.getAnalysisTargetPath shouldBe "/src/demo/module"
+      received.getBaseProjectPath shouldBe "/src/demo"
+      received.getDecompile shouldBe true
+      received.getScanMode shouldBe "thorough"
+      received.getSelectedSourceRules.asScala shouldBe Set("http", "file")
+      received.getSelectedSinkRules.asScala shouldBe Set("sqli")
+      received.getOptimizationConfig shouldBe new OptimizationConfig(false, true, false)
+      received.getSinkRulesPath shouldBe null
+      received.getCacheDir shouldBe "/tmp/cache"
+      received.getThreads shouldBe 6
+      received.getShardDir shouldBe null
+      received.isIncremental shouldBe true
+      received.isMethodSummaries shouldBe true
+    }
+
+    "reject a handshake from another protocol version" in {
+      val bytes = new ByteArrayOutputStream()
+      val out = new java.io.DataOutputStream(bytes)
+      out.writeInt(WorkerProtocol.MAGIC)
+      out.writeInt(WorkerProtocol.VERSION + 1)
+      out.flush()
+
+      an[IOException] should be thrownBy new WorkerProtocol.Reader(new ByteArrayInputStream(bytes.toByteArray)).handshake()
+    }
+
+    "stream progress, findings and profiles until done" in {
+      val bug = new FlowSpotBugInstance("SECURITY", "SQL_INJECTION", 2)
+      bug.setMessage("tainted query")
+      bug.setChanged(true)
+      val source = new FlowSpotEnhancedSourceLineAnnotation("demo.Web", "demo/Web.java", 10, 10, 3, 15)
+      source.setPattern("getParameter")
+      bug.add(source)
+      val sink = new FlowSpotSourceLineAnnotation("demo.Dao", "demo/Dao.java", 40, 41, 1, 9)
+      sink.setCode("x" * 1000) // 超过字符串表长度上限，不入表
+      bug.add(sink)
+      bug.add(new FlowSpotSourceLineAnnotation("demo.Dao", "demo/Dao.java", 42, 42, 1, 9))
+
+      val events = readAll(roundTrip { writer =>
+        writer.message("Tagging")
+        writer.progress(40)
+        writer.finding(bug)
+        writer.ruleProfile(new FlowSpotRuleProfile("sqli", "sink", 10, 20, 30, 40, 50))
+        writer.done(1)
+        writer.message("ignored after done")
+      })
+
+      events should have size 5
+      events.take(2) shouldBe List("message:Tagging", "progress:40")
+      val received = events(2).asInstanceOf[FlowSpotBugInstance]
+      received.getType shouldBe "SQL_INJECTION"
+      received.getPriority shouldBe 2
+      received.getMessage shouldBe "tainted query"
+      received.isChanged shouldBe true
+      val annotations = received.getAnnotations.asScala.toList
+      annotations.map(_.getStartLine) shouldBe List(10, 40, 42)
+      annotations.head.asInstanceOf[FlowSpotEnhancedSourceLineAnnotation].getPattern shouldBe "getParameter"
+      annotations(1).getCode shouldBe "x" * 1000
+      annotations(2).getSourceFile shouldBe "demo/Dao.java"
+      events(3).asInstanceOf[FlowSpotRuleProfile].getReportedPaths shouldBe 50L
+      events(4) shouldBe "done:1"
+    }
+
+    "end the stream on an error frame" in {
+      readAll(roundTrip { writer =>
+        writer.progress(10)
+        writer.error("out of memory")
+      }) shouldBe List("progress:10", "error:out of memory")
+    }
+  }
+}
@@ -0,0 +1,96 @@
+package omni.scan
+
+import omni.flowspot.annotations.FlowSpotEnhancedSourceLineAnnotation
+import omni.flowspot.core.FlowSpotBugInstance
+import org.scalatest.matchers.should.Matchers
+import org.scalatest.wordspec.AnyWordSpec
+
+import scala.jdk.CollectionConverters.*
+
+class FindingBaselineTest extends AnyWordSpec with Matchers {
+
+  // a -> b -> c -> d -> e 的调用链，邻接不区分方向
+  private val chain = Map(
+    "a" -> List("b"),
+    "b" -> List("a", "c"),
+    "c" -> List("b", "d"),
+    "d" -> List("c", "e"),
+    "e" -> List("d")
+  )
+  private val neighbours: String => Iterable[String] = name => chain.getOrElse(name, Nil)
+
+  private def finding(lines: (String, Int)*): BaselineFinding = {
+    val bug = new FlowSpotBugInstance("SECURITY", "SQL_INJECTION", 1)
+    lines.foreach { case (_, line) =>
+      bug.add(new FlowSpotEnhancedSourceLineAnnotation("Demo", "Demo.java", line, line, 1, 10))
+    }
+    BaselineFinding(lines.map(_._1).toList, bug)
+  }
+
+  private def states(entries: (String, String, Int)*): Map[String, MethodState] =
+    entries.map { case (name, hash, line) => name -> MethodState(hash, line) }.toMap
+
+  private val baselineStates = states(("a", "ha", 10), ("b", "hb", 20), ("c", "hc", 30), ("d", "hd", 40), ("e", "he", 50))
+
+  "neighbourhood" should {
+    "contain only the roots for radius 0" in {
+      FindingBaseline.neighbourhood(Set("c"), 0, neighbours) shouldBe Set("c")
+    }
+
+    "expand in both call directions up to the radius" in {
+      FindingBaseline.neighbourhood(Set("c"), 1, neighbours) shouldBe Set("b", "c", "d")
+      FindingBaseline.neighbourhood(Set("c"), 2, neighbours) shouldBe Set("a", "b", "c", "d", "e")
+    }
+
+    "terminate on cycles" in {
+      val cycle = Map("x" -> List("y"), "y" -> List("x"))
+      FindingBaseline.neighbourhood(Set("x"), 10, name => cycle.getOrElse(name, Nil)) shouldBe Set("x", "y")
+    }
+  }
+
+  "scope" should {
+    "reuse findings away from changes and shift their lines" in {
+      val baseline = FindingBaseline(baselineStates, List(finding("d" -> 41, "e" -> 52)))
+      // a 变化且 e 整体下移 3 行
+      val current = baselineStates ++ states(("a", "ha2", 10), ("e", "he", 53))
+
+      val scope = baseline.scope(current, 1, neighbours)
+
+      scope.changed shouldBe Set("a")
+      scope.affected shouldBe Set("a", "b")
+      scope.reused should have size 1
+      scope.reused.head.bugInstance.getAnnotations.asScala.map(_.getStartLine).toList shouldBe List(41, 55)
+      scope.reused.head.bugInstance.isChanged shouldBe false
+    }
+
+    "recompute the sink of a finding whose path crosses a change beyond the radius" in {
+      val baseline = FindingBaseline(baselineStates, List(finding("a" -> 11, "b" -> 21, "c" -> 31, "d" -> 41, "e" -> 51)))
+      val current = baselineStates + ("a" -> MethodState("ha2", 10))
+
+      val scope = baseline.scope(current, 1, neighbours)
+
+      scope.reused shouldBe empty
+      scope.affected should contain("e")
+    }
+
+    "recompute the sink of a finding whose path method was removed" in {
+      val baseline = FindingBaseline(baselineStates, List(finding("c" -> 31, "e" -> 51)))
+      val current = baselineStates - "c"
+
+      val scope = baseline.scope(current, 0, neighbours)
+
+      scope.reused shouldBe empty
+      scope.affected shouldBe Set("e")
+    }
+
+    "not reuse findings whose sink is near a change" in {
+      val baseline = FindingBaseline(baselineStates, List(finding("a" -> 11, "b" -> 21)))
+      val current = baselineStates + ("c" -> MethodState("hc2", 30))
+
+      val scope = baseline.scope(current, 1, neighbours)
+
+      scope.reused shouldBe empty
+      scope.affected should contain("b")
+    }
+  }
+}
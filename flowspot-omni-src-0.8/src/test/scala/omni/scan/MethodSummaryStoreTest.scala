@@ -0,0 +1,46 @@
+package omni.scan
+
+import org.scalatest.matchers.should.Matchers
+import org.scalatest.wordspec.AnyWordSpec
+
+class MethodSummaryStoreTest extends AnyWordSpec with Matchers {
+
+  // main -> helper -> util；main -> Repo.find，Repo.find 有两个实现，其中 JdbcRepo.find 包含 sink
+  private val calls = Map(
+    "main" -> List("helper", "Repo.find"),
+    "helper" -> List("util"),
+    "util" -> Nil,
+    "Repo.find" -> Nil,
+    "JdbcRepo.find" -> Nil,
+    "MemRepo.find" -> Nil,
+    "unused" -> Nil
+  )
+  private val methods = calls.keys.toList.sorted
+  private val callers: String => Iterable[String] =
+    name => calls.collect { case (caller, callees) if callees.contains(name) => caller }
+  private val dispatch = List("Repo.find", "JdbcRepo.find", "MemRepo.find")
+  private val alternatives: String => Iterable[String] =
+    name => if (dispatch.contains(name)) dispatch.filterNot(_ == name) else Nil
+
+  "eligibleNames" should {
+    "summarize called methods that cannot reach a source or sink" in {
+      MethodSummaryStore.eligibleNames(methods, Nil, callers, _ => Nil) shouldBe Set("helper", "util", "Repo.find")
+    }
+
+    "exclude methods that call a tainted method directly or indirectly" in {
+      MethodSummaryStore.eligibleNames(methods, List("util"), callers, _ => Nil) shouldBe Set("Repo.find")
+    }
+
+    "exclude methods whose calls may dispatch to another implementation" in {
+      MethodSummaryStore.eligibleNames(methods, Nil, callers, alternatives) shouldBe Set("helper", "util")
+    }
+
+    "treat callers of an overridden method as reaching a sink in any implementation" in {
+      val eligible = MethodSummaryStore.eligibleNames(methods, List("JdbcRepo.find"), callers, alternatives)
+
+      eligible should not contain "main"
+      eligible should not contain "Repo.find"
+      eligible shouldBe Set("helper", "util")
+    }
+  }
+}
@@ -0,0 +1,94 @@
+package omni.scan
+
+import org.scalatest.BeforeAndAfterEach
+import org.scalatest.matchers.should.Matchers
+import org.scalatest.wordspec.AnyWordSpec
+
+import java.nio.file.attribute.FileTime
+import java.nio.file.{Files, Path}
+import java.util.Comparator
+import scala.jdk.CollectionConverters.*
+
+class ShardQueueTest extends AnyWordSpec with Matchers with BeforeAndAfterEach {
+
+  private var dir: Path = _
+  private var queue: ShardQueue = _
+
+  private val job = ShardJob("job-1", 2, 4)
+
+  override def beforeEach(): Unit = {
+    dir = Files.createTempDirectory("flowspot-shard-queue")
+    queue = new ShardQueue(dir)
+  }
+
+  override def afterEach(): Unit =
+    Files.walk(dir).sorted(Comparator.reverseOrder()).iterator().asScala.foreach(Files.deleteIfExists)
+
+  "ShardQueue" should {
+    "publish a job with its sources and shards" in {
+      queue.job shouldBe None
+      queue.publish(job, List(1L, 2L), List(List(10L, 11L), List(12L)))
+
+      queue.job shouldBe Some(job)
+      queue.sources() shouldBe List(1L, 2L)
+    }
+
+    "hand each shard to exactly one worker" in {
+      queue.publish(job, List(1L), List(List(10L, 11L), List(12L)))
+
+      queue.claim("w1") shouldBe Some(0)
+      queue.claim("w2") shouldBe Some(1)
+      queue.claim("w3") shouldBe None
+      queue.sinks(0, "w1") shouldBe List(10L, 11L)
+      queue.sinks(1, "w2") shouldBe List(12L)
+    }
+
+    "round-trip shard results" in {
+      queue.publish(job, List(1L), List(List(10L), List(12L)))
+      queue.claim("w1")
+      queue.complete(ShardResult(job.id, 0, "w1", 42L, List(Array(1L, 5L, 10L), Array(1L, 10L))))
+
+      val result = queue.result(0).get
+      result.jobId shouldBe job.id
+      result.worker shouldBe "w1"
+      result.durationMs shouldBe 42L
+      result.paths.map(_.toList) shouldBe List(List(1L, 5L, 10L), List(1L, 10L))
+      queue.result(1) shouldBe None
+    }
+
+    "count only results of the given job" in {
+      queue.publish(job, List(1L), List(List(10L), List(12L)))
+      queue.claim("w1")
+      queue.claim("w2")
+      queue.complete(ShardResult(job.id, 0, "w1", 1L, Nil))
+      // 旧任务的工作进程在新任务发布后才写回结果
+      queue.complete(ShardResult("job-0", 1, "w2", 1L, Nil))
+
+      queue.completedCount(job.id) shouldBe 1
+      queue.completedCount("job-0") shouldBe 1
+    }
+
+    "report failures per job and clear them on the next publish" in {
+      queue.publish(job, List(1L), List(List(10L), List(12L)))
+      queue.failure(job.id) shouldBe None
+
+      queue.fail(job.id, 1, "w1", "boom")
+      queue.failure(job.id).get should (include("Shard 1") and include("w1") and include("boom"))
+      queue.failure("job-2") shouldBe None
+
+      queue.publish(ShardJob("job-2", 1, 4), List(1L), List(List(10L)))
+      queue.failure(job.id) shouldBe None
+    }
+
+    "requeue shards whose heartbeat expired" in {
+      queue.publish(job, List(1L), List(List(10L), List(12L)))
+      queue.claim("w1") shouldBe Some(0)
+      queue.claim("w2") shouldBe Some(1)
+      val stale = dir.resolve("claimed").resolve("0.shard@w1")
+      Files.setLastModifiedTime(stale, FileTime.fromMillis(System.currentTimeMillis() - 60_000L))
+
+      queue.requeueStale(30_000L) shouldBe 1
+      queue.claim("w3") shouldBe Some(0)
+    }
+  }
+}
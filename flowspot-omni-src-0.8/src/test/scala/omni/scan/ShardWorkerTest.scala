@@ -0,0 +1,54 @@
+package omni.scan
+
+import io.joern.dataflowengineoss.queryengine.EngineContext
+import io.shiftleft.codepropertygraph.generated.nodes.CfgNode
+import org.scalatest.BeforeAndAfterEach
+import org.scalatest.matchers.should.Matchers
+import org.scalatest.wordspec.AnyWordSpec
+
+import java.nio.file.{Files, Path}
+import java.util.Comparator
+import scala.jdk.CollectionConverters.*
+
+class ShardWorkerTest extends AnyWordSpec with Matchers with BeforeAndAfterEach {
+
+  private implicit val context: EngineContext = EngineContext()
+
+  private var dir: Path = _
+  private var queue: ShardQueue = _
+
+  override def beforeEach(): Unit = {
+    dir = Files.createTempDirectory("flowspot-shard-worker")
+    queue = new ShardQueue(dir)
+  }
+
+  override def afterEach(): Unit =
+    Files.walk(dir).sorted(Comparator.reverseOrder()).iterator().asScala.foreach(Files.deleteIfExists)
+
+  "ShardWorker.process" should {
+    "write the result of a claimed shard" in {
+      val job = ShardJob("job-1", 1, 4)
+      queue.publish(job, Nil, List(Nil))
+      val shard = queue.claim("w1").get
+
+      val result = ShardWorker.process(queue, job, shard, "w1", Nil, id => fail(s"unexpected node $id"))
+
+      result.paths shouldBe empty
+      queue.completedCount(job.id) shouldBe 1
+      queue.result(shard).map(_.jobId) shouldBe Some(job.id)
+      queue.failure(job.id) shouldBe None
+    }
+
+    "record a failure in the queue before rethrowing" in {
+      val job = ShardJob("job-1", 1, 4)
+      queue.publish(job, Nil, List(List(10L)))
+      val shard = queue.claim("w1").get
+      val missing: Long => CfgNode = id => throw new IllegalStateException(s"node $id is missing")
+
+      an[IllegalStateException] should be thrownBy ShardWorker.process(queue, job, shard, "w1", Nil, missing)
+
+      queue.completedCount(job.id) shouldBe 0
+      queue.failure(job.id).get should include("node 10 is missing")
+    }
+  }
+}
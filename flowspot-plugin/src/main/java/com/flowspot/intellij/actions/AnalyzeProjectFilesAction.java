@@ -26,7 +26,10 @@ import com.intellij.openapi.actionSystem.CommonDataKeys;
 import com.intellij.openapi.progress.ProgressIndicator;
 import com.intellij.openapi.progress.ProgressManager;
 import com.intellij.openapi.progress.Task;
+import com.intellij.openapi.module.Module;
+import com.intellij.openapi.module.ModuleManager;
 import com.intellij.openapi.project.Project;
+import com.intellij.openapi.roots.ModuleRootManager;
 import com.intellij.openapi.roots.ProjectRootManager;
 import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.openapi.wm.ToolWindow;
@@ -38,7 +41,9 @@ import com.flowspot.intellij.model.FlowSpotVulnerabilityCollection;
 import org.jetbrains.annotations.NotNull;
 
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 /**
@@ -76,6 +81,7 @@ public class AnalyzeProjectFilesAction extends AnAction {
         Set<String> selectedSourceRules = dialog.getSelectedSourceRules();
         Set<String> selectedSinkRules = dialog.getSelectedSinkRules();
         com.flowspot.intellij.model.OptimizationConfig optimizationConfig = dialog.getOptimizationConfig();
+        boolean moduleScan = dialog.isModuleScanEnabled();
         
         // 添加日志记录
         FlowSpotLogManager logManager = FlowSpotLogManager.getInstance(project);
@@ -123,11 +129,20 @@ public class AnalyzeProjectFilesAction extends AnAction {
                     
                     // 创建分析引擎并执行分析
                     FlowSpotAnalysisEngine engine = new FlowSpotAnalysisEngine(project);
+                    Map<String, List<String>> moduleSourcePaths = moduleScan
+                        ? collectModuleSourcePaths(project) : Map.of();
                     
                     // 使用用户选择的规则和优化配置
-                    FlowSpotVulnerabilityCollection results = engine.analyze(
-                        sourcePaths, classPaths, selectedSourceRules, selectedSinkRules, optimizationConfig
-                    );
+                    FlowSpotVulnerabilityCollection results;
+                    if (moduleSourcePaths.size() > 1) {
+                        results = engine.analyzeModules(
+                            moduleSourcePaths, classPaths, selectedSourceRules, selectedSinkRules, optimizationConfig
+                        );
+                    } else {
+                        results = engine.analyze(
+                            sourcePaths, classPaths, selectedSourceRules, selectedSinkRules, optimizationConfig
+                        );
+                    }
                     
                     indicator.setText("Analysis completed");
                     indicator.setFraction(1.0);
@@ -195,6 +210,30 @@ public class AnalyzeProjectFilesAction extends AnAction {
         return sourcePaths;
     }
     
+    /**
+     * 收集各模块的源码目录（不含测试源码），模块名 -> 源码目录
+     */
+    @NotNull
+    private Map<String, List<String>> collectModuleSourcePaths(@NotNull Project project) {
+        Map<String, List<String>> moduleSourcePaths = new LinkedHashMap<>();
+        FlowSpotLogManager logManager = FlowSpotLogManager.getInstance(project);
+        
+        for (Module module : ModuleManager.getInstance(project).getModules()) {
+            List<String> paths = new ArrayList<>();
+            for (VirtualFile sourceRoot : ModuleRootManager.getInstance(module).getSourceRoots(false)) {
+                if (sourceRoot.exists() && sourceRoot.isDirectory()) {
+                    paths.add(sourceRoot.getPath());
+                }
+            }
+            if (!paths.isEmpty()) {
+                moduleSourcePaths.put(module.getName(), paths);
+                logManager.logInfo("模块 " + module.getName() + " 源码目录: " + paths);
+            }
+        }
+        
+        return moduleSourcePaths;
+    }
+    
     /**
      * 收集项目类路径
      */
@@ -0,0 +1,77 @@
+/*
+ * Copyright 2024 FlowSpot plugin contributors
+ *
+ * This file is part of IntelliJ FlowSpot plugin.
+ *
+ * IntelliJ FlowSpot plugin is free software: you can redistribute it 
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of 
+ * the License, or (at your option) any later version.
+ *
+ * IntelliJ FlowSpot plugin is distributed in the hope that it will
+ * be useful, but WITHOUT ANY WARRANTY; without even the implied 
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with IntelliJ FlowSpot plugin.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.flowspot.intellij.actions;
+
+import com.intellij.openapi.actionSystem.AnAction;
+import com.intellij.openapi.actionSystem.AnActionEvent;
+import com.intellij.openapi.actionSystem.ActionUpdateThread;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.wm.ToolWindow;
+import com.intellij.openapi.wm.ToolWindowManager;
+import com.flowspot.intellij.core.FlowSpotAnalysisEngine;
+import omni.flowspot.store.FlowSpotResultStore;
+import org.jetbrains.annotations.NotNull;
+
+import java.nio.file.Files;
+
+/**
+ * FlowSpot 重新加载结果操作
+ * 从 .flowspot/results 读取最近一次保存的分析结果并显示，无需重新扫描
+ */
+public class FlowSpotReloadResultsAction extends AnAction {
+    
+    @Override
+    public @NotNull ActionUpdateThread getActionUpdateThread() {
+        return ActionUpdateThread.BGT;
+    }
+    
+    @Override
+    public void update(@NotNull AnActionEvent e) {
+        Project project = e.getProject();
+        if (project == null || project.isDisposed()) {
+            e.getPresentation().setEnabled(false);
+            e.getPresentation().setVisible(false);
+            return;
+        }
+        
+        ToolWindow toolWindow = ToolWindowManager.getInstance(project).getToolWindow("FlowSpot");
+        if (toolWindow == null || !toolWindow.isAvailable()) {
+            e.getPresentation().setEnabled(false);
+            e.getPresentation().setVisible(false);
+            return;
+        }
+        
+        // 只有保存过分析结果时才启用
+        String basePath = project.getBasePath();
+        boolean hasResults = basePath != null && Files.isDirectory(FlowSpotResultStore.resultsDir(basePath));
+        e.getPresentation().setEnabled(hasResults);
+        e.getPresentation().setVisible(true);
+    }
+    
+    @Override
+    public void actionPerformed(@NotNull AnActionEvent e) {
+        Project project = e.getProject();
+        if (project == null) {
+            return;
+        }
+        
+        new FlowSpotAnalysisEngine(project).reloadSavedResultsAsync();
+    }
+}
@@ -19,10 +19,12 @@
  */
 package com.flowspot.intellij.core;
 
+import com.intellij.ide.util.PropertiesComponent;
 import com.intellij.openapi.application.ApplicationManager;
 import com.intellij.openapi.progress.ProgressIndicator;
 import com.intellij.openapi.progress.ProgressManager;
 import com.intellij.openapi.project.Project;
+import com.intellij.util.concurrency.AppExecutorUtil;
 import com.intellij.util.messages.MessageBus;
 import com.flowspot.intellij.model.FlowSpotVulnerability;
 import com.flowspot.intellij.model.FlowSpotVulnerabilityCollection;
@@ -30,6 +32,8 @@ import com.flowspot.intellij.service.FlowSpotResultsPublisher;
 import com.flowspot.intellij.service.FlowSpotFilterManager;
 import omni.flowspot.core.FlowSpotBugInstance;
 import omni.flowspot.core.FlowSpotBugCollection;
+import omni.flowspot.core.FlowSpotRuleProfile;
+import omni.flowspot.store.FlowSpotResultStore;
 import omni.scan.FlowSpotProjectConfig;
 import omni.scan.FlowSpot;
 import org.jetbrains.annotations.NotNull;
@@ -41,23 +45,56 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * FlowSpot 独立分析引擎
  * 不依赖 SpotBugs，直接使用 FlowSpot 核心分析库
+ *
+ * 分析按阶段组成异步流水线：准备配置 -> 扫描 -> 转换 -> 过滤 -> 发布。
+ * 扫描阶段在有界的专用线程池中执行，其余阶段使用 IDE 共享线程池，
+ * 同一引擎可以同时分析多个项目或模块，取消会传递到尚未完成的各个阶段。
+ * 发布后结果在后台写入 .flowspot/results，重新打开项目时无需重新扫描即可恢复。
  */
 public class FlowSpotAnalysisEngine {
     
+    /**
+     * 同时进行的 CPG 扫描上限，避免多个扫描占满 IDE 线程池和堆内存
+     */
+    private static final int MAX_CONCURRENT_SCANS = Math.max(2, Runtime.getRuntime().availableProcessors() / 4);
+    private static final ExecutorService SCAN_EXECUTOR =
+        AppExecutorUtil.createBoundedApplicationPoolExecutor("FlowSpot Scan", MAX_CONCURRENT_SCANS);
+    
+    /**
+     * 进程内扫描共用引擎的全局日志与输出重定向，只有日志目录相同的扫描可以同时进行，否则各项目的日志会写入彼此的目录
+     * 独立进程中的扫描不受此限制
+     */
+    private static final FlowSpotScanGate IN_PROCESS_SCANS = new FlowSpotScanGate();
+    
     private final Project project;
     private final FlowSpotLogManager logManager;
     private final MessageBus messageBus;
     private final FlowSpotFilterManager filterManager;
     private final FlowSpotConfigManager configManager;
-    private final AtomicBoolean isRunning = new AtomicBoolean(false);
+    private final Set<AnalysisRun> activeRuns = ConcurrentHashMap.newKeySet();
+    private final Set<FlowSpotModuleScheduler> activeModuleScans = ConcurrentHashMap.newKeySet();
     private final AtomicBoolean isCancelled = new AtomicBoolean(false);
     
+    /**
+     * 模块 CPG 堆占用估算：每字节 Java 源码约占用的堆字节数，以及单个模块的最小估算
+     */
+    private static final long CPG_HEAP_PER_SOURCE_BYTE = 60;
+    private static final long MIN_MODULE_HEAP_MB = 256;
+    
     public FlowSpotAnalysisEngine(@NotNull Project project) {
         this.project = project;
         this.logManager = FlowSpotLogManager.getInstance(project);
@@ -83,14 +120,233 @@ public class FlowSpotAnalysisEngine {
             @Nullable Set<String> selectedSourceRules,
             @Nullable Set<String> selectedSinkRules) {
         
-        return CompletableFuture.supplyAsync(() -> {
+        return analyzeAsync(sourcePaths, classPaths, selectedSourceRules, selectedSinkRules,
+                           com.flowspot.intellij.model.OptimizationConfig.createDefault(), null);
+    }
+    
+    /**
+     * 异步执行 FlowSpot 分析（带优化配置）
+     * 返回的 Future 被取消时，尚未开始的阶段不再执行，正在扫描的结果会被丢弃
+     *
+     * @param indicator 用于显示进度的指示器，可为空
+     */
+    @NotNull
+    public CompletableFuture<FlowSpotVulnerabilityCollection> analyzeAsync(
+            @NotNull List<String> sourcePaths,
+            @NotNull List<String> classPaths,
+            @Nullable Set<String> selectedSourceRules,
+            @Nullable Set<String> selectedSinkRules,
+            @NotNull com.flowspot.intellij.model.OptimizationConfig optimizationConfig,
+            @Nullable ProgressIndicator indicator) {
+        
+        AnalysisRun run = new AnalysisRun(sourcePaths, classPaths, selectedSourceRules, selectedSinkRules,
+                                          optimizationConfig, indicator, null);
+        isCancelled.set(false);
+        
+        CompletableFuture<FlowSpotVulnerabilityCollection> converted = startRun(run);
+        CompletableFuture<FlowSpotVulnerabilityCollection> filtered =
+            run.track(converted.thenApplyAsync(collection -> applyFilters(run, collection),
+                                               AppExecutorUtil.getAppExecutorService()));
+        CompletableFuture<FlowSpotVulnerabilityCollection> result =
+            filtered.thenApply(collection -> publish(run, collection));
+        
+        result.whenComplete((collection, error) -> finish(run, error));
+        result.thenAcceptAsync(collection ->
+            saveResults(run.analysisPath, List.of(run), collection.getRuleProfiles()),
+            AppExecutorUtil.getAppExecutorService());
+        // 调用方取消最终结果时，向上游各阶段传递取消
+        result.whenComplete((collection, error) -> {
+            if (result.isCancelled()) {
+                run.cancel();
+            }
+        });
+        
+        return result;
+    }
+    
+    /**
+     * 按模块分别构建 CPG 并并行扫描，合并各模块结果后统一过滤和发布
+     * 并行度受扫描线程池和内存预算共同限制；跨模块的数据流不在单个模块的 CPG 中，不会被报告
+     *
+     * @param moduleSourcePaths 模块名 -> 模块源码目录
+     * @param indicator         用于显示进度的指示器，可为空
+     */
+    @NotNull
+    public CompletableFuture<FlowSpotVulnerabilityCollection> analyzeModulesAsync(
+            @NotNull Map<String, List<String>> moduleSourcePaths,
+            @NotNull List<String> classPaths,
+            @Nullable Set<String> selectedSourceRules,
+            @Nullable Set<String> selectedSinkRules,
+            @NotNull com.flowspot.intellij.model.OptimizationConfig optimizationConfig,
+            @Nullable ProgressIndicator indicator) {
+        
+        isCancelled.set(false);
+        long startTime = System.currentTimeMillis();
+        String basePath = project.getBasePath() != null ? project.getBasePath() : "";
+        FlowSpotModuleScheduler scheduler = new FlowSpotModuleScheduler(moduleMemoryBudgetMb());
+        activeModuleScans.add(scheduler);
+        List<AnalysisRun> runs = new java.util.concurrent.CopyOnWriteArrayList<>();
+        java.util.concurrent.atomic.AtomicInteger completedModules = new java.util.concurrent.atomic.AtomicInteger();
+        
+        CompletableFuture<List<FlowSpotVulnerabilityCollection>> modules = CompletableFuture.supplyAsync(() -> {
+            clearPreviousResults();
+            logManager.logInfo("Per-module analysis: " + moduleSourcePaths.size() + " modules, memory budget "
+                               + scheduler.getBudgetMb() + " MB, up to " + MAX_CONCURRENT_SCANS + " concurrent scans");
+            
+            // 先启动估算占用大的模块，缩短整体耗时
+            List<Map.Entry<String, Long>> estimates = new ArrayList<>();
+            for (Map.Entry<String, List<String>> module : moduleSourcePaths.entrySet()) {
+                estimates.add(Map.entry(module.getKey(), estimateModuleHeapMb(module.getValue())));
+            }
+            estimates.sort(Map.Entry.<String, Long>comparingByValue().reversed());
+            
+            List<CompletableFuture<FlowSpotVulnerabilityCollection>> results = new ArrayList<>();
+            for (Map.Entry<String, Long> estimate : estimates) {
+                String moduleName = estimate.getKey();
+                AnalysisRun run = new AnalysisRun(moduleSourcePaths.get(moduleName), classPaths,
+                                                  selectedSourceRules, selectedSinkRules,
+                                                  optimizationConfig, indicator, moduleName);
+                runs.add(run);
+                CompletableFuture<FlowSpotVulnerabilityCollection> result =
+                    scheduler.submit(estimate.getValue(), () -> startModuleRun(run));
+                result.whenComplete((collection, error) -> {
+                    if (indicator != null) {
+                        indicator.setFraction((double) completedModules.incrementAndGet() / estimates.size());
+                    }
+                });
+                results.add(result);
+            }
+            return results;
+        }, AppExecutorUtil.getAppExecutorService()).thenCompose(results ->
+            CompletableFuture.allOf(results.toArray(new CompletableFuture<?>[0]))
+                .handle((ignored, error) -> collectModuleResults(moduleSourcePaths.keySet(), results)));
+        
+        CompletableFuture<FlowSpotVulnerabilityCollection> result = modules.thenApplyAsync(collections -> {
+            FlowSpotVulnerabilityCollection merged =
+                FlowSpotVulnerabilityCollection.merge(project.getName(), basePath, collections);
+            FlowSpotVulnerabilityCollection filtered = applyFilters(merged, basePath);
+            
+            logManager.logAnalysisResults(filtered.getTotalCount(), moduleSourcePaths.size());
+            logManager.logAnalysisCompleted(System.currentTimeMillis() - startTime);
+            publishResults(filtered);
+            CompletableFuture.runAsync(() -> saveResults(basePath, runs, merged.getRuleProfiles()),
+                                       AppExecutorUtil.getAppExecutorService());
+            return filtered;
+        }, AppExecutorUtil.getAppExecutorService());
+        
+        result.whenComplete((collection, error) -> {
+            activeModuleScans.remove(scheduler);
+            if (result.isCancelled() || unwrap(error) instanceof CancellationException) {
+                scheduler.cancel();
+                runs.forEach(AnalysisRun::cancel);
+            }
+        });
+        
+        return result;
+    }
+    
+    /**
+     * 启动准备、扫描、转换三个阶段，返回转换后的集合
+     */
+    @NotNull
+    private CompletableFuture<FlowSpotVulnerabilityCollection> startRun(@NotNull AnalysisRun run) {
+        activeRuns.add(run);
+        Executor pooled = AppExecutorUtil.getAppExecutorService();
+        
+        CompletableFuture<FlowSpotProjectConfig> prepared =
+            run.track(CompletableFuture.supplyAsync(() -> prepare(run), pooled));
+        CompletableFuture<FlowSpotBugCollection> scanned =
+            run.track(prepared.thenCompose(config -> scheduleScan(run, config)));
+        return run.track(scanned.thenApplyAsync(bugCollection -> convert(run, bugCollection), pooled));
+    }
+    
+    /**
+     * 安排扫描阶段：进程内扫描先按日志目录排队，轮到后才占用扫描线程
+     */
+    @NotNull
+    private CompletableFuture<FlowSpotBugCollection> scheduleScan(@NotNull AnalysisRun run,
+                                                                  @NotNull FlowSpotProjectConfig projectConfig) {
+        boolean inWorker = PropertiesComponent.getInstance().getBoolean(FlowSpotWorkerLauncher.ENABLED_PROPERTY, false);
+        if (inWorker) {
+            return CompletableFuture.supplyAsync(() -> scan(run, projectConfig, true), SCAN_EXECUTOR);
+        }
+        String logKey = new File(projectConfig.getBaseProjectPath()).getAbsoluteFile().toPath().normalize().toString();
+        return run.track(IN_PROCESS_SCANS.submit(logKey, () -> scan(run, projectConfig, false), SCAN_EXECUTOR));
+    }
+    
+    /**
+     * 启动单个模块的扫描，模块结果不单独过滤和发布
+     */
+    @NotNull
+    private CompletableFuture<FlowSpotVulnerabilityCollection> startModuleRun(@NotNull AnalysisRun run) {
+        logManager.logInfo("Starting module scan: " + run.moduleName);
+        CompletableFuture<FlowSpotVulnerabilityCollection> converted = startRun(run);
+        converted.whenComplete((collection, error) -> {
+            if (collection != null) {
+                logManager.logInfo("Module " + run.moduleName + " finished in "
+                                   + (System.currentTimeMillis() - run.startTime) + " ms with "
+                                   + collection.getTotalCount() + " vulnerabilities");
+            }
+            finish(run, error);
+        });
+        return converted;
+    }
+    
+    /**
+     * 收集已完成模块的结果：失败的模块记录后跳过，全部失败或被取消时整体失败
+     */
+    @NotNull
+    private List<FlowSpotVulnerabilityCollection> collectModuleResults(
+            @NotNull Set<String> moduleNames,
+            @NotNull List<CompletableFuture<FlowSpotVulnerabilityCollection>> results) {
+        List<FlowSpotVulnerabilityCollection> collections = new ArrayList<>();
+        Throwable firstError = null;
+        for (CompletableFuture<FlowSpotVulnerabilityCollection> result : results) {
+            if (result.isCancelled()) {
+                throw new CancellationException("FlowSpot module analysis cancelled");
+            }
             try {
-                return analyze(sourcePaths, classPaths, selectedSourceRules, selectedSinkRules);
+                collections.add(result.join());
+            } catch (CompletionException e) {
+                Throwable cause = unwrap(e);
+                if (cause instanceof CancellationException) {
+                    throw (CancellationException) cause;
+                }
+                firstError = firstError != null ? firstError : cause;
+            }
+        }
+        if (collections.isEmpty() && firstError != null) {
+            throw new CompletionException(firstError);
+        }
+        if (firstError != null) {
+            logManager.logWarning((moduleNames.size() - collections.size()) + " of " + moduleNames.size()
+                                  + " modules failed, merging partial results");
+        }
+        return collections;
+    }
+    
+    /**
+     * 模块扫描可用的堆内存预算：最大堆的 60%
+     */
+    private static long moduleMemoryBudgetMb() {
+        return Runtime.getRuntime().maxMemory() * 6 / 10 / (1024 * 1024);
+    }
+    
+    /**
+     * 按 Java 源码体积估算模块 CPG 的堆占用
+     */
+    private static long estimateModuleHeapMb(@NotNull List<String> sourcePaths) {
+        long sourceBytes = 0;
+        for (String sourcePath : sourcePaths) {
+            try (java.util.stream.Stream<java.nio.file.Path> files = java.nio.file.Files.walk(java.nio.file.Paths.get(sourcePath))) {
+                sourceBytes += files.filter(f -> f.toString().endsWith(".java"))
+                                    .mapToLong(f -> f.toFile().length())
+                                    .sum();
             } catch (Exception e) {
-                logManager.logError("Analysis failed: " + e.getMessage(), e);
-                throw new RuntimeException("FlowSpot analysis failed", e);
+                // 无法估算时按最小值处理
             }
-        });
+        }
+        return Math.max(MIN_MODULE_HEAP_MB, sourceBytes * CPG_HEAP_PER_SOURCE_BYTE / (1024 * 1024));
     }
     
     /**
@@ -110,6 +366,7 @@ public class FlowSpotAnalysisEngine {
     
     /**
      * 同步执行 FlowSpot 分析（带优化配置）
+     * 供后台任务调用：等待流水线完成，并把进度指示器上的取消转为流水线取消
      */
     @NotNull
     public FlowSpotVulnerabilityCollection analyze(
@@ -119,80 +376,75 @@ public class FlowSpotAnalysisEngine {
             @Nullable Set<String> selectedSinkRules,
             @NotNull com.flowspot.intellij.model.OptimizationConfig optimizationConfig) {
         
-        if (!isRunning.compareAndSet(false, true)) {
-            throw new IllegalStateException("Analysis is already running");
-        }
-        
-        isCancelled.set(false);
-        
-        // 确定分析项目路径
-        String analysisProjectPath = determineAnalysisProjectPath(sourcePaths);
-        
-        // 准备分析环境（配置在项目根目录，分析目标为用户选择的目录）
-        prepareAnalysisEnvironment(analysisProjectPath);
-        
-        // 清除之前的分析结果
-        clearPreviousResults();
-        
-        // 获取基于分析路径的有效sinks.json配置路径
-        String effectiveSinksJsonPath = configManager.getEffectiveSinksJsonPath(analysisProjectPath);
-        logManager.logInfo("Using sinks.json: " + effectiveSinksJsonPath);
-        
-        logManager.logRuleSelection(selectedSourceRules, selectedSinkRules);
-        
-        long startTime = System.currentTimeMillis();
+        ProgressIndicator indicator = ProgressManager.getInstance().getProgressIndicator();
+        CompletableFuture<FlowSpotVulnerabilityCollection> future = analyzeAsync(
+            sourcePaths, classPaths, selectedSourceRules, selectedSinkRules, optimizationConfig, indicator);
+        return await(future, indicator, determineAnalysisProjectPath(sourcePaths));
+    }
+    
+    /**
+     * 同步执行按模块的 FlowSpot 分析，供后台任务调用
+     */
+    @NotNull
+    public FlowSpotVulnerabilityCollection analyzeModules(
+            @NotNull Map<String, List<String>> moduleSourcePaths,
+            @NotNull List<String> classPaths,
+            @Nullable Set<String> selectedSourceRules,
+            @Nullable Set<String> selectedSinkRules,
+            @NotNull com.flowspot.intellij.model.OptimizationConfig optimizationConfig) {
         
+        ProgressIndicator indicator = ProgressManager.getInstance().getProgressIndicator();
+        CompletableFuture<FlowSpotVulnerabilityCollection> future = analyzeModulesAsync(
+            moduleSourcePaths, classPaths, selectedSourceRules, selectedSinkRules, optimizationConfig, indicator);
+        return await(future, indicator, project.getBasePath());
+    }
+    
+    /**
+     * 等待流水线完成，并把进度指示器上的取消转为流水线取消；取消时返回空集合
+     */
+    @NotNull
+    private FlowSpotVulnerabilityCollection await(@NotNull CompletableFuture<FlowSpotVulnerabilityCollection> future,
+                                                  @Nullable ProgressIndicator indicator,
+                                                  @Nullable String analysisPath) {
         try {
-            logManager.logInfo("Starting FlowSpot analysis for project: " + project.getName());
-            
-            // 配置调试日志
-            FlowSpotLogManager.configureDebugLogging(project);
-            
-            // 创建 FlowSpot 项目配置
-            FlowSpotProjectConfig projectConfig = createProjectConfig(sourcePaths, classPaths, 
-                                                                    selectedSourceRules, selectedSinkRules, optimizationConfig);
-            
-            // 执行 FlowSpot 分析
-            logManager.logProgress("Running FlowSpot vulnerability analysis...");
-            List<FlowSpotBugInstance> bugInstances = executeFlowSpotAnalysis(projectConfig);
-            
-            if (isCancelled.get()) {
+            while (true) {
+                if (indicator != null && indicator.isCanceled()) {
+                    future.cancel(true);
+                }
+                try {
+                    return future.get(100, TimeUnit.MILLISECONDS);
+                } catch (TimeoutException ignored) {
+                    // 继续等待，期间检查取消
+                }
+            }
+        } catch (CancellationException e) {
+            logManager.logInfo("Analysis was cancelled by user");
+            return new FlowSpotVulnerabilityCollection(project.getName(), analysisPath);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            future.cancel(true);
+            throw new RuntimeException("Analysis was interrupted", e);
+        } catch (ExecutionException e) {
+            Throwable cause = unwrap(e);
+            if (cause instanceof CancellationException) {
                 logManager.logInfo("Analysis was cancelled by user");
-                String analysisPath = determineAnalysisProjectPath(sourcePaths);
                 return new FlowSpotVulnerabilityCollection(project.getName(), analysisPath);
             }
-            
-            // 转换结果
-            String analysisPath = determineAnalysisProjectPath(sourcePaths);
-            FlowSpotVulnerabilityCollection collection = convertResults(bugInstances, analysisPath);
-            
-            // 应用过滤规则
-            FlowSpotVulnerabilityCollection filteredCollection = applyFilters(collection, analysisProjectPath);
-            
-            long duration = System.currentTimeMillis() - startTime;
-            logManager.logAnalysisResults(filteredCollection.getTotalCount(), sourcePaths.size());
-            logManager.logAnalysisCompleted(duration);
-            
-            // 发布结果到消息总线
-            publishResults(filteredCollection);
-            
-            return filteredCollection;
-            
-        } catch (Exception e) {
-            logManager.logError("FlowSpot analysis failed", e);
-            throw new RuntimeException("FlowSpot analysis failed", e);
-        } finally {
-            isRunning.set(false);
-            logManager.close();
-            configManager.dispose();
+            throw new RuntimeException("FlowSpot analysis failed", cause);
         }
     }
     
     /**
-     * 取消正在运行的分析
+     * 取消所有正在运行的分析
      */
     public void cancel() {
         isCancelled.set(true);
+        for (FlowSpotModuleScheduler scheduler : activeModuleScans) {
+            scheduler.cancel();
+        }
+        for (AnalysisRun run : activeRuns) {
+            run.cancel();
+        }
         logManager.logInfo("Analysis cancellation requested");
     }
     
@@ -200,7 +452,7 @@ public class FlowSpotAnalysisEngine {
      * 检查是否正在运行
      */
     public boolean isRunning() {
-        return isRunning.get();
+        return !activeRuns.isEmpty() || !activeModuleScans.isEmpty();
     }
     
     /**
@@ -210,11 +462,122 @@ public class FlowSpotAnalysisEngine {
         return isCancelled.get();
     }
     
+    /**
+     * 准备阶段：准备 .flowspot 目录和 sinks.json，创建项目配置
+     */
+    @NotNull
+    private FlowSpotProjectConfig prepare(@NotNull AnalysisRun run) {
+        run.checkCancelled();
+        
+        // 确定分析项目路径
+        run.analysisPath = determineAnalysisProjectPath(run.sourcePaths);
+        
+        // 准备分析环境（配置在项目根目录，分析目标为用户选择的目录）
+        prepareAnalysisEnvironment(run.analysisPath);
+        
+        // 清除之前的分析结果（按模块扫描时由汇总流程统一清除）
+        if (run.moduleName == null) {
+            clearPreviousResults();
+        }
+        
+        // 获取基于分析路径的有效sinks.json配置路径
+        String effectiveSinksJsonPath = configManager.getEffectiveSinksJsonPath(run.analysisPath);
+        logManager.logInfo("Using sinks.json: " + effectiveSinksJsonPath);
+        
+        logManager.logRuleSelection(run.selectedSourceRules, run.selectedSinkRules);
+        logManager.logInfo("Starting FlowSpot analysis for project: " + project.getName());
+        
+        // 配置调试日志
+        FlowSpotLogManager.configureDebugLogging(project);
+        
+        // 创建 FlowSpot 项目配置
+        return createProjectConfig(run.analysisPath, run.selectedSourceRules, run.selectedSinkRules,
+                                   run.optimizationConfig);
+    }
+    
+    /**
+     * 转换阶段：提取 FlowSpotBugInstance 并转换为 UI 数据模型
+     */
+    @NotNull
+    private FlowSpotVulnerabilityCollection convert(@NotNull AnalysisRun run,
+                                                    @NotNull FlowSpotBugCollection bugCollection) {
+        run.checkCancelled();
+        run.setProgress("Processing FlowSpot analysis results...", 0.90);
+        
+        List<FlowSpotBugInstance> results = extractFlowSpotResults(bugCollection, logManager);
+        logManager.logInfo("FlowSpot analysis completed. Found " + results.size() + " vulnerabilities.");
+        logManager.logInfo("Vulnerability types found: " + getVulnerabilityTypesStats(results));
+        
+        // 按模块扫描时源文件路径解析为绝对路径，合并后仍可定位
+        FlowSpotVulnerabilityCollection collection = convertResults(
+            results, run.analysisPath, run.moduleName != null ? run.analysisPath : null);
+        collection.setRuleProfiles(bugCollection.getRuleProfiles());
+        run.bugCollection = bugCollection;
+        return collection;
+    }
+    
+    /**
+     * 过滤阶段：应用过滤规则
+     */
+    @NotNull
+    private FlowSpotVulnerabilityCollection applyFilters(@NotNull AnalysisRun run,
+                                                         @NotNull FlowSpotVulnerabilityCollection collection) {
+        run.checkCancelled();
+        return applyFilters(collection, run.analysisPath);
+    }
+    
+    /**
+     * 发布阶段：记录统计并把结果发布到消息总线（在 EDT 上投递）
+     */
+    @NotNull
+    private FlowSpotVulnerabilityCollection publish(@NotNull AnalysisRun run,
+                                                    @NotNull FlowSpotVulnerabilityCollection collection) {
+        run.checkCancelled();
+        
+        long duration = System.currentTimeMillis() - run.startTime;
+        logManager.logAnalysisResults(collection.getTotalCount(), run.sourcePaths.size());
+        logManager.logAnalysisCompleted(duration);
+        
+        publishResults(collection);
+        run.setProgress("Analysis completed successfully", 1.0);
+        return collection;
+    }
+    
+    /**
+     * 流水线结束后的清理
+     */
+    private void finish(@NotNull AnalysisRun run, @Nullable Throwable error) {
+        activeRuns.remove(run);
+        
+        Throwable cause = unwrap(error);
+        if (cause instanceof CancellationException) {
+            logManager.logInfo("Analysis was cancelled by user");
+        } else if (cause != null) {
+            logManager.logError("FlowSpot analysis failed", cause);
+        }
+        
+        // 最后一个分析结束时释放日志与配置资源
+        if (activeRuns.isEmpty()) {
+            logManager.close();
+            configManager.dispose();
+        }
+    }
+    
+    @Nullable
+    private static Throwable unwrap(@Nullable Throwable error) {
+        Throwable cause = error;
+        while ((cause instanceof CompletionException || cause instanceof ExecutionException)
+               && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        return cause;
+    }
+    
     /**
      * 准备分析环境：创建.flowspot目录和准备配置文件
      * @param analysisTargetPath 用户选择的分析目标目录
      */
-    private void prepareAnalysisEnvironment(@NotNull String analysisTargetPath) {
+    private synchronized void prepareAnalysisEnvironment(@NotNull String analysisTargetPath) {
         // 统一使用项目根目录管理配置
         String projectBasePath = project.getBasePath() != null ? project.getBasePath() : analysisTargetPath;
         File flowspotDir = new File(projectBasePath, ".flowspot");
@@ -378,14 +741,12 @@ public class FlowSpotAnalysisEngine {
      * 创建 FlowSpot 项目配置
      */
     @NotNull
-    private FlowSpotProjectConfig createProjectConfig(@NotNull List<String> sourcePaths,
-                                                     @NotNull List<String> classPaths,
+    private FlowSpotProjectConfig createProjectConfig(@NotNull String analysisTargetPath,
                                                      @Nullable Set<String> selectedSourceRules,
                                                      @Nullable Set<String> selectedSinkRules,
                                                      @NotNull com.flowspot.intellij.model.OptimizationConfig optimizationConfig) {
         
-        // 确定分析目标路径和项目根目录
-        String analysisTargetPath = determineAnalysisProjectPath(sourcePaths);
+        // 确定项目根目录
         String baseProjectPath = project.getBasePath() != null ? project.getBasePath() : analysisTargetPath;
         String projectName = project.getName() + "_analysis";
         
@@ -421,117 +782,61 @@ public class FlowSpotAnalysisEngine {
     }
     
     /**
-     * 执行 FlowSpot 分析
+     * 扫描阶段：在扫描线程池中执行 FlowSpot 分析
      */
     @NotNull
-    private List<FlowSpotBugInstance> executeFlowSpotAnalysis(@NotNull FlowSpotProjectConfig projectConfig) {
+    private FlowSpotBugCollection scan(@NotNull AnalysisRun run, @NotNull FlowSpotProjectConfig projectConfig,
+                                       boolean inWorker) {
+        run.checkCancelled();
+        run.setProgress("Running FlowSpot vulnerability analysis...", 0.3);
+        logManager.logProgress("Running FlowSpot vulnerability analysis...");
         
-        ProgressIndicator indicator = ProgressManager.getInstance().getProgressIndicator();
-        
-        try {
-            if (indicator != null) {
-                indicator.setText("Initializing FlowSpot analysis...");
-                indicator.setFraction(0.1);
+        // 创建进度回调 - ProgressCallback 是一个独立的 trait
+        omni.scan.ProgressCallback progressCallback = new omni.scan.ProgressCallback() {
+            // 进程内扫描只能在回调中感知取消，抛出的异常会中止分析
+            @Override
+            public void updateMessage(String message) {
+                run.checkCancelled();
+                logManager.logProgress(message);
+                run.setText(message);
             }
             
-            // 检查取消状态
-            if (isCancelled.get()) {
-                return new ArrayList<>();
+            @Override
+            public void updateProgress(int progress) {
+                run.checkCancelled();
+                logManager.logProgress("Progress: " + progress + "%");
+                run.setFraction(0.3 + (progress * 0.6 / 100.0)); // 30% to 90%
             }
-            
-            if (indicator != null) {
-                indicator.setText("Running FlowSpot vulnerability analysis...");
-                indicator.setFraction(0.3);
+
+            @Override
+            public void onPhaseMetric(omni.scan.PhaseMetric metric) {
+                logManager.logDebug("[METRIC] " + metric.phase() + " took " + metric.durationMs() + " ms");
             }
-            
-            // 创建进度回调 - ProgressCallback 是一个独立的 trait
-            omni.scan.ProgressCallback progressCallback = new omni.scan.ProgressCallback() {
-                @Override
-                public void updateMessage(String message) {
-                    logManager.logProgress(message);
-                    if (indicator != null) {
-                        indicator.setText(message);
-                    }
-                }
-                
-                @Override
-                public void updateProgress(int progress) {
-                    logManager.logProgress("Progress: " + progress + "%");
-                    if (indicator != null) {
-                        indicator.setFraction(0.3 + (progress * 0.6 / 100.0)); // 30% to 90%
-                    }
-                }
-            };
-            
-            // 使用异步线程执行FlowSpot分析
-            logManager.logInfo("Starting FlowSpot analysis with async execution");
-            
-            // 使用CountDownLatch等待异步任务完成
-            final java.util.concurrent.CountDownLatch latch = new java.util.concurrent.CountDownLatch(1);
-            final java.util.concurrent.atomic.AtomicReference<FlowSpotBugCollection> resultRef = 
-                new java.util.concurrent.atomic.AtomicReference<>();
-            final java.util.concurrent.atomic.AtomicReference<Exception> exceptionRef = 
-                new java.util.concurrent.atomic.AtomicReference<>();
-            
-            com.intellij.openapi.application.ApplicationManager.getApplication().executeOnPooledThread(() -> {
-                try {
-                    logManager.logInfo("Async thread started for FlowSpot analysis");
-                    FlowSpotBugCollection result = FlowSpot.doAnalysis(projectConfig, progressCallback);
-                    resultRef.set(result);
-                    logManager.logInfo("Async FlowSpot analysis completed successfully");
-                } catch (Exception e) {
-                    exceptionRef.set(e);
-                    logManager.logError("Async FlowSpot analysis failed", e);
-                } finally {
-                    latch.countDown();
-                }
-            });
-            
-            // 等待异步任务完成
+        };
+        
+        logManager.logInfo("FlowSpot scan started on " + Thread.currentThread().getName());
+        FlowSpotBugCollection bugCollection;
+        if (inWorker) {
+            // 独立进程中分析，CPG 不占用 IDE 堆
+            PropertiesComponent properties = PropertiesComponent.getInstance();
+            int heapMb = properties.getInt(FlowSpotWorkerLauncher.HEAP_MB_PROPERTY, FlowSpotWorkerLauncher.DEFAULT_HEAP_MB);
             try {
-                logManager.logInfo("Waiting for async analysis to complete...");
-                latch.await();
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-                throw new RuntimeException("Analysis was interrupted", e);
-            }
-            
-            // 检查是否有异常
-            if (exceptionRef.get() != null) {
-                throw new RuntimeException("FlowSpot analysis failed", exceptionRef.get());
-            }
-            
-            FlowSpotBugCollection bugCollection = resultRef.get();
-            
-            // 检查取消状态
-            if (isCancelled.get()) {
-                return new ArrayList<>();
+                bugCollection = new FlowSpotWorkerLauncher(logManager, heapMb)
+                    .run(projectConfig, progressCallback, run::isCancelled);
+            } catch (java.io.IOException e) {
+                throw new CompletionException("Failed to run FlowSpot worker: " + e.getMessage(), e);
             }
-            
-            if (indicator != null) {
-                indicator.setText("Processing FlowSpot analysis results...");
-                indicator.setFraction(0.90);
-            }
-            
-            // 提取并处理 FlowSpotBugInstance 结果
-            List<FlowSpotBugInstance> results = extractFlowSpotResults(bugCollection, logManager);
-            
-            if (indicator != null) {
-                indicator.setText("Analysis completed successfully");
-                indicator.setFraction(1.0);
-            }
-            
-            logManager.logInfo("FlowSpot analysis completed. Found " + results.size() + " vulnerabilities.");
-            logManager.logInfo("Vulnerability types found: " + getVulnerabilityTypesStats(results));
-            
-            return results;
-            
-        } catch (Exception e) {
-            logManager.logError("FlowSpot analysis execution failed", e);
-            throw new RuntimeException("Failed to execute FlowSpot analysis: " + e.getMessage(), e);
+        } else {
+            bugCollection = FlowSpot.doAnalysis(projectConfig, progressCallback);
         }
+        logManager.logInfo("FlowSpot scan completed");
+        
+        // 扫描期间被取消时丢弃结果
+        run.checkCancelled();
+        return bugCollection;
     }
     
+    
     /**
      * 从 FlowSpotBugCollection 中提取 FlowSpotBugInstance 结果
      */
@@ -604,11 +909,13 @@ public class FlowSpotAnalysisEngine {
      * 转换分析结果为 UI 数据模型
      */
     @NotNull
-    private FlowSpotVulnerabilityCollection convertResults(@NotNull List<FlowSpotBugInstance> bugInstances, @Nullable String analysisBasePath) {
+    private FlowSpotVulnerabilityCollection convertResults(@NotNull List<FlowSpotBugInstance> bugInstances,
+                                                           @Nullable String analysisBasePath,
+                                                           @Nullable String sourceRoot) {
         
         // 使用新的独立结果处理器
         FlowSpotVulnerabilityCollection collection = FlowSpotResultProcessor.processResults(
-            bugInstances, project.getName(), analysisBasePath);
+            bugInstances, project.getName(), analysisBasePath, sourceRoot);
         
         logManager.logInfo("Converted " + bugInstances.size() + " bug instances to " + 
                           collection.getTotalCount() + " vulnerabilities");
@@ -660,6 +967,85 @@ public class FlowSpotAnalysisEngine {
         });
     }
     
+    /**
+     * 保存本次分析的原始结果（过滤前），各次运行按模块源码目录分别记录，保存后释放原始结果
+     */
+    private void saveResults(@NotNull String analysisBasePath,
+                             @NotNull List<AnalysisRun> runs,
+                             @NotNull List<FlowSpotRuleProfile> ruleProfiles) {
+        String projectBasePath = project.getBasePath();
+        if (projectBasePath == null) {
+            return;
+        }
+        
+        long startTime = System.currentTimeMillis();
+        List<FlowSpotResultStore.Part> parts = new ArrayList<>();
+        for (AnalysisRun run : runs) {
+            FlowSpotBugCollection bugCollection = run.bugCollection;
+            if (bugCollection == null) {
+                continue;
+            }
+            parts.add(new FlowSpotResultStore.Part(run.moduleName != null ? run.analysisPath : null,
+                                                   bugCollection.getCollection()));
+            run.bugCollection = null;
+        }
+        
+        try {
+            java.nio.file.Path file = FlowSpotResultStore.write(projectBasePath, project.getName(), analysisBasePath,
+                                                                parts, ruleProfiles);
+            logManager.logInfo("Saved analysis results to " + file + " in "
+                               + (System.currentTimeMillis() - startTime) + " ms");
+        } catch (java.io.IOException | RuntimeException e) {
+            logManager.logWarning("Failed to save analysis results: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * 读取最近一次保存的分析结果并应用当前的过滤规则，不发布
+     * 没有保存的结果时返回 null；漏洞详情在首次访问时才从结果文件中解码
+     */
+    @NotNull
+    public CompletableFuture<FlowSpotVulnerabilityCollection> loadSavedResultsAsync() {
+        return CompletableFuture.supplyAsync(() -> {
+            String projectBasePath = project.getBasePath();
+            if (projectBasePath == null) {
+                return null;
+            }
+            try {
+                java.nio.file.Path file = FlowSpotResultStore.latest(projectBasePath);
+                if (file == null) {
+                    return null;
+                }
+                long startTime = System.currentTimeMillis();
+                FlowSpotResultStore.StoredResults results = FlowSpotResultStore.open(file);
+                FlowSpotVulnerabilityCollection collection =
+                    FlowSpotResultProcessor.processStoredResults(results, project.getName());
+                String analysisBasePath = results.getAnalysisBasePath() != null
+                    ? results.getAnalysisBasePath() : projectBasePath;
+                FlowSpotVulnerabilityCollection filtered = applyFilters(collection, analysisBasePath);
+                logManager.logInfo("Loaded " + filtered.getTotalCount() + " vulnerabilities from " + file + " in "
+                                   + (System.currentTimeMillis() - startTime) + " ms");
+                return filtered;
+            } catch (java.io.IOException | RuntimeException e) {
+                logManager.logWarning("Failed to load saved analysis results: " + e.getMessage());
+                return null;
+            }
+        }, AppExecutorUtil.getAppExecutorService());
+    }
+    
+    /**
+     * 读取最近一次保存的分析结果并发布到消息总线
+     */
+    @NotNull
+    public CompletableFuture<FlowSpotVulnerabilityCollection> reloadSavedResultsAsync() {
+        return loadSavedResultsAsync().thenApply(collection -> {
+            if (collection != null) {
+                publishResults(collection);
+            }
+            return collection;
+        });
+    }
+    
     /**
      * 清理之前的分析结果，确保每次分析都是全新的
      */
@@ -676,9 +1062,86 @@ public class FlowSpotAnalysisEngine {
             publisher.onFlowSpotResultsAvailable(emptyCollection);
         });
         
-        // 清理任何可能的缓存状态
-        System.gc(); // 建议垃圾回收，清理内存
-        
         logManager.logInfo("Previous results cleared, ready for new analysis");
     }
+
+    /**
+     * 单次分析的状态：参数、进度指示器、取消标志和流水线各阶段
+     */
+    private static final class AnalysisRun {
+        private final List<String> sourcePaths;
+        private final List<String> classPaths;
+        private final Set<String> selectedSourceRules;
+        private final Set<String> selectedSinkRules;
+        private final com.flowspot.intellij.model.OptimizationConfig optimizationConfig;
+        private final ProgressIndicator indicator;
+        // 按模块扫描时的模块名，单次分析为 null
+        private final String moduleName;
+        private final long startTime = System.currentTimeMillis();
+        private final AtomicBoolean cancelled = new AtomicBoolean(false);
+        private final List<CompletableFuture<?>> stages = new java.util.concurrent.CopyOnWriteArrayList<>();
+        private volatile String analysisPath = "";
+        // 转换阶段得到的原始结果，保存到结果文件后释放
+        private volatile FlowSpotBugCollection bugCollection;
+        
+        private AnalysisRun(@NotNull List<String> sourcePaths,
+                            @NotNull List<String> classPaths,
+                            @Nullable Set<String> selectedSourceRules,
+                            @Nullable Set<String> selectedSinkRules,
+                            @NotNull com.flowspot.intellij.model.OptimizationConfig optimizationConfig,
+                            @Nullable ProgressIndicator indicator,
+                            @Nullable String moduleName) {
+            this.sourcePaths = sourcePaths;
+            this.classPaths = classPaths;
+            this.selectedSourceRules = selectedSourceRules;
+            this.selectedSinkRules = selectedSinkRules;
+            this.optimizationConfig = optimizationConfig;
+            this.indicator = indicator;
+            this.moduleName = moduleName;
+        }
+        
+        private <T> CompletableFuture<T> track(@NotNull CompletableFuture<T> stage) {
+            stages.add(stage);
+            if (cancelled.get()) {
+                stage.cancel(false);
+            }
+            return stage;
+        }
+        
+        private void cancel() {
+            if (cancelled.compareAndSet(false, true)) {
+                for (CompletableFuture<?> stage : stages) {
+                    stage.cancel(false);
+                }
+            }
+        }
+        
+        private boolean isCancelled() {
+            return cancelled.get() || (indicator != null && indicator.isCanceled());
+        }
+        
+        private void checkCancelled() {
+            if (isCancelled()) {
+                throw new CancellationException("FlowSpot analysis cancelled");
+            }
+        }
+        
+        private void setText(@NotNull String text) {
+            if (indicator != null) {
+                indicator.setText(moduleName != null ? "[" + moduleName + "] " + text : text);
+            }
+        }
+        
+        private void setFraction(double fraction) {
+            // 按模块扫描时整体进度按完成的模块数计算
+            if (indicator != null && moduleName == null) {
+                indicator.setFraction(fraction);
+            }
+        }
+        
+        private void setProgress(@NotNull String text, double fraction) {
+            setText(text);
+            setFraction(fraction);
+        }
+    }
 }
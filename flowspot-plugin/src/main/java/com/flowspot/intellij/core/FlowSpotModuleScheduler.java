@@ -0,0 +1,137 @@
+/*
+ * Copyright 2024 FlowSpot plugin contributors
+ *
+ * This file is part of IntelliJ FlowSpot plugin.
+ *
+ * IntelliJ FlowSpot plugin is free software: you can redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * IntelliJ FlowSpot plugin is distributed in the hope that it will
+ * be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with IntelliJ FlowSpot plugin.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.flowspot.intellij.core;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+/**
+ * 按内存预算调度模块扫描
+ * 每个模块按估算的 CPG 堆占用申请预算，预算不足时排队，前一个模块结束后再启动；
+ * 不阻塞任何线程，超出预算的单个大模块在没有其他模块运行时独占执行
+ */
+final class FlowSpotModuleScheduler {
+
+    private final long budgetMb;
+    private final Deque<Pending<?>> queue = new ArrayDeque<>();
+    private long usedMb = 0;
+    private int running = 0;
+    private boolean cancelled = false;
+
+    FlowSpotModuleScheduler(long budgetMb) {
+        this.budgetMb = Math.max(1, budgetMb);
+    }
+
+    /**
+     * 提交一个模块扫描，返回该模块的结果
+     *
+     * @param estimateMb 估算的堆占用（MB）
+     * @param task       启动扫描并返回其结果的任务，在预算允许时调用
+     */
+    @NotNull
+    <T> CompletableFuture<T> submit(long estimateMb, @NotNull Supplier<CompletableFuture<T>> task) {
+        Pending<T> pending = new Pending<>(Math.min(Math.max(1, estimateMb), budgetMb), task);
+        synchronized (this) {
+            queue.add(pending);
+        }
+        pump();
+        return pending.result;
+    }
+
+    /**
+     * 取消排队中的模块，已启动的模块由调用方取消
+     */
+    void cancel() {
+        synchronized (this) {
+            cancelled = true;
+        }
+        pump();
+    }
+
+    long getBudgetMb() {
+        return budgetMb;
+    }
+
+    private void pump() {
+        List<Pending<?>> toStart = new ArrayList<>();
+        List<Pending<?>> toCancel = new ArrayList<>();
+        synchronized (this) {
+            while (!queue.isEmpty()) {
+                Pending<?> next = queue.peek();
+                if (cancelled) {
+                    toCancel.add(queue.poll());
+                    continue;
+                }
+                if (running > 0 && usedMb + next.estimateMb > budgetMb) {
+                    break;
+                }
+                queue.poll();
+                usedMb += next.estimateMb;
+                running++;
+                toStart.add(next);
+            }
+        }
+        // 在锁外启动和取消，避免回调重入时持有锁
+        for (Pending<?> pending : toCancel) {
+            pending.result.cancel(false);
+        }
+        for (Pending<?> pending : toStart) {
+            start(pending);
+        }
+    }
+
+    private <T> void start(@NotNull Pending<T> pending) {
+        CompletableFuture<T> future;
+        try {
+            future = pending.task.get();
+        } catch (Throwable t) {
+            future = CompletableFuture.failedFuture(t);
+        }
+        future.whenComplete((value, error) -> {
+            synchronized (this) {
+                usedMb -= pending.estimateMb;
+                running--;
+            }
+            if (error != null) {
+                pending.result.completeExceptionally(error);
+            } else {
+                pending.result.complete(value);
+            }
+            pump();
+        });
+    }
+
+    private static final class Pending<T> {
+        private final long estimateMb;
+        private final Supplier<CompletableFuture<T>> task;
+        private final CompletableFuture<T> result = new CompletableFuture<>();
+
+        private Pending(long estimateMb, @NotNull Supplier<CompletableFuture<T>> task) {
+            this.estimateMb = estimateMb;
+            this.task = task;
+        }
+    }
+}
@@ -21,14 +21,18 @@ package com.flowspot.intellij.core;
 
 import com.flowspot.intellij.model.*;
 import omni.flowspot.core.FlowSpotBugInstance;
+import omni.flowspot.core.FlowSpotStringPool;
 import omni.flowspot.annotations.FlowSpotSourceLineAnnotation;
 import omni.flowspot.annotations.FlowSpotEnhancedSourceLineAnnotation;
+import omni.flowspot.store.FlowSpotResultStore;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * FlowSpot 结果处理器
@@ -36,6 +40,12 @@ import java.util.UUID;
  */
 public class FlowSpotResultProcessor {
     
+    /**
+     * 按漏洞类型缓存的标题与默认描述，类型数量受规则数量限制
+     */
+    private static final Map<String, String> TITLES = new ConcurrentHashMap<>();
+    private static final Map<String, String> DEFAULT_DESCRIPTIONS = new ConcurrentHashMap<>();
+    
     /**
      * 处理 FlowSpot 分析结果，转换为 UI 数据模型
      */
@@ -51,12 +61,26 @@ public class FlowSpotResultProcessor {
             @NotNull List<FlowSpotBugInstance> bugInstances,
             @NotNull String projectName,
             @Nullable String analysisBasePath) {
+        return processResults(bugInstances, projectName, analysisBasePath, null);
+    }
+    
+    /**
+     * 处理 FlowSpot 分析结果
+     *
+     * @param sourceRoot 非空时，相对源文件路径解析为该目录下的绝对路径（按模块扫描后合并结果时使用）
+     */
+    @NotNull
+    public static FlowSpotVulnerabilityCollection processResults(
+            @NotNull List<FlowSpotBugInstance> bugInstances,
+            @NotNull String projectName,
+            @Nullable String analysisBasePath,
+            @Nullable String sourceRoot) {
         
         FlowSpotVulnerabilityCollection collection = new FlowSpotVulnerabilityCollection(projectName, analysisBasePath);
         
         for (FlowSpotBugInstance bugInstance : bugInstances) {
             try {
-                FlowSpotVulnerability vulnerability = convertBugInstance(bugInstance);
+                FlowSpotVulnerability vulnerability = convertBugInstance(bugInstance, sourceRoot);
                 if (vulnerability != null) {
                     collection.addVulnerability(vulnerability);
                 }
@@ -69,13 +93,63 @@ public class FlowSpotResultProcessor {
         return collection;
     }
     
+    /**
+     * 转换已保存的分析结果：只解码每个漏洞的类型、优先级和主要位置，
+     * 数据流路径、注解和 HTML 详情在漏洞首次展开或选中时才从结果文件中解码
+     */
+    @NotNull
+    public static FlowSpotVulnerabilityCollection processStoredResults(
+            @NotNull FlowSpotResultStore.StoredResults results,
+            @NotNull String projectName) {
+        
+        FlowSpotVulnerabilityCollection collection =
+            new FlowSpotVulnerabilityCollection(projectName, results.getAnalysisBasePath());
+        List<FlowSpotVulnerability> vulnerabilities = new ArrayList<>(results.size());
+        
+        for (int i = 0; i < results.size(); i++) {
+            int index = i;
+            try {
+                String type = results.getType(index);
+                int priority = results.getPriority(index);
+                String sourceRoot = results.getSourceRoot(index);
+                FlowSpotSourceLineAnnotation primaryAnnotation = results.getPrimaryAnnotation(index);
+                FlowSpotLocation primaryLocation = primaryAnnotation != null
+                    ? convertSourceLineAnnotationToLocation(primaryAnnotation, sourceRoot) : null;
+                // 没有位置的漏洞无法在树中定位和导航，跳过
+                if (primaryLocation == null) {
+                    continue;
+                }
+                
+                vulnerabilities.add(new FlowSpotVulnerability(
+                    generateVulnerabilityId(type, primaryAnnotation),
+                    type,
+                    results.getCategory(index),
+                    generateTitle(type),
+                    extractDescription(results.getMessage(index), type),
+                    priority,
+                    mapPriorityToSeverity(priority),
+                    primaryLocation,
+                    () -> createDetails(results.getBugInstance(index), sourceRoot),
+                    () -> extractPathMethods(results.getBugInstance(index))
+                ));
+            } catch (Exception e) {
+                System.err.println("Failed to load stored finding " + index + ": " + e.getMessage());
+            }
+        }
+        
+        collection.addVulnerabilities(vulnerabilities);
+        collection.setRuleProfiles(results.getRuleProfiles());
+        return collection;
+    }
+    
     /**
      * 转换 FlowSpotBugInstance 为 FlowSpotVulnerability
      */
     @Nullable
-    private static FlowSpotVulnerability convertBugInstance(@NotNull FlowSpotBugInstance bugInstance) {
+    private static FlowSpotVulnerability convertBugInstance(@NotNull FlowSpotBugInstance bugInstance,
+                                                            @Nullable String sourceRoot) {
         // 生成唯一ID
-        String id = generateVulnerabilityId(bugInstance);
+        String id = generateVulnerabilityId(bugInstance.getType(), bugInstance.getPrimarySourceLineAnnotation());
         
         // 基本信息
         String type = bugInstance.getType();
@@ -85,19 +159,29 @@ public class FlowSpotResultProcessor {
         int priority = bugInstance.getPriority();
         String severity = mapPriorityToSeverity(priority);
         
-        // 位置信息
-        FlowSpotLocation primaryLocation = extractPrimaryLocation(bugInstance);
-        List<FlowSpotLocation> dataFlowPath = extractDataFlowPath(bugInstance);
-        
-        // 注解信息
-        List<FlowSpotAnnotation> annotations = extractAnnotations(bugInstance);
-        
-        // HTML详情
-        String htmlDetails = generateHtmlDetails(bugInstance);
+        // 位置信息：树节点只需要主要位置，数据流路径、注解和 HTML 详情在首次展开或选中时生成
+        FlowSpotLocation primaryLocation = extractPrimaryLocation(bugInstance, sourceRoot);
+        if (primaryLocation == null) {
+            return null;
+        }
         
         return new FlowSpotVulnerability(
             id, type, category, title, description, priority, severity,
-            primaryLocation, dataFlowPath, annotations, htmlDetails, bugInstance
+            primaryLocation, () -> createDetails(bugInstance, sourceRoot), () -> extractPathMethods(bugInstance)
+        );
+    }
+    
+    /**
+     * 数据流路径、注解与 HTML 详情
+     */
+    @NotNull
+    private static FlowSpotVulnerability.Details createDetails(@NotNull FlowSpotBugInstance bugInstance,
+                                                               @Nullable String sourceRoot) {
+        return new FlowSpotVulnerability.Details(
+            extractDataFlowPath(bugInstance, sourceRoot),
+            extractAnnotations(bugInstance, sourceRoot),
+            generateHtmlDetails(bugInstance),
+            bugInstance
         );
     }
     
@@ -105,19 +189,19 @@ public class FlowSpotResultProcessor {
      * 生成漏洞唯一ID
      */
     @NotNull
-    private static String generateVulnerabilityId(@NotNull FlowSpotBugInstance bugInstance) {
+    private static String generateVulnerabilityId(@NotNull String type,
+                                                  @Nullable FlowSpotSourceLineAnnotation primaryAnnotation) {
         StringBuilder sb = new StringBuilder();
-        sb.append(bugInstance.getType());
+        sb.append(type);
         
         // 尝试从主要注解获取位置信息
-        FlowSpotSourceLineAnnotation primaryAnnotation = bugInstance.getPrimarySourceLineAnnotation();
         if (primaryAnnotation != null) {
             sb.append("_").append(primaryAnnotation.getClassName());
             sb.append("_").append(primaryAnnotation.getStartLine());
         }
         
         // 如果无法生成稳定ID，使用随机UUID
-        if (sb.length() <= bugInstance.getType().length()) {
+        if (sb.length() <= type.length()) {
             return UUID.randomUUID().toString();
         }
         
@@ -138,10 +222,13 @@ public class FlowSpotResultProcessor {
      */
     @NotNull
     private static String generateTitle(@NotNull FlowSpotBugInstance bugInstance) {
-        String type = bugInstance.getType();
-        
-        // 动态转换类型为可读标题
-        return formatVulnerabilityType(type) + " Vulnerability";
+        return generateTitle(bugInstance.getType());
+    }
+    
+    @NotNull
+    private static String generateTitle(@NotNull String type) {
+        // 动态转换类型为可读标题，同一类型的漏洞共用一个字符串
+        return TITLES.computeIfAbsent(type, key -> formatVulnerabilityType(key) + " Vulnerability");
     }
     
     /**
@@ -210,21 +297,22 @@ public class FlowSpotResultProcessor {
      */
     @NotNull
     private static String extractDescription(@NotNull FlowSpotBugInstance bugInstance) {
-        String message = bugInstance.getMessage();
+        return extractDescription(bugInstance.getMessage(), bugInstance.getType());
+    }
+    
+    @NotNull
+    private static String extractDescription(@Nullable String message, @NotNull String type) {
         if (message != null && !message.trim().isEmpty()) {
             return message;
         }
         
         // 动态生成默认描述
-        String type = bugInstance.getType();
-        String formattedType = formatVulnerabilityType(type).toLowerCase();
-        
-        return String.format(
+        return DEFAULT_DESCRIPTIONS.computeIfAbsent(type, key -> String.format(
             "FlowSpot detected a potential %s vulnerability in the code. " +
             "This indicates that user input may flow to a sensitive sink without proper validation or sanitization. " +
             "Please review the data flow path and implement appropriate security measures.",
-            formattedType
-        );
+            formatVulnerabilityType(key).toLowerCase()
+        ));
     }
     
     /**
@@ -244,10 +332,11 @@ public class FlowSpotResultProcessor {
      * 提取主要位置信息
      */
     @Nullable
-    private static FlowSpotLocation extractPrimaryLocation(@NotNull FlowSpotBugInstance bugInstance) {
+    private static FlowSpotLocation extractPrimaryLocation(@NotNull FlowSpotBugInstance bugInstance,
+                                                           @Nullable String sourceRoot) {
         FlowSpotSourceLineAnnotation sourceAnnotation = bugInstance.getPrimarySourceLineAnnotation();
         if (sourceAnnotation != null) {
-            return convertSourceLineAnnotationToLocation(sourceAnnotation);
+            return convertSourceLineAnnotationToLocation(sourceAnnotation, sourceRoot);
         }
         return null;
     }
@@ -256,12 +345,13 @@ public class FlowSpotResultProcessor {
      * 提取数据流路径
      */
     @NotNull
-    private static List<FlowSpotLocation> extractDataFlowPath(@NotNull FlowSpotBugInstance bugInstance) {
+    private static List<FlowSpotLocation> extractDataFlowPath(@NotNull FlowSpotBugInstance bugInstance,
+                                                              @Nullable String sourceRoot) {
         List<FlowSpotLocation> dataFlowPath = new ArrayList<>();
         
         // 遍历所有注解，提取位置信息
         for (FlowSpotSourceLineAnnotation annotation : bugInstance.getAnnotations()) {
-            FlowSpotLocation location = convertSourceLineAnnotationToLocation(annotation);
+            FlowSpotLocation location = convertSourceLineAnnotationToLocation(annotation, sourceRoot);
             if (location != null) {
                 dataFlowPath.add(location);
             }
@@ -270,17 +360,33 @@ public class FlowSpotResultProcessor {
         return dataFlowPath;
     }
     
+    /**
+     * 提取数据流路径各节点的类名与方法名，取值与 {@link #convertSourceLineAnnotationToLocation} 一致
+     */
+    @NotNull
+    private static List<FlowSpotVulnerability.PathMethod> extractPathMethods(@NotNull FlowSpotBugInstance bugInstance) {
+        List<FlowSpotVulnerability.PathMethod> methods = new ArrayList<>();
+        for (FlowSpotSourceLineAnnotation annotation : bugInstance.getAnnotations()) {
+            String className = annotation.getClassName();
+            String methodName = annotation instanceof FlowSpotEnhancedSourceLineAnnotation
+                ? ((FlowSpotEnhancedSourceLineAnnotation) annotation).getMethodName() : null;
+            methods.add(new FlowSpotVulnerability.PathMethod(className != null ? className : "Unknown", methodName));
+        }
+        return methods;
+    }
+    
     /**
      * 提取注解信息
      */
     @NotNull
-    private static List<FlowSpotAnnotation> extractAnnotations(@NotNull FlowSpotBugInstance bugInstance) {
+    private static List<FlowSpotAnnotation> extractAnnotations(@NotNull FlowSpotBugInstance bugInstance,
+                                                               @Nullable String sourceRoot) {
         List<FlowSpotAnnotation> annotations = new ArrayList<>();
         
         for (FlowSpotSourceLineAnnotation sourceAnnotation : bugInstance.getAnnotations()) {
             FlowSpotAnnotation.AnnotationType type = FlowSpotAnnotation.AnnotationType.SOURCE_LINE;
             String description = sourceAnnotation.getDescription();
-            FlowSpotLocation location = convertSourceLineAnnotationToLocation(sourceAnnotation);
+            FlowSpotLocation location = convertSourceLineAnnotationToLocation(sourceAnnotation, sourceRoot);
             String pattern = null;
             String value = null;
             
@@ -310,10 +416,11 @@ public class FlowSpotResultProcessor {
      */
     @Nullable
     private static FlowSpotLocation convertSourceLineAnnotationToLocation(
-            @NotNull FlowSpotSourceLineAnnotation annotation) {
+            @NotNull FlowSpotSourceLineAnnotation annotation,
+            @Nullable String sourceRoot) {
         
         String className = annotation.getClassName();
-        String fileName = annotation.getSourceFile();
+        String fileName = resolveSourceFile(annotation.getSourceFile(), sourceRoot);
         String methodName = null;
         
         // 尝试从增强注解获取方法名
@@ -349,6 +456,22 @@ public class FlowSpotResultProcessor {
         );
     }
     
+    /**
+     * 将相对源文件路径解析到 sourceRoot 下
+     */
+    @Nullable
+    private static String resolveSourceFile(@Nullable String sourceFile, @Nullable String sourceRoot) {
+        if (sourceFile == null || sourceRoot == null || "Unknown".equals(sourceFile)) {
+            return sourceFile;
+        }
+        java.nio.file.Path path = java.nio.file.Paths.get(sourceFile);
+        if (path.isAbsolute()) {
+            return sourceFile;
+        }
+        // 同一文件在各条路径中反复出现，解析出的绝对路径入池共用
+        return FlowSpotStringPool.intern(java.nio.file.Paths.get(sourceRoot).resolve(path).normalize().toString());
+    }
+    
     /**
      * 生成HTML详情 - 动态格式化
      */
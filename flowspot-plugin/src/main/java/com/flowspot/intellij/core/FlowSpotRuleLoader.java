@@ -19,20 +19,31 @@
  */
 package com.flowspot.intellij.core;
 
-import omni.scan.Analyzer;
+import com.flowspot.intellij.model.GlobalSinkRulesState;
+import com.flowspot.intellij.service.GlobalSinkRulesService;
 import omni.scan.Query;
-import omni.scan.generate.SinkQueryGenerator;
+import omni.scan.RuleCatalog;
 import scala.jdk.javaapi.CollectionConverters;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * FlowSpot 动态规则加载器
  * 从 FlowSpot 引擎动态加载 sources 和 sinks 规则
+ *
+ * 分类结果在应用级别缓存：sink 分类按有效 sinks.json 的内容哈希和全局规则状态区分，
+ * 规则本身由引擎的 RuleCatalog 缓存，扫描时复用同一份解析结果
  */
 public class FlowSpotRuleLoader {
+
+    // 同时保留的 sink 分类数，超过时整体清空
+    private static final int MAX_SINK_CATALOGS = 4;
+
+    private static final Map<String, Map<String, SinkCategory>> sinkCatalogs = new ConcurrentHashMap<>();
+    private static volatile Map<String, SourceCategory> sourceCatalog;
     
     /**
      * Source 规则分类信息
@@ -79,12 +90,27 @@ public class FlowSpotRuleLoader {
      */
     @NotNull
     public static Map<String, SourceCategory> loadSourceCategories() {
+        Map<String, SourceCategory> cached = sourceCatalog;
+        if (cached == null) {
+            cached = buildSourceCategories();
+            if (cached == null) {
+                // 如果加载失败，创建一个空的分类，不缓存以便下次重试
+                Map<String, SourceCategory> categories = new LinkedHashMap<>();
+                categories.put("Unknown Sources", new SourceCategory("Unknown Sources", new ArrayList<>()));
+                return categories;
+            }
+            sourceCatalog = cached;
+        }
+        return new LinkedHashMap<>(cached);
+    }
+
+    @Nullable
+    private static Map<String, SourceCategory> buildSourceCategories() {
         Map<String, SourceCategory> categories = new LinkedHashMap<>();
         
         try {
-            // 创建 Analyzer 实例并获取 source 规则
-            Analyzer analyzer = new Analyzer();
-            List<Query> sourceQueries = CollectionConverters.asJava(analyzer.getSourcesQuery());
+            // 获取 source 规则
+            List<Query> sourceQueries = CollectionConverters.asJava(RuleCatalog.sourceQueries());
             
             // 按文件名进行分类
             Map<String, List<Query>> categoryMap = new HashMap<>();
@@ -100,11 +126,10 @@ public class FlowSpotRuleLoader {
             }
             
         } catch (Exception e) {
-            // 如果加载失败，创建一个空的分类
-            categories.put("Unknown Sources", new SourceCategory("Unknown Sources", new ArrayList<>()));
+            return null;
         }
         
-        return categories;
+        return Collections.unmodifiableMap(categories);
     }
     
     /**
@@ -121,19 +146,58 @@ public class FlowSpotRuleLoader {
      */
     @NotNull
     public static Map<String, SinkCategory> loadSinkCategories(@Nullable String projectSinksJsonPath) {
+        String sinksJsonPath = projectSinksJsonPath != null && !projectSinksJsonPath.isEmpty() ? projectSinksJsonPath : null;
+        String key = catalogKey(sinksJsonPath);
+
+        Map<String, SinkCategory> cached = sinkCatalogs.get(key);
+        if (cached == null) {
+            cached = buildSinkCategories(sinksJsonPath);
+            if (cached == null) {
+                // 如果加载失败，创建一个空的分类，不缓存以便下次重试
+                Map<String, SinkCategory> categories = new LinkedHashMap<>();
+                categories.put("Unknown Sinks", new SinkCategory("Unknown Sinks"));
+                return categories;
+            }
+            if (sinkCatalogs.size() >= MAX_SINK_CATALOGS) {
+                sinkCatalogs.clear();
+            }
+            sinkCatalogs.put(key, cached);
+        }
+        return new LinkedHashMap<>(cached);
+    }
+
+    /**
+     * 缓存键：有效 sinks.json 的内容哈希加上全局规则的修改时间
+     */
+    @NotNull
+    private static String catalogKey(@Nullable String sinksJsonPath) {
+        String fingerprint = sinksJsonPath != null ? RuleCatalog.fingerprint(sinksJsonPath) : RuleCatalog.defaultFingerprint();
+        long globalRulesModified = 0L;
+        try {
+            GlobalSinkRulesState state = GlobalSinkRulesService.getInstance().getState();
+            if (state != null) {
+                globalRulesModified = state.lastModified;
+            }
+        } catch (Exception e) {
+            // 全局规则服务不可用时只按文件内容区分
+        }
+        return fingerprint + '@' + globalRulesModified;
+    }
+
+    @Nullable
+    private static Map<String, SinkCategory> buildSinkCategories(@Nullable String sinksJsonPath) {
         Map<String, SinkCategory> categories = new LinkedHashMap<>();
         
         try {
-            // 1. 创建 Analyzer 实例并获取所有 sink 规则（包括内置规则和JSON规则）
-            Analyzer analyzer = new Analyzer();
+            // 1. 获取所有 sink 规则（包括内置规则和JSON规则）
             List<Query> allSinkQueries;
             
-            if (projectSinksJsonPath != null && !projectSinksJsonPath.isEmpty()) {
+            if (sinksJsonPath != null) {
                 // 使用项目特定的sinks.json，这会包含JSON规则和内置规则
-                allSinkQueries = CollectionConverters.asJava(analyzer.getSinksQuery(projectSinksJsonPath));
+                allSinkQueries = CollectionConverters.asJava(RuleCatalog.sinkQueries(sinksJsonPath));
             } else {
                 // 使用默认的sinks.json，这会包含JSON规则和内置规则
-                allSinkQueries = CollectionConverters.asJava(analyzer.getSinksQuery());
+                allSinkQueries = CollectionConverters.asJava(RuleCatalog.sinkQueries());
             }
             
             // 按 rule.category 进行分类
@@ -147,12 +211,10 @@ public class FlowSpotRuleLoader {
             
             
         } catch (Exception e) {
-            // 如果加载失败，创建一个空的分类
-            SinkCategory unknownCategory = new SinkCategory("Unknown Sinks");
-            categories.put("Unknown Sinks", unknownCategory);
+            return null;
         }
         
-        return categories;
+        return Collections.unmodifiableMap(categories);
     }
     
     /**
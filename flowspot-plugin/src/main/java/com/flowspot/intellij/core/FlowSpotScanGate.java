@@ -0,0 +1,121 @@
+/*
+ * Copyright 2024 FlowSpot plugin contributors
+ *
+ * This file is part of IntelliJ FlowSpot plugin.
+ *
+ * IntelliJ FlowSpot plugin is free software: you can redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * IntelliJ FlowSpot plugin is distributed in the hope that it will
+ * be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with IntelliJ FlowSpot plugin.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.flowspot.intellij.core;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Supplier;
+
+/**
+ * 按日志目录调度进程内扫描
+ * 进程内扫描共用引擎的全局日志与输出重定向，日志目录相同的扫描（同一项目的各个模块）可以同时进行，
+ * 目录不同的扫描排队，等当前目录的扫描全部结束后再启动；排队时不占用扫描线程
+ */
+final class FlowSpotScanGate {
+
+    private final Deque<Pending<?>> queue = new ArrayDeque<>();
+    private String activeKey = null;
+    private int running = 0;
+
+    /**
+     * 提交一个扫描，轮到时在指定线程池中执行
+     *
+     * @param key      日志目录，相同目录的扫描可以并行
+     * @param task     扫描任务
+     * @param executor 执行扫描的线程池
+     * @return 扫描结果；排队期间取消会将其移出队列
+     */
+    @NotNull
+    <T> CompletableFuture<T> submit(@NotNull String key, @NotNull Supplier<T> task, @NotNull Executor executor) {
+        Pending<T> pending = new Pending<>(key, task, executor);
+        synchronized (this) {
+            queue.add(pending);
+        }
+        pump();
+        return pending.result;
+    }
+
+    private void pump() {
+        List<Pending<?>> toStart = new ArrayList<>();
+        synchronized (this) {
+            Iterator<Pending<?>> iterator = queue.iterator();
+            while (iterator.hasNext()) {
+                Pending<?> next = iterator.next();
+                if (next.result.isDone()) {
+                    iterator.remove();
+                    continue;
+                }
+                if (running == 0) {
+                    activeKey = next.key;
+                }
+                if (next.key.equals(activeKey)) {
+                    iterator.remove();
+                    running++;
+                    toStart.add(next);
+                }
+            }
+        }
+        // 在锁外启动，避免回调重入时持有锁
+        for (Pending<?> pending : toStart) {
+            start(pending);
+        }
+    }
+
+    private <T> void start(@NotNull Pending<T> pending) {
+        CompletableFuture<T> future;
+        try {
+            future = CompletableFuture.supplyAsync(pending.task, pending.executor);
+        } catch (Throwable t) {
+            future = CompletableFuture.failedFuture(t);
+        }
+        // 以实际执行结束为准释放，外部取消不会提前放行其他目录的扫描
+        future.whenComplete((value, error) -> {
+            synchronized (this) {
+                running--;
+            }
+            if (error != null) {
+                pending.result.completeExceptionally(error);
+            } else {
+                pending.result.complete(value);
+            }
+            pump();
+        });
+    }
+
+    private static final class Pending<T> {
+        private final String key;
+        private final Supplier<T> task;
+        private final Executor executor;
+        private final CompletableFuture<T> result = new CompletableFuture<>();
+
+        private Pending(@NotNull String key, @NotNull Supplier<T> task, @NotNull Executor executor) {
+            this.key = key;
+            this.task = task;
+            this.executor = executor;
+        }
+    }
+}
@@ -0,0 +1,266 @@
+/*
+ * Copyright 2024 FlowSpot plugin contributors
+ *
+ * This file is part of IntelliJ FlowSpot plugin.
+ *
+ * IntelliJ FlowSpot plugin is free software: you can redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * IntelliJ FlowSpot plugin is distributed in the hope that it will
+ * be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with IntelliJ FlowSpot plugin.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.flowspot.intellij.core;
+
+import omni.flowspot.core.FlowSpotBugCollection;
+import omni.flowspot.core.FlowSpotBugInstance;
+import omni.flowspot.core.FlowSpotRuleProfile;
+import omni.flowspot.worker.WorkerProtocol;
+import omni.scan.FlowSpot;
+import omni.scan.FlowSpotProjectConfig;
+import omni.scan.ProgressCallback;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+/**
+ * 在独立 JVM 中运行 FlowSpot 分析
+ * CPG 和数据流分析占用的内存在工作进程中分配，扫描结束或取消时随进程一起释放，不占用 IDE 堆；
+ * 插件在本地回环地址上监听，工作进程连接后用一次性令牌握手，进度和漏洞通过 WorkerProtocol 实时回传
+ */
+public final class FlowSpotWorkerLauncher {
+
+    /**
+     * 用户级选项：是否在独立进程中运行分析，以及工作进程的最大堆（MB）
+     */
+    public static final String ENABLED_PROPERTY = "flowspot.worker.enabled";
+    public static final String HEAP_MB_PROPERTY = "flowspot.worker.heapMb";
+    public static final int DEFAULT_HEAP_MB = 4096;
+
+    private static final String WORKER_MAIN_CLASS = "omni.scan.AnalysisWorker";
+    private static final int CONNECT_TIMEOUT_MS = 60_000;
+    private static final long CANCEL_POLL_MS = 200;
+    private static final long CANCEL_GRACE_MS = 2_000;
+
+    private final FlowSpotLogManager logManager;
+    private final int heapMb;
+
+    FlowSpotWorkerLauncher(@NotNull FlowSpotLogManager logManager, int heapMb) {
+        this.logManager = logManager;
+        this.heapMb = heapMb;
+    }
+
+    /**
+     * 启动工作进程执行分析并等待结果
+     *
+     * @param cancelled 取消检查，返回 true 时终止工作进程并抛出 CancellationException
+     */
+    @NotNull
+    FlowSpotBugCollection run(@NotNull FlowSpotProjectConfig config,
+                              @NotNull ProgressCallback callback,
+                              @NotNull BooleanSupplier cancelled) throws IOException {
+        String token = UUID.randomUUID().toString();
+        try (ServerSocket server = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+            server.setSoTimeout(CONNECT_TIMEOUT_MS);
+            Process process = start(server.getLocalPort(), token, config.getBaseProjectPath());
+            logManager.logInfo("FlowSpot worker started, pid " + process.pid() + ", heap " + heapMb + " MB");
+            try (Socket socket = accept(server, process)) {
+                socket.setTcpNoDelay(true);
+                WorkerProtocol.Reader reader = new WorkerProtocol.Reader(socket.getInputStream());
+                WorkerProtocol.Writer writer = new WorkerProtocol.Writer(socket.getOutputStream());
+                if (!token.equals(reader.handshake())) {
+                    throw new IOException("FlowSpot worker handshake failed");
+                }
+                writer.request(config.getFlowSpotProject());
+
+                Thread watcher = watchCancellation(process, writer, cancelled);
+                try {
+                    return receive(reader, config, callback, cancelled, process);
+                } finally {
+                    watcher.interrupt();
+                }
+            } finally {
+                if (process.isAlive()) {
+                    process.destroyForcibly();
+                }
+            }
+        }
+    }
+
+    @NotNull
+    private Process start(int port, @NotNull String token, @NotNull String basePath) throws IOException {
+        List<String> command = new ArrayList<>();
+        command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+        command.add("-Xmx" + heapMb + "m");
+        command.add("-Dfile.encoding=UTF-8");
+        command.add("-cp");
+        command.add(engineClassPath());
+        command.add(WORKER_MAIN_CLASS);
+        command.add("--port");
+        command.add(String.valueOf(port));
+        command.add("--token");
+        command.add(token);
+
+        // 工作进程的标准输出只用于排查启动失败，追加到项目的 .flowspot/worker.log
+        Path log = Paths.get(basePath, ".flowspot", "worker.log");
+        Files.createDirectories(log.getParent());
+        return new ProcessBuilder(command)
+            .redirectErrorStream(true)
+            .redirectOutput(ProcessBuilder.Redirect.appendTo(log.toFile()))
+            .start();
+    }
+
+    /**
+     * 引擎 jar 所在目录下的全部 jar 即工作进程的类路径（开发环境中为引擎的类目录）
+     */
+    @NotNull
+    private static String engineClassPath() throws IOException {
+        try {
+            Path location = Paths.get(FlowSpot.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+            return Files.isDirectory(location) ? location.toString() : location.resolveSibling("*").toString();
+        } catch (Exception e) {
+            throw new IOException("Cannot locate FlowSpot engine classes", e);
+        }
+    }
+
+    @NotNull
+    private static Socket accept(@NotNull ServerSocket server, @NotNull Process process) throws IOException {
+        try {
+            return server.accept();
+        } catch (SocketTimeoutException e) {
+            throw new IOException("FlowSpot worker did not connect"
+                + (process.isAlive() ? "" : " (exit code " + process.exitValue() + ")"), e);
+        }
+    }
+
+    @NotNull
+    private static Thread watchCancellation(@NotNull Process process,
+                                            @NotNull WorkerProtocol.Writer writer,
+                                            @NotNull BooleanSupplier cancelled) {
+        Thread watcher = new Thread(() -> {
+            try {
+                while (process.isAlive() && !cancelled.getAsBoolean()) {
+                    Thread.sleep(CANCEL_POLL_MS);
+                }
+                if (process.isAlive()) {
+                    try {
+                        writer.cancel();
+                    } catch (IOException ignored) {
+                        // 连接已断开，直接结束进程
+                    }
+                    if (!process.waitFor(CANCEL_GRACE_MS, TimeUnit.MILLISECONDS)) {
+                        process.destroyForcibly();
+                    }
+                }
+            } catch (InterruptedException ignored) {
+                // 分析已结束
+            }
+        }, "FlowSpot-Worker-Cancel");
+        watcher.setDaemon(true);
+        watcher.start();
+        return watcher;
+    }
+
+    @NotNull
+    private FlowSpotBugCollection receive(@NotNull WorkerProtocol.Reader reader,
+                                          @NotNull FlowSpotProjectConfig config,
+                                          @NotNull ProgressCallback callback,
+                                          @NotNull BooleanSupplier cancelled,
+                                          @NotNull Process process) throws IOException {
+        FlowSpotBugCollection bugCollection = new FlowSpotBugCollection(config.getProjectName());
+        List<FlowSpotRuleProfile> profiles = new ArrayList<>();
+        String[] error = new String[1];
+        boolean[] done = new boolean[1];
+
+        WorkerProtocol.Handler handler = new WorkerProtocol.Handler() {
+            @Override
+            public void onMessage(String message) {
+                callback.updateMessage(message);
+            }
+
+            @Override
+            public void onProgress(int progress) {
+                callback.updateProgress(progress);
+            }
+
+            @Override
+            public void onFinding(FlowSpotBugInstance bugInstance) {
+                bugCollection.add(bugInstance);
+                callback.onFinding(bugInstance);
+            }
+
+            @Override
+            public void onRuleProfile(FlowSpotRuleProfile profile) {
+                profiles.add(profile);
+            }
+
+            @Override
+            public void onDone(int findings) {
+                done[0] = true;
+                if (findings != bugCollection.size()) {
+                    logManager.logWarning("FlowSpot worker reported " + findings
+                        + " findings but sent " + bugCollection.size());
+                }
+            }
+
+            @Override
+            public void onError(String message) {
+                error[0] = message;
+            }
+        };
+
+        try {
+            while (reader.next(handler)) {
+                // 逐帧处理，直到 DONE、ERROR 或 CANCEL
+            }
+        } catch (IOException e) {
+            if (!cancelled.getAsBoolean()) {
+                throw new IllegalStateException("FlowSpot worker terminated unexpectedly"
+                    + exitCode(process), e);
+            }
+        }
+
+        if (cancelled.getAsBoolean()) {
+            throw new CancellationException("FlowSpot analysis cancelled");
+        }
+        if (error[0] != null) {
+            throw new RuntimeException("FlowSpot worker failed: " + error[0]);
+        }
+        if (!done[0]) {
+            throw new IllegalStateException("FlowSpot worker stopped without result" + exitCode(process));
+        }
+        bugCollection.setRuleProfiles(profiles);
+        return bugCollection;
+    }
+
+    @NotNull
+    private static String exitCode(@NotNull Process process) {
+        try {
+            return process.waitFor(CANCEL_GRACE_MS, TimeUnit.MILLISECONDS)
+                ? " (exit code " + process.exitValue() + ")" : "";
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return "";
+        }
+    }
+}
@@ -0,0 +1,172 @@
+/*
+ * Copyright 2024 FlowSpot plugin contributors
+ */
+package com.flowspot.intellij.gui;
+
+import com.intellij.ui.JBColor;
+import omni.flowspot.annotations.FlowSpotSourceLineAnnotation;
+import org.jetbrains.annotations.NotNull;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.geom.Path2D;
+
+/**
+ * 紧凑型数据流节点渲染器
+ * 统一样式，支持箭头连接；整个路径共用一个渲染器实例，只绘制可见的节点
+ */
+public class CompactDataFlowNodeRenderer extends JComponent implements ListCellRenderer<FlowSpotSourceLineAnnotation> {
+
+    /**
+     * 列表上记录悬停节点下标的客户端属性
+     */
+    static final String HOVER_INDEX_KEY = "FlowSpot.DataFlow.HoverIndex";
+
+    // 统一的节点样式
+    private static final Color NODE_COLOR = new Color(33, 150, 243); // 统一蓝色
+    private static final Font CODE_FONT = new Font("Monospaced", Font.PLAIN, 10);
+    private static final Font LOCATION_FONT = new Font("SansSerif", Font.PLAIN, 9);
+    private static final Stroke BORDER_STROKE = new BasicStroke(2f);
+
+    // 尺寸常量
+    static final int NODE_WIDTH = 200;
+    static final int NODE_HEIGHT = 45;
+    static final int ARROW_HEIGHT = 20;
+    private static final int CORNER_RADIUS = 8;
+
+    private FlowSpotSourceLineAnnotation annotation;
+    private boolean isLastNode;
+    private boolean isHovered;
+
+    public CompactDataFlowNodeRenderer() {
+        setOpaque(false); // 透明背景，自定义绘制
+    }
+
+    @Override
+    public Component getListCellRendererComponent(JList<? extends FlowSpotSourceLineAnnotation> list,
+                                                  FlowSpotSourceLineAnnotation value,
+                                                  int index,
+                                                  boolean isSelected,
+                                                  boolean cellHasFocus) {
+        this.annotation = value;
+        this.isLastNode = index == list.getModel().getSize() - 1;
+        this.isHovered = Integer.valueOf(index).equals(list.getClientProperty(HOVER_INDEX_KEY));
+        return this;
+    }
+
+    @Override
+    public Dimension getPreferredSize() {
+        return new Dimension(NODE_WIDTH, NODE_HEIGHT + ARROW_HEIGHT);
+    }
+
+    @Override
+    protected void paintComponent(Graphics g) {
+        if (annotation == null) {
+            return;
+        }
+        Graphics2D g2d = (Graphics2D) g.create();
+
+        // 启用抗锯齿
+        g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        g2d.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+
+        try {
+            // 节点在单元格内水平居中
+            g2d.translate(Math.max(0, (getWidth() - NODE_WIDTH) / 2), 0);
+            drawNode(g2d);
+            if (!isLastNode) {
+                drawArrow(g2d);
+            }
+        } finally {
+            g2d.dispose();
+        }
+    }
+
+    private void drawNode(Graphics2D g2d) {
+        // 节点主体区域，留出边框宽度
+        Rectangle nodeRect = new Rectangle(1, 1, NODE_WIDTH - 2, NODE_HEIGHT - 2);
+
+        // 绘制节点背景
+        Color bgColor = isHovered ?
+            brightenColor(NODE_COLOR, 0.2f) :
+            NODE_COLOR.brighter();
+
+        g2d.setColor(bgColor);
+        g2d.fillRoundRect(nodeRect.x, nodeRect.y, nodeRect.width, nodeRect.height,
+                         CORNER_RADIUS, CORNER_RADIUS);
+
+        // 绘制节点边框
+        g2d.setColor(NODE_COLOR.darker());
+        g2d.setStroke(BORDER_STROKE);
+        g2d.drawRoundRect(nodeRect.x, nodeRect.y, nodeRect.width, nodeRect.height,
+                         CORNER_RADIUS, CORNER_RADIUS);
+
+        // 绘制节点内容
+        drawNodeContent(g2d, nodeRect);
+    }
+
+    private void drawNodeContent(Graphics2D g2d, Rectangle nodeRect) {
+        // 绘制代码信息（居中）
+        g2d.setFont(CODE_FONT);
+        g2d.setColor(Color.BLACK);
+
+        String codeText = getDisplayText();
+        FontMetrics codeFm = g2d.getFontMetrics();
+        // 计算居中位置（在节点内居中）
+        int codeX = nodeRect.x + (nodeRect.width - codeFm.stringWidth(codeText)) / 2;
+        int codeY = nodeRect.y + (nodeRect.height - codeFm.getHeight()) / 2 + codeFm.getAscent() - 5;
+        g2d.drawString(codeText, codeX, codeY);
+
+        // 绘制位置信息（居中）
+        String locationText = getLocationText();
+        g2d.setFont(LOCATION_FONT);
+        g2d.setColor(Color.DARK_GRAY);
+
+        FontMetrics locFm = g2d.getFontMetrics();
+        // 计算居中位置
+        int locX = nodeRect.x + (nodeRect.width - locFm.stringWidth(locationText)) / 2;
+        int locY = nodeRect.y + nodeRect.height - 6;
+        g2d.drawString(locationText, locX, locY);
+    }
+
+    private void drawArrow(Graphics2D g2d) {
+        // 绘制向下的箭头连接线
+        int centerX = NODE_WIDTH / 2;
+        int startY = NODE_HEIGHT;
+        int endY = NODE_HEIGHT + ARROW_HEIGHT;
+
+        // 绘制箭头线
+        g2d.setColor(JBColor.GRAY);
+        g2d.setStroke(BORDER_STROKE);
+        g2d.drawLine(centerX, startY, centerX, endY - 8);
+
+        // 绘制箭头头部
+        Path2D arrowHead = new Path2D.Float();
+        arrowHead.moveTo(centerX, endY);
+        arrowHead.lineTo(centerX - 6, endY - 8);
+        arrowHead.lineTo(centerX + 6, endY - 8);
+        arrowHead.closePath();
+
+        g2d.fill(arrowHead);
+    }
+
+    @NotNull
+    private String getDisplayText() {
+        if (annotation.getIdentifierName() != null) {
+            return annotation.getIdentifierName();
+        }
+        return "Code";
+    }
+
+    @NotNull
+    private String getLocationText() {
+        return "Method " + annotation.getMethodName();
+    }
+
+    private static Color brightenColor(Color color, float factor) {
+        int r = Math.min(255, (int) (color.getRed() * (1 + factor)));
+        int g = Math.min(255, (int) (color.getGreen() * (1 + factor)));
+        int b = Math.min(255, (int) (color.getBlue() * (1 + factor)));
+        return new Color(r, g, b);
+    }
+}
@@ -4,6 +4,8 @@
 package com.flowspot.intellij.gui;
 
 import com.intellij.openapi.project.Project;
+import com.intellij.ui.CollectionListModel;
+import com.intellij.ui.components.JBList;
 import com.intellij.ui.components.JBScrollPane;
 import omni.flowspot.annotations.FlowSpotSourceLineAnnotation;
 import omni.flowspot.core.FlowSpotBugInstance;
@@ -11,165 +13,157 @@ import org.jetbrains.annotations.NotNull;
 
 import javax.swing.*;
 import java.awt.*;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
 import java.util.List;
 import java.util.ArrayList;
-import java.util.Collection;
 
 /**
  * 紧凑型数据流可视化面板
- * 使用统一样式的紧凑节点组件显示数据流路径
+ * 使用统一样式的紧凑节点显示数据流路径
+ *
+ * 路径显示为固定行高的列表，所有节点共用一个渲染器，只绘制可见的节点，
+ * 切换漏洞时不创建任何节点组件，与路径长度无关
  */
 public class CompactDataFlowPanel extends JPanel {
-    
+
     private final Project project;
-    private JPanel flowContainer;
+    private JBList<FlowSpotSourceLineAnnotation> flowList;
     private JScrollPane scrollPane;
-    
+
     public CompactDataFlowPanel(@NotNull Project project) {
         this.project = project;
         initializeUI();
+        setupEventHandlers();
     }
-    
+
     private void initializeUI() {
         setLayout(new BorderLayout());
-        
-        // 创建流容器，使用居中布局
-        JPanel centerWrapper = new JPanel(new FlowLayout(FlowLayout.CENTER, 0, 0));
-        centerWrapper.setBackground(Color.BLACK);
-        
-        flowContainer = new JPanel();
-        flowContainer.setLayout(new BoxLayout(flowContainer, BoxLayout.Y_AXIS));
-        flowContainer.setBackground(Color.BLACK);
-        
-        centerWrapper.add(flowContainer);
-        
+
+        // 创建路径列表，固定行高使列表无需逐个测量节点
+        flowList = new JBList<>(new CollectionListModel<>());
+        flowList.setCellRenderer(new CompactDataFlowNodeRenderer());
+        flowList.setFixedCellHeight(CompactDataFlowNodeRenderer.NODE_HEIGHT + CompactDataFlowNodeRenderer.ARROW_HEIGHT);
+        flowList.setFixedCellWidth(CompactDataFlowNodeRenderer.NODE_WIDTH);
+        flowList.setBackground(Color.BLACK);
+        flowList.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        flowList.setCursor(Cursor.getPredefinedCursor(Cursor.HAND_CURSOR));
+        flowList.getEmptyText().setText("No data flow path available");
+
         // 创建滚动面板
-        scrollPane = new JBScrollPane(centerWrapper);
+        scrollPane = new JBScrollPane(flowList);
         scrollPane.setVerticalScrollBarPolicy(JScrollPane.VERTICAL_SCROLLBAR_AS_NEEDED);
         scrollPane.setHorizontalScrollBarPolicy(JScrollPane.HORIZONTAL_SCROLLBAR_NEVER);
         scrollPane.getVerticalScrollBar().setUnitIncrement(16);
-        
+
         add(scrollPane, BorderLayout.CENTER);
-        
-        // 添加标题
+
+        // 添加标题和分隔线
+        JPanel headerPanel = new JPanel(new BorderLayout());
         JLabel titleLabel = new JLabel("Data Flow Path", SwingConstants.CENTER);
         titleLabel.setFont(titleLabel.getFont().deriveFont(Font.BOLD, 14f));
         titleLabel.setBorder(BorderFactory.createEmptyBorder(8, 8, 8, 8));
-        add(titleLabel, BorderLayout.NORTH);
+        headerPanel.add(titleLabel, BorderLayout.CENTER);
+
+        JSeparator separator = new JSeparator();
+        separator.setForeground(Color.LIGHT_GRAY);
+        headerPanel.add(separator, BorderLayout.SOUTH);
+        add(headerPanel, BorderLayout.NORTH);
     }
-    
+
+    /**
+     * 点击节点跳转到代码，悬停时只重绘变化的两个节点
+     */
+    private void setupEventHandlers() {
+        MouseAdapter mouseHandler = new MouseAdapter() {
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                int index = nodeIndexAt(e.getPoint());
+                if (index >= 0) {
+                    FlowSpotDataFlowNodeComponent.navigateToCode(project, flowList.getModel().getElementAt(index), flowList);
+                }
+            }
+
+            @Override
+            public void mouseMoved(MouseEvent e) {
+                setHoverIndex(nodeIndexAt(e.getPoint()));
+            }
+
+            @Override
+            public void mouseExited(MouseEvent e) {
+                setHoverIndex(-1);
+            }
+        };
+        flowList.addMouseListener(mouseHandler);
+        flowList.addMouseMotionListener(mouseHandler);
+    }
+
+    /**
+     * 鼠标位置下的节点下标，落在行内空白处时返回 -1
+     */
+    private int nodeIndexAt(@NotNull Point point) {
+        int index = flowList.locationToIndex(point);
+        if (index < 0) {
+            return -1;
+        }
+        Rectangle bounds = flowList.getCellBounds(index, index);
+        return bounds != null && bounds.contains(point) ? index : -1;
+    }
+
+    private void setHoverIndex(int index) {
+        Object previous = flowList.getClientProperty(CompactDataFlowNodeRenderer.HOVER_INDEX_KEY);
+        if (previous instanceof Integer && (Integer) previous == index) {
+            return;
+        }
+        flowList.putClientProperty(CompactDataFlowNodeRenderer.HOVER_INDEX_KEY, index >= 0 ? index : null);
+        repaintNode(previous instanceof Integer ? (Integer) previous : -1);
+        repaintNode(index);
+    }
+
+    private void repaintNode(int index) {
+        if (index >= 0 && index < flowList.getModel().getSize()) {
+            Rectangle bounds = flowList.getCellBounds(index, index);
+            if (bounds != null) {
+                flowList.repaint(bounds);
+            }
+        }
+    }
+
     /**
      * 设置要显示的漏洞实例
      */
     public void setVulnerability(@NotNull FlowSpotBugInstance vulnerability) {
         SwingUtilities.invokeLater(() -> {
-            flowContainer.removeAll();
-            
-            Collection<FlowSpotSourceLineAnnotation> annotationCollection = vulnerability.getAnnotations();
-            List<FlowSpotSourceLineAnnotation> annotations = new ArrayList<>(annotationCollection);
-            if (annotations == null || annotations.isEmpty()) {
-                showEmptyState();
-                return;
-            }
-            
-            // 添加流路径标题
-            addFlowPathHeader(vulnerability);
-            
-            // 创建节点组件（只对Identifier节点使用紧凑样式）
-            for (int i = 0; i < annotations.size(); i++) {
-                FlowSpotSourceLineAnnotation annotation = annotations.get(i);
-                boolean isLastNode = (i == annotations.size() - 1);
-                boolean isIdentifier = isIdentifierAnnotation(annotation);
-                
-                if (isIdentifier) {
-                    // Identifier节点使用紧凑组件
-                    CompactDataFlowNodeComponent nodeComponent = new CompactDataFlowNodeComponent(
-                        project, annotation, i, isLastNode
-                    );
-                    flowContainer.add(nodeComponent);
-                    
-                    // 添加间距（除了最后一个节点）
-                    if (!isLastNode) {
-                        flowContainer.add(Box.createVerticalStrut(2));
-                    }
+            // 只显示Identifier节点
+            List<FlowSpotSourceLineAnnotation> nodes = new ArrayList<>();
+            for (FlowSpotSourceLineAnnotation annotation : vulnerability.getAnnotations()) {
+                if (isIdentifierAnnotation(annotation)) {
+                    nodes.add(annotation);
                 }
             }
-            
-            // 添加底部间距
-            flowContainer.add(Box.createVerticalGlue());
-            
-            flowContainer.revalidate();
-            flowContainer.repaint();
-            
+
+            flowList.putClientProperty(CompactDataFlowNodeRenderer.HOVER_INDEX_KEY, null);
+            flowList.setModel(new CollectionListModel<>(nodes));
+
             // 滚动到顶部
-            SwingUtilities.invokeLater(() -> {
-                scrollPane.getVerticalScrollBar().setValue(0);
-            });
+            scrollPane.getVerticalScrollBar().setValue(0);
         });
     }
-    
-    private void addFlowPathHeader(FlowSpotBugInstance vulnerability) {
-//        JPanel headerPanel = new JPanel(new BorderLayout());
-//        headerPanel.setBackground(Color.WHITE);
-//        headerPanel.setBorder(BorderFactory.createEmptyBorder(8, 12, 8, 12));
-//        // 限制headerPanel的高度
-//        headerPanel.setPreferredSize(new Dimension(0, 40));
-//        headerPanel.setMaximumSize(new Dimension(Integer.MAX_VALUE, 40));
-        
-        // 漏洞类型标签
-//        JLabel typeLabel = new JLabel(vulnerability.getType());
-//        typeLabel.setFont(typeLabel.getFont().deriveFont(Font.BOLD, 12f));
-//        typeLabel.setForeground(new Color(244, 67, 54)); // 红色
-        
-        // 路径长度信息
-        int pathLength = vulnerability.getAnnotations().size();
-//        JLabel pathInfo = new JLabel(String.format("Path: %d steps", pathLength));
-//        pathInfo.setFont(pathInfo.getFont().deriveFont(Font.PLAIN, 10f));
-//        pathInfo.setForeground(Color.GRAY);
-        
-//        headerPanel.add(typeLabel, BorderLayout.WEST);
-//        headerPanel.add(pathInfo, BorderLayout.EAST);
-        
-        // 添加分隔线
-        JSeparator separator = new JSeparator();
-        separator.setForeground(Color.LIGHT_GRAY);
-        
-//        flowContainer.add(headerPanel);
-        flowContainer.add(separator);
-        flowContainer.add(Box.createVerticalStrut(8));
-    }
-    
+
     /**
      * 判断是否为Identifier节点
      */
     private boolean isIdentifierAnnotation(FlowSpotSourceLineAnnotation annotation) {
         return "Identifier".equals(annotation.getNodeType());
     }
-    
-    private void showEmptyState() {
-        flowContainer.removeAll();
-        
-        JLabel emptyLabel = new JLabel("No data flow path available", SwingConstants.CENTER);
-        emptyLabel.setForeground(Color.GRAY);
-        emptyLabel.setFont(emptyLabel.getFont().deriveFont(Font.ITALIC));
-        
-        JPanel emptyPanel = new JPanel(new BorderLayout());
-        emptyPanel.setBackground(Color.WHITE);
-        emptyPanel.add(emptyLabel, BorderLayout.CENTER);
-        
-        flowContainer.add(emptyPanel);
-        flowContainer.revalidate();
-        flowContainer.repaint();
-    }
-    
+
     /**
      * 清空显示内容
      */
     public void clearContent() {
         SwingUtilities.invokeLater(() -> {
-            flowContainer.removeAll();
-            flowContainer.revalidate();
-            flowContainer.repaint();
+            flowList.putClientProperty(CompactDataFlowNodeRenderer.HOVER_INDEX_KEY, null);
+            flowList.setModel(new CollectionListModel<>());
         });
     }
 }
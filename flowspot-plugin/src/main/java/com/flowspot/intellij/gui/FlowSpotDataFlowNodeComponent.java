@@ -23,7 +23,6 @@ import com.intellij.openapi.project.Project;
 import com.intellij.openapi.fileEditor.FileEditorManager;
 import com.intellij.openapi.fileEditor.OpenFileDescriptor;
 import com.intellij.openapi.vfs.VirtualFile;
-import com.intellij.openapi.vfs.LocalFileSystem;
 import com.intellij.openapi.editor.Editor;
 import com.intellij.openapi.editor.CaretModel;
 import com.intellij.openapi.editor.ScrollType;
@@ -35,6 +34,7 @@ import com.intellij.openapi.editor.markup.RangeHighlighter;
 import com.intellij.openapi.editor.markup.TextAttributes;
 import com.intellij.openapi.application.ApplicationManager;
 import com.intellij.ui.JBColor;
+import com.flowspot.intellij.service.FlowSpotFileResolver;
 import omni.flowspot.annotations.FlowSpotSourceLineAnnotation;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
@@ -199,24 +199,35 @@ public class FlowSpotDataFlowNodeComponent extends JPanel {
     /**
      * 导航到代码位置 - 复用Data Flow的精确高亮逻辑
      */
-    private void navigateToCode() {
+    void navigateToCode() {
+        navigateToCode(project, annotation, this);
+    }
+    
+    /**
+     * 导航到注解对应的代码位置，不需要创建节点组件
+     *
+     * @param context 发起导航的组件，用于查找所在数据流面板的分析基础路径和显示错误提示
+     */
+    static void navigateToCode(@NotNull Project project,
+                               @NotNull FlowSpotSourceLineAnnotation annotation,
+                               @NotNull Component context) {
         String sourceFile = annotation.getSourceFile();
         if (sourceFile == null) {
             return;
         }
         
         // 直接使用被分析目录拼接filename
-        String fullPath = constructFullFilePath(sourceFile);
+        String fullPath = constructFullFilePath(project, context, sourceFile);
         
         ApplicationManager.getApplication().invokeLater(() -> {
-            VirtualFile virtualFile = LocalFileSystem.getInstance().findFileByPath(fullPath);
+            VirtualFile virtualFile = FlowSpotFileResolver.getInstance(project).findFileByPath(fullPath);
             if (virtualFile != null) {
                 int lineNumber = annotation.getStartLine();
                 // 使用Data Flow的精确定位和高亮方法
-                openFileWithPreciseLocation(virtualFile, annotation, lineNumber);
+                openFileWithPreciseLocation(project, virtualFile, annotation, lineNumber);
             } else {
                 // 显示错误消息
-                JOptionPane.showMessageDialog(this,
+                JOptionPane.showMessageDialog(context,
                     "Cannot find source file: " + sourceFile + "\n" +
                     "Full path: " + fullPath,
                     "Navigation Error",
@@ -228,9 +239,10 @@ public class FlowSpotDataFlowNodeComponent extends JPanel {
     /**
      * 打开文件并实现精确的列定位和代码高亮 - 复用Data Flow的实现
      */
-    private void openFileWithPreciseLocation(@NotNull VirtualFile virtualFile,
-                                           @NotNull FlowSpotSourceLineAnnotation annotation,
-                                           int lineNumber) {
+    private static void openFileWithPreciseLocation(@NotNull Project project,
+                                                    @NotNull VirtualFile virtualFile,
+                                                    @NotNull FlowSpotSourceLineAnnotation annotation,
+                                                    int lineNumber) {
         ApplicationManager.getApplication().invokeLater(() -> {
             // 打开文件
             OpenFileDescriptor descriptor = new OpenFileDescriptor(project, virtualFile, lineNumber - 1, 0);
@@ -238,7 +250,7 @@ public class FlowSpotDataFlowNodeComponent extends JPanel {
 
             if (editor != null) {
                 // 实现精确的列定位和高亮
-                highlightCodeRange(editor, annotation, lineNumber);
+                highlightCodeRange(project, editor, annotation, lineNumber);
             }
         });
     }
@@ -246,9 +258,10 @@ public class FlowSpotDataFlowNodeComponent extends JPanel {
     /**
      * 在编辑器中高亮指定的代码范围 - 复用Data Flow的实现
      */
-    private void highlightCodeRange(@NotNull Editor editor,
-                                  @NotNull FlowSpotSourceLineAnnotation annotation,
-                                  int lineNumber) {
+    private static void highlightCodeRange(@NotNull Project project,
+                                           @NotNull Editor editor,
+                                           @NotNull FlowSpotSourceLineAnnotation annotation,
+                                           int lineNumber) {
         Document document = editor.getDocument();
 
         // 确保行号有效
@@ -291,7 +304,7 @@ public class FlowSpotDataFlowNodeComponent extends JPanel {
         selectionModel.setSelection(startOffset+1, endOffset+1);
 
         // 添加高亮
-        addHighlight(editor, startOffset+1, endOffset+1);
+        addHighlight(project, editor, startOffset+1, endOffset+1);
 
         // 滚动到可见区域
         editor.getScrollingModel().scrollToCaret(ScrollType.CENTER);
@@ -300,15 +313,15 @@ public class FlowSpotDataFlowNodeComponent extends JPanel {
     /**
      * 添加代码高亮 - 使用统一的高亮服务
      */
-    private void addHighlight(@NotNull Editor editor, int startOffset, int endOffset) {
-        com.flowspot.intellij.service.FlowSpotHighlightService.getInstance()
+    private static void addHighlight(@NotNull Project project, @NotNull Editor editor, int startOffset, int endOffset) {
+        com.flowspot.intellij.service.FlowSpotHighlightService.getInstance(project)
             .addHighlight(editor, startOffset, endOffset);
     }
     
     /**
      * 构建完整文件路径 - 直接使用被分析目录拼接filename
      */
-    private String constructFullFilePath(String sourceFile) {
+    private static String constructFullFilePath(@NotNull Project project, @NotNull Component context, String sourceFile) {
 
         
         // 如果已经是绝对路径，直接返回
@@ -317,7 +330,7 @@ public class FlowSpotDataFlowNodeComponent extends JPanel {
         }
 
         // 获取被分析目录路径
-        String analysisBasePath = determineAnalysisBasePath();
+        String analysisBasePath = determineAnalysisBasePath(project, context);
         if (analysisBasePath == null) {
             return sourceFile;
         }
@@ -338,32 +351,23 @@ public class FlowSpotDataFlowNodeComponent extends JPanel {
      * 确定分析的基础路径
      * 优先使用当前漏洞集合中的分析基础路径，如果无法确定则使用项目根路径
      */
-    private String determineAnalysisBasePath() {
-        // 从当前漏洞集合中获取分析基础路径
-        com.flowspot.intellij.model.FlowSpotVulnerabilityCollection currentCollection = getCurrentVulnerabilityCollection();
-        if (currentCollection != null && currentCollection.getAnalysisBasePath() != null) {
-            String analysisPath = currentCollection.getAnalysisBasePath();
-            return analysisPath;
-        }
-
-        // 后备方案1：尝试从主工具窗口获取collection
-        currentCollection = getCollectionFromMainToolWindow();
-        if (currentCollection != null && currentCollection.getAnalysisBasePath() != null) {
-            String analysisPath = currentCollection.getAnalysisBasePath();
-            return analysisPath;
+    private static String determineAnalysisBasePath(@NotNull Project project, @NotNull Component context) {
+        // 从所在数据流面板的漏洞集合中获取，后备方案为主工具窗口的集合
+        com.flowspot.intellij.model.FlowSpotVulnerabilityCollection currentCollection = getCurrentVulnerabilityCollection(context);
+        if (currentCollection == null || currentCollection.getAnalysisBasePath() == null) {
+            currentCollection = getCollectionFromMainToolWindow(project);
         }
 
-        // 后备方案2：使用项目根路径
-        String projectBasePath = project.getBasePath();
-        return projectBasePath;
+        // 与预热使用同一来源，没有集合时使用项目根路径
+        return FlowSpotFileResolver.getInstance(project).analysisBasePath(currentCollection);
     }
 
     /**
      * 获取当前的漏洞集合
      */
-    private com.flowspot.intellij.model.FlowSpotVulnerabilityCollection getCurrentVulnerabilityCollection() {
+    private static com.flowspot.intellij.model.FlowSpotVulnerabilityCollection getCurrentVulnerabilityCollection(@NotNull Component context) {
         // 通过父组件获取当前的漏洞集合
-        Component parent = getParent();
+        Component parent = context.getParent();
         while (parent != null) {
             if (parent instanceof FlowSpotDataFlowPanel) {
                 com.flowspot.intellij.model.FlowSpotVulnerabilityCollection collection = 
@@ -379,7 +383,7 @@ public class FlowSpotDataFlowNodeComponent extends JPanel {
      * 从主工具窗口获取当前的漏洞集合
      */
     @Nullable
-    private com.flowspot.intellij.model.FlowSpotVulnerabilityCollection getCollectionFromMainToolWindow() {
+    private static com.flowspot.intellij.model.FlowSpotVulnerabilityCollection getCollectionFromMainToolWindow(@NotNull Project project) {
         try {
             // 通过工具窗口管理器获取主FlowSpot工具窗口
             com.intellij.openapi.wm.ToolWindowManager toolWindowManager = 
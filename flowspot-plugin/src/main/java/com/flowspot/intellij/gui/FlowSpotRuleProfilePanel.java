@@ -0,0 +1,118 @@
+/*
+ * Copyright 2024 FlowSpot plugin contributors
+ *
+ * This file is part of IntelliJ FlowSpot plugin.
+ *
+ * IntelliJ FlowSpot plugin is free software: you can redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * IntelliJ FlowSpot plugin is distributed in the hope that it will
+ * be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with IntelliJ FlowSpot plugin.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.flowspot.intellij.gui;
+
+import omni.flowspot.core.FlowSpotRuleProfile;
+import org.jetbrains.annotations.NotNull;
+
+import javax.swing.*;
+import javax.swing.table.DefaultTableModel;
+import java.awt.*;
+import java.util.List;
+
+/**
+ * FlowSpot 规则开销面板
+ * 按总开销排序显示每条 source/sink 规则的遍历耗时、可达性耗时和路径产出，
+ * 用于找出耗时高、产出低的规则
+ */
+public class FlowSpotRuleProfilePanel extends JPanel {
+
+    private static final String[] COLUMN_NAMES = {
+        "#", "rule", "kind", "total ms", "traversal ms", "reachability ms", "nodes", "raw paths", "reported", "ms / finding"
+    };
+
+    private JTable profileTable;
+    private JLabel summaryLabel;
+
+    public FlowSpotRuleProfilePanel() {
+        initializeUI();
+    }
+
+    /**
+     * 初始化UI组件
+     */
+    private void initializeUI() {
+        setLayout(new BorderLayout());
+
+        DefaultTableModel model = new DefaultTableModel(COLUMN_NAMES, 0) {
+            @Override
+            public boolean isCellEditable(int row, int column) {
+                return false;
+            }
+
+            @Override
+            public Class<?> getColumnClass(int column) {
+                // 数值列按数值排序
+                return column == 1 || column == 2 ? String.class : Long.class;
+            }
+        };
+
+        profileTable = new JTable(model);
+        profileTable.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        profileTable.getTableHeader().setReorderingAllowed(false);
+        profileTable.setAutoCreateRowSorter(true);
+
+        // 设置列宽
+        profileTable.getColumnModel().getColumn(0).setPreferredWidth(30);
+        profileTable.getColumnModel().getColumn(1).setPreferredWidth(250);
+        profileTable.getColumnModel().getColumn(2).setPreferredWidth(70);
+
+        add(new JScrollPane(profileTable), BorderLayout.CENTER);
+
+        summaryLabel = new JLabel("No rule profile available");
+        summaryLabel.setBorder(BorderFactory.createEmptyBorder(5, 10, 5, 10));
+        add(summaryLabel, BorderLayout.SOUTH);
+    }
+
+    /**
+     * 更新规则开销数据（已按总开销降序）
+     */
+    public void setRuleProfiles(@NotNull List<FlowSpotRuleProfile> profiles) {
+        DefaultTableModel model = (DefaultTableModel) profileTable.getModel();
+        model.setRowCount(0);
+
+        long totalCost = 0;
+        int rank = 1;
+        for (FlowSpotRuleProfile profile : profiles) {
+            long reported = profile.getReportedPaths();
+            Object[] row = {
+                (long) rank++,
+                profile.getRuleName(),
+                profile.getKind(),
+                profile.getTotalCostMs(),
+                profile.getTraversalMs(),
+                profile.getReachabilityMs(),
+                profile.getNodesTagged(),
+                profile.getRawPaths(),
+                reported,
+                // 没有产出的规则按总开销计，排在高开销低产出一侧
+                reported > 0 ? profile.getTotalCostMs() / reported : profile.getTotalCostMs()
+            };
+            model.addRow(row);
+            totalCost += profile.getTotalCostMs();
+        }
+
+        if (profiles.isEmpty()) {
+            summaryLabel.setText("No rule profile available");
+        } else {
+            summaryLabel.setText(profiles.size() + " rules, " + totalCost + " ms attributed");
+        }
+    }
+}
@@ -34,6 +34,8 @@ import com.intellij.ui.treeStructure.Tree;
 import com.intellij.util.ui.JBUI;
 import com.flowspot.intellij.core.FlowSpotRuleLoader;
 import com.flowspot.intellij.core.FlowSpotConfigManager;
+import com.flowspot.intellij.core.FlowSpotWorkerLauncher;
+import com.intellij.ide.util.PropertiesComponent;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
@@ -63,6 +65,9 @@ public class FlowSpotRuleSelectionDialog extends DialogWrapper {
     private JBCheckBox enableSubPathDeduplicationCheckBox;
     private JBCheckBox enableSinkLocationDeduplicationCheckBox;
     private JBCheckBox enableContextFilteringCheckBox;
+    private JBCheckBox moduleScanCheckBox;
+    private JBCheckBox workerProcessCheckBox;
+    private JSpinner workerHeapSpinner;
     private JPanel optimizationPanel;
     private boolean optimizationPanelExpanded = false;
     
@@ -463,6 +468,12 @@ public class FlowSpotRuleSelectionDialog extends DialogWrapper {
         
         logManager.logDebug("是否有选中的规则: " + hasSelectedRules());
         
+        // 独立进程选项按用户保存，对所有项目生效
+        PropertiesComponent properties = PropertiesComponent.getInstance();
+        properties.setValue(FlowSpotWorkerLauncher.ENABLED_PROPERTY, workerProcessCheckBox.isSelected(), false);
+        properties.setValue(FlowSpotWorkerLauncher.HEAP_MB_PROPERTY,
+            (Integer) workerHeapSpinner.getValue(), FlowSpotWorkerLauncher.DEFAULT_HEAP_MB);
+        
         super.doOKAction();
     }
     
@@ -664,11 +675,44 @@ public class FlowSpotRuleSelectionDialog extends DialogWrapper {
         gbc.gridx = 1; gbc.gridy = 3; gbc.insets = JBUI.insets(2, 10, 2, 0);
         panel.add(contextLabel, gbc);
         
+        // 按模块扫描选项
+        moduleScanCheckBox = new JBCheckBox("按模块并行扫描", false);
+        moduleScanCheckBox.setToolTipText("为每个模块单独构建 CPG 并在内存预算内并行扫描，适合多模块大型项目；不报告跨模块的数据流");
+        gbc.gridx = 0; gbc.gridy = 4; gbc.insets = JBUI.insets(2, 0);
+        panel.add(moduleScanCheckBox, gbc);
+        
+        JBLabel moduleScanLabel = new JBLabel("每个模块独立分析后合并结果");
+        moduleScanLabel.setFont(moduleScanLabel.getFont().deriveFont(Font.PLAIN, 10f));
+        moduleScanLabel.setForeground(UIManager.getColor("Label.disabledForeground"));
+        gbc.gridx = 1; gbc.gridy = 4; gbc.insets = JBUI.insets(2, 10, 2, 0);
+        panel.add(moduleScanLabel, gbc);
+        
+        // 独立进程选项
+        PropertiesComponent properties = PropertiesComponent.getInstance();
+        workerProcessCheckBox = new JBCheckBox("在独立进程中运行分析",
+            properties.getBoolean(FlowSpotWorkerLauncher.ENABLED_PROPERTY, false));
+        workerProcessCheckBox.setToolTipText("CPG 与数据流分析在单独的 JVM 中进行，不占用 IDE 内存；取消时直接结束该进程");
+        gbc.gridx = 0; gbc.gridy = 5; gbc.insets = JBUI.insets(2, 0);
+        panel.add(workerProcessCheckBox, gbc);
+        
+        int heapMb = properties.getInt(FlowSpotWorkerLauncher.HEAP_MB_PROPERTY, FlowSpotWorkerLauncher.DEFAULT_HEAP_MB);
+        workerHeapSpinner = new JSpinner(new SpinnerNumberModel(Math.max(512, Math.min(heapMb, 65536)), 512, 65536, 512));
+        workerHeapSpinner.setEnabled(workerProcessCheckBox.isSelected());
+        workerProcessCheckBox.addItemListener(e -> workerHeapSpinner.setEnabled(workerProcessCheckBox.isSelected()));
+        JBPanel<?> heapPanel = new JBPanel<>(new FlowLayout(FlowLayout.LEFT, 0, 0));
+        JBLabel heapLabel = new JBLabel("最大堆 (MB): ");
+        heapLabel.setFont(heapLabel.getFont().deriveFont(Font.PLAIN, 10f));
+        heapLabel.setForeground(UIManager.getColor("Label.disabledForeground"));
+        heapPanel.add(heapLabel);
+        heapPanel.add(workerHeapSpinner);
+        gbc.gridx = 1; gbc.gridy = 5; gbc.insets = JBUI.insets(2, 10, 2, 0);
+        panel.add(heapPanel, gbc);
+        
         // 重置按钮
         JButton resetButton = new JButton("重置为默认");
         resetButton.setFont(resetButton.getFont().deriveFont(Font.PLAIN, 11f));
         resetButton.addActionListener(e -> resetOptimizationOptions());
-        gbc.gridx = 0; gbc.gridy = 4; gbc.gridwidth = 2; gbc.insets = JBUI.insets(10, 0, 0, 0);
+        gbc.gridx = 0; gbc.gridy = 6; gbc.gridwidth = 2; gbc.insets = JBUI.insets(10, 0, 0, 0);
         gbc.anchor = GridBagConstraints.CENTER;
         panel.add(resetButton, gbc);
         
@@ -682,6 +726,16 @@ public class FlowSpotRuleSelectionDialog extends DialogWrapper {
         enableSubPathDeduplicationCheckBox.setSelected(true);
         enableSinkLocationDeduplicationCheckBox.setSelected(true);
         enableContextFilteringCheckBox.setSelected(true);
+        moduleScanCheckBox.setSelected(false);
+        workerProcessCheckBox.setSelected(false);
+        workerHeapSpinner.setValue(FlowSpotWorkerLauncher.DEFAULT_HEAP_MB);
+    }
+    
+    /**
+     * 是否按模块分别构建 CPG 并行扫描
+     */
+    public boolean isModuleScanEnabled() {
+        return moduleScanCheckBox.isSelected();
     }
     
     /**
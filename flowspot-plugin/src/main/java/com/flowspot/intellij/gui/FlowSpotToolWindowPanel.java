@@ -22,8 +22,10 @@ package com.flowspot.intellij.gui;
 import com.intellij.openapi.project.Project;
 import com.intellij.util.messages.MessageBus;
 import com.intellij.util.messages.MessageBusConnection;
+import com.flowspot.intellij.core.FlowSpotAnalysisEngine;
 import com.flowspot.intellij.model.FlowSpotVulnerabilityCollection;
 import com.flowspot.intellij.model.FlowSpotVulnerability;
+import com.flowspot.intellij.service.FlowSpotFileResolver;
 import com.flowspot.intellij.service.FlowSpotResultsPublisher;
 import com.flowspot.intellij.service.FlowSpotVulnerabilitySelectionPublisher;
 import org.jetbrains.annotations.NotNull;
@@ -44,12 +46,16 @@ public class FlowSpotToolWindowPanel extends JPanel {
     private JLabel statusLabel;
     private FlowSpotVulnerabilityTreePanel treePanel;
     private FlowSpotVulnerabilityDetailsPanel detailsPanel;
+    private FlowSpotRuleProfilePanel ruleProfilePanel;
     private FlowSpotVulnerabilityCollection currentCollection;
+    // 已开始新的分析或已收到结果，此后不再恢复保存的结果
+    private volatile boolean resultsReceived;
     
     public FlowSpotToolWindowPanel(@NotNull Project project) {
         this.project = project;
         initializeUI();
         subscribeToResults();
+        restoreSavedResults();
     }
     
     /**
@@ -90,10 +96,14 @@ public class FlowSpotToolWindowPanel extends JPanel {
         leftPanel.setBorder(BorderFactory.createTitledBorder("FlowSpot Results"));
         leftPanel.add(treePanel, BorderLayout.CENTER);
         
-        // 右侧：详情面板
+        // 右侧：详情面板与规则开销报告
+        ruleProfilePanel = new FlowSpotRuleProfilePanel();
+        JTabbedPane rightTabs = new JTabbedPane();
+        rightTabs.addTab("Data Flow Details", detailsPanel);
+        rightTabs.addTab("Rule Cost", ruleProfilePanel);
+        
         JPanel rightPanel = new JPanel(new BorderLayout());
-        rightPanel.setBorder(BorderFactory.createTitledBorder("Data Flow Details"));
-        rightPanel.add(detailsPanel, BorderLayout.CENTER);
+        rightPanel.add(rightTabs, BorderLayout.CENTER);
         
         // 设置分割面板
         mainSplitPane.setLeftComponent(leftPanel);
@@ -142,11 +152,15 @@ public class FlowSpotToolWindowPanel extends JPanel {
         messageBusConnection.subscribe(FlowSpotResultsPublisher.TOPIC, new FlowSpotResultsPublisher() {
             @Override
             public void onFlowSpotResultsAvailable(@NotNull FlowSpotVulnerabilityCollection collection) {
+                resultsReceived = true;
+                // 后台预先解析结果中的源文件，点击导航时不再查找
+                FlowSpotFileResolver.getInstance(project).prewarm(collection);
                 SwingUtilities.invokeLater(() -> updateResults(collection));
             }
             
             @Override
             public void onAnalysisStarted(@NotNull String projectName) {
+                resultsReceived = true;
                 SwingUtilities.invokeLater(() -> {
                     statusLabel.setText("FlowSpot - Analysis in progress...");
                     treePanel.setVulnerabilityCollection(null);
@@ -178,6 +192,25 @@ public class FlowSpotToolWindowPanel extends JPanel {
         });
     }
     
+    /**
+     * 打开工具窗口时恢复上次保存的分析结果；期间已开始新的分析或收到新结果时不再覆盖
+     */
+    private void restoreSavedResults() {
+        new FlowSpotAnalysisEngine(project).loadSavedResultsAsync().thenAccept(collection -> {
+            if (collection == null || resultsReceived || project.isDisposed()) {
+                return;
+            }
+            FlowSpotFileResolver.getInstance(project).prewarm(collection);
+            SwingUtilities.invokeLater(() -> {
+                if (!resultsReceived && currentCollection == null) {
+                    updateResults(collection);
+                    statusLabel.setText("FlowSpot - Restored " + collection.getTotalCount()
+                                        + " vulnerabilities from the last analysis");
+                }
+            });
+        });
+    }
+    
     /**
      * 更新分析结果显示
      */
@@ -195,6 +228,9 @@ public class FlowSpotToolWindowPanel extends JPanel {
         
         // 清空详情面板
         detailsPanel.setVulnerability(null);
+        
+        // 更新规则开销报告
+        ruleProfilePanel.setRuleProfiles(collection.getRuleProfiles());
     }
     
     
@@ -39,7 +39,9 @@ import java.util.Collection;
 import com.intellij.openapi.fileEditor.FileEditorManager;
 import com.intellij.openapi.fileEditor.OpenFileDescriptor;
 import com.intellij.openapi.vfs.VirtualFile;
-import com.intellij.openapi.vfs.LocalFileSystem;
+import com.flowspot.intellij.service.FlowSpotFileResolver;
+import com.flowspot.intellij.service.FlowSpotHighlightService;
+import com.intellij.ide.util.PropertiesComponent;
 import com.intellij.openapi.project.Project;
 import com.intellij.openapi.editor.Editor;
 import com.intellij.openapi.editor.SelectionModel;
@@ -77,6 +79,9 @@ public class FlowSpotVulnerabilityDetailsPanel extends JPanel {
     
     private FlowSpotVulnerability currentVulnerability;
     private FilterRuleChangeListener filterRuleChangeListener;
+    private JCheckBox highlightPathCheckBox;
+    
+    private static final String HIGHLIGHT_PATH_PROPERTY = "flowspot.highlightWholePath";
     
     
     public FlowSpotVulnerabilityDetailsPanel(@NotNull Project project) {
@@ -212,6 +217,16 @@ public class FlowSpotVulnerabilityDetailsPanel extends JPanel {
         manageFiltersButton.setToolTipText("Manage all filter rules");
         manageFiltersButton.addActionListener(e -> showFilterManagementDialog());
         
+        // 在已打开的编辑器中高亮整条路径，选项跨会话保存
+        highlightPathCheckBox = new JCheckBox("Highlight Whole Path",
+            PropertiesComponent.getInstance().getBoolean(HIGHLIGHT_PATH_PROPERTY, false));
+        highlightPathCheckBox.setToolTipText("Highlight every data flow step in open editors");
+        highlightPathCheckBox.addActionListener(e -> {
+            PropertiesComponent.getInstance().setValue(HIGHLIGHT_PATH_PROPERTY, highlightPathCheckBox.isSelected(), false);
+            updatePathHighlight();
+        });
+        
+        panel.add(highlightPathCheckBox);
         panel.add(addFilterButton);
         panel.add(manageFiltersButton);
         
@@ -454,6 +469,19 @@ public class FlowSpotVulnerabilityDetailsPanel extends JPanel {
             updateAnnotations(vulnerability);
             updateDetails(vulnerability);
         }
+        updatePathHighlight();
+    }
+    
+    /**
+     * 按当前选项更新整条路径的高亮，切换漏洞时替换之前的路径高亮
+     */
+    private void updatePathHighlight() {
+        FlowSpotHighlightService highlightService = FlowSpotHighlightService.getInstance(project);
+        if (currentVulnerability != null && highlightPathCheckBox.isSelected()) {
+            highlightService.highlightPath(currentVulnerability);
+        } else {
+            highlightService.clearPathHighlights();
+        }
     }
     
     /**
@@ -723,8 +751,8 @@ public class FlowSpotVulnerabilityDetailsPanel extends JPanel {
                     // 构建正确的文件路径：项目路径 + 源文件路径
                     String fullPath = constructFullFilePath(sourceFile);
 
-                    // 尝试找到虚拟文件
-                    VirtualFile virtualFile = LocalFileSystem.getInstance().findFileByPath(fullPath);
+                    // 尝试找到虚拟文件（结果发布时已预热）
+                    VirtualFile virtualFile = FlowSpotFileResolver.getInstance(project).findFileByPath(fullPath);
                     if (virtualFile != null) {
                         // 打开文件并实现精确的列定位和高亮
                         openFileWithPreciseLocation(virtualFile, targetAnnotation, lineNumber);
@@ -812,42 +840,13 @@ public class FlowSpotVulnerabilityDetailsPanel extends JPanel {
      * 添加代码高亮 - 使用统一的高亮服务
      */
     private void addHighlight(@NotNull Editor editor, int startOffset, int endOffset) {
-        com.flowspot.intellij.service.FlowSpotHighlightService.getInstance()
-            .addHighlight(editor, startOffset, endOffset);
+        FlowSpotHighlightService.getInstance(project).addHighlight(editor, startOffset, endOffset);
     }
     
 
     private String constructFullFilePath(@NotNull String sourceFile) {
-        // 如果已经是绝对路径，直接返回
-        if (sourceFile.startsWith("/") || sourceFile.matches("^[A-Za-z]:.*")) {
-            return sourceFile;
-        }
-
         // 获取当前分析的根路径（从漏洞信息中推断或使用项目根路径）
-        String analysisBasePath = determineAnalysisBasePath();
-        if (analysisBasePath == null) {
-            return sourceFile;
-        }
-
-        // 直接使用分析基础路径拼接源文件
-        String fullPath = analysisBasePath + "/" + sourceFile;
-
-        try {
-            String normalizedPath = java.nio.file.Paths.get(fullPath).normalize().toString();
-            VirtualFile testFile = LocalFileSystem.getInstance().findFileByPath(normalizedPath);
-            if (testFile != null && testFile.exists()) {
-                return normalizedPath;
-            }
-        } catch (Exception e) {
-            // 如果规范化失败，返回原始路径
-        }
-
-        // 如果文件不存在，仍然返回构建的路径（用于后续搜索）
-        try {
-            return java.nio.file.Paths.get(fullPath).normalize().toString();
-        } catch (Exception e) {
-            return fullPath;
-        }
+        return FlowSpotFileResolver.toFullPath(determineAnalysisBasePath(), sourceFile);
     }
 
     /**
@@ -855,14 +854,8 @@ public class FlowSpotVulnerabilityDetailsPanel extends JPanel {
      * 优先使用当前漏洞集合中的分析基础路径，如枟无法确定则使用项目根路径
      */
     private String determineAnalysisBasePath() {
-        // 从当前漏洞集合中获取分析基础路径
-        FlowSpotVulnerabilityCollection currentCollection = getCurrentVulnerabilityCollection();
-        if (currentCollection != null && currentCollection.getAnalysisBasePath() != null) {
-            return currentCollection.getAnalysisBasePath();
-        }
-
-        // 后备方案：使用项目根路径
-        return project.getBasePath();
+        // 与预热使用同一来源，导航时命中预热的缓存
+        return FlowSpotFileResolver.getInstance(project).analysisBasePath(getCurrentVulnerabilityCollection());
     }
 
     /**
@@ -880,30 +873,6 @@ public class FlowSpotVulnerabilityDetailsPanel extends JPanel {
         return null;
     }
 
-
-
-    /**
-     * 递归搜索文件
-     */
-    private VirtualFile findFileRecursively(@NotNull VirtualFile directory, @NotNull String fileName) {
-        if (!directory.isDirectory()) {
-            return null;
-        }
-
-        for (VirtualFile child : directory.getChildren()) {
-            if (child.isDirectory()) {
-                VirtualFile found = findFileRecursively(child, fileName);
-                if (found != null) {
-                    return found;
-                }
-            } else if (fileName.equals(child.getName())) {
-                return child;
-            }
-        }
-
-        return null;
-    }
-
 }
 
 
@@ -37,20 +37,24 @@ import javax.swing.tree.DefaultMutableTreeNode;
 import javax.swing.tree.DefaultTreeModel;
 import javax.swing.tree.TreePath;
 import javax.swing.tree.TreeSelectionModel;
+import javax.swing.tree.ExpandVetoException;
+import javax.swing.event.TreeExpansionEvent;
+import javax.swing.event.TreeWillExpandListener;
 import javax.swing.event.TreeSelectionListener;
 import javax.swing.event.TreeSelectionEvent;
 import java.awt.*;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
+import java.util.*;
 import java.util.List;
-import java.util.Map;
-import java.util.Set;
-import java.util.ArrayList;
 import java.util.logging.Logger;
 
 /**
  * FlowSpot 漏洞树面板
  * 以树形结构展示漏洞分析结果
+ *
+ * 刷新时按分类对比新旧结果，只插入、删除或更新变化的节点，不重建整棵树，
+ * 因此展开状态和选中项得以保留；分类下的漏洞节点在首次展开时才创建。
  */
 public class FlowSpotVulnerabilityTreePanel extends JPanel {
     
@@ -60,6 +64,8 @@ public class FlowSpotVulnerabilityTreePanel extends JPanel {
     private final Tree vulnerabilityTree;
     private final DefaultTreeModel treeModel;
     private final DefaultMutableTreeNode rootNode;
+    // 当前显示的分类节点，按分类名排序
+    private final NavigableMap<String, CategoryNode> categoryNodes = new TreeMap<>();
     private final FlowSpotNavigationService navigationService;
     private final FlowSpotFilterManager filterManager;
     // 原始的完整漏洞集合（未过滤）
@@ -84,6 +90,8 @@ public class FlowSpotVulnerabilityTreePanel extends JPanel {
         // 创建根节点和树模型
         rootNode = new DefaultMutableTreeNode("FlowSpot Analysis Results");
         treeModel = new DefaultTreeModel(rootNode);
+        // 未加载子节点的分类节点也显示展开图标
+        treeModel.setAsksAllowsChildren(true);
         
         // 创建树组件
         vulnerabilityTree = new Tree(treeModel);
@@ -147,6 +155,21 @@ public class FlowSpotVulnerabilityTreePanel extends JPanel {
             }
         });
         
+        // 分类节点首次展开时创建漏洞节点
+        vulnerabilityTree.addTreeWillExpandListener(new TreeWillExpandListener() {
+            @Override
+            public void treeWillExpand(TreeExpansionEvent event) throws ExpandVetoException {
+                Object node = event.getPath().getLastPathComponent();
+                if (node instanceof CategoryNode) {
+                    loadChildren((CategoryNode) node);
+                }
+            }
+            
+            @Override
+            public void treeWillCollapse(TreeExpansionEvent event) throws ExpandVetoException {
+            }
+        });
+        
         // 双击导航到源代码
         vulnerabilityTree.addMouseListener(new MouseAdapter() {
             @Override
@@ -426,53 +449,192 @@ public class FlowSpotVulnerabilityTreePanel extends JPanel {
     }
     
     /**
-     * 刷新树显示
+     * 刷新树显示，只对变化的分类和漏洞发出插入、删除和更新事件
      */
     private void refreshTree() {
-        rootNode.removeAllChildren();
+        FlowSpotVulnerability previousSelection = getSelectedVulnerability();
         
         if (currentCollection == null || currentCollection.isEmpty()) {
             rootNode.setUserObject("No vulnerabilities found");
-            treeModel.reload();
+            treeModel.nodeChanged(rootNode);
+            removeCategories(new ArrayList<>(categoryNodes.keySet()));
             return;
         }
         
         rootNode.setUserObject("FlowSpot Results (" + currentCollection.getTotalCount() + " vulnerabilities)");
+        treeModel.nodeChanged(rootNode);
         
-        // 固定使用按分类排序
-        buildTreeByCategory();
+        Set<String> categories = new TreeSet<>(currentCollection.getAllCategories());
+        List<String> removed = new ArrayList<>(categoryNodes.keySet());
+        removed.removeAll(categories);
+        removeCategories(removed);
         
-        treeModel.reload();
-        // 默认折叠所有节点，保持简洁的显示
-        collapseAll();
-        System.out.println("FlowSpotVulnerabilityTreePanel: 树刷新完成，默认折叠所有节点");
+        for (String category : categories) {
+            List<FlowSpotVulnerability> vulnerabilities = currentCollection.getVulnerabilitiesByCategory(category);
+            CategoryNode categoryNode = categoryNodes.get(category);
+            if (categoryNode == null) {
+                categoryNode = new CategoryNode(category, vulnerabilities);
+                categoryNodes.put(category, categoryNode);
+                // TreeMap 中的顺序即插入位置
+                int index = categoryNodes.headMap(category).size();
+                rootNode.insert(categoryNode, index);
+                treeModel.nodesWereInserted(rootNode, new int[]{index});
+            } else {
+                updateCategory(categoryNode, vulnerabilities);
+            }
+        }
+        
+        vulnerabilityTree.expandPath(new TreePath(rootNode));
+        logger.info("FlowSpotVulnerabilityTreePanel: Tree updated with " + categories.size() + " categories");
+        
+        restoreSelection(previousSelection);
     }
     
     /**
-     * 按分类构建树
+     * 删除指定分类节点，一次发出删除事件
      */
-    private void buildTreeByCategory() {
-        Set<String> allCategories = currentCollection.getAllCategories();
-        logger.info("FlowSpotVulnerabilityTreePanel: Building tree with categories: " + allCategories);
+    private void removeCategories(@NotNull List<String> categories) {
+        if (categories.isEmpty()) {
+            return;
+        }
+        List<CategoryNode> nodes = new ArrayList<>();
+        for (String category : categories) {
+            nodes.add(categoryNodes.get(category));
+        }
+        removeChildren(rootNode, nodes);
+        categories.forEach(categoryNodes::remove);
+    }
+    
+    /**
+     * 更新已有分类：标题总是更新，子节点已加载时按漏洞对象对比增删
+     */
+    private void updateCategory(@NotNull CategoryNode categoryNode, @NotNull List<FlowSpotVulnerability> vulnerabilities) {
+        categoryNode.setVulnerabilities(vulnerabilities);
+        treeModel.nodeChanged(categoryNode);
+        if (!categoryNode.loaded) {
+            return;
+        }
         
-        for (String category : allCategories) {
-            List<FlowSpotVulnerability> vulnerabilities = currentCollection.getVulnerabilitiesByCategory(category);
-            logger.info("FlowSpotVulnerabilityTreePanel: Category '" + category + "' has " + vulnerabilities.size() + " vulnerabilities");
-            
-            if (!vulnerabilities.isEmpty()) {
-                DefaultMutableTreeNode categoryNode = new DefaultMutableTreeNode(
-                    new FlowSpotTreeNodeData(category + " (" + vulnerabilities.size() + ")", null));
-                rootNode.add(categoryNode);
-                
-                for (FlowSpotVulnerability vulnerability : vulnerabilities) {
-                    DefaultMutableTreeNode vulnNode = new DefaultMutableTreeNode(
-                        new FlowSpotTreeNodeData(vulnerability.getShortDisplayText(), vulnerability));
-                    categoryNode.add(vulnNode);
-                }
+        // 删除不再存在的漏洞节点
+        Set<FlowSpotVulnerability> present = Collections.newSetFromMap(new IdentityHashMap<>());
+        present.addAll(vulnerabilities);
+        List<DefaultMutableTreeNode> stale = new ArrayList<>();
+        for (int i = 0; i < categoryNode.getChildCount(); i++) {
+            DefaultMutableTreeNode child = (DefaultMutableTreeNode) categoryNode.getChildAt(i);
+            if (!present.contains(vulnerabilityOf(child))) {
+                stale.add(child);
+            }
+        }
+        removeChildren(categoryNode, stale);
+        
+        // 剩余节点是新列表的子序列时（过滤规则变化的常见情况）只插入新增漏洞，否则重建该分类
+        List<Integer> inserted = new ArrayList<>();
+        int childIndex = 0;
+        for (FlowSpotVulnerability vulnerability : vulnerabilities) {
+            if (childIndex < categoryNode.getChildCount()
+                && vulnerabilityOf((DefaultMutableTreeNode) categoryNode.getChildAt(childIndex)) == vulnerability) {
+                childIndex++;
+                continue;
             }
+            categoryNode.insert(createVulnerabilityNode(vulnerability), childIndex++);
+            inserted.add(childIndex - 1);
+        }
+        if (categoryNode.getChildCount() != vulnerabilities.size()) {
+            categoryNode.removeAllChildren();
+            vulnerabilities.forEach(v -> categoryNode.add(createVulnerabilityNode(v)));
+            treeModel.nodeStructureChanged(categoryNode);
+        } else if (!inserted.isEmpty()) {
+            treeModel.nodesWereInserted(categoryNode, inserted.stream().mapToInt(Integer::intValue).toArray());
         }
     }
     
+    /**
+     * 创建分类下的漏洞节点
+     */
+    private void loadChildren(@NotNull CategoryNode categoryNode) {
+        if (categoryNode.loaded) {
+            return;
+        }
+        categoryNode.loaded = true;
+        if (categoryNode.vulnerabilities.isEmpty()) {
+            return;
+        }
+        int[] indices = new int[categoryNode.vulnerabilities.size()];
+        for (int i = 0; i < indices.length; i++) {
+            categoryNode.add(createVulnerabilityNode(categoryNode.vulnerabilities.get(i)));
+            indices[i] = i;
+        }
+        treeModel.nodesWereInserted(categoryNode, indices);
+    }
+    
+    /**
+     * 从父节点删除一组子节点，按原下标发出一次删除事件
+     */
+    private void removeChildren(@NotNull DefaultMutableTreeNode parent, @NotNull List<? extends DefaultMutableTreeNode> children) {
+        if (children.isEmpty()) {
+            return;
+        }
+        int[] indices = new int[children.size()];
+        Object[] removed = new Object[children.size()];
+        for (int i = 0; i < children.size(); i++) {
+            indices[i] = parent.getIndex(children.get(i));
+            removed[i] = children.get(i);
+        }
+        // 事件要求下标升序；从大到小删除以保持下标有效
+        Integer[] order = new Integer[indices.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, Comparator.comparingInt(i -> indices[i]));
+        int[] sortedIndices = new int[indices.length];
+        Object[] sortedRemoved = new Object[indices.length];
+        for (int i = 0; i < order.length; i++) {
+            sortedIndices[i] = indices[order[i]];
+            sortedRemoved[i] = removed[order[i]];
+        }
+        for (int i = sortedIndices.length - 1; i >= 0; i--) {
+            parent.remove(sortedIndices[i]);
+        }
+        treeModel.nodesWereRemoved(parent, sortedIndices, sortedRemoved);
+    }
+    
+    /**
+     * 选中的漏洞节点在刷新中被替换（如重新分析）时，按漏洞ID重新选中；所在分类未展开时不展开
+     */
+    private void restoreSelection(@Nullable FlowSpotVulnerability previousSelection) {
+        if (previousSelection == null || getSelectedVulnerability() != null) {
+            return;
+        }
+        FlowSpotVulnerability replacement = currentCollection.findVulnerabilityById(previousSelection.getId());
+        if (replacement == null) {
+            return;
+        }
+        CategoryNode categoryNode = categoryNodes.get(replacement.getCategory());
+        if (categoryNode == null || !categoryNode.loaded) {
+            return;
+        }
+        for (int i = 0; i < categoryNode.getChildCount(); i++) {
+            DefaultMutableTreeNode child = (DefaultMutableTreeNode) categoryNode.getChildAt(i);
+            if (vulnerabilityOf(child) == replacement) {
+                TreePath path = new TreePath(child.getPath());
+                vulnerabilityTree.setSelectionPath(path);
+                vulnerabilityTree.scrollPathToVisible(path);
+                return;
+            }
+        }
+    }
+    
+    @NotNull
+    private static DefaultMutableTreeNode createVulnerabilityNode(@NotNull FlowSpotVulnerability vulnerability) {
+        return new DefaultMutableTreeNode(new FlowSpotTreeNodeData(vulnerability.getShortDisplayText(), vulnerability), false);
+    }
+    
+    @Nullable
+    private static FlowSpotVulnerability vulnerabilityOf(@NotNull DefaultMutableTreeNode node) {
+        Object userObject = node.getUserObject();
+        return userObject instanceof FlowSpotTreeNodeData ? ((FlowSpotTreeNodeData) userObject).getVulnerability() : null;
+    }
+    
     /**
      * 按类型构建树
      */
@@ -609,6 +771,26 @@ public class FlowSpotVulnerabilityTreePanel extends JPanel {
         }
     }
     
+    /**
+     * 分类节点，保存该分类当前的漏洞列表，子节点按需创建
+     */
+    private static class CategoryNode extends DefaultMutableTreeNode {
+        private final String category;
+        private List<FlowSpotVulnerability> vulnerabilities;
+        private boolean loaded = false;
+        
+        CategoryNode(@NotNull String category, @NotNull List<FlowSpotVulnerability> vulnerabilities) {
+            super(null, true);
+            this.category = category;
+            setVulnerabilities(vulnerabilities);
+        }
+        
+        void setVulnerabilities(@NotNull List<FlowSpotVulnerability> vulnerabilities) {
+            this.vulnerabilities = vulnerabilities;
+            setUserObject(new FlowSpotTreeNodeData(category + " (" + vulnerabilities.size() + ")", null));
+        }
+    }
+    
     /**
      * 树节点数据类
      */
@@ -72,9 +72,9 @@ public class FlowSpotFilterRule {
                              @NotNull FilterType filterType) {
         this.className = className;
         this.methodName = methodName;
+        this.filterType = filterType;
         this.description = description != null ? description : generateDefaultDescription();
         this.createdTime = LocalDateTime.now();
-        this.filterType = filterType;
     }
     
     /**
@@ -117,9 +117,9 @@ public class FlowSpotFilterRule {
                               @NotNull LocalDateTime createdTime) {
         this.className = className;
         this.methodName = methodName;
+        this.filterType = filterType;
         this.description = description != null ? description : generateDefaultDescription();
         this.createdTime = createdTime;
-        this.filterType = filterType;
     }
     
     /**
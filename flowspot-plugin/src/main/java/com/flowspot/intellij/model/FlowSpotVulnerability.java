@@ -25,6 +25,7 @@ import omni.flowspot.core.FlowSpotBugInstance;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Supplier;
 import java.util.logging.Logger;
 
 /**
@@ -41,10 +42,9 @@ public class FlowSpotVulnerability {
     private final int priority;
     private final String severity;
     private final FlowSpotLocation primaryLocation;
-    private final List<FlowSpotLocation> dataFlowPath;
-    private final List<FlowSpotAnnotation> annotations;
-    private final String htmlDetails;
-    private final FlowSpotBugInstance originalBugInstance;
+    private volatile Details details;
+    private Supplier<Details> detailsLoader;
+    private final Supplier<List<PathMethod>> pathMethodsLoader;
     
     public FlowSpotVulnerability(@NotNull String id,
                                 @NotNull String type,
@@ -66,10 +66,62 @@ public class FlowSpotVulnerability {
         this.priority = priority;
         this.severity = severity;
         this.primaryLocation = primaryLocation;
-        this.dataFlowPath = new ArrayList<>(dataFlowPath);
-        this.annotations = new ArrayList<>(annotations);
-        this.htmlDetails = htmlDetails;
-        this.originalBugInstance = originalBugInstance;
+        this.details = new Details(dataFlowPath, annotations, htmlDetails, originalBugInstance);
+        this.pathMethodsLoader = null;
+    }
+    
+    /**
+     * 创建详情按需加载的漏洞：树节点只需要主要位置，数据流路径、注解和 HTML 详情在首次访问时加载
+     *
+     * @param detailsLoader     加载详情，只调用一次
+     * @param pathMethodsLoader 读取数据流路径各节点的类名与方法名，不生成详情，结果不缓存
+     */
+    public FlowSpotVulnerability(@NotNull String id,
+                                @NotNull String type,
+                                @NotNull String category,
+                                @NotNull String title,
+                                @NotNull String description,
+                                int priority,
+                                @NotNull String severity,
+                                @NotNull FlowSpotLocation primaryLocation,
+                                @NotNull Supplier<Details> detailsLoader,
+                                @NotNull Supplier<List<PathMethod>> pathMethodsLoader) {
+        this.id = id;
+        this.type = type;
+        this.category = category;
+        this.title = title;
+        this.description = description;
+        this.priority = priority;
+        this.severity = severity;
+        this.primaryLocation = primaryLocation;
+        this.detailsLoader = detailsLoader;
+        this.pathMethodsLoader = pathMethodsLoader;
+    }
+    
+    /**
+     * 获取详情，按需加载的漏洞在首次访问时加载
+     */
+    @NotNull
+    private Details details() {
+        Details current = details;
+        if (current == null) {
+            synchronized (this) {
+                current = details;
+                if (current == null) {
+                    current = detailsLoader.get();
+                    details = current;
+                    detailsLoader = null;
+                }
+            }
+        }
+        return current;
+    }
+    
+    /**
+     * 详情是否已加载
+     */
+    public boolean isDetailsLoaded() {
+        return details != null;
     }
     
     // Getters
@@ -97,7 +149,7 @@ public class FlowSpotVulnerability {
     public FlowSpotLocation getPrimaryLocation() { return primaryLocation; }
     
     @NotNull
-    public List<FlowSpotLocation> getDataFlowPath() { return new ArrayList<>(dataFlowPath); }
+    public List<FlowSpotLocation> getDataFlowPath() { return new ArrayList<>(details().dataFlowPath); }
     
     /**
      * 获取所有位置信息（包括主要位置和数据流路径）
@@ -108,18 +160,38 @@ public class FlowSpotVulnerability {
         if (primaryLocation != null) {
             allLocations.add(primaryLocation);
         }
-        allLocations.addAll(dataFlowPath);
+        allLocations.addAll(details().dataFlowPath);
         return allLocations;
     }
     
+    /**
+     * 获取主要位置与数据流路径各节点的类名和方法名，供过滤规则匹配
+     * 详情尚未加载时直接从原始结果读取，不会生成或缓存详情
+     */
     @NotNull
-    public List<FlowSpotAnnotation> getAnnotations() { return new ArrayList<>(annotations); }
+    public List<PathMethod> getPathMethods() {
+        List<PathMethod> methods = new ArrayList<>();
+        if (primaryLocation != null) {
+            methods.add(new PathMethod(primaryLocation.getClassName(), primaryLocation.getMethodName()));
+        }
+        if (details == null && pathMethodsLoader != null) {
+            methods.addAll(pathMethodsLoader.get());
+            return methods;
+        }
+        for (FlowSpotLocation location : details().dataFlowPath) {
+            methods.add(new PathMethod(location.getClassName(), location.getMethodName()));
+        }
+        return methods;
+    }
+    
+    @NotNull
+    public List<FlowSpotAnnotation> getAnnotations() { return new ArrayList<>(details().annotations); }
     
     @Nullable
-    public String getHtmlDetails() { return htmlDetails; }
+    public String getHtmlDetails() { return details().htmlDetails; }
     
     @NotNull
-    public FlowSpotBugInstance getOriginalBugInstance() { return originalBugInstance; }
+    public FlowSpotBugInstance getOriginalBugInstance() { return details().originalBugInstance; }
     
     /**
      * 获取优先级字符串表示
@@ -170,6 +242,7 @@ public class FlowSpotVulnerability {
         sb.append("Location: ").append(primaryLocation.toString()).append("\n");
         sb.append("Description: ").append(description).append("\n");
         
+        List<FlowSpotLocation> dataFlowPath = details().dataFlowPath;
         if (!dataFlowPath.isEmpty()) {
             sb.append("\nData Flow Path:\n");
             for (int i = 0; i < dataFlowPath.size(); i++) {
@@ -185,6 +258,32 @@ public class FlowSpotVulnerability {
         return getShortDisplayText();
     }
     
+    /**
+     * 漏洞的数据流路径、注解、HTML 详情与原始漏洞实例
+     */
+    /**
+     * 数据流路径节点所在的类和方法，方法名未知时为 null
+     */
+    public record PathMethod(@Nullable String className, @Nullable String methodName) {
+    }
+    
+    public static final class Details {
+        private final List<FlowSpotLocation> dataFlowPath;
+        private final List<FlowSpotAnnotation> annotations;
+        private final String htmlDetails;
+        private final FlowSpotBugInstance originalBugInstance;
+        
+        public Details(@NotNull List<FlowSpotLocation> dataFlowPath,
+                       @NotNull List<FlowSpotAnnotation> annotations,
+                       @Nullable String htmlDetails,
+                       @NotNull FlowSpotBugInstance originalBugInstance) {
+            this.dataFlowPath = new ArrayList<>(dataFlowPath);
+            this.annotations = new ArrayList<>(annotations);
+            this.htmlDetails = htmlDetails;
+            this.originalBugInstance = originalBugInstance;
+        }
+    }
+    
     @Override
     public boolean equals(Object obj) {
         if (this == obj) return true;
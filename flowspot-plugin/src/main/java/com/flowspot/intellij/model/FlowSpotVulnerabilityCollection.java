@@ -19,28 +19,27 @@
  */
 package com.flowspot.intellij.model;
 
+import omni.flowspot.core.FlowSpotRuleProfile;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import java.util.*;
-import java.util.logging.Logger;
-import java.util.stream.Collectors;
 
 /**
  * FlowSpot 漏洞结果集合
  * 管理和组织所有检测到的漏洞
+ *
+ * 漏洞按添加顺序保存在列表中，分类、类型、文件、ID、优先级和严重程度索引在首次查询时一次性构建，
+ * 之后的查询都是哈希查找；添加或清空漏洞时索引失效，下次查询时重建。
  */
 public class FlowSpotVulnerabilityCollection {
     
-    private static final Logger logger = Logger.getLogger(FlowSpotVulnerabilityCollection.class.getName());
-    
     private final String projectName;
     private final String analysisBasePath;  // 分析的基础路径
     private final long analysisTimestamp;
     private final List<FlowSpotVulnerability> vulnerabilities;
-    private final Map<String, List<FlowSpotVulnerability>> vulnerabilitiesByCategory;
-    private final Map<String, List<FlowSpotVulnerability>> vulnerabilitiesByType;
-    private final Map<String, List<FlowSpotVulnerability>> vulnerabilitiesByFile;
+    private volatile Indices indices;
+    private List<FlowSpotRuleProfile> ruleProfiles = new ArrayList<>();
     
     public FlowSpotVulnerabilityCollection(@NotNull String projectName) {
         this(projectName, null);
@@ -51,50 +50,81 @@ public class FlowSpotVulnerabilityCollection {
         this.analysisBasePath = analysisBasePath;
         this.analysisTimestamp = System.currentTimeMillis();
         this.vulnerabilities = new ArrayList<>();
-        this.vulnerabilitiesByCategory = new HashMap<>();
-        this.vulnerabilitiesByType = new HashMap<>();
-        this.vulnerabilitiesByFile = new HashMap<>();
     }
     
     /**
      * 添加漏洞到集合中
      */
-    public void addVulnerability(@NotNull FlowSpotVulnerability vulnerability) {
+    public synchronized void addVulnerability(@NotNull FlowSpotVulnerability vulnerability) {
         vulnerabilities.add(vulnerability);
-        
-        // 调试信息：记录漏洞分类
-        logger.info("FlowSpotVulnerabilityCollection: Adding vulnerability - type=" + 
-                   vulnerability.getType() + ", category=" + vulnerability.getCategory());
-        
-        // 按分类分组
-        vulnerabilitiesByCategory.computeIfAbsent(vulnerability.getCategory(), k -> new ArrayList<>())
-                                 .add(vulnerability);
-        
-        // 按类型分组
-        vulnerabilitiesByType.computeIfAbsent(vulnerability.getType(), k -> new ArrayList<>())
-                            .add(vulnerability);
-        
-        // 按文件分组
-        String fileName = vulnerability.getPrimaryLocation().getFileName();
-        vulnerabilitiesByFile.computeIfAbsent(fileName, k -> new ArrayList<>())
-                            .add(vulnerability);
+        indices = null;
     }
     
     /**
      * 批量添加漏洞
      */
-    public void addVulnerabilities(@NotNull Collection<FlowSpotVulnerability> vulnerabilities) {
-        vulnerabilities.forEach(this::addVulnerability);
+    public synchronized void addVulnerabilities(@NotNull Collection<FlowSpotVulnerability> vulnerabilities) {
+        this.vulnerabilities.addAll(vulnerabilities);
+        indices = null;
+    }
+    
+    /**
+     * 合并多个集合（如按模块分别扫描的结果），规则开销按规则名累加
+     */
+    @NotNull
+    public static FlowSpotVulnerabilityCollection merge(@NotNull String projectName,
+                                                       @Nullable String analysisBasePath,
+                                                       @NotNull List<FlowSpotVulnerabilityCollection> collections) {
+        FlowSpotVulnerabilityCollection merged = new FlowSpotVulnerabilityCollection(projectName, analysisBasePath);
+        Map<String, FlowSpotRuleProfile> profiles = new LinkedHashMap<>();
+        
+        for (FlowSpotVulnerabilityCollection collection : collections) {
+            merged.addVulnerabilities(collection.vulnerabilities);
+            for (FlowSpotRuleProfile profile : collection.ruleProfiles) {
+                profiles.merge(profile.getKind() + ":" + profile.getRuleName(), profile, (a, b) ->
+                    new FlowSpotRuleProfile(
+                        a.getRuleName(),
+                        a.getKind(),
+                        a.getTraversalMs() + b.getTraversalMs(),
+                        a.getNodesTagged() + b.getNodesTagged(),
+                        a.getReachabilityMs() + b.getReachabilityMs(),
+                        a.getRawPaths() + b.getRawPaths(),
+                        a.getReportedPaths() + b.getReportedPaths()
+                    ));
+            }
+        }
+        
+        List<FlowSpotRuleProfile> mergedProfiles = new ArrayList<>(profiles.values());
+        mergedProfiles.sort(Comparator.comparingLong(FlowSpotRuleProfile::getTotalCostMs).reversed()
+                                      .thenComparing(FlowSpotRuleProfile::getRuleName));
+        merged.setRuleProfiles(mergedProfiles);
+        return merged;
     }
     
     /**
      * 清空所有漏洞
      */
-    public void clear() {
+    public synchronized void clear() {
         vulnerabilities.clear();
-        vulnerabilitiesByCategory.clear();
-        vulnerabilitiesByType.clear();
-        vulnerabilitiesByFile.clear();
+        indices = null;
+    }
+    
+    /**
+     * 获取索引，不存在时按当前漏洞列表构建
+     */
+    @NotNull
+    private Indices indices() {
+        Indices current = indices;
+        if (current == null) {
+            synchronized (this) {
+                current = indices;
+                if (current == null) {
+                    current = new Indices(vulnerabilities);
+                    indices = current;
+                }
+            }
+        }
+        return current;
     }
     
     // Getters
@@ -104,23 +134,23 @@ public class FlowSpotVulnerabilityCollection {
     public long getAnalysisTimestamp() { return analysisTimestamp; }
     
     @NotNull
-    public List<FlowSpotVulnerability> getVulnerabilities() { 
+    public synchronized List<FlowSpotVulnerability> getVulnerabilities() { 
         return new ArrayList<>(vulnerabilities); 
     }
     
     @NotNull
     public Map<String, List<FlowSpotVulnerability>> getVulnerabilitiesByCategory() {
-        return new HashMap<>(vulnerabilitiesByCategory);
+        return new HashMap<>(indices().byCategory);
     }
     
     @NotNull
     public Map<String, List<FlowSpotVulnerability>> getVulnerabilitiesByType() {
-        return new HashMap<>(vulnerabilitiesByType);
+        return new HashMap<>(indices().byType);
     }
     
     @NotNull
     public Map<String, List<FlowSpotVulnerability>> getVulnerabilitiesByFile() {
-        return new HashMap<>(vulnerabilitiesByFile);
+        return new HashMap<>(indices().byFile);
     }
     
     /**
@@ -128,7 +158,7 @@ public class FlowSpotVulnerabilityCollection {
      */
     @NotNull
     public List<FlowSpotVulnerability> getVulnerabilitiesByCategory(@NotNull String category) {
-        return vulnerabilitiesByCategory.getOrDefault(category, new ArrayList<>());
+        return indices().byCategory.getOrDefault(category, Collections.emptyList());
     }
     
     /**
@@ -136,7 +166,7 @@ public class FlowSpotVulnerabilityCollection {
      */
     @NotNull
     public List<FlowSpotVulnerability> getVulnerabilitiesByType(@NotNull String type) {
-        return vulnerabilitiesByType.getOrDefault(type, new ArrayList<>());
+        return indices().byType.getOrDefault(type, Collections.emptyList());
     }
     
     /**
@@ -144,7 +174,7 @@ public class FlowSpotVulnerabilityCollection {
      */
     @NotNull
     public List<FlowSpotVulnerability> getVulnerabilitiesByFile(@NotNull String fileName) {
-        return vulnerabilitiesByFile.getOrDefault(fileName, new ArrayList<>());
+        return indices().byFile.getOrDefault(fileName, Collections.emptyList());
     }
     
     /**
@@ -152,9 +182,7 @@ public class FlowSpotVulnerabilityCollection {
      */
     @NotNull
     public List<FlowSpotVulnerability> getVulnerabilitiesByPriority(int priority) {
-        return vulnerabilities.stream()
-                             .filter(v -> v.getPriority() == priority)
-                             .collect(Collectors.toList());
+        return indices().byPriority.getOrDefault(priority, Collections.emptyList());
     }
     
     /**
@@ -162,9 +190,7 @@ public class FlowSpotVulnerabilityCollection {
      */
     @NotNull
     public List<FlowSpotVulnerability> getVulnerabilitiesBySeverity(@NotNull String severity) {
-        return vulnerabilities.stream()
-                             .filter(v -> v.getSeverity().equals(severity))
-                             .collect(Collectors.toList());
+        return indices().bySeverity.getOrDefault(severity, Collections.emptyList());
     }
     
     /**
@@ -172,16 +198,13 @@ public class FlowSpotVulnerabilityCollection {
      */
     @Nullable
     public FlowSpotVulnerability findVulnerabilityById(@NotNull String id) {
-        return vulnerabilities.stream()
-                             .filter(v -> v.getId().equals(id))
-                             .findFirst()
-                             .orElse(null);
+        return indices().byId.get(id);
     }
     
     /**
      * 获取漏洞总数
      */
-    public int getTotalCount() {
+    public synchronized int getTotalCount() {
         return vulnerabilities.size();
     }
     
@@ -189,14 +212,14 @@ public class FlowSpotVulnerabilityCollection {
      * 获取分类总数
      */
     public int getCategoryCount() {
-        return vulnerabilitiesByCategory.size();
+        return indices().byCategory.size();
     }
     
     /**
      * 获取类型总数
      */
     public int getTypeCount() {
-        return vulnerabilitiesByType.size();
+        return indices().byType.size();
     }
     
     /**
@@ -207,11 +230,26 @@ public class FlowSpotVulnerabilityCollection {
         return analysisBasePath;
     }
     
+    /**
+     * 设置本次分析的规则开销统计
+     */
+    public void setRuleProfiles(@NotNull List<FlowSpotRuleProfile> ruleProfiles) {
+        this.ruleProfiles = new ArrayList<>(ruleProfiles);
+    }
+    
+    /**
+     * 获取本次分析的规则开销统计（按总开销降序）
+     */
+    @NotNull
+    public List<FlowSpotRuleProfile> getRuleProfiles() {
+        return new ArrayList<>(ruleProfiles);
+    }
+    
     /**
      * 获取受影响文件总数
      */
     public int getAffectedFileCount() {
-        return vulnerabilitiesByFile.size();
+        return indices().byFile.size();
     }
     
     /**
@@ -219,7 +257,7 @@ public class FlowSpotVulnerabilityCollection {
      */
     @NotNull
     public Set<String> getAllCategories() {
-        return new HashSet<>(vulnerabilitiesByCategory.keySet());
+        return new HashSet<>(indices().byCategory.keySet());
     }
     
     /**
@@ -227,7 +265,7 @@ public class FlowSpotVulnerabilityCollection {
      */
     @NotNull
     public Set<String> getAllTypes() {
-        return new HashSet<>(vulnerabilitiesByType.keySet());
+        return new HashSet<>(indices().byType.keySet());
     }
     
     /**
@@ -235,7 +273,7 @@ public class FlowSpotVulnerabilityCollection {
      */
     @NotNull
     public Set<String> getAllAffectedFiles() {
-        return new HashSet<>(vulnerabilitiesByFile.keySet());
+        return new HashSet<>(indices().byFile.keySet());
     }
     
     /**
@@ -243,22 +281,21 @@ public class FlowSpotVulnerabilityCollection {
      */
     @NotNull
     public Map<String, List<FlowSpotVulnerability>> getVulnerabilitiesBySeverity() {
-        return vulnerabilities.stream()
-                             .collect(Collectors.groupingBy(FlowSpotVulnerability::getSeverity));
+        return new HashMap<>(indices().bySeverity);
     }
     
     /**
      * 获取所有漏洞列表
      */
     @NotNull
-    public List<FlowSpotVulnerability> getAllVulnerabilities() {
+    public synchronized List<FlowSpotVulnerability> getAllVulnerabilities() {
         return new ArrayList<>(vulnerabilities);
     }
     
     /**
      * 检查是否为空
      */
-    public boolean isEmpty() {
+    public synchronized boolean isEmpty() {
         return vulnerabilities.isEmpty();
     }
     
@@ -276,4 +313,42 @@ public class FlowSpotVulnerabilityCollection {
         return String.format("FlowSpotVulnerabilityCollection[project=%s, %s]", 
                            projectName, getStatistics());
     }
+    
+    /**
+     * 一次遍历构建的只读索引，各分组内保持添加顺序
+     */
+    private static final class Indices {
+        private final Map<String, List<FlowSpotVulnerability>> byCategory = new HashMap<>();
+        private final Map<String, List<FlowSpotVulnerability>> byType = new HashMap<>();
+        private final Map<String, List<FlowSpotVulnerability>> byFile = new HashMap<>();
+        private final Map<Integer, List<FlowSpotVulnerability>> byPriority = new HashMap<>();
+        private final Map<String, List<FlowSpotVulnerability>> bySeverity = new HashMap<>();
+        private final Map<String, FlowSpotVulnerability> byId;
+        
+        private Indices(@NotNull List<FlowSpotVulnerability> vulnerabilities) {
+            byId = new HashMap<>(vulnerabilities.size() * 2);
+            for (FlowSpotVulnerability vulnerability : vulnerabilities) {
+                byCategory.computeIfAbsent(vulnerability.getCategory(), k -> new ArrayList<>()).add(vulnerability);
+                byType.computeIfAbsent(vulnerability.getType(), k -> new ArrayList<>()).add(vulnerability);
+                byPriority.computeIfAbsent(vulnerability.getPriority(), k -> new ArrayList<>()).add(vulnerability);
+                bySeverity.computeIfAbsent(vulnerability.getSeverity(), k -> new ArrayList<>()).add(vulnerability);
+                
+                FlowSpotLocation primaryLocation = vulnerability.getPrimaryLocation();
+                String fileName = primaryLocation != null ? primaryLocation.getFileName() : "Unknown";
+                byFile.computeIfAbsent(fileName, k -> new ArrayList<>()).add(vulnerability);
+                
+                // 与按顺序查找一致，重复ID时保留第一个
+                byId.putIfAbsent(vulnerability.getId(), vulnerability);
+            }
+            freeze(byCategory);
+            freeze(byType);
+            freeze(byFile);
+            freeze(byPriority);
+            freeze(bySeverity);
+        }
+        
+        private static <K> void freeze(@NotNull Map<K, List<FlowSpotVulnerability>> index) {
+            index.replaceAll((key, list) -> Collections.unmodifiableList(list));
+        }
+    }
 }
@@ -0,0 +1,474 @@
+/*
+ * Copyright 2024 FlowSpot plugin contributors
+ *
+ * This file is part of IntelliJ FlowSpot plugin.
+ *
+ * IntelliJ FlowSpot plugin is free software: you can redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * IntelliJ FlowSpot plugin is distributed in the hope that it will
+ * be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with IntelliJ FlowSpot plugin.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.flowspot.intellij.service;
+
+import com.flowspot.intellij.model.FlowSpotLocation;
+import com.flowspot.intellij.model.FlowSpotVulnerability;
+import com.flowspot.intellij.model.FlowSpotVulnerabilityCollection;
+import com.intellij.openapi.Disposable;
+import com.intellij.openapi.application.ReadAction;
+import com.intellij.openapi.components.Service;
+import com.intellij.openapi.module.Module;
+import com.intellij.openapi.module.ModuleManager;
+import com.intellij.openapi.progress.ProgressManager;
+import com.intellij.openapi.project.DumbService;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.roots.ModuleRootManager;
+import com.intellij.openapi.roots.ProjectRootManager;
+import com.intellij.openapi.util.io.FileUtil;
+import com.intellij.openapi.vfs.LocalFileSystem;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.openapi.vfs.VirtualFileManager;
+import com.intellij.openapi.vfs.newvfs.BulkFileListener;
+import com.intellij.openapi.vfs.newvfs.events.VFileCopyEvent;
+import com.intellij.openapi.vfs.newvfs.events.VFileCreateEvent;
+import com.intellij.openapi.vfs.newvfs.events.VFileDeleteEvent;
+import com.intellij.openapi.vfs.newvfs.events.VFileEvent;
+import com.intellij.openapi.vfs.newvfs.events.VFileMoveEvent;
+import com.intellij.openapi.vfs.newvfs.events.VFilePropertyChangeEvent;
+import com.intellij.psi.PsiClass;
+import com.intellij.psi.search.FilenameIndex;
+import com.intellij.psi.search.GlobalSearchScope;
+import com.intellij.psi.search.PsiShortNamesCache;
+import com.intellij.util.concurrency.AppExecutorUtil;
+import omni.flowspot.annotations.FlowSpotSourceLineAnnotation;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.jetbrains.concurrency.CancellablePromise;
+
+import java.io.File;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * FlowSpot 源文件解析缓存
+ * 缓存 (文件名, 类名) 和源文件路径到 VirtualFile 的解析结果（包括未找到），
+ * 结果发布时在后台预热；源文件或目录创建、删除、移动、复制或重命名时只清除受影响的条目，
+ * .flowspot 状态目录和排除目录（构建输出等）中的变化不影响缓存
+ */
+@Service(Service.Level.PROJECT)
+public final class FlowSpotFileResolver implements Disposable {
+
+    private static final Set<String> SOURCE_EXTENSIONS = Set.of("java", "jsp", "kt", "groovy", "scala");
+
+    private final Project project;
+    private final Map<String, Optional<VirtualFile>> locationCache = new ConcurrentHashMap<>();
+    private final Map<String, Optional<VirtualFile>> pathCache = new ConcurrentHashMap<>();
+    private volatile CancellablePromise<Integer> prewarmTask;
+    // 最近一次预热的结果集的分析基础路径，可能位于项目内容根之外
+    private volatile String analysisBasePath;
+
+    public FlowSpotFileResolver(@NotNull Project project) {
+        this.project = project;
+
+        // 文件内容变化不影响解析结果，只有本项目内容根或分析基础路径下源文件和目录的结构变化才清除缓存条目
+        project.getMessageBus().connect(this).subscribe(VirtualFileManager.VFS_CHANGES, new BulkFileListener() {
+            @Override
+            public void after(@NotNull List<? extends VFileEvent> events) {
+                List<String> roots = null;
+                List<String> excluded = null;
+                for (VFileEvent event : events) {
+                    if (!isStructural(event)) {
+                        continue;
+                    }
+                    if (roots == null) {
+                        roots = watchedRoots();
+                        excluded = excludedRoots();
+                    }
+                    boolean directory = isDirectory(event);
+                    for (String path : Arrays.asList(event.getPath(), oldPath(event))) {
+                        if (affectsResolution(path, directory, roots, excluded)) {
+                            evict(path, directory);
+                        }
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * 获取项目级别的文件解析服务实例
+     */
+    @NotNull
+    public static FlowSpotFileResolver getInstance(@NotNull Project project) {
+        return project.getService(FlowSpotFileResolver.class);
+    }
+
+    /**
+     * 解析漏洞位置对应的源文件，需要在读操作中调用
+     */
+    @Nullable
+    public VirtualFile resolve(@NotNull FlowSpotLocation location) {
+        String className = location.getClassName();
+        String key = location.getFileName() + '\0' + className;
+        return lookup(locationCache, key, () -> findFile(location.getFileName(), className));
+    }
+
+    /**
+     * 按路径解析源文件
+     */
+    @Nullable
+    public VirtualFile findFileByPath(@NotNull String path) {
+        String normalized = normalize(path);
+        return lookup(pathCache, normalized, () -> LocalFileSystem.getInstance().findFileByPath(normalized));
+    }
+
+    /**
+     * 新的结果集发布时清空缓存，并在后台智能模式下解析结果中出现的所有源文件
+     */
+    public void prewarm(@NotNull FlowSpotVulnerabilityCollection collection) {
+        CancellablePromise<Integer> previous = prewarmTask;
+        if (previous != null) {
+            previous.cancel();
+        }
+        invalidate();
+
+        String basePath = analysisBasePath(collection);
+        analysisBasePath = basePath;
+        List<FlowSpotVulnerability> vulnerabilities = collection.getAllVulnerabilities();
+
+        prewarmTask = ReadAction.nonBlocking(() -> {
+                Set<String> paths = new HashSet<>();
+                for (FlowSpotVulnerability vulnerability : vulnerabilities) {
+                    ProgressManager.checkCanceled();
+                    // 详情尚未加载的漏洞只解析主要位置，避免为预热生成全部数据流路径
+                    if (!vulnerability.isDetailsLoaded()) {
+                        if (vulnerability.getPrimaryLocation() != null) {
+                            resolve(vulnerability.getPrimaryLocation());
+                        }
+                        continue;
+                    }
+                    for (FlowSpotLocation location : vulnerability.getLocations()) {
+                        resolve(location);
+                    }
+                    if (vulnerability.getOriginalBugInstance() != null) {
+                        for (FlowSpotSourceLineAnnotation annotation : vulnerability.getOriginalBugInstance().getAnnotations()) {
+                            String sourceFile = annotation.getSourceFile();
+                            if (sourceFile != null && paths.add(sourceFile)) {
+                                findFileByPath(toFullPath(basePath, sourceFile));
+                            }
+                        }
+                    }
+                }
+                return locationCache.size() + pathCache.size();
+            })
+            .inSmartMode(project)
+            .expireWith(this)
+            .submit(AppExecutorUtil.getAppExecutorService());
+    }
+
+    /**
+     * 结果集中相对源文件路径的基础路径：结果集的分析基础路径，没有时使用项目根路径
+     * 预热与各面板的导航都通过这里取基础路径，保证预热的缓存键与导航时查找的路径一致
+     */
+    @Nullable
+    public String analysisBasePath(@Nullable FlowSpotVulnerabilityCollection collection) {
+        if (collection != null && collection.getAnalysisBasePath() != null) {
+            return collection.getAnalysisBasePath();
+        }
+        return project.getBasePath();
+    }
+
+    /**
+     * 清空所有缓存的解析结果
+     */
+    public void invalidate() {
+        locationCache.clear();
+        pathCache.clear();
+    }
+
+    /**
+     * 将相对源文件路径拼接到分析基础路径上
+     */
+    @NotNull
+    public static String toFullPath(@Nullable String basePath, @NotNull String sourceFile) {
+        // 如果已经是绝对路径，直接返回
+        if (sourceFile.startsWith("/") || sourceFile.matches("^[A-Za-z]:.*") || basePath == null) {
+            return normalize(sourceFile);
+        }
+        return normalize(basePath + "/" + sourceFile);
+    }
+
+    @Override
+    public void dispose() {
+        invalidate();
+    }
+
+    @Nullable
+    private VirtualFile lookup(@NotNull Map<String, Optional<VirtualFile>> cache,
+                               @NotNull String key,
+                               @NotNull java.util.function.Supplier<VirtualFile> finder) {
+        Optional<VirtualFile> cached = cache.get(key);
+        if (cached != null && cached.map(VirtualFile::isValid).orElse(true)) {
+            return cached.orElse(null);
+        }
+        VirtualFile file = finder.get();
+        // 索引未就绪时查找不到的结果不可信，不缓存
+        if (file != null || !DumbService.isDumb(project)) {
+            cache.put(key, Optional.ofNullable(file));
+        }
+        return file;
+    }
+
+    /**
+     * 影响解析结果的目录：项目内容根、项目根路径和最近一次结果集的分析基础路径
+     */
+    @NotNull
+    private List<String> watchedRoots() {
+        List<String> roots = new ArrayList<>();
+        for (VirtualFile root : ProjectRootManager.getInstance(project).getContentRoots()) {
+            roots.add(root.getPath());
+        }
+        if (project.getBasePath() != null) {
+            roots.add(project.getBasePath());
+        }
+        if (analysisBasePath != null) {
+            roots.add(FileUtil.toSystemIndependentName(analysisBasePath));
+        }
+        return roots;
+    }
+
+    /**
+     * 排除目录：各模块的排除根，默认包括构建输出目录
+     */
+    @NotNull
+    private List<String> excludedRoots() {
+        List<String> roots = new ArrayList<>();
+        for (Module module : ModuleManager.getInstance(project).getModules()) {
+            for (VirtualFile root : ModuleRootManager.getInstance(module).getExcludeRoots()) {
+                roots.add(root.getPath());
+            }
+        }
+        return roots;
+    }
+
+    /**
+     * 清除受变化路径影响的缓存条目
+     * 路径缓存清除该路径及其下的条目；位置缓存中，文件变化清除同名文件的条目，
+     * 目录变化清除未找到的条目和解析到该目录下的条目
+     */
+    private void evict(@NotNull String path, boolean directory) {
+        String changed = FileUtil.toSystemIndependentName(path);
+        pathCache.keySet().removeIf(key -> FileUtil.isAncestor(changed, FileUtil.toSystemIndependentName(key), false));
+        if (directory) {
+            locationCache.values().removeIf(cached ->
+                cached.map(file -> FileUtil.isAncestor(changed, file.getPath(), false)).orElse(true));
+        } else {
+            String name = simpleName(changed);
+            locationCache.keySet().removeIf(key -> simpleName(key.substring(0, key.indexOf('\0'))).equals(name));
+        }
+    }
+
+    /**
+     * 创建、删除、移动、复制和重命名会改变解析结果，内容及其他属性变化不会
+     */
+    private static boolean isStructural(@NotNull VFileEvent event) {
+        if (event instanceof VFilePropertyChangeEvent) {
+            return VirtualFile.PROP_NAME.equals(((VFilePropertyChangeEvent) event).getPropertyName());
+        }
+        return event instanceof VFileCreateEvent || event instanceof VFileDeleteEvent
+               || event instanceof VFileMoveEvent || event instanceof VFileCopyEvent;
+    }
+
+    private static boolean isDirectory(@NotNull VFileEvent event) {
+        if (event instanceof VFileCreateEvent) {
+            return ((VFileCreateEvent) event).isDirectory();
+        }
+        VirtualFile file = event.getFile();
+        return file != null && file.isDirectory();
+    }
+
+    /**
+     * 路径位于监听的目录下、不在 .flowspot 状态目录或排除目录中，并且是目录或源文件
+     */
+    private static boolean affectsResolution(@Nullable String path, boolean directory,
+                                             @NotNull List<String> roots, @NotNull List<String> excluded) {
+        if (path == null || !isUnder(path, roots) || isUnder(path, excluded)) {
+            return false;
+        }
+        String independent = FileUtil.toSystemIndependentName(path);
+        if (independent.contains("/.flowspot/") || independent.endsWith("/.flowspot")) {
+            return false;
+        }
+        return directory || SOURCE_EXTENSIONS.contains(FileUtil.getExtension(independent).toLowerCase(Locale.ROOT));
+    }
+
+    @NotNull
+    private static String simpleName(@NotNull String path) {
+        return new File(FileUtil.toSystemIndependentName(path)).getName();
+    }
+
+    private static boolean isUnder(@Nullable String path, @NotNull List<String> roots) {
+        if (path == null) {
+            return false;
+        }
+        for (String root : roots) {
+            if (FileUtil.isAncestor(root, path, false)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 移动和重命名事件的原路径，其他事件为 null
+     */
+    @Nullable
+    private static String oldPath(@NotNull VFileEvent event) {
+        if (event instanceof VFileMoveEvent) {
+            return ((VFileMoveEvent) event).getOldPath();
+        }
+        if (event instanceof VFilePropertyChangeEvent) {
+            return ((VFilePropertyChangeEvent) event).getOldPath();
+        }
+        return null;
+    }
+
+    @NotNull
+    private static String normalize(@NotNull String path) {
+        try {
+            return Paths.get(path).normalize().toString();
+        } catch (Exception e) {
+            return path;
+        }
+    }
+
+    /**
+     * 查找文件：依次按文件名索引、类名索引和本地文件系统查找
+     */
+    @Nullable
+    private VirtualFile findFile(@NotNull String fileName, @Nullable String className) {
+        // 策略1: 通过文件名搜索
+        VirtualFile file = findByFileName(fileName);
+        if (file != null) {
+            return file;
+        }
+
+        // 策略2: 通过类名搜索
+        if (className != null && !className.isEmpty()) {
+            file = findByClassName(className);
+            if (file != null) {
+                return file;
+            }
+        }
+
+        // 策略3: 通过本地文件系统
+        return findByLocalFileSystem(fileName);
+    }
+
+    /**
+     * 通过文件名查找文件
+     */
+    @Nullable
+    private VirtualFile findByFileName(@NotNull String fileName) {
+        try {
+            // 获取简单文件名（去掉路径）
+            String simpleFileName = new File(fileName).getName();
+
+            // 在项目范围内搜索
+            Collection<VirtualFile> files = FilenameIndex.getVirtualFilesByName(
+                project, simpleFileName, GlobalSearchScope.projectScope(project));
+
+            if (!files.isEmpty()) {
+                // 优先选择完全匹配的文件
+                for (VirtualFile file : files) {
+                    if (file.getPath().endsWith(fileName)) {
+                        return file;
+                    }
+                }
+
+                // 如果没有完全匹配，返回第一个
+                return files.iterator().next();
+            }
+
+            // 尝试在所有范围内搜索
+            files = FilenameIndex.getVirtualFilesByName(
+                project, simpleFileName, GlobalSearchScope.allScope(project));
+
+            if (!files.isEmpty()) {
+                return files.iterator().next();
+            }
+
+        } catch (Exception e) {
+            // 忽略异常，尝试其他方法
+        }
+
+        return null;
+    }
+
+    /**
+     * 通过类名查找文件
+     */
+    @Nullable
+    private VirtualFile findByClassName(@NotNull String className) {
+        try {
+            // 获取简单类名
+            String simpleClassName = className.substring(className.lastIndexOf('.') + 1);
+
+            // 搜索类
+            PsiClass[] classes = PsiShortNamesCache.getInstance(project)
+                .getClassesByName(simpleClassName, GlobalSearchScope.projectScope(project));
+
+            for (PsiClass psiClass : classes) {
+                if (className.equals(psiClass.getQualifiedName())) {
+                    return psiClass.getContainingFile().getVirtualFile();
+                }
+            }
+
+            // 如果没有完全匹配，返回第一个匹配的类
+            if (classes.length > 0) {
+                return classes[0].getContainingFile().getVirtualFile();
+            }
+
+        } catch (Exception e) {
+            // 忽略异常，尝试其他方法
+        }
+
+        return null;
+    }
+
+    /**
+     * 通过本地文件系统查找文件
+     */
+    @Nullable
+    private VirtualFile findByLocalFileSystem(@NotNull String fileName) {
+        try {
+            // 尝试作为绝对路径
+            File file = new File(fileName);
+            if (file.exists() && file.isFile()) {
+                return LocalFileSystem.getInstance().findFileByIoFile(file);
+            }
+
+            // 尝试相对于项目根目录
+            if (project.getBasePath() != null) {
+                file = new File(project.getBasePath(), fileName);
+                if (file.exists() && file.isFile()) {
+                    return LocalFileSystem.getInstance().findFileByIoFile(file);
+                }
+            }
+
+        } catch (Exception e) {
+            // 忽略异常
+        }
+
+        return null;
+    }
+}
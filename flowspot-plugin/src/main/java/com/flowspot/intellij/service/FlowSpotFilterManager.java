@@ -52,6 +52,8 @@ public final class FlowSpotFilterManager {
     private final Set<FlowSpotFilterRule> filterRules;
     private final FlowSpotLogManager logManager;
     private Path filterFilePath;
+    // 编译后的规则，规则变化时置空，下次匹配时重新编译
+    private volatile FlowSpotFilterMatcher matcher;
     
     public FlowSpotFilterManager(@NotNull Project project) {
         this.project = project;
@@ -116,6 +118,7 @@ public final class FlowSpotFilterManager {
      */
     public void loadFilterRules(@Nullable String analysisPath) {
         filterRules.clear();
+        matcher = null;
         
         // 更新过滤文件路径
         this.filterFilePath = getFilterFilePath(analysisPath);
@@ -142,6 +145,7 @@ public final class FlowSpotFilterManager {
                 try {
                     FlowSpotFilterRule rule = FlowSpotFilterRule.fromString(line);
                     filterRules.add(rule);
+                    matcher = null;
                     loadedRules++;
                 } catch (Exception e) {
                     logManager.logWarning("Failed to parse filter rule at line " + lineNumber + ": " + line);
@@ -197,6 +201,7 @@ public final class FlowSpotFilterManager {
      */
     public void addFilterRule(@NotNull FlowSpotFilterRule rule) {
         if (filterRules.add(rule)) {
+            matcher = null;
             logManager.logInfo("Added filter rule: " + rule.getDisplayName());
             saveFilterRules();
         } else {
@@ -209,6 +214,7 @@ public final class FlowSpotFilterManager {
      */
     public boolean removeFilterRule(@NotNull FlowSpotFilterRule rule) {
         if (filterRules.remove(rule)) {
+            matcher = null;
             logManager.logInfo("Removed filter rule: " + rule.getDisplayName());
             saveFilterRules();
             return true;
@@ -222,6 +228,7 @@ public final class FlowSpotFilterManager {
     public void clearAllFilterRules() {
         int count = filterRules.size();
         filterRules.clear();
+        matcher = null;
         logManager.logInfo("Cleared " + count + " filter rules");
         saveFilterRules();
     }
@@ -245,7 +252,20 @@ public final class FlowSpotFilterManager {
      * 检查漏洞是否被过滤
      */
     public boolean isVulnerabilityFiltered(@NotNull FlowSpotVulnerability vulnerability) {
-        return filterRules.stream().anyMatch(rule -> rule.matches(vulnerability));
+        return getMatcher().matches(vulnerability);
+    }
+    
+    /**
+     * 获取编译后的规则，不存在时按当前规则编译
+     */
+    @NotNull
+    private FlowSpotFilterMatcher getMatcher() {
+        FlowSpotFilterMatcher current = matcher;
+        if (current == null) {
+            current = new FlowSpotFilterMatcher(filterRules);
+            matcher = current;
+        }
+        return current;
     }
     
     /**
@@ -261,9 +281,10 @@ public final class FlowSpotFilterManager {
         List<FlowSpotVulnerability> originalVulnerabilities = collection.getVulnerabilities();
         List<FlowSpotVulnerability> filteredVulnerabilities = new ArrayList<>();
         int filteredCount = 0;
+        FlowSpotFilterMatcher currentMatcher = getMatcher();
         
         for (FlowSpotVulnerability vulnerability : originalVulnerabilities) {
-            if (!isVulnerabilityFiltered(vulnerability)) {
+            if (!currentMatcher.matches(vulnerability)) {
                 filteredVulnerabilities.add(vulnerability);
             } else {
                 filteredCount++;
@@ -277,7 +298,8 @@ public final class FlowSpotFilterManager {
         // 创建新的过滤后的集合，保持原有的分析基础路径
         FlowSpotVulnerabilityCollection filteredCollection = new FlowSpotVulnerabilityCollection(
             collection.getProjectName(), collection.getAnalysisBasePath());
-        filteredVulnerabilities.forEach(filteredCollection::addVulnerability);
+        filteredCollection.addVulnerabilities(filteredVulnerabilities);
+        filteredCollection.setRuleProfiles(collection.getRuleProfiles());
         
         return filteredCollection;
     }
@@ -0,0 +1,193 @@
+/*
+ * Copyright 2024 FlowSpot plugin contributors
+ *
+ * This file is part of IntelliJ FlowSpot plugin.
+ *
+ * IntelliJ FlowSpot plugin is free software: you can redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * IntelliJ FlowSpot plugin is distributed in the hope that it will
+ * be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with IntelliJ FlowSpot plugin.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.flowspot.intellij.service;
+
+import com.flowspot.intellij.model.FlowSpotFilterRule;
+import com.flowspot.intellij.model.FlowSpotVulnerability;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 编译后的过滤规则集合
+ * 精确、类名、方法名匹配编译为哈希集合，包含匹配编译为 Aho-Corasick 自动机，
+ * 每个 (类名, 方法名) 的判定结果缓存在实例中；规则变化时整体重新编译
+ */
+final class FlowSpotFilterMatcher {
+
+    private final Set<String> classNames = new HashSet<>();
+    private final Set<String> methodNames = new HashSet<>();
+    private final Map<String, Set<String>> exactMethodsByClass = new HashMap<>();
+    private final SubstringAutomaton classContains;
+    private final SubstringAutomaton methodContains;
+    private final Map<Signature, Boolean> verdicts = new ConcurrentHashMap<>();
+
+    FlowSpotFilterMatcher(@NotNull Collection<FlowSpotFilterRule> rules) {
+        List<String> classPatterns = new ArrayList<>();
+        List<String> methodPatterns = new ArrayList<>();
+
+        for (FlowSpotFilterRule rule : rules) {
+            switch (rule.getFilterType()) {
+                case EXACT_MATCH:
+                    exactMethodsByClass.computeIfAbsent(rule.getClassName(), k -> new HashSet<>()).add(rule.getMethodName());
+                    break;
+                case CLASS_MATCH:
+                    classNames.add(rule.getClassName());
+                    break;
+                case METHOD_MATCH:
+                    methodNames.add(rule.getMethodName());
+                    break;
+                case CONTAINS_MATCH:
+                    classPatterns.add(rule.getClassName());
+                    methodPatterns.add(rule.getMethodName());
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        this.classContains = new SubstringAutomaton(classPatterns);
+        this.methodContains = new SubstringAutomaton(methodPatterns);
+    }
+
+    /**
+     * 检查漏洞的数据流路径中是否有被过滤的节点
+     * 只读取路径节点的类名与方法名，不会为过滤生成漏洞详情
+     */
+    boolean matches(@NotNull FlowSpotVulnerability vulnerability) {
+        for (FlowSpotVulnerability.PathMethod pathMethod : vulnerability.getPathMethods()) {
+            String className = pathMethod.className();
+            String methodName = pathMethod.methodName();
+            if (className != null && methodName != null && matches(className, methodName)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean matches(@NotNull String className, @NotNull String methodName) {
+        return verdicts.computeIfAbsent(new Signature(className, methodName), this::evaluate);
+    }
+
+    private boolean evaluate(@NotNull Signature signature) {
+        if (classNames.contains(signature.className) || methodNames.contains(signature.methodName)) {
+            return true;
+        }
+        Set<String> exactMethods = exactMethodsByClass.get(signature.className);
+        if (exactMethods != null && exactMethods.contains(signature.methodName)) {
+            return true;
+        }
+        return classContains.containsAny(signature.className) || methodContains.containsAny(signature.methodName);
+    }
+
+    private record Signature(String className, String methodName) {
+    }
+
+    /**
+     * 多模式子串匹配自动机，一次扫描判断文本是否包含任一模式
+     */
+    private static final class SubstringAutomaton {
+
+        private final List<Map<Character, Integer>> transitions = new ArrayList<>();
+        private final List<Integer> failure = new ArrayList<>();
+        private final List<Boolean> terminal = new ArrayList<>();
+        // 空模式与任何文本都匹配
+        private boolean matchesEverything = false;
+
+        private SubstringAutomaton(@NotNull List<String> patterns) {
+            newState();
+            for (String pattern : patterns) {
+                if (pattern.isEmpty()) {
+                    matchesEverything = true;
+                    continue;
+                }
+                int state = 0;
+                for (int i = 0; i < pattern.length(); i++) {
+                    char c = pattern.charAt(i);
+                    Integer next = transitions.get(state).get(c);
+                    if (next == null) {
+                        next = newState();
+                        transitions.get(state).put(c, next);
+                    }
+                    state = next;
+                }
+                terminal.set(state, true);
+            }
+            buildFailureLinks();
+        }
+
+        private int newState() {
+            transitions.add(new HashMap<>());
+            failure.add(0);
+            terminal.add(false);
+            return transitions.size() - 1;
+        }
+
+        /**
+         * 按广度优先计算失败指针，并把失败链上的终止状态向下传递
+         */
+        private void buildFailureLinks() {
+            Deque<Integer> queue = new ArrayDeque<>(transitions.get(0).values());
+            while (!queue.isEmpty()) {
+                int state = queue.poll();
+                for (Map.Entry<Character, Integer> edge : transitions.get(state).entrySet()) {
+                    int child = edge.getValue();
+                    int fallback = step(failure.get(state), edge.getKey());
+                    failure.set(child, fallback);
+                    if (terminal.get(fallback)) {
+                        terminal.set(child, true);
+                    }
+                    queue.add(child);
+                }
+            }
+        }
+
+        private int step(int state, char c) {
+            while (true) {
+                Integer next = transitions.get(state).get(c);
+                if (next != null) {
+                    return next;
+                }
+                if (state == 0) {
+                    return 0;
+                }
+                state = failure.get(state);
+            }
+        }
+
+        boolean containsAny(@NotNull String text) {
+            if (matchesEverything) {
+                return true;
+            }
+            if (transitions.size() == 1) {
+                return false;
+            }
+            int state = 0;
+            for (int i = 0; i < text.length(); i++) {
+                state = step(state, text.charAt(i));
+                if (terminal.get(state)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
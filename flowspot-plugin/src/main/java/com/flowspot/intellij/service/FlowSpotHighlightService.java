@@ -1,32 +1,67 @@
 package com.flowspot.intellij.service;
 
-import com.intellij.openapi.application.ApplicationManager;
+import com.flowspot.intellij.model.FlowSpotLocation;
+import com.flowspot.intellij.model.FlowSpotVulnerability;
+import com.intellij.openapi.Disposable;
+import com.intellij.openapi.application.ModalityState;
+import com.intellij.openapi.application.ReadAction;
 import com.intellij.openapi.components.Service;
+import com.intellij.openapi.editor.Document;
 import com.intellij.openapi.editor.Editor;
+import com.intellij.openapi.editor.impl.DocumentMarkupModel;
 import com.intellij.openapi.editor.markup.HighlighterLayer;
+import com.intellij.openapi.editor.markup.HighlighterTargetArea;
 import com.intellij.openapi.editor.markup.MarkupModel;
 import com.intellij.openapi.editor.markup.RangeHighlighter;
 import com.intellij.openapi.editor.markup.TextAttributes;
+import com.intellij.openapi.fileEditor.FileDocumentManager;
+import com.intellij.openapi.fileEditor.FileEditorManager;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.TextRange;
+import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.ui.JBColor;
+import com.intellij.util.concurrency.AppExecutorUtil;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.awt.*;
+import java.util.*;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
 /**
  * FlowSpot 统一高亮管理服务
- * 提供全局的代码高亮管理，确保同一时间只有一个高亮存在
+ * 项目级服务，管理本项目编辑器中的代码高亮，确保同一时间只有一个高亮存在
+ *
+ * 另外支持高亮整条数据流路径：按文档缓存一组路径高亮，切换漏洞时只删除不再需要的、添加新增的，
+ * 范围未变的高亮直接复用；项目关闭时释放全部高亮和文档引用
  */
-@Service
-public final class FlowSpotHighlightService {
+@Service(Service.Level.PROJECT)
+public final class FlowSpotHighlightService implements Disposable {
+    
+    private final Project project;
     
     // 当前高亮信息
     private RangeHighlighter currentHighlighter = null;
     private Editor currentEditor = null;
     
+    // 整条路径的高亮，按文档分组，同一范围只保留一个高亮
+    private static final TextAttributes PATH_ATTRIBUTES = new TextAttributes(
+        null, new JBColor(new Color(255, 244, 204), new Color(74, 65, 32)), null, null, Font.PLAIN);
+    private final Map<Document, Map<TextRange, RangeHighlighter>> pathHighlighters = new HashMap<>();
+    // 每次请求递增，丢弃过期的后台计算结果
+    private final AtomicLong pathGeneration = new AtomicLong();
+    
+    public FlowSpotHighlightService(@NotNull Project project) {
+        this.project = project;
+    }
+    
     /**
-     * 获取服务实例
+     * 获取项目级别的高亮服务实例
      */
-    public static FlowSpotHighlightService getInstance() {
-        return ApplicationManager.getApplication().getService(FlowSpotHighlightService.class);
+    @NotNull
+    public static FlowSpotHighlightService getInstance(@NotNull Project project) {
+        return project.getService(FlowSpotHighlightService.class);
     }
     
     /**
@@ -85,4 +120,150 @@ public final class FlowSpotHighlightService {
     public Editor getCurrentEditor() {
         return hasCurrentHighlight() ? currentEditor : null;
     }
+    
+    /**
+     * 在所有已打开的编辑器中高亮漏洞的整条数据流路径，替换之前的路径高亮
+     * 文件解析和偏移计算在后台读操作中完成，每个文档一次；高亮增删在 EDT 上一次性完成
+     */
+    public void highlightPath(@NotNull FlowSpotVulnerability vulnerability) {
+        long generation = pathGeneration.incrementAndGet();
+        List<FlowSpotLocation> locations = vulnerability.getLocations();
+        
+        ReadAction.nonBlocking(() -> computePathRanges(project, locations))
+            .expireWith(this)
+            .finishOnUiThread(ModalityState.defaultModalityState(), ranges -> {
+                if (generation == pathGeneration.get()) {
+                    applyPathRanges(ranges);
+                }
+            })
+            .submit(AppExecutorUtil.getAppExecutorService());
+    }
+    
+    /**
+     * 移除所有路径高亮，需要在 EDT 上调用
+     */
+    public void clearPathHighlights() {
+        pathGeneration.incrementAndGet();
+        for (Map<TextRange, RangeHighlighter> highlighters : pathHighlighters.values()) {
+            highlighters.values().forEach(RangeHighlighter::dispose);
+        }
+        pathHighlighters.clear();
+    }
+    
+    @Override
+    public void dispose() {
+        removeCurrentHighlight();
+        clearPathHighlights();
+    }
+    
+    /**
+     * 按文档计算路径上各位置的范围，只处理已在编辑器中打开的文件
+     */
+    @NotNull
+    private static Map<Document, PathRanges> computePathRanges(@NotNull Project project,
+                                                               @NotNull List<FlowSpotLocation> locations) {
+        FlowSpotFileResolver resolver = FlowSpotFileResolver.getInstance(project);
+        FileEditorManager editorManager = FileEditorManager.getInstance(project);
+        Map<VirtualFile, Document> documents = new HashMap<>();
+        Map<Document, PathRanges> result = new LinkedHashMap<>();
+        
+        for (FlowSpotLocation location : locations) {
+            if (!location.hasLineInfo()) {
+                continue;
+            }
+            VirtualFile file = resolver.resolve(location);
+            if (file == null || !editorManager.isFileOpen(file)) {
+                continue;
+            }
+            Document document = documents.computeIfAbsent(file, f -> FileDocumentManager.getInstance().getCachedDocument(f));
+            if (document == null) {
+                continue;
+            }
+            TextRange range = rangeOf(document, location);
+            if (range != null) {
+                result.computeIfAbsent(document, d -> new PathRanges(d.getModificationStamp())).ranges.add(range);
+            }
+        }
+        return result;
+    }
+    
+    /**
+     * 位置在文档中的范围，列偏移与单步导航时的高亮一致；没有列信息时高亮整行
+     */
+    @Nullable
+    private static TextRange rangeOf(@NotNull Document document, @NotNull FlowSpotLocation location) {
+        int line = location.getStartLine() - 1;
+        if (line < 0 || line >= document.getLineCount()) {
+            return null;
+        }
+        int lineStart = document.getLineStartOffset(line);
+        int lineEnd = document.getLineEndOffset(line);
+        int start = lineStart;
+        int end = lineEnd;
+        if (location.hasColumnInfo()) {
+            int startColumn = location.getStartColumn() - 1;
+            int endColumn = location.getEndColumn();
+            if (startColumn >= 0 && lineStart + startColumn <= lineEnd) {
+                start = lineStart + startColumn;
+            }
+            end = endColumn > startColumn && lineStart + endColumn <= lineEnd ? lineStart + endColumn : Math.min(start + 10, lineEnd);
+        }
+        return start < end ? new TextRange(start, end) : null;
+    }
+    
+    /**
+     * 按文档对比新旧范围，复用未变化的高亮
+     */
+    private void applyPathRanges(@NotNull Map<Document, PathRanges> ranges) {
+        Iterator<Map.Entry<Document, Map<TextRange, RangeHighlighter>>> it = pathHighlighters.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<Document, Map<TextRange, RangeHighlighter>> entry = it.next();
+            if (!ranges.containsKey(entry.getKey())) {
+                entry.getValue().values().forEach(RangeHighlighter::dispose);
+                it.remove();
+            }
+        }
+        
+        for (Map.Entry<Document, PathRanges> entry : ranges.entrySet()) {
+            Document document = entry.getKey();
+            // 计算后文档被修改过，偏移已不可靠，保留该文档原有高亮
+            if (document.getModificationStamp() != entry.getValue().modificationStamp) {
+                continue;
+            }
+            Set<TextRange> wanted = entry.getValue().ranges;
+            Map<TextRange, RangeHighlighter> existing = pathHighlighters.computeIfAbsent(document, d -> new HashMap<>());
+            
+            existing.entrySet().removeIf(highlighter -> {
+                if (!wanted.contains(highlighter.getKey()) || !highlighter.getValue().isValid()) {
+                    highlighter.getValue().dispose();
+                    return true;
+                }
+                return false;
+            });
+            
+            MarkupModel markupModel = DocumentMarkupModel.forDocument(document, project, true);
+            for (TextRange range : wanted) {
+                if (!existing.containsKey(range)) {
+                    existing.put(range, markupModel.addRangeHighlighter(
+                        range.getStartOffset(), range.getEndOffset(),
+                        HighlighterLayer.SELECTION - 1,
+                        PATH_ATTRIBUTES,
+                        HighlighterTargetArea.EXACT_RANGE
+                    ));
+                }
+            }
+        }
+    }
+    
+    /**
+     * 单个文档中路径的范围及计算时的文档版本
+     */
+    private static final class PathRanges {
+        private final long modificationStamp;
+        private final Set<TextRange> ranges = new LinkedHashSet<>();
+        
+        private PathRanges(long modificationStamp) {
+            this.modificationStamp = modificationStamp;
+        }
+    }
 }
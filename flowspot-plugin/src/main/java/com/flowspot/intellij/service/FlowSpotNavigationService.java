@@ -25,19 +25,12 @@ import com.intellij.openapi.editor.markup.*;
 import com.intellij.openapi.fileEditor.FileEditorManager;
 import com.intellij.openapi.fileEditor.OpenFileDescriptor;
 import com.intellij.openapi.project.Project;
-import com.intellij.openapi.vfs.LocalFileSystem;
 import com.intellij.openapi.vfs.VirtualFile;
-import com.intellij.psi.PsiClass;
-import com.intellij.psi.search.FilenameIndex;
-import com.intellij.psi.search.GlobalSearchScope;
-import com.intellij.psi.search.PsiShortNamesCache;
 import com.intellij.ui.JBColor;
 import com.flowspot.intellij.model.FlowSpotLocation;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
-import java.io.File;
-import java.util.Collection;
 
 /**
  * FlowSpot 代码导航服务
@@ -61,7 +54,7 @@ public class FlowSpotNavigationService {
     public boolean navigateToLocation(@NotNull FlowSpotLocation location) {
         // 在后台线程中查找文件
         ApplicationManager.getApplication().executeOnPooledThread(() -> {
-            VirtualFile file = ApplicationManager.getApplication().runReadAction((com.intellij.openapi.util.Computable<VirtualFile>) () -> findFile(location));
+            VirtualFile file = ApplicationManager.getApplication().runReadAction((com.intellij.openapi.util.Computable<VirtualFile>) () -> FlowSpotFileResolver.getInstance(project).resolve(location));
             
             if (file != null) {
                 // 在EDT上打开文件
@@ -143,135 +136,6 @@ public class FlowSpotNavigationService {
      * 添加代码高亮 - 使用统一的高亮服务
      */
     private void addHighlight(@NotNull Editor editor, int startOffset, int endOffset) {
-        FlowSpotHighlightService.getInstance().addHighlight(editor, startOffset, endOffset);
-    }
-    
-    /**
-     * 查找文件
-     */
-    @Nullable
-    private VirtualFile findFile(@NotNull FlowSpotLocation location) {
-        String fileName = location.getFileName();
-        String className = location.getClassName();
-        
-        // 策略1: 通过文件名搜索
-        VirtualFile file = findByFileName(fileName);
-        if (file != null) {
-            return file;
-        }
-        
-        // 策略2: 通过类名搜索
-        if (className != null && !className.isEmpty()) {
-            file = findByClassName(className);
-            if (file != null) {
-                return file;
-            }
-        }
-        
-        // 策略3: 通过本地文件系统
-        file = findByLocalFileSystem(fileName);
-        if (file != null) {
-            return file;
-        }
-        
-        return null;
-    }
-    
-    /**
-     * 通过文件名查找文件
-     */
-    @Nullable
-    private VirtualFile findByFileName(@NotNull String fileName) {
-        try {
-            // 获取简单文件名（去掉路径）
-            String simpleFileName = new File(fileName).getName();
-            
-            // 在项目范围内搜索
-            Collection<VirtualFile> files = FilenameIndex.getVirtualFilesByName(
-                project, simpleFileName, GlobalSearchScope.projectScope(project));
-            
-            if (!files.isEmpty()) {
-                // 优先选择完全匹配的文件
-                for (VirtualFile file : files) {
-                    if (file.getPath().endsWith(fileName)) {
-                        return file;
-                    }
-                }
-                
-                // 如果没有完全匹配，返回第一个
-                return files.iterator().next();
-            }
-            
-            // 尝试在所有范围内搜索
-            files = FilenameIndex.getVirtualFilesByName(
-                project, simpleFileName, GlobalSearchScope.allScope(project));
-            
-            if (!files.isEmpty()) {
-                return files.iterator().next();
-            }
-            
-        } catch (Exception e) {
-            // 忽略异常，尝试其他方法
-        }
-        
-        return null;
-    }
-    
-    /**
-     * 通过类名查找文件
-     */
-    @Nullable
-    private VirtualFile findByClassName(@NotNull String className) {
-        try {
-            // 获取简单类名
-            String simpleClassName = className.substring(className.lastIndexOf('.') + 1);
-            
-            // 搜索类
-            PsiClass[] classes = PsiShortNamesCache.getInstance(project)
-                .getClassesByName(simpleClassName, GlobalSearchScope.projectScope(project));
-            
-            for (PsiClass psiClass : classes) {
-                if (className.equals(psiClass.getQualifiedName())) {
-                    return psiClass.getContainingFile().getVirtualFile();
-                }
-            }
-            
-            // 如果没有完全匹配，返回第一个匹配的类
-            if (classes.length > 0) {
-                return classes[0].getContainingFile().getVirtualFile();
-            }
-            
-        } catch (Exception e) {
-            // 忽略异常，尝试其他方法
-        }
-        
-        return null;
-    }
-    
-    /**
-     * 通过本地文件系统查找文件
-     */
-    @Nullable
-    private VirtualFile findByLocalFileSystem(@NotNull String fileName) {
-        try {
-            // 尝试作为绝对路径
-            File file = new File(fileName);
-            if (file.exists() && file.isFile()) {
-                return LocalFileSystem.getInstance().findFileByIoFile(file);
-            }
-            
-            // 尝试相对于项目根目录
-            if (project.getBasePath() != null) {
-                file = new File(project.getBasePath(), fileName);
-                if (file.exists() && file.isFile()) {
-                    return LocalFileSystem.getInstance().findFileByIoFile(file);
-                }
-            }
-            
-        } catch (Exception e) {
-            // 忽略异常
-        }
-        
-        return null;
+        FlowSpotHighlightService.getInstance(project).addHighlight(editor, startOffset, endOffset);
     }
 }
@@ -3,6 +3,8 @@
  */
 package com.flowspot.intellij.startup;
 
+import com.flowspot.intellij.core.FlowSpotConfigManager;
+import com.flowspot.intellij.core.FlowSpotRuleLoader;
 import com.flowspot.intellij.service.GlobalSinkRulesService;
 import com.intellij.openapi.project.Project;
 import com.intellij.openapi.startup.StartupActivity;
@@ -10,7 +12,7 @@ import org.jetbrains.annotations.NotNull;
 
 /**
  * 插件启动时初始化全局 Sink 规则
- * 如果全局规则为空，从当前项目的 sinks.json 加载
+ * 如果全局规则为空，从当前项目的 sinks.json 加载，随后预热规则分类缓存
  */
 public class GlobalSinkRulesInitializer implements StartupActivity {
     
@@ -28,6 +30,10 @@ public class GlobalSinkRulesInitializer implements StartupActivity {
                 
                 System.out.println("[GlobalSinkRulesInitializer] Global sink rules initialized: " + rulesCount + " rules");
                 
+                // 预先解析规则，打开规则选择对话框和首次扫描时直接使用缓存
+                FlowSpotRuleLoader.loadSourceCategories();
+                FlowSpotRuleLoader.loadSinkCategories(new FlowSpotConfigManager(project).getEffectiveSinksJsonPath());
+                
             } catch (Exception e) {
                 System.err.println("[GlobalSinkRulesInitializer] Failed to initialize global sink rules: " + e.getMessage());
                 e.printStackTrace();